@@ -0,0 +1,126 @@
+package net.dean.jsadl.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+import net.dean.jsadl.CheckCache;
+import net.dean.jsadl.DocumentChecker;
+import net.dean.jsadl.LookupType;
+import net.dean.jsadl.Reference;
+
+/*
+ * CheckBenchmark.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.bench)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Measures checking that a document exists: online documentation served by
+ * a local stub server, with and without the check cache, and local source
+ * directories and archives.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckBenchmark {
+	private static final int CLASSES = 500;
+	private static final String CLASS = Fixtures.className(CLASSES / 2);
+
+	private File workspace;
+	private HttpServer server;
+	private URL page;
+	private URL missingPage;
+	private File noCacheFile;
+	private CheckCache cache;
+	private DocumentChecker directoryChecker;
+	private URL directorySource;
+	private DocumentChecker archiveChecker;
+	private URL archiveSource;
+	private DocumentChecker localDocChecker;
+	private URL localDoc;
+
+	@Setup
+	public void setUp() throws IOException {
+		workspace = Fixtures.newWorkspace();
+		server = Fixtures.docServer();
+
+		Reference online = new Reference(Fixtures.sourceTree(workspace, CLASSES).getAbsolutePath(),
+				Fixtures.baseOf(server));
+		page = online.getFor(CLASS, LookupType.DOC);
+		missingPage = new URL(page, "Missing.htm");
+		noCacheFile = new File(workspace, "never-saved.cache");
+		cache = new CheckCache(new File(workspace, "checks.cache"));
+		cache.isAvailable(page);
+
+		directoryChecker = new DocumentChecker(online);
+		directorySource = online.getFor(CLASS, LookupType.SOURCE);
+
+		String zip = Fixtures.sourceArchive(workspace, CLASSES).getAbsolutePath();
+		Reference archive = new Reference(zip, Fixtures.baseOf(server));
+		archiveChecker = new DocumentChecker(archive);
+		archiveSource = archive.getFor(CLASS, LookupType.SOURCE);
+
+		Reference local = new Reference(zip, Fixtures.docTree(workspace, CLASSES).getAbsolutePath());
+		localDocChecker = new DocumentChecker(local);
+		localDoc = local.getFor(CLASS, LookupType.DOC);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		server.stop(0);
+		Fixtures.delete(workspace);
+	}
+
+	/**
+	 * A round trip to the server for every check
+	 */
+	@Benchmark
+	public boolean httpUncached() throws IOException {
+		return new CheckCache(noCacheFile).isAvailable(page);
+	}
+
+	@Benchmark
+	public boolean httpUncachedMissing() throws IOException {
+		return new CheckCache(noCacheFile).isAvailable(missingPage);
+	}
+
+	@Benchmark
+	public boolean httpCached() throws IOException {
+		return cache.isAvailable(page);
+	}
+
+	@Benchmark
+	public boolean sourceDirectory() throws IOException {
+		return directoryChecker.exists(directorySource);
+	}
+
+	@Benchmark
+	public boolean sourceArchive() throws IOException {
+		return archiveChecker.exists(archiveSource);
+	}
+
+	@Benchmark
+	public boolean docDirectory() throws IOException {
+		return localDocChecker.exists(localDoc);
+	}
+}
@@ -0,0 +1,496 @@
+package net.dean.jsadl.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.dean.jsadl.Lookup;
+import net.dean.jsadl.LookupException;
+import net.dean.jsadl.LookupRequest;
+import net.dean.jsadl.LookupService;
+
+/*
+ * CheckLoadTest.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.bench)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Puts the check and fetch path of a lookup under the load of a team: many
+ * developers looking up classes at the same time against one documentation
+ * host, which is a local stub server that can be made slow, flaky or large
+ * instead of the real internet. Every client is one developer with its own
+ * {@link LookupService} and check cache, which starts empty like on a new
+ * day. Prints the lookups done per second, their latency percentiles, how
+ * they ended, what the stub server was asked and what the clients allocated.
+ * <p>
+ * Usage: <code>CheckLoadTest [option=value...]</code>. The options are:
+ * <ul>
+ * <li><code>clients</code>: How many developers look up at the same time
+ * (200)</li>
+ * <li><code>seconds</code>: How long to measure (20), after
+ * <code>warmup</code> seconds of the same load that isn't measured (5)</li>
+ * <li><code>think</code>: How long a developer waits between lookups, in
+ * milliseconds (0)</li>
+ * <li><code>workload</code>: A file of class names to look up, one per line,
+ * picked at random. By default, most lookups are for 100 popular classes of
+ * <code>classes</code> generated ones (2000), and a <code>missing</code>
+ * fraction is for classes without a page (0.05)</li>
+ * <li><code>latency</code>: How long the server waits before answering, in
+ * milliseconds (20)</li>
+ * <li><code>errors</code>: The fraction of requests answered with
+ * <code>error-status</code> (0 and 503)</li>
+ * <li><code>head</code>: False to answer HEAD requests with 405, so pages are
+ * checked with a ranged GET (true)</li>
+ * <li><code>body</code>: The size of a page in bytes (32768)</li>
+ * <li><code>mirror</code>: True to copy pages into a mirror, which downloads
+ * them (false)</li>
+ * </ul>
+ */
+public final class CheckLoadTest {
+	private static final int POPULAR_CLASSES = 100;
+
+	private CheckLoadTest() {
+		// Main class
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>();
+		options.put("clients", "200");
+		options.put("seconds", "20");
+		options.put("warmup", "5");
+		options.put("think", "0");
+		options.put("workload", "");
+		options.put("classes", "2000");
+		options.put("missing", "0.05");
+		options.put("latency", "20");
+		options.put("errors", "0");
+		options.put("error-status", "503");
+		options.put("head", "true");
+		options.put("body", "32768");
+		options.put("mirror", "false");
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			if (equals < 0 || !options.containsKey(arg.substring(0, equals))) {
+				System.err.println("Unknown option " + arg + ", expected one of " + options.keySet());
+				System.exit(1);
+			}
+			options.put(arg.substring(0, equals), arg.substring(equals + 1));
+		}
+		int clients = Integer.parseInt(options.get("clients"));
+		int classes = Integer.parseInt(options.get("classes"));
+		// Keep a connection open for every client instead of 5
+		System.setProperty("http.maxConnections", String.valueOf(clients));
+		// Like LookupServer does, before the stub server is started
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		File workspace = Fixtures.newWorkspace();
+		StubDocServer docServer = new StubDocServer(Long.parseLong(options.get("latency")),
+				Double.parseDouble(options.get("errors")), Integer.parseInt(options.get("error-status")),
+				Boolean.parseBoolean(options.get("head")), Integer.parseInt(options.get("body")));
+		try {
+			File src = Fixtures.sourceArchive(workspace, classes);
+			File config = Fixtures.config(workspace, 1, src, docServer.getBase());
+			if (Boolean.parseBoolean(options.get("mirror"))) {
+				Files.write(config.toPath(), "mirror=1G\n".getBytes(StandardCharsets.UTF_8),
+						StandardOpenOption.APPEND);
+			}
+			Workload workload = options.get("workload").isEmpty() ? new Workload(classes,
+					Double.parseDouble(options.get("missing"))) : new Workload(new File(options.get("workload")));
+
+			// Build the class index before measuring
+			new LookupService().lookup(new LookupRequest.Builder(config, Fixtures.className(0)).check(false).build());
+
+			System.out.printf("%d clients against %s with %s\n", clients, docServer.getBase(), options);
+			long think = Long.parseLong(options.get("think"));
+			run(config, workload, clients, think, Long.parseLong(options.get("warmup")) * 1000, null);
+			docServer.reset();
+			run(config, workload, clients, think, Long.parseLong(options.get("seconds")) * 1000, docServer);
+		} finally {
+			docServer.stop();
+			Fixtures.delete(workspace);
+		}
+	}
+
+	/**
+	 * Runs the load for a while, with new clients.
+	 * 
+	 * @param docServer
+	 *            The server to report on, or null to report nothing
+	 */
+	private static void run(final File config, final Workload workload, int clients, final long think,
+			long millis, StubDocServer docServer) throws InterruptedException {
+		final Histogram latencies = new Histogram();
+		final AtomicLongArray exitCodes = new AtomicLongArray(256);
+		final AtomicLong failures = new AtomicLong();
+		final AtomicLong allocated = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final long[] deadline = new long[1];
+		final com.sun.management.ThreadMXBean threadBean = allocationBean();
+
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < clients; i++) {
+			final Random random = new Random(i);
+			Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					// One developer, with their own check cache
+					LookupService service = new LookupService(new Lookup());
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					long id = Thread.currentThread().getId();
+					long allocatedBefore = threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(id);
+					while (System.currentTimeMillis() < deadline[0]) {
+						LookupRequest request = new LookupRequest.Builder(config, workload.next(random)).build();
+						long begin = System.nanoTime();
+						try {
+							service.lookup(request);
+							exitCodes.incrementAndGet(0);
+						} catch (LookupException e) {
+							exitCodes.incrementAndGet(e.getExitCode() & 0xFF);
+						} catch (RuntimeException e) {
+							if (failures.getAndIncrement() == 0) {
+								e.printStackTrace();
+							}
+						}
+						latencies.record((System.nanoTime() - begin) / 1000);
+						if (think > 0) {
+							try {
+								Thread.sleep(think);
+							} catch (InterruptedException e) {
+								break;
+							}
+						}
+					}
+					if (threadBean != null) {
+						allocated.addAndGet(threadBean.getThreadAllocatedBytes(id) - allocatedBefore);
+					}
+				}
+			}, "client-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+
+		long[] gcBefore = gcStatistics();
+		long begin = System.currentTimeMillis();
+		deadline[0] = begin + millis;
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long took = System.currentTimeMillis() - begin;
+		long[] gcAfter = gcStatistics();
+		if (docServer == null) {
+			return;
+		}
+
+		long total = latencies.getCount();
+		StringBuilder byCode = new StringBuilder();
+		for (int code = 0; code < exitCodes.length(); code++) {
+			long count = exitCodes.get(code);
+			if (count > 0) {
+				byCode.append(' ').append(code == 0 ? "found" : "exit " + code).append('=').append(count);
+			}
+		}
+		System.out.printf("%d lookups in %d ms: %.0f lookups/s\n", total, took, total * 1000.0 / took);
+		System.out.printf("Latency: p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms\n",
+				latencies.getPercentile(0.5) / 1e3, latencies.getPercentile(0.99) / 1e3,
+				latencies.getPercentile(0.999) / 1e3, latencies.getMax() / 1e3);
+		System.out.printf("Results:%s, failures=%d\n", byCode, failures.get());
+		System.out.println("Doc server: " + docServer.getStatistics());
+		if (threadBean != null && total > 0) {
+			System.out.printf("Allocated by clients: %.1f MB, %.1f KB per lookup\n", allocated.get() / 1e6,
+					allocated.get() / 1e3 / total);
+		}
+		System.out.printf("GC: %d collections, %d ms, heap used %.1f MB\n", gcAfter[0] - gcBefore[0],
+				gcAfter[1] - gcBefore[1],
+				ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1e6);
+	}
+
+	/**
+	 * Gets the bean that counts the bytes threads allocated, if this JVM has
+	 * one.
+	 */
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+			if (allocationBean.isThreadAllocatedMemorySupported()) {
+				allocationBean.setThreadAllocatedMemoryEnabled(true);
+				return allocationBean;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the number of collections and the milliseconds spent in them so
+	 * far, over every collector.
+	 */
+	private static long[] gcStatistics() {
+		long[] statistics = new long[2];
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			statistics[0] += Math.max(0, bean.getCollectionCount());
+			statistics[1] += Math.max(0, bean.getCollectionTime());
+		}
+		return statistics;
+	}
+
+	/**
+	 * The class names the clients look up.
+	 */
+	private static final class Workload {
+		private final String[] names;
+		private final int classes;
+		private final double missing;
+
+		/**
+		 * A workload of generated classes, mostly popular ones
+		 */
+		Workload(int classes, double missing) {
+			this.names = null;
+			this.classes = classes;
+			this.missing = missing;
+		}
+
+		/**
+		 * A workload of the class names in a file
+		 */
+		Workload(File file) throws IOException {
+			List<String> lines = new ArrayList<>();
+			for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+				if (!line.trim().isEmpty()) {
+					lines.add(line.trim());
+				}
+			}
+			if (lines.isEmpty()) {
+				throw new IOException(file + " has no class names");
+			}
+			this.names = lines.toArray(new String[lines.size()]);
+			this.classes = 0;
+			this.missing = 0;
+		}
+
+		String next(Random random) {
+			if (names != null) {
+				return names[random.nextInt(names.length)];
+			} else if (random.nextDouble() < missing) {
+				return "com.example.p0.Missing" + random.nextInt(classes) + "Type";
+			} else if (random.nextInt(100) < 80) {
+				return "Generated" + random.nextInt(Math.min(POPULAR_CLASSES, classes)) + "Type";
+			}
+			return "Generated" + random.nextInt(classes) + "Type";
+		}
+	}
+
+	/**
+	 * Stands in for an online Javadoc host. Every ".html" page exists, except
+	 * for classes named "Missing...", and everything else is answered with
+	 * 404.
+	 */
+	private static final class StubDocServer implements HttpHandler {
+		private final HttpServer server;
+		private final ExecutorService executor = Executors.newCachedThreadPool();
+		private final long latency;
+		private final double errors;
+		private final int errorStatus;
+		private final boolean head;
+		private final byte[] body;
+		private final AtomicLong heads = new AtomicLong();
+		private final AtomicLong gets = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+		private final AtomicLongArray statuses = new AtomicLongArray(600);
+
+		StubDocServer(long latency, double errors, int errorStatus, boolean head, int bodySize) throws IOException {
+			this.latency = latency;
+			this.errors = errors;
+			this.errorStatus = errorStatus;
+			this.head = head;
+			this.body = new byte[bodySize];
+			Arrays.fill(body, (byte) 'x');
+			// Every client connects at once, and the default backlog of 50
+			// would make some of them wait a second to try again
+			server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+			server.createContext("/", this);
+			// Slow answers shouldn't wait for each other
+			server.setExecutor(executor);
+			server.start();
+		}
+
+		String getBase() {
+			return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				if (latency > 0) {
+					Thread.sleep(latency);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			String path = exchange.getRequestURI().getPath();
+			boolean isHead = exchange.getRequestMethod().equals("HEAD");
+			(isHead ? heads : gets).incrementAndGet();
+
+			int status;
+			if (errors > 0 && ThreadLocalRandom.current().nextDouble() < errors) {
+				status = errorStatus;
+			} else if (!path.endsWith(".html") || path.contains("/Missing")) {
+				status = 404;
+			} else if (isHead && !head) {
+				status = 405;
+			} else {
+				status = 200;
+			}
+
+			byte[] response = null;
+			if (status == 200 && !isHead) {
+				response = body;
+				if ("bytes=0-0".equals(exchange.getRequestHeaders().getFirst("Range")) && body.length > 0) {
+					status = 206;
+					response = Arrays.copyOf(body, 1);
+					exchange.getResponseHeaders().set("Content-Range", "bytes 0-0/" + body.length);
+				}
+			}
+			statuses.incrementAndGet(Math.min(status, statuses.length() - 1));
+			if (status == 200 || status == 206) {
+				exchange.getResponseHeaders().set("ETag", "\"stub\"");
+			}
+			if (response == null || response.length == 0) {
+				exchange.sendResponseHeaders(status, -1);
+			} else {
+				exchange.sendResponseHeaders(status, response.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(response);
+				}
+				bytes.addAndGet(response.length);
+			}
+			exchange.close();
+		}
+
+		void reset() {
+			heads.set(0);
+			gets.set(0);
+			bytes.set(0);
+			for (int i = 0; i < statuses.length(); i++) {
+				statuses.set(i, 0);
+			}
+		}
+
+		String getStatistics() {
+			StringBuilder statistics = new StringBuilder();
+			statistics.append("HEAD=").append(heads.get()).append(" GET=").append(gets.get());
+			for (int status = 0; status < statuses.length(); status++) {
+				long count = statuses.get(status);
+				if (count > 0) {
+					statistics.append(' ').append(status).append('=').append(count);
+				}
+			}
+			return statistics.append(", ").append(bytes.get() / 1024).append(" KB sent").toString();
+		}
+
+		void stop() {
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Counts latencies in buckets that are at most about 3% wide, so
+	 * recording one doesn't allocate and percentiles stay accurate however
+	 * many lookups there are.
+	 */
+	private static final class Histogram {
+		private static final int LINEAR = 64;
+		private static final int SUB_BUCKETS = 32;
+		private final AtomicLongArray counts = new AtomicLongArray(LINEAR + 58 * SUB_BUCKETS);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		/**
+		 * Records a latency in microseconds.
+		 */
+		void record(long micros) {
+			micros = Math.max(0, micros);
+			counts.incrementAndGet(indexOf(micros));
+			count.incrementAndGet();
+			long previous;
+			while (micros > (previous = max.get()) && !max.compareAndSet(previous, micros)) {
+				// Try again
+			}
+		}
+
+		long getCount() {
+			return count.get();
+		}
+
+		long getMax() {
+			return max.get();
+		}
+
+		/**
+		 * Gets the latency that the given fraction of lookups took at most,
+		 * in microseconds.
+		 */
+		long getPercentile(double fraction) {
+			long target = (long) Math.ceil(fraction * count.get());
+			long seen = 0;
+			for (int i = 0; i < counts.length(); i++) {
+				seen += counts.get(i);
+				if (seen >= target && seen > 0) {
+					return Math.min(upperBoundOf(i), max.get());
+				}
+			}
+			return max.get();
+		}
+
+		private static int indexOf(long value) {
+			if (value < LINEAR) {
+				return (int) value;
+			}
+			// Keep the top 6 bits of the value
+			int shift = 63 - Long.numberOfLeadingZeros(value) - 5;
+			return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+		}
+
+		private static long upperBoundOf(int index) {
+			if (index < LINEAR) {
+				return index;
+			}
+			int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+			long top = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+			return ((top + 1) << shift) - 1;
+		}
+	}
+}
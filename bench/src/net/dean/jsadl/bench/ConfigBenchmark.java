@@ -0,0 +1,101 @@
+package net.dean.jsadl.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.dean.jsadl.Configurator.Config;
+import net.dean.jsadl.Reference;
+import net.dean.parsers.ini.IniSyntaxException;
+
+/*
+ * ConfigBenchmark.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.bench)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Measures loading a configuration file, both from its snapshot and by
+ * parsing the INI file, and getting References out of it, for a small and a
+ * large file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigBenchmark {
+	@Param({ "3", "500" })
+	public int references;
+
+	private File workspace;
+	private File configFile;
+	private File snapshot;
+	private Config config;
+	private String lastName;
+
+	@Setup
+	public void setUp() throws IOException, IniSyntaxException {
+		workspace = Fixtures.newWorkspace();
+		configFile = Fixtures.config(workspace, references, new File(workspace, "src"),
+				"http://docs.oracle.com/javase/7/docs/api/");
+		snapshot = new File(configFile.getPath() + ".snapshot");
+		config = new Config(configFile);
+		lastName = config.getRefNames().get(references - 1);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Fixtures.delete(workspace);
+	}
+
+	/**
+	 * Makes every {@link ConfigBenchmark#parse(NoSnapshot)} read the INI file.
+	 * Invocation level setup adds a little overhead, which only matters for
+	 * the small file.
+	 */
+	@State(Scope.Thread)
+	public static class NoSnapshot {
+		@Setup(Level.Invocation)
+		public void deleteSnapshot(ConfigBenchmark benchmark) {
+			benchmark.snapshot.delete();
+		}
+	}
+
+	@Benchmark
+	public Config parse(NoSnapshot noSnapshot) throws IOException, IniSyntaxException {
+		return new Config(configFile);
+	}
+
+	@Benchmark
+	public Config loadSnapshot() throws IOException, IniSyntaxException {
+		return new Config(configFile);
+	}
+
+	@Benchmark
+	public Reference getRefFor() throws MalformedURLException {
+		return config.getRefFor(lastName);
+	}
+
+	@Benchmark
+	public Reference loadAndGetRef() throws IOException, IniSyntaxException {
+		return new Config(configFile).getRefFor(lastName);
+	}
+}
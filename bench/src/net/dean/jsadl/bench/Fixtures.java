@@ -0,0 +1,194 @@
+package net.dean.jsadl.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.dean.jsadl.Caches;
+
+/*
+ * Fixtures.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.bench)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Builds the files and servers the benchmarks run against, so that no
+ * benchmark depends on the network or on what is installed on the machine.
+ */
+final class Fixtures {
+	/**
+	 * The number of packages in generated source trees and archives
+	 */
+	static final int PACKAGES = 50;
+
+	private Fixtures() {
+		// Utility class
+	}
+
+	/**
+	 * Creates an empty temporary directory and points the JSaDL caches at a
+	 * directory inside it.
+	 */
+	static File newWorkspace() throws IOException {
+		File dir = Files.createTempDirectory("jsadl-bench").toFile();
+		System.setProperty(Caches.CACHE_PROPERTY, new File(dir, "cache").getAbsolutePath());
+		return dir;
+	}
+
+	/**
+	 * Deletes a directory and everything in it.
+	 */
+	static void delete(File dir) throws IOException {
+		if (dir == null || !dir.exists()) {
+			return;
+		}
+		Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Gets the fully qualified name of a generated class.
+	 */
+	static String className(int index) {
+		return "com.example.p" + (index % PACKAGES) + ".Generated" + index + "Type";
+	}
+
+	/**
+	 * Gets the contents of a generated source file, with a handful of fields,
+	 * overloaded methods and a nested class.
+	 */
+	static byte[] source(int index) {
+		String name = className(index);
+		String simpleName = name.substring(name.lastIndexOf('.') + 1);
+		StringBuilder source = new StringBuilder();
+		source.append("package ").append(name, 0, name.lastIndexOf('.')).append(";\n\n");
+		source.append("/**\n * Generated class ").append(index).append("\n */\n");
+		source.append("public class ").append(simpleName).append(" {\n");
+		source.append("\tpublic static final int CONSTANT = ").append(index).append(";\n");
+		source.append("\tprivate final String name = \"{not a brace}\";\n\n");
+		source.append("\tpublic ").append(simpleName).append("() {\n\t}\n\n");
+		for (int i = 0; i < 10; i++) {
+			source.append("\t/** Does thing ").append(i).append(" */\n");
+			source.append("\tpublic int compute").append(i).append("(int value, java.util.List<String> names) {\n");
+			source.append("\t\tif (value > ").append(i).append(") {\n\t\t\treturn names.size();\n\t\t}\n");
+			source.append("\t\treturn value;\n\t}\n\n");
+		}
+		source.append("\tpublic static class Nested {\n\t\tpublic void run() {\n\t\t}\n\t}\n}\n");
+		return source.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a source directory with the given number of generated classes.
+	 */
+	static File sourceTree(File parent, int classes) throws IOException {
+		File root = new File(parent, "src");
+		for (int i = 0; i < classes; i++) {
+			File file = new File(root, className(i).replace('.', '/') + ".java");
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), source(i));
+		}
+		return root;
+	}
+
+	/**
+	 * Writes a documentation directory with an empty page for each of the
+	 * given number of generated classes.
+	 */
+	static File docTree(File parent, int classes) throws IOException {
+		File root = new File(parent, "doc");
+		for (int i = 0; i < classes; i++) {
+			File file = new File(root, className(i).replace('.', '/') + ".html");
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), new byte[0]);
+		}
+		return root;
+	}
+
+	/**
+	 * Writes a source archive with the given number of generated classes,
+	 * laid out like the JDK's src.zip.
+	 */
+	static File sourceArchive(File parent, int classes) throws IOException {
+		File archive = new File(parent, "src.zip");
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+			for (int i = 0; i < classes; i++) {
+				zip.putNextEntry(new ZipEntry("example.module/" + className(i).replace('.', '/') + ".java"));
+				zip.write(source(i));
+				zip.closeEntry();
+			}
+		}
+		return archive;
+	}
+
+	/**
+	 * Writes a configuration file with the given number of References, all
+	 * pointing at the same source and documentation.
+	 */
+	static File config(File parent, int references, File src, String doc) throws IOException {
+		File file = new File(parent, "config-" + references + ".ini");
+		StringBuilder ini = new StringBuilder();
+		for (int i = 0; i < references; i++) {
+			ini.append('[').append(i == 0 ? "java" : "ref" + i).append("]\n");
+			ini.append("src=").append(src.getAbsolutePath()).append('\n');
+			ini.append("doc=").append(doc.replace(":", "\\:")).append('\n');
+		}
+		Files.write(file.toPath(), ini.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * Starts a local HTTP server that answers every GET and HEAD request for
+	 * an ".html" page with 200 and an empty body, and everything else with
+	 * 404, standing in for an online Javadoc host.
+	 */
+	static HttpServer docServer() throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int status = exchange.getRequestURI().getPath().endsWith(".html") ? 200 : 404;
+				exchange.getResponseHeaders().set("ETag", "\"bench\"");
+				exchange.sendResponseHeaders(status, -1);
+				exchange.close();
+			}
+		});
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Gets the documentation base URL of a server started by
+	 * {@link #docServer()}.
+	 */
+	static String baseOf(HttpServer server) {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+}
@@ -0,0 +1,122 @@
+package net.dean.jsadl.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.dean.jsadl.Lookup;
+import net.dean.jsadl.LookupException;
+import net.dean.jsadl.LookupType;
+import net.dean.jsadl.Reference;
+import net.dean.jsadl.index.ClassIndex;
+import net.dean.jsadl.index.FuzzyIndex;
+import net.dean.jsadl.index.MemberIndex;
+
+/*
+ * IndexBenchmark.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.bench)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Measures the class, member and fuzzy indexes of a generated source archive
+ * about the size of the JDK's, and a whole lookup of a simple name through
+ * {@link Lookup}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexBenchmark {
+	private static final int CLASSES = 15000;
+	private static final int TARGET = 12345;
+
+	private File workspace;
+	private Reference ref;
+	private ClassIndex classes;
+	private MemberIndex members;
+	private FuzzyIndex fuzzy;
+	private Lookup lookup;
+	private String simpleName;
+	private String className;
+
+	@Setup
+	public void setUp() throws IOException, LookupException {
+		workspace = Fixtures.newWorkspace();
+		ref = new Reference(Fixtures.sourceArchive(workspace, CLASSES).getAbsolutePath(),
+				new File(workspace, "doc").getAbsolutePath());
+		classes = ClassIndex.build(ref);
+		members = MemberIndex.forSource(ref, true);
+		fuzzy = FuzzyIndex.forClassIndex(classes, ClassIndex.fileFor(ref));
+		lookup = new Lookup();
+
+		className = Fixtures.className(TARGET);
+		simpleName = className.substring(className.lastIndexOf('.') + 1);
+		// Open everything once so the benchmarks measure warm lookups
+		lookup.find(ref, lookup.resolveClassName(ref, simpleName, false), LookupType.SOURCE, true);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Fixtures.delete(workspace);
+	}
+
+	@Benchmark
+	public List<String> resolveClass() {
+		return classes.resolve(simpleName);
+	}
+
+	@Benchmark
+	public ClassIndex openClassIndex() throws IOException {
+		return ClassIndex.forReference(ref);
+	}
+
+	@Benchmark
+	public List<MemberIndex.Entry> memberPrefix() {
+		return members.find(className, "comp");
+	}
+
+	@Benchmark
+	public List<MemberIndex.Entry> memberExact() {
+		return members.find(className, "compute7");
+	}
+
+	@Benchmark
+	public List<String> fuzzyPrefix() {
+		return fuzzy.search("Generated1234", 10);
+	}
+
+	/**
+	 * Every generated class has the initials GT, so every name is scored
+	 */
+	@Benchmark
+	public List<String> fuzzyAbbreviationWorstCase() {
+		return fuzzy.search("GT", 10);
+	}
+
+	@Benchmark
+	public List<String> fuzzyTypo() {
+		return fuzzy.search("Genertaed12345Type", 10);
+	}
+
+	@Benchmark
+	public Object lookupSimpleName() throws LookupException {
+		return lookup.find(ref, lookup.resolveClassName(ref, simpleName, false), LookupType.SOURCE, true);
+	}
+}
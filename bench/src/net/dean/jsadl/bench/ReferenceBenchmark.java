@@ -0,0 +1,90 @@
+package net.dean.jsadl.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+import net.dean.jsadl.LookupType;
+import net.dean.jsadl.Reference;
+
+/*
+ * ReferenceBenchmark.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.bench)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Measures turning a class name into a document URL with
+ * {@link Reference#getFor(String, LookupType)}, which every lookup does at
+ * least once. The documentation is served by a local stub server, and the
+ * package list is looked for before measuring, like the first checked lookup
+ * does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReferenceBenchmark {
+	private static final int CLASSES = 500;
+	private static final String CLASS = Fixtures.className(CLASSES / 2);
+
+	private File workspace;
+	private HttpServer server;
+	private Reference directory;
+	private Reference archive;
+
+	@Setup
+	public void setUp() throws IOException {
+		workspace = Fixtures.newWorkspace();
+		server = Fixtures.docServer();
+		directory = new Reference(Fixtures.sourceTree(workspace, CLASSES).getAbsolutePath(), Fixtures.baseOf(server));
+		archive = new Reference(Fixtures.sourceArchive(workspace, CLASSES).getAbsolutePath(),
+				Fixtures.baseOf(server));
+		directory.getPackageList(false);
+		archive.getPackageList(false);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		server.stop(0);
+		Fixtures.delete(workspace);
+	}
+
+	@Benchmark
+	public URL docUrl() {
+		return directory.getFor(CLASS, LookupType.DOC);
+	}
+
+	@Benchmark
+	public URL sourceUrl() {
+		return directory.getFor(CLASS, LookupType.SOURCE);
+	}
+
+	@Benchmark
+	public URL sourceArchiveUrl() {
+		return archive.getFor(CLASS, LookupType.SOURCE);
+	}
+
+	@Benchmark
+	public URL nestedDocUrl() {
+		return directory.getFor(CLASS + "$Nested", LookupType.DOC);
+	}
+}
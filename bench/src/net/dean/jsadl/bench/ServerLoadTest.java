@@ -0,0 +1,188 @@
+package net.dean.jsadl.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.sun.net.httpserver.HttpServer;
+
+import net.dean.jsadl.LookupServer;
+import net.dean.jsadl.LookupService;
+
+/*
+ * ServerLoadTest.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.bench)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Puts a {@link LookupServer} under the load of a documentation host: thousands
+ * of clients asking for classes and members at the same time, most of them
+ * for the same popular classes. Prints how many requests were answered per
+ * second, how they were answered and the slowest answer.
+ * <p>
+ * Usage: <code>ServerLoadTest [clients] [seconds]</code>, 2000 clients for
+ * 20 seconds by default.
+ */
+public final class ServerLoadTest {
+	private static final int CLASSES = 2000;
+	private static final int POPULAR_CLASSES = 100;
+
+	private ServerLoadTest() {
+		// Main class
+	}
+
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		long seconds = args.length > 1 ? Long.parseLong(args[1]) : 20;
+		// Keep a connection open for every client instead of 5
+		System.setProperty("http.maxConnections", String.valueOf(clients));
+		// Like LookupServer does, before the documentation server is started
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		File workspace = Fixtures.newWorkspace();
+		HttpServer docServer = Fixtures.docServer();
+		LookupServer server = null;
+		try {
+			File src = Fixtures.sourceArchive(workspace, CLASSES);
+			File config = Fixtures.config(workspace, 1, src, Fixtures.baseOf(docServer));
+			server = new LookupServer(new LookupService(), config);
+			server.start(new InetSocketAddress("127.0.0.1", 0), 0);
+			String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+			// Build the indexes before measuring
+			request(new URL(base + "/resolve?name=Generated0Type%23compute1&type=source"));
+			request(new URL(base + "/resolve?name=Generated0Type%23compute1"));
+
+			System.out.printf("%d clients for %d seconds against %s\n", clients, seconds, base);
+			run(base, clients, seconds * 1000);
+			System.out.println("Server: " + new String(readAll(new URL(base + "/stats")), "UTF-8").trim());
+		} finally {
+			if (server != null) {
+				server.stop();
+			}
+			docServer.stop(0);
+			Fixtures.delete(workspace);
+		}
+	}
+
+	private static void run(final String base, int clients, long millis) throws InterruptedException {
+		final AtomicLongArray statuses = new AtomicLongArray(600);
+		final AtomicLong failures = new AtomicLong();
+		final AtomicLong slowest = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final long[] deadline = new long[1];
+
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < clients; i++) {
+			final Random random = new Random(i);
+			Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					while (System.currentTimeMillis() < deadline[0]) {
+						long begin = System.nanoTime();
+						try {
+							statuses.incrementAndGet(request(new URL(base + path(random))));
+						} catch (IOException e) {
+							failures.incrementAndGet();
+						}
+						long took = System.nanoTime() - begin;
+						long max;
+						while (took > (max = slowest.get()) && !slowest.compareAndSet(max, took)) {
+							// Try again
+						}
+					}
+				}
+			}, "client-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+
+		long begin = System.currentTimeMillis();
+		deadline[0] = begin + millis;
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long took = System.currentTimeMillis() - begin;
+
+		long total = failures.get();
+		StringBuilder byStatus = new StringBuilder();
+		for (int status = 0; status < statuses.length(); status++) {
+			long count = statuses.get(status);
+			if (count > 0) {
+				total += count;
+				byStatus.append(' ').append(status).append('=').append(count);
+			}
+		}
+		System.out.printf("%d requests in %d ms: %.0f requests/s\n", total, took, total * 1000.0 / took);
+		System.out.printf("Statuses:%s, connection failures=%d\n", byStatus, failures.get());
+		System.out.printf("Slowest: %.1f ms\n", slowest.get() / 1e6);
+	}
+
+	/**
+	 * Picks a request: mostly documentation of popular classes, sometimes
+	 * the source of a member of any class, a search or a misspelled name.
+	 */
+	private static String path(Random random) {
+		int kind = random.nextInt(100);
+		if (kind < 80) {
+			return "/resolve?name=Generated" + random.nextInt(POPULAR_CLASSES) + "Type";
+		} else if (kind < 90) {
+			return "/resolve?name=Generated" + random.nextInt(CLASSES) + "Type%23compute" + random.nextInt(10)
+					+ "&type=source";
+		} else if (kind < 95) {
+			return "/search?q=Generated" + random.nextInt(CLASSES);
+		}
+		return "/resolve?name=Genreated" + random.nextInt(CLASSES) + "Type";
+	}
+
+	/**
+	 * Sends a request and reads the whole response.
+	 * 
+	 * @return The HTTP status
+	 */
+	private static int request(URL url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		int status = connection.getResponseCode();
+		try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			if (in != null) {
+				byte[] buffer = new byte[4096];
+				while (in.read(buffer) != -1) {
+					// Drain it so the connection can be reused
+				}
+			}
+		}
+		return status;
+	}
+
+	private static byte[] readAll(URL url) throws IOException {
+		try (InputStream in = url.openStream()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+}
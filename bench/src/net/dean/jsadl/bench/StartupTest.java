@@ -0,0 +1,164 @@
+package net.dean.jsadl.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * StartupTest.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.bench)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Measures what a lookup costs the person typing it: the time from starting
+ * <code>java -jar jsadl.jar</code> until the viewer has been started, for a
+ * class whose index is already built, with <code>--nocheck</code> and a
+ * viewer that exits right away. Every run is a new JVM, so unlike the JMH
+ * benchmarks this includes starting the JVM, loading classes and reading the
+ * configuration.
+ * <p>
+ * With an archive, JSaDL is also measured with that class data sharing
+ * archive, and the archive is created first if it doesn't exist. The results
+ * are printed and appended to <code>bench/startup.json</code> as JSON lines,
+ * so they can be compared across releases.
+ * <p>
+ * Usage: <code>StartupTest &lt;jar&gt; [runs] [archive] [label]</code>, 20
+ * runs by default. With 0 runs, only the archive is created.
+ */
+public final class StartupTest {
+	private static final int CLASSES = 2000;
+	private static final File RESULTS = new File("bench", "startup.json");
+
+	private StartupTest() {
+		// Main class
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			System.err.println("Usage: StartupTest <jar> [runs] [archive] [label]");
+			System.exit(1);
+		}
+		File jar = new File(args[0]).getAbsoluteFile();
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		File archive = args.length > 2 ? new File(args[2]).getAbsoluteFile() : null;
+		String label = args.length > 3 ? args[3] : "dev";
+
+		File workspace = Fixtures.newWorkspace();
+		try {
+			File src = Fixtures.sourceArchive(workspace, CLASSES);
+			File doc = Fixtures.docTree(workspace, CLASSES);
+			File config = Fixtures.config(workspace, 1, src, doc.toURI().toString());
+			File log = new File(workspace, "jsadl.log");
+			List<String> lookup = Arrays.asList("Generated0Type", "--config=" + config.getAbsolutePath(), "--nocheck",
+					"--nodaemon", "--viewer=" + viewer(workspace).getAbsolutePath());
+			List<String> plain = command(workspace, jar, null, lookup);
+			List<String> shared = archive == null ? null : command(workspace, jar,
+					"-XX:SharedArchiveFile=" + archive.getPath(), lookup);
+
+			// Build the class index and the configuration snapshot first
+			run(plain, log);
+			if (archive != null && !archive.isFile()) {
+				run(command(workspace, jar, "-XX:ArchiveClassesAtExit=" + archive.getPath(), lookup), log);
+				System.out.println("Created " + archive);
+			}
+			if (runs == 0) {
+				return;
+			}
+
+			// Take turns, so that whatever else the machine is doing slows
+			// both down the same
+			long[] plainTimes = new long[runs];
+			long[] sharedTimes = new long[runs];
+			for (int i = 0; i < runs; i++) {
+				plainTimes[i] = run(plain, log);
+				if (shared != null) {
+					sharedTimes[i] = run(shared, log);
+				}
+			}
+			System.out.printf("%d runs of java -jar %s, %s\n", runs, jar.getName(), label);
+			report(label, "default", plainTimes);
+			if (shared != null) {
+				report(label, "cds", sharedTimes);
+			}
+		} finally {
+			Fixtures.delete(workspace);
+		}
+	}
+
+	/**
+	 * Writes a viewer that exits right away.
+	 */
+	private static File viewer(File workspace) throws IOException {
+		boolean windows = System.getProperty("os.name").startsWith("Windows");
+		File viewer = new File(workspace, windows ? "viewer.bat" : "viewer.sh");
+		String script = windows ? "@exit /b 0\r\n" : "#!/bin/sh\nexit 0\n";
+		Files.write(viewer.toPath(), script.getBytes(StandardCharsets.UTF_8));
+		viewer.setExecutable(true);
+		return viewer;
+	}
+
+	private static List<String> command(File workspace, File jar, String option, List<String> lookup) {
+		List<String> command = new ArrayList<>();
+		command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		if (option != null) {
+			command.add(option);
+		}
+		command.add("-Djsadl.cache=" + new File(workspace, "cache").getAbsolutePath());
+		command.add("-jar");
+		command.add(jar.getPath());
+		command.addAll(lookup);
+		return command;
+	}
+
+	/**
+	 * Runs JSaDL once.
+	 * 
+	 * @return How long it took, in nanoseconds
+	 */
+	private static long run(List<String> command, File log) throws IOException, InterruptedException {
+		ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.to(log));
+		long start = System.nanoTime();
+		int exit = builder.start().waitFor();
+		long took = System.nanoTime() - start;
+		if (exit != 0) {
+			throw new IllegalStateException("JSaDL exited with " + exit + ":\n"
+					+ new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8));
+		}
+		return took;
+	}
+
+	private static void report(String label, String mode, long[] times) throws IOException {
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+		long total = 0;
+		for (long time : sorted) {
+			total += time;
+		}
+		double min = sorted[0] / 1e6;
+		double median = sorted[sorted.length / 2] / 1e6;
+		double p90 = sorted[(int) Math.ceil(sorted.length * 0.9) - 1] / 1e6;
+		double mean = total / 1e6 / sorted.length;
+		System.out.printf("%-8s min %.1f ms, median %.1f ms, p90 %.1f ms, mean %.1f ms\n", mode, min, median, p90,
+				mean);
+
+		RESULTS.getAbsoluteFile().getParentFile().mkdirs();
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(RESULTS, true), StandardCharsets.UTF_8)) {
+			writer.write(String.format(Locale.ROOT,
+					"{\"time\":%d,\"label\":\"%s\",\"java\":\"%s\",\"mode\":\"%s\",\"runs\":%d,"
+							+ "\"min_ms\":%.1f,\"median_ms\":%.1f,\"p90_ms\":%.1f,\"mean_ms\":%.1f}\n",
+					System.currentTimeMillis(), label, System.getProperty("java.version"), mode, sorted.length, min,
+					median, p90, mean));
+		}
+	}
+}
@@ -0,0 +1,81 @@
+#!/usr/bin/env bash
+#
+# Thin client for a JSaDL daemon started with `java -jar jsadl.jar --daemon`.
+# Sends the lookup to the daemon over a loopback socket and opens the result,
+# without starting a JVM. Falls back to running the jar when no daemon is
+# running or the daemon can't do the lookup (for example when it would have
+# to ask a question).
+#
+# Set JSADL_JAR to the location of jsadl.jar and JSADL_CACHE if the daemon
+# was started with -Djsadl.cache=<dir>.
+
+jar="${JSADL_JAR:-jsadl.jar}"
+cache="${JSADL_CACHE:-$HOME/.jsadl}"
+
+fallback() {
+	# Use the class data sharing archive from `ant cds` if there is one
+	if [ -f "${jar%.jar}.jsa" ]; then
+		exec java -XX:SharedArchiveFile="${jar%.jar}.jsa" -jar "$jar" "$@"
+	fi
+	exec java -jar "$jar" "$@"
+}
+
+[ $# -gt 0 ] && [ "${1#-}" = "$1" ] || fallback "$@"
+
+config="config.ini"
+viewer=""
+for arg in "$@"; do
+	case "$arg" in
+		--help|--reindex|--daemon|--nodaemon|--cachestats|--render|--print|--batch=*|--search=*|--grep=*) fallback "$@" ;;
+		--config=*) config="${arg#--config=}" ;;
+		--viewer=*) viewer="${arg#--viewer=}" ;;
+	esac
+done
+case "$config" in
+	/*) ;;
+	*) config="$PWD/$config" ;;
+esac
+
+[ -r "$cache/daemon.port" ] || fallback "$@"
+{ read -r port; read -r token; } < "$cache/daemon.port"
+
+{ exec 3<>"/dev/tcp/127.0.0.1/$port"; } 2>/dev/null || fallback "$@"
+{
+	printf 'JSADL 1\n%s\n%s\n' "$token" "$config"
+	printf '%s\n' "$@"
+	printf '\n'
+} >&3
+read -r response <&3
+exec 3<&-
+
+case "$response" in
+	"OK "*|"LINE "*)
+		url="${response#* }"
+		line=""
+		case "$response" in
+			"LINE "*)
+				line="${url%% *}"
+				url="${url#* }"
+				;;
+		esac
+		if [ -z "$viewer" ]; then
+			if command -v xdg-open > /dev/null; then
+				viewer=xdg-open
+			else
+				viewer=open
+			fi
+		elif [ -n "$line" ]; then
+			# Open source files at the member's line like JSaDL does
+			exec "$viewer" "+$line" "${url#file:}"
+		fi
+		exec "$viewer" "$url"
+		;;
+	"ERR "*)
+		rest="${response#ERR }"
+		echo "${rest#* }" >&2
+		exit "${rest%% *}"
+		;;
+	*)
+		fallback "$@"
+		;;
+esac
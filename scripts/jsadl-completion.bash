@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+#
+# Bash completion for JSaDL. Completes class names, `--lookup=` reference
+# names and options for `jsadl` (an alias or wrapper for `java -jar
+# jsadl.jar`) and `jsadl-client.sh`. Add this to ~/.bashrc:
+#
+#     source /path/to/JSaDL/scripts/jsadl-completion.bash
+#
+# Class and reference names come from the files JSaDL writes to
+# ~/.jsadl/completions/ whenever it builds a class index or loads a
+# configuration, so a class completes once its reference has been used. The
+# files are searched with `look`, or `grep` where there is no `look`, without
+# starting a JVM. Set JSADL_CACHE if JSaDL runs with -Djsadl.cache=<dir>.
+
+_jsadl_options="--help --source --config= --lookup= --all --viewer= --print --render --nocheck --reindex
+--cachestats --timings --timings=json --metrics-log= --batch= --threads= --search= --grep= --limit=
+--mirror-import= --daemon --nodaemon --server= --prefetch --prefetch="
+
+# Prints the lines of the completion files named by the remaining arguments
+# that start with $1
+_jsadl_find() {
+	local prefix="$1" file
+	shift
+	for file in "$@"; do
+		[ -f "$file" ] || continue
+		if command -v look > /dev/null; then
+			LC_ALL=C look -- "$prefix" "$file"
+		else
+			LC_ALL=C grep -hF -- "$prefix" "$file" | LC_ALL=C awk -v p="$prefix" 'index($0, p) == 1'
+		fi
+	done
+}
+
+_jsadl() {
+	# The whole word, even though bash splits it at '='
+	local line="${COMP_LINE:0:COMP_POINT}"
+	local cur="${line##*[[:space:]]}"
+	local dir="${JSADL_CACHE:-$HOME/.jsadl}/completions"
+	COMPREPLY=()
+
+	case "$cur" in
+		--lookup=*)
+			# Only what comes after the '=' is replaced
+			COMPREPLY=($(_jsadl_find "${cur#--lookup=}" "$dir/references"))
+			;;
+		-*)
+			COMPREPLY=($(compgen -W "$_jsadl_options" -- "$cur"))
+			;;
+		*)
+			# Qualified names complete one package at a time
+			COMPREPLY=($(_jsadl_find "$cur" "$dir"/*.words | LC_ALL=C awk -v n="${#cur}" '{
+				dot = index(substr($0, n + 1), ".")
+				print dot ? substr($0, 1, n + dot) : $0
+			}' | LC_ALL=C sort -u))
+			;;
+	esac
+
+	# Keep going after a package or an option that takes a value
+	if [ ${#COMPREPLY[@]} -eq 1 ] && [[ "${COMPREPLY[0]}" == *[.=] ]]; then
+		compopt -o nospace 2> /dev/null
+	fi
+}
+
+complete -F _jsadl jsadl jsadl-client.sh
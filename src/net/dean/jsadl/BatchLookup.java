@@ -0,0 +1,261 @@
+package net.dean.jsadl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.dean.jsadl.index.ClassIndex;
+
+/*
+ * BatchLookup.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Resolves many class names against one {@link Reference} at once. Names are
+ * read one per line, their documents are checked concurrently on a bounded
+ * pool of threads and every result is written as a line of JSON (NDJSON) as
+ * soon as it is ready, so results are not in input order.
+ * <p>
+ * Each line has a <code>name</code> (as given), a <code>status</code> (
+ * <code>found</code>, <code>not_found</code>, <code>unchecked</code>,
+ * <code>ambiguous</code> or <code>error</code>) and, depending on the status,
+ * the resolved <code>class</code> and <code>url</code>, the
+ * <code>candidates</code> of an ambiguous name, or an <code>error</code>
+ * message.
+ */
+public class BatchLookup {
+	/**
+	 * The Reference to resolve names against
+	 */
+	private final Reference ref;
+
+	/**
+	 * The type of document to look up
+	 */
+	private final LookupType type;
+
+	/**
+	 * The class index used for simple names, or null to only accept fully
+	 * qualified names
+	 */
+	private final ClassIndex index;
+
+	/**
+	 * The checker used for documents, or null to skip checking
+	 */
+	private final DocumentChecker checker;
+
+	/**
+	 * The number of names being checked at the same time
+	 */
+	private final int threads;
+
+	/**
+	 * Instantiates a new BatchLookup
+	 * 
+	 * @param ref
+	 *            The Reference to resolve names against
+	 * @param type
+	 *            The type of document to look up
+	 * @param index
+	 *            The class index used for simple names, or null to only
+	 *            accept fully qualified names
+	 * @param checker
+	 *            The checker used for documents, or null to skip checking
+	 * @param threads
+	 *            The number of names being checked at the same time
+	 */
+	public BatchLookup(Reference ref, LookupType type, ClassIndex index, DocumentChecker checker, int threads) {
+		this.ref = ref;
+		this.type = type;
+		this.index = index;
+		this.checker = checker;
+		this.threads = threads;
+	}
+
+	/**
+	 * Gets a sensible number of threads for looking up the given type of
+	 * document. Online checks spend nearly all of their time waiting for the
+	 * host, so many more of them can run at once than local checks.
+	 * 
+	 * @param ref
+	 *            The Reference that will be used
+	 * @param type
+	 *            The type of document
+	 * @return The number of threads
+	 */
+	public static int defaultThreads(Reference ref, LookupType type) {
+		URL base = type == LookupType.SOURCE ? ref.getSourceBase() : ref.getDocBase();
+		int processors = Runtime.getRuntime().availableProcessors();
+		if (base != null && (base.getProtocol().equals("http") || base.getProtocol().equals("https"))) {
+			return Math.max(32, processors * 4);
+		}
+		return processors;
+	}
+
+	/**
+	 * Reads names until the end of the input and writes a result line for
+	 * each. Blank lines and lines starting with '#' are skipped. Only a
+	 * bounded number of names is read ahead of the checks, so the input can
+	 * be arbitrarily long.
+	 * 
+	 * @param in
+	 *            The names to resolve, one per line
+	 * @param out
+	 *            Where the results will be written
+	 * @return The number of names that were not found, ambiguous or failed
+	 * @throws IOException
+	 *             If the input could not be read or the output written
+	 * @throws InterruptedException
+	 *             If the thread was interrupted while waiting for the checks
+	 */
+	public int run(BufferedReader in, final Writer out) throws IOException, InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		final Semaphore inFlight = new Semaphore(threads * 4);
+		final AtomicInteger failures = new AtomicInteger();
+		final IOException[] writeError = new IOException[1];
+
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				final String name = line.trim();
+				if (name.isEmpty() || name.startsWith("#")) {
+					continue;
+				}
+
+				inFlight.acquire();
+				pool.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							Result result;
+							try {
+								result = resolve(name);
+							} catch (RuntimeException e) {
+								// Still answer this name instead of dropping its line
+								result = error(name, e.toString());
+							}
+							if (!result.success) {
+								failures.incrementAndGet();
+							}
+							synchronized (out) {
+								out.write(result.json);
+								out.write('\n');
+								out.flush();
+							}
+						} catch (IOException e) {
+							synchronized (writeError) {
+								writeError[0] = e;
+							}
+						} finally {
+							inFlight.release();
+						}
+					}
+				});
+			}
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+
+		synchronized (writeError) {
+			if (writeError[0] != null) {
+				throw writeError[0];
+			}
+		}
+		return failures.get();
+	}
+
+	/**
+	 * Resolves a single name.
+	 */
+	private Result resolve(String name) {
+		String className = name;
+		MavenRepository repository = ref.getRepository();
+		if ((index != null || repository != null) && name.indexOf('.') < 0) {
+			List<String> matches;
+			try {
+				matches = repository != null ? repository.resolve(name) : index.resolve(name);
+			} catch (IOException e) {
+				return error(name, e.toString());
+			}
+			if (matches.size() > 1) {
+				return new Result(false, "{\"name\":" + Json.quote(name)
+						+ ",\"status\":\"ambiguous\",\"candidates\":" + Json.array(matches) + "}");
+			} else if (matches.size() == 1) {
+				className = matches.get(0);
+			}
+		}
+
+		Reference artifact = ref;
+		if (repository != null) {
+			try {
+				artifact = repository.getReference(className);
+			} catch (IOException e) {
+				return error(name, e.toString());
+			}
+			if (artifact == null) {
+				return new Result(false, "{\"name\":" + Json.quote(name) + ",\"status\":\"not_found\",\"class\":"
+						+ Json.quote(className) + "}");
+			}
+		}
+
+		if (checker != null && type == LookupType.DOC) {
+			// Needed for the URL of documentation split into modules
+			artifact.getPackageList(false);
+		}
+		URL target = artifact.getFor(className, type);
+		if (target == null) {
+			return error(name, "Unable to create a URL for " + className);
+		}
+
+		String status = "unchecked";
+		boolean success = true;
+		if (checker != null) {
+			try {
+				success = !(type == LookupType.DOC && checker.isKnownMissing(className)) && checker.exists(target);
+				status = success ? "found" : "not_found";
+			} catch (IOException e) {
+				return error(name, e.toString());
+			}
+		}
+		return new Result(success, "{\"name\":" + Json.quote(name) + ",\"status\":\"" + status
+				+ "\",\"class\":" + Json.quote(className) + ",\"url\":" + Json.quote(target.toExternalForm()) + "}");
+	}
+
+	private static Result error(String name, String message) {
+		return new Result(false, "{\"name\":" + Json.quote(name) + ",\"status\":\"error\",\"error\":"
+				+ Json.quote(message) + "}");
+	}
+
+	/**
+	 * The outcome of resolving one name
+	 */
+	private static class Result {
+		/**
+		 * False if the name was not found, ambiguous or failed
+		 */
+		private final boolean success;
+
+		/**
+		 * The line of JSON describing the result
+		 */
+		private final String json;
+
+		Result(boolean success, String json) {
+			this.success = success;
+			this.json = json;
+		}
+	}
+}
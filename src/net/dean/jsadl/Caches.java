@@ -0,0 +1,109 @@
+package net.dean.jsadl;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/*
+ * Caches.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Locates the directories JSaDL uses to persist data between runs, such as
+ * class indexes. Everything lives under <code>~/.jsadl</code> unless the
+ * <code>jsadl.cache</code> system property says otherwise.
+ */
+public final class Caches {
+	/**
+	 * The system property that overrides the root cache directory
+	 */
+	public static final String CACHE_PROPERTY = "jsadl.cache";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private Caches() {
+		// Utility class
+	}
+
+	/**
+	 * Gets the root directory of all caches.
+	 * 
+	 * @return The root cache directory
+	 */
+	public static File getRoot() {
+		String root = System.getProperty(CACHE_PROPERTY);
+		if (root == null || root.isEmpty()) {
+			return new File(System.getProperty("user.home"), ".jsadl");
+		}
+		return new File(root);
+	}
+
+	/**
+	 * Gets (and creates, if necessary) a named cache directory.
+	 * 
+	 * @param name
+	 *            The name of the directory, for example "index"
+	 * @return The directory
+	 */
+	public static File getDirectory(String name) {
+		File dir = new File(getRoot(), name);
+		if (!dir.isDirectory()) {
+			dir.mkdirs();
+		}
+		return dir;
+	}
+
+	/**
+	 * Creates a short, file name safe key that uniquely identifies a base URL
+	 * of a {@link Reference}.
+	 * 
+	 * @param base
+	 *            The URL to create a key for
+	 * @return A hexadecimal key
+	 */
+	public static String keyFor(URL base) {
+		return keyFor(base.toExternalForm());
+	}
+
+	/**
+	 * Creates a short, file name safe key that uniquely identifies the given
+	 * string.
+	 * 
+	 * @param value
+	 *            The string to create a key for
+	 * @return A hexadecimal key
+	 */
+	public static String keyFor(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+			// 64 bits is plenty to tell References apart
+			return toHex(digest, 8);
+		} catch (NoSuchAlgorithmException e) {
+			// Every JRE is required to support SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Converts the first <code>length</code> bytes of an array to hexadecimal.
+	 * 
+	 * @param bytes
+	 *            The bytes to convert
+	 * @param length
+	 *            How many bytes to convert
+	 * @return A hexadecimal string
+	 */
+	public static String toHex(byte[] bytes, int length) {
+		char[] chars = new char[length * 2];
+		for (int i = 0; i < length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+}
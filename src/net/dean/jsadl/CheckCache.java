@@ -0,0 +1,356 @@
+package net.dean.jsadl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * CheckCache.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Remembers whether online documents exist so that repeated lookups of the
+ * same class don't have to ask the documentation host again. There is one
+ * cache per documentation base, stored in the "checks" cache directory.
+ * <p>
+ * Pages that were found are trusted for {@link #POSITIVE_TTL}, pages that
+ * were not found for {@link #NEGATIVE_TTL}. Once an entry expires it is
+ * revalidated with a conditional request using the ETag or Last-Modified
+ * header from the last check, if the host sent one.
+ * <p>
+ * All methods are thread safe.
+ */
+public class CheckCache {
+	/**
+	 * How long a page that was found is assumed to still exist
+	 */
+	public static final long POSITIVE_TTL = TimeUnit.DAYS.toMillis(7);
+
+	/**
+	 * How long a page that was not found is assumed to still be missing
+	 */
+	public static final long NEGATIVE_TTL = TimeUnit.HOURS.toMillis(12);
+
+	private static final int VERSION = 1;
+
+	/**
+	 * The file this cache is saved to
+	 */
+	private final File file;
+
+	/**
+	 * Maps URLs to the result of the last check
+	 */
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	/**
+	 * Statistics for this run
+	 */
+	private long hits, misses, revalidations;
+
+	/**
+	 * Statistics from previous runs
+	 */
+	private long previousHits, previousMisses;
+
+	/**
+	 * How many of this run's hits and misses have been saved already
+	 */
+	private long savedHits, savedMisses;
+
+	/**
+	 * True if there are changes that have not been saved
+	 */
+	private boolean dirty;
+
+	/**
+	 * Instantiates a new CheckCache, loading the given file if it exists.
+	 * 
+	 * @param file
+	 *            The file the cache is stored in
+	 */
+	public CheckCache(File file) {
+		this.file = file;
+		if (file.isFile()) {
+			try {
+				load();
+			} catch (IOException e) {
+				// A corrupt cache is the same as an empty one
+				entries.clear();
+			}
+		}
+	}
+
+	/**
+	 * Gets the check cache for the documentation base of a Reference.
+	 * 
+	 * @param ref
+	 *            The Reference
+	 * @return The check cache
+	 */
+	public static CheckCache forReference(Reference ref) {
+		return new CheckCache(new File(Caches.getDirectory("checks"), Caches.keyFor(ref.getDocBase()) + ".cache"));
+	}
+
+	/**
+	 * Tests if an online document exists, asking the host only if there is no
+	 * fresh result in the cache.
+	 * 
+	 * @param url
+	 *            The http or https URL of the document
+	 * @return True if the document exists
+	 * @throws IOException
+	 *             If the host could not be reached
+	 */
+	public boolean isAvailable(URL url) throws IOException {
+		return isAvailable(url, Timings.DISABLED);
+	}
+
+	/**
+	 * Tests if an online document exists, asking the host only if there is no
+	 * fresh result in the cache. Whether the cache was used, the HTTP status
+	 * and the length of the document the host reported are recorded in the
+	 * given Timings as "check.cache", "check.status" and "check.length".
+	 * 
+	 * @param url
+	 *            The http or https URL of the document
+	 * @param timings
+	 *            Where to record how the check went
+	 * @return True if the document exists
+	 * @throws IOException
+	 *             If the host could not be reached
+	 */
+	public boolean isAvailable(URL url, Timings timings) throws IOException {
+		String key = url.toExternalForm();
+		Entry cached;
+		synchronized (this) {
+			cached = entries.get(key);
+			if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+				hits++;
+				timings.set("check.cache", "hit");
+				timings.set("check.status", cached.status);
+				return cached.status == HttpURLConnection.HTTP_OK;
+			}
+			misses++;
+		}
+		timings.set("check.cache", "miss");
+		timings.count("check.requests", 1);
+
+		Map<String, String> headers = new HashMap<>();
+		if (cached != null && cached.status == HttpURLConnection.HTTP_OK) {
+			if (cached.etag != null) {
+				headers.put("If-None-Match", cached.etag);
+			}
+			if (cached.lastModified != null) {
+				headers.put("If-Modified-Since", cached.lastModified);
+			}
+		}
+
+		// Only the status code is needed, so the page is never downloaded
+		WebClient.Response response = WebClient.getDefault().head(url, headers);
+		int status = response.getStatus();
+		timings.set("check.status", status);
+		if (response.getLength() >= 0) {
+			timings.set("check.length", response.getLength());
+		}
+		Entry result;
+		if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+			result = new Entry(cached.status, System.currentTimeMillis(), cached.etag, cached.lastModified);
+			synchronized (this) {
+				revalidations++;
+			}
+			timings.set("check.cache", "revalidated");
+		} else {
+			result = new Entry(status, System.currentTimeMillis(), response.getHeader("ETag"),
+					response.getHeader("Last-Modified"));
+		}
+
+		if (result.isCacheable()) {
+			synchronized (this) {
+				entries.put(key, result);
+				dirty = true;
+			}
+		}
+		return result.status == HttpURLConnection.HTTP_OK;
+	}
+
+	/**
+	 * Saves the cache if anything changed since it was loaded. Other processes
+	 * may have saved the same cache in the meantime, so it is merged with the
+	 * file first, keeping whichever result of a check is newer.
+	 * 
+	 * @throws IOException
+	 *             If the cache could not be written
+	 */
+	public synchronized void save() throws IOException {
+		if (!dirty && hits == savedHits && misses == savedMisses) {
+			return;
+		}
+
+		if (file.isFile()) {
+			Map<String, Entry> saved = new HashMap<>();
+			try {
+				long[] totals = read(file, saved);
+				if (totals != null) {
+					// Add what this run hasn't saved yet to the totals on disk
+					previousHits = totals[0] - savedHits;
+					previousMisses = totals[1] - savedMisses;
+				}
+			} catch (IOException e) {
+				// Whatever could be read is merged, the rest is overwritten
+			}
+			for (Map.Entry<String, Entry> e : saved.entrySet()) {
+				Entry entry = entries.get(e.getKey());
+				if (entry == null || entry.checked < e.getValue().checked) {
+					entries.put(e.getKey(), e.getValue());
+				}
+			}
+		}
+
+		File dir = file.getAbsoluteFile().getParentFile();
+		dir.mkdirs();
+		File temp = File.createTempFile(file.getName(), ".tmp", dir);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(VERSION);
+			out.writeLong(previousHits + hits);
+			out.writeLong(previousMisses + misses);
+
+			long now = System.currentTimeMillis();
+			int count = 0;
+			for (Entry e : entries.values()) {
+				if (e.isWorthKeeping(now)) {
+					count++;
+				}
+			}
+			out.writeInt(count);
+			for (Map.Entry<String, Entry> e : entries.entrySet()) {
+				Entry entry = e.getValue();
+				if (!entry.isWorthKeeping(now)) {
+					continue;
+				}
+				out.writeUTF(e.getKey());
+				out.writeInt(entry.status);
+				out.writeLong(entry.checked);
+				out.writeUTF(entry.etag == null ? "" : entry.etag);
+				out.writeUTF(entry.lastModified == null ? "" : entry.lastModified);
+			}
+		} catch (IOException e) {
+			temp.delete();
+			throw e;
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			temp.delete();
+			throw e;
+		}
+		savedHits = hits;
+		savedMisses = misses;
+		dirty = false;
+	}
+
+	private void load() throws IOException {
+		long[] totals = read(file, entries);
+		if (totals != null) {
+			previousHits = totals[0];
+			previousMisses = totals[1];
+		}
+	}
+
+	/**
+	 * Reads a saved cache.
+	 * 
+	 * @param file
+	 *            The file the cache was saved to
+	 * @param entries
+	 *            Where to put the entries that were read
+	 * @return The total hits and misses, or null if the file is from another
+	 *         version
+	 * @throws IOException
+	 *             If the file could not be read
+	 */
+	private static long[] read(File file, Map<String, Entry> entries) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != VERSION) {
+				return null;
+			}
+			long[] totals = { in.readLong(), in.readLong() };
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String url = in.readUTF();
+				int status = in.readInt();
+				long checked = in.readLong();
+				String etag = in.readUTF();
+				String lastModified = in.readUTF();
+				entries.put(url, new Entry(status, checked, etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null
+						: lastModified));
+			}
+			return totals;
+		}
+	}
+
+	/**
+	 * Gets a human readable summary of how well the cache is working.
+	 * 
+	 * @return The statistics
+	 */
+	public synchronized String getStatistics() {
+		return String.format("Check cache: %d hit(s), %d miss(es), %d revalidated this run; "
+				+ "%d hit(s), %d miss(es) in total; %d entries", hits, misses, revalidations, previousHits + hits,
+				previousMisses + misses, entries.size());
+	}
+
+	/**
+	 * The result of a single check
+	 */
+	private static class Entry {
+		private final int status;
+		private final long checked;
+		private final String etag;
+		private final String lastModified;
+
+		Entry(int status, long checked, String etag, String lastModified) {
+			this.status = status;
+			this.checked = checked;
+			this.etag = etag;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * Only "found" and "not found" are remembered. Anything else (such as
+		 * a server error) is likely to be temporary.
+		 */
+		boolean isCacheable() {
+			return status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_NOT_FOUND
+					|| status == HttpURLConnection.HTTP_GONE;
+		}
+
+		boolean isFresh(long now) {
+			long ttl = status == HttpURLConnection.HTTP_OK ? POSITIVE_TTL : NEGATIVE_TTL;
+			return now - checked < ttl;
+		}
+
+		/**
+		 * Expired entries are still useful if they can be revalidated
+		 */
+		boolean isWorthKeeping(long now) {
+			return isFresh(now) || etag != null || lastModified != null;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package net.dean.jsadl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/*
+ * ConfigSnapshot.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * A compiled, binary copy of a configuration file that is written next to it
+ * (<code>config.ini</code> gets <code>config.ini.snapshot</code>). Reading the
+ * snapshot is a single small read with nothing to parse, which is much faster
+ * than parsing the INI file.
+ * <p>
+ * A snapshot is used as long as the size and modification time of the INI
+ * file match the ones recorded in it. If they don't, the contents of the file
+ * are hashed, so a file that was only touched keeps its snapshot.
+ */
+final class ConfigSnapshot {
+	private static final int MAGIC = 0x4A53434E; // "JSCN"
+	private static final int VERSION = 2;
+
+	private ConfigSnapshot() {
+		// Utility class
+	}
+
+	/**
+	 * Gets the snapshot file of a configuration file.
+	 * 
+	 * @param configIni
+	 *            The configuration file
+	 * @return The snapshot file, which may not exist
+	 */
+	static File fileFor(File configIni) {
+		return new File(configIni.getPath() + ".snapshot");
+	}
+
+	/**
+	 * Reads the snapshot of a configuration file.
+	 * 
+	 * @param configIni
+	 *            The configuration file
+	 * @return The sections of the file and their keys, or null if there is
+	 *         no snapshot or it is out of date
+	 */
+	static Map<String, Map<String, String>> read(File configIni) {
+		File file = fileFor(configIni);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+			long length = in.readLong();
+			long lastModified = in.readLong();
+			long crc = in.readLong();
+			if (length != configIni.length() || lastModified != configIni.lastModified()) {
+				if (crc != checksum(configIni)) {
+					return null;
+				}
+			}
+
+			Map<String, Map<String, String>> sections = new LinkedHashMap<>();
+			int sectionCount = in.readInt();
+			for (int i = 0; i < sectionCount; i++) {
+				String name = in.readUTF();
+				int keyCount = in.readInt();
+				Map<String, String> values = new LinkedHashMap<>();
+				for (int j = 0; j < keyCount; j++) {
+					values.put(in.readUTF(), in.readUTF());
+				}
+				sections.put(name, values);
+			}
+			if (length != configIni.length() || lastModified != configIni.lastModified()) {
+				// Only touched, record the new time so it isn't hashed again
+				write(configIni, sections);
+			}
+			return sections;
+		} catch (IOException e) {
+			// Broken snapshot, parse the file instead
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a snapshot of a configuration file. Failing to write it is not
+	 * an error, the file will just be parsed again next time.
+	 * 
+	 * @param configIni
+	 *            The configuration file
+	 * @param sections
+	 *            The sections of the file and their keys
+	 */
+	static void write(File configIni, Map<String, Map<String, String>> sections) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(configIni.length());
+			out.writeLong(configIni.lastModified());
+			out.writeLong(checksum(configIni));
+			out.writeInt(sections.size());
+			for (Map.Entry<String, Map<String, String>> section : sections.entrySet()) {
+				out.writeUTF(section.getKey());
+				out.writeInt(section.getValue().size());
+				for (Map.Entry<String, String> value : section.getValue().entrySet()) {
+					out.writeUTF(value.getKey());
+					out.writeUTF(value.getValue());
+				}
+			}
+			out.flush();
+
+			// Other processes may be writing the same snapshot, and readers
+			// must never see half of one
+			File file = fileFor(configIni).getAbsoluteFile();
+			File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			try {
+				Files.write(temp.toPath(), bytes.toByteArray());
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				temp.delete();
+			}
+		} catch (IOException e) {
+			// Read-only directory or similar, not worth bothering the user
+		}
+	}
+
+	private static long checksum(File file) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(Files.readAllBytes(file.toPath()));
+		return crc.getValue();
+	}
+}
@@ -5,15 +5,21 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.dean.console.InputFilter;
+import net.dean.jsadl.index.CompletionIndex;
 import net.dean.parsers.ini.IniElement;
 import net.dean.parsers.ini.IniFile;
 import net.dean.parsers.ini.IniFileFactory;
 import net.dean.parsers.ini.IniFileTransformer;
 import net.dean.parsers.ini.IniSyntaxException;
 import net.dean.parsers.ini.Section;
-import net.dean.util.InternetUtils;
 
 /*
  * Configurator.java
@@ -23,7 +29,7 @@ import net.dean.util.InternetUtils;
  * Originally created on Aug 28, 2013 by matthew
  */
 public class Configurator {
-	public static final String DEFAULT_SRC = System.getProperty("java.home") + "/src";
+	public static final String DEFAULT_SRC = findDefaultSource();
 	public static final String DEFAULT_DOC = "http://docs.oracle.com/javase/7/docs/api/";
 
 	private JSaDL saddle;
@@ -35,6 +41,24 @@ public class Configurator {
 		this.config = null;
 	}
 
+	/**
+	 * Finds the sources of the running JDK. JDK 9+ ship them as
+	 * <code>lib/src.zip</code>, older JDKs as <code>src.zip</code> next to the
+	 * JRE. Falls back to an exploded <code>src</code> directory.
+	 * 
+	 * @return The path to the sources
+	 */
+	private static String findDefaultSource() {
+		String javaHome = System.getProperty("java.home");
+		File[] candidates = { new File(javaHome, "lib/src.zip"), new File(javaHome, "../src.zip") };
+		for (File f : candidates) {
+			if (f.isFile()) {
+				return f.getAbsolutePath();
+			}
+		}
+		return javaHome + "/src";
+	}
+
 	public void configure(File iniFile) throws IOException, IniSyntaxException {
 		//@formatter:off
 		/*
@@ -67,17 +91,15 @@ public class Configurator {
 		 */
 		//@formatter:on
 		if (iniFile.exists()) {
-			IniFile ini = new IniFileFactory().build(iniFile);
+			Config loaded = new Config(iniFile);
 
 			// If the ini file has more than one section
-			if (ini.getSections().size() > 0) {
+			if (loaded.getRefNames().size() > 0) {
 				// Try to find a valid section
-				for (Section s : ini.getSections()) {
-					if (s.get("src") != null && s.get("doc") != null) {
-						// Section has a valid src and doc key/value pair
-						this.config = new Config(iniFile);
-						return;
-					}
+				if (loaded.hasValidRef()) {
+					// Section has a valid src and doc key/value pair
+					this.config = loaded;
+					return;
 				}
 
 				// At this point none of the sections represent valid
@@ -96,8 +118,8 @@ public class Configurator {
 
 	private void getAndExportRef(File iniFile) {
 		// Here we make a new Reference from user input.
-		String doc = getLocation("documentation", DEFAULT_SRC);
-		String src = getLocation("source", DEFAULT_DOC);
+		String doc = getLocation("documentation", DEFAULT_DOC);
+		String src = getLocation("source", DEFAULT_SRC);
 
 		System.out.printf("Please choose a name for your Reference. Press enter for [%s]\n", "java");
 		String ref = saddle.getInput(new InputFilter() {
@@ -171,8 +193,9 @@ public class Configurator {
 					// Checking for files
 					if (url.getProtocol().equals("file")) {
 						// If the directory does not exist or if it isn't a
-						// directory at all
-						if (!new File(url.getFile()).exists() || !new File(url.getFile()).isDirectory()) {
+						// directory or source archive at all
+						File file = new File(url.getFile());
+						if (!file.exists() || !(file.isDirectory() || ZipSource.isArchive(file.getName()))) {
 							// Prompt the user if they really want to use it
 							return (saddle.getYesNoInput(String.format(
 									"%s doesn't seem to exist. Do you still want to use it? (y/n)", url.getFile())));
@@ -182,8 +205,8 @@ public class Configurator {
 						}
 					} else {
 						// HTTP or HTTPS
-						if (InternetUtils.doGetRequest(url.toExternalForm()).getResponseCode() != 200) {
-							// If the GET request doesn't return a 200, ask the
+						if (WebClient.getDefault().head(url, null).getStatus() != 200) {
+							// If the HEAD request doesn't return a 200, ask the
 							// user if they really want to use it
 							return (saddle.getYesNoInput(String.format(
 									"%s doesn't appear to be online.  Do you still want to use it? (y/n)",
@@ -217,11 +240,23 @@ public class Configurator {
 	 * @author matthew
 	 * 
 	 */
-	public class Config {
+	public static class Config {
+		/**
+		 * The keys of a section that are used to build a {@link Reference}.
+		 * Only these are kept in the snapshot.
+		 */
+		static final String[] KEYS = { "src", "doc", "mirror", "maven", "classpath" };
+
+		/**
+		 * Maps the name of every section to its keys and values, in the order
+		 * they appear in the file
+		 */
+		private final Map<String, Map<String, String>> sections;
+
 		/**
-		 * The IniFile that stores all the
+		 * References that have already been constructed, keyed by name
 		 */
-		private IniFile iniFile;
+		private final ConcurrentMap<String, Reference> references = new ConcurrentHashMap<>();
 
 		/**
 		 * Instantiates a new Config
@@ -238,7 +273,10 @@ public class Configurator {
 		}
 
 		/**
-		 * Instantiates a new Config with the given file.
+		 * Instantiates a new Config with the given file. If the file has a
+		 * {@link ConfigSnapshot} that is still up to date, the snapshot is
+		 * read instead of parsing the file. Otherwise the file is parsed and
+		 * a new snapshot is written.
 		 * 
 		 * @param configIni
 		 *            The file to parse
@@ -250,43 +288,151 @@ public class Configurator {
 		 *             If there was a syntax error in the file
 		 */
 		public Config(File configIni) throws FileNotFoundException, IOException, IniSyntaxException {
-			iniFile = new IniFileFactory().build(configIni);
+			Map<String, Map<String, String>> snapshot = ConfigSnapshot.read(configIni);
+			if (snapshot != null) {
+				sections = snapshot;
+				// They were added when the snapshot was written, unless the
+				// completions were deleted since
+				if (CompletionIndex.referencesModified() < ConfigSnapshot.fileFor(configIni).lastModified()) {
+					CompletionIndex.addReferences(sections.keySet());
+				}
+				return;
+			}
+
+			sections = new LinkedHashMap<>();
+			for (Section section : new IniFileFactory().build(configIni).getSections()) {
+				Map<String, String> values = new LinkedHashMap<>();
+				for (String key : KEYS) {
+					if (section.hasKey(key)) {
+						values.put(key, section.get(key));
+					}
+				}
+				sections.put(section.getName(), values);
+			}
+			ConfigSnapshot.write(configIni, sections);
+			CompletionIndex.addReferences(sections.keySet());
 		}
 
 		/**
-		 * Constructs a {@link Reference} from the given name.
+		 * Constructs a {@link Reference} from the given name. References are
+		 * only constructed once per Config, even if several threads ask for
+		 * the same one at the same time.
 		 * 
 		 * @param name
 		 *            The name of the reference to get
-		 * @return A new {@link Reference} based on the name, or null if the
+		 * @return A {@link Reference} based on the name, or null if the
 		 *         reference does not exist.
 		 * @throws MalformedURLException
 		 *             If the given source or doc base are invalid URLs
 		 */
 		public Reference getRefFor(String name) throws MalformedURLException {
-			if (iniFile.hasSection(name)) {
-				Section section = iniFile.getSection(name);
-				String src = null, doc = null;
-				if (section.hasKey("src")) {
-					src = section.get("src");
-				}
-				if (section.hasKey("doc")) {
-					doc = section.get("doc");
+			Reference ref = references.get(name);
+			if (ref != null) {
+				return ref;
+			}
+
+			Map<String, String> section = sections.get(name);
+			if (section != null && section.get("maven") != null) {
+				ref = new Reference(MavenRepository.forDirectory(section.get("maven")));
+				Reference existing = references.putIfAbsent(name, ref);
+				return existing != null ? existing : ref;
+			} else if (section != null && section.get("classpath") != null) {
+				ref = new Reference(MavenRepository.forClasspath(section.get("classpath")));
+				Reference existing = references.putIfAbsent(name, ref);
+				return existing != null ? existing : ref;
+			} else if (section != null) {
+				String src = section.get("src");
+				String doc = section.get("doc");
+				long mirrorSize = 0;
+				if (section.containsKey("mirror")) {
+					try {
+						mirrorSize = DocMirror.parseSize(section.get("mirror"));
+					} catch (NumberFormatException e) {
+						System.err.printf("Ignoring the invalid mirror size \"%s\" of %s\n", section.get("mirror"),
+								name);
+					}
 				}
 
-				return new Reference(src, doc);
+				ref = new Reference(src, doc, mirrorSize);
+				Reference existing = references.putIfAbsent(name, ref);
+				return existing != null ? existing : ref;
 			}
 
 			return null;
 		}
 
 		/**
-		 * Gets the IniFile associated with this Config.
+		 * Gets the name of the Reference to use when none was specified. This
+		 * is the "java" Reference if there is one, otherwise the first one.
+		 * 
+		 * @return The name of the default Reference, or null if there are no
+		 *         References
+		 */
+		public String getDefaultRefName() {
+			if (sections.containsKey("java")) {
+				return "java";
+			}
+			if (!sections.isEmpty()) {
+				return sections.keySet().iterator().next();
+			}
+			return null;
+		}
+
+		/**
+		 * Gets the names of every Reference in this Config, in the order they
+		 * appear in the file.
+		 * 
+		 * @return The names of the References
+		 */
+		public List<String> getRefNames() {
+			return new ArrayList<>(sections.keySet());
+		}
+
+		/**
+		 * Gets every usable Reference (one with both a src and doc key, or a
+		 * Maven repository or classpath) in order of priority: the default
+		 * Reference first, then the rest in the order they appear in the file.
+		 * 
+		 * @return The References, keyed by name
+		 * @throws MalformedURLException
+		 *             If a source or doc base is an invalid URL
+		 * @see #getDefaultRefName()
+		 */
+		public Map<String, Reference> getRefsByPriority() throws MalformedURLException {
+			List<String> names = getRefNames();
+			String defaultName = getDefaultRefName();
+			if (defaultName != null) {
+				names.remove(defaultName);
+				names.add(0, defaultName);
+			}
+
+			Map<String, Reference> refs = new LinkedHashMap<>();
+			for (String name : names) {
+				if (isUsable(sections.get(name))) {
+					refs.put(name, getRefFor(name));
+				}
+			}
+			return refs;
+		}
+
+		/**
+		 * Tests if at least one Reference has both a src and doc key, or a
+		 * maven or classpath key.
 		 * 
-		 * @return The IniFile
+		 * @return True if there is a usable Reference
 		 */
-		public IniFile getIniFile() {
-			return iniFile;
+		public boolean hasValidRef() {
+			for (Map<String, String> section : sections.values()) {
+				if (isUsable(section)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private static boolean isUsable(Map<String, String> section) {
+			return section.get("src") != null && section.get("doc") != null || section.get("maven") != null
+					|| section.get("classpath") != null;
 		}
 	}
 }
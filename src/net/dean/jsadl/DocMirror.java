@@ -0,0 +1,558 @@
+package net.dean.jsadl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * DocMirror.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * A local copy of an online documentation set, so that pages which have been
+ * viewed once (or imported from a documentation archive) can be viewed again
+ * without the network.
+ * <p>
+ * Pages are stored gzipped and content-addressed by their SHA-1 under the
+ * "mirror" cache directory, so identical pages are only stored once. The
+ * mirror has a size limit; when it is exceeded the least recently used pages
+ * are evicted. Viewers can't read gzipped files, so a page is decompressed
+ * into a separate "view" directory when it is handed to a viewer.
+ * <p>
+ * Several processes can share a mirror. The index is saved under a lock,
+ * merged with whatever the others saved since it was read.
+ * <p>
+ * All methods are thread safe.
+ */
+public class DocMirror {
+	/**
+	 * The size limit used when a Reference enables its mirror without giving
+	 * one
+	 */
+	public static final long DEFAULT_SIZE = 100L * 1024 * 1024;
+
+	private static final int VERSION = 1;
+
+	/**
+	 * How often the index is saved just because pages were used, in
+	 * milliseconds
+	 */
+	private static final long SAVE_INTERVAL = 60000;
+
+	/**
+	 * Locks for the mirror directories saved by this process, since a file
+	 * lock can only be held once per process
+	 */
+	private static final ConcurrentMap<File, Object> LOCKS = new ConcurrentHashMap<>();
+
+	/**
+	 * The base URL of the documentation being mirrored
+	 */
+	private final URL docBase;
+
+	/**
+	 * The maximum number of bytes of compressed pages to keep
+	 */
+	private final long maxSize;
+
+	private final File dir;
+	private final File objects;
+	private final File view;
+	private final File indexFile;
+
+	/**
+	 * Maps page paths (relative to the documentation base) to their entries,
+	 * least recently used first
+	 */
+	private final LinkedHashMap<String, Entry> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Counts how many pages refer to each object
+	 */
+	private final Map<String, Integer> references = new HashMap<>();
+
+	/**
+	 * The total compressed size of every object
+	 */
+	private long size;
+
+	/**
+	 * The modification time of the index file when it was last read or
+	 * written, to notice changes made by other processes
+	 */
+	private long indexModified;
+
+	/**
+	 * Instantiates a new DocMirror
+	 * 
+	 * @param docBase
+	 *            The base URL of the documentation
+	 * @param maxSize
+	 *            The maximum number of bytes of compressed pages to keep
+	 */
+	public DocMirror(URL docBase, long maxSize) {
+		this.docBase = docBase;
+		this.maxSize = maxSize;
+		this.dir = new File(Caches.getDirectory("mirror"), Caches.keyFor(docBase));
+		this.objects = new File(dir, "objects");
+		this.view = new File(dir, "view");
+		this.indexFile = new File(dir, "index");
+	}
+
+	/**
+	 * Parses a size limit such as <code>500M</code>. The suffixes K, M and G
+	 * are understood; "true" means {@link #DEFAULT_SIZE}.
+	 * 
+	 * @param value
+	 *            The size limit
+	 * @return The size limit in bytes
+	 * @throws NumberFormatException
+	 *             If the value isn't a valid size
+	 */
+	public static long parseSize(String value) {
+		value = value.trim().toUpperCase();
+		if (value.equals("TRUE")) {
+			return DEFAULT_SIZE;
+		}
+		long multiplier = 1;
+		if (value.endsWith("K")) {
+			multiplier = 1024;
+		} else if (value.endsWith("M")) {
+			multiplier = 1024 * 1024;
+		} else if (value.endsWith("G")) {
+			multiplier = 1024 * 1024 * 1024;
+		}
+		if (multiplier != 1) {
+			value = value.substring(0, value.length() - 1);
+		}
+		return Long.parseLong(value.trim()) * multiplier;
+	}
+
+	/**
+	 * Gets a local URL for a mirrored page, decompressing it for the viewer if
+	 * necessary.
+	 * 
+	 * @param path
+	 *            The path of the page relative to the documentation base
+	 * @return A file URL, or null if the page isn't mirrored or could not be
+	 *         read
+	 */
+	public synchronized URL getLocal(String path) {
+		try {
+			reloadIfChanged();
+			Entry entry = pages.get(path);
+			if (entry == null) {
+				return null;
+			}
+			File local = new File(view, path);
+			if (!local.isFile()) {
+				decompress(entry.hash, local);
+			}
+			// Remember that the page was used. That alone isn't worth
+			// rewriting the index on every lookup, so it is saved with the
+			// next page stored or once the saved index is a minute old
+			if (System.currentTimeMillis() - indexModified >= SAVE_INTERVAL) {
+				save();
+			}
+			return local.toURI().toURL();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Tests if a page is mirrored.
+	 * 
+	 * @param path
+	 *            The path of the page relative to the documentation base
+	 * @return True if the page is mirrored
+	 */
+	public synchronized boolean contains(String path) {
+		try {
+			reloadIfChanged();
+		} catch (IOException e) {
+			return false;
+		}
+		return pages.containsKey(path);
+	}
+
+	/**
+	 * Downloads a page into the mirror.
+	 * 
+	 * @param path
+	 *            The path of the page relative to the documentation base
+	 * @return A local URL of the page, or null if the host says the page
+	 *         doesn't exist
+	 * @throws IOException
+	 *             If the page could not be downloaded or stored
+	 */
+	public URL fetch(String path) throws IOException {
+		URL remote = new URL(docBase, path);
+		try (WebClient.Response response = WebClient.getDefault().get(remote, null)) {
+			int status = response.getStatus();
+			if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE) {
+				return null;
+			}
+			if (status != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Unable to mirror " + remote + ": HTTP " + status);
+			}
+			store(path, response.getBody());
+			synchronized (this) {
+				save();
+			}
+		}
+		return getLocal(path);
+	}
+
+	/**
+	 * Imports every page of a documentation archive, such as the JDK's
+	 * <code>jdk-8u-docs-all.zip</code>, into the mirror. The root of the
+	 * documentation in the archive is the directory containing
+	 * <code>package-list</code> or <code>element-list</code>, and pages are
+	 * stored under their path from there, including the module directory of
+	 * documentation split into modules.
+	 * 
+	 * @param archive
+	 *            The archive to import
+	 * @return The number of pages imported
+	 * @throws IOException
+	 *             If the archive could not be read or the pages stored
+	 */
+	public int importArchive(File archive) throws IOException {
+		// Not ZipSource, whose entry names leave out module directories
+		try (ZipFile zip = new ZipFile(archive)) {
+			String root = "";
+			int rootDepth = Integer.MAX_VALUE;
+			for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+				String name = entries.nextElement().getName();
+				if (name.endsWith("package-list") || name.endsWith("element-list")) {
+					String parent = name.substring(0, name.lastIndexOf('/') + 1);
+					int depth = parent.split("/").length;
+					if (depth < rootDepth) {
+						root = parent;
+						rootDepth = depth;
+					}
+				}
+			}
+
+			int imported = 0;
+			synchronized (this) {
+				for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+					ZipEntry entry = entries.nextElement();
+					if (entry.isDirectory() || !entry.getName().startsWith(root)) {
+						continue;
+					}
+					try (InputStream in = zip.getInputStream(entry)) {
+						store(entry.getName().substring(root.length()), in);
+					}
+					imported++;
+				}
+				save();
+			}
+			return imported;
+		}
+	}
+
+	/**
+	 * Compresses a page into the object store and records it in the index.
+	 * The index is not saved.
+	 */
+	private void store(String path, InputStream content) throws IOException {
+		objects.mkdirs();
+		File temp = File.createTempFile("page", ".gz", objects);
+		MessageDigest sha1;
+		try {
+			sha1 = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		try (InputStream in = new DigestInputStream(content, sha1);
+				OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		}
+		String hash = Caches.toHex(sha1.digest(), 20);
+
+		synchronized (this) {
+			reloadIfChanged();
+			File object = objectFile(hash);
+			if (references.containsKey(hash) && object.isFile()) {
+				// Already have the same content under another path
+				temp.delete();
+			} else {
+				object.getParentFile().mkdirs();
+				Files.move(temp.toPath(), object.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			Entry entry = new Entry(hash, object.length());
+			Entry old = pages.put(path, entry);
+			addReference(entry);
+			if (old != null) {
+				File local = new File(view, path);
+				if (!old.hash.equals(hash) && local.isFile()) {
+					// Another process may be about to open it, so replace it
+					// rather than deleting it
+					decompress(hash, local);
+				}
+				removeReference(old);
+			}
+			evict(path);
+		}
+	}
+
+	/**
+	 * Removes the least recently used pages until the mirror fits its size
+	 * limit, or only the page just stored is left over it.
+	 * 
+	 * @param stored
+	 *            The path of the page just stored, which is about to be
+	 *            viewed and so is never removed, or null
+	 */
+	private void evict(String stored) {
+		Iterator<Map.Entry<String, Entry>> it = pages.entrySet().iterator();
+		while (size > maxSize && it.hasNext()) {
+			Map.Entry<String, Entry> lru = it.next();
+			if (lru.getKey().equals(stored)) {
+				continue;
+			}
+			it.remove();
+			new File(view, lru.getKey()).delete();
+			removeReference(lru.getValue());
+		}
+	}
+
+	private void addReference(Entry entry) {
+		Integer count = references.get(entry.hash);
+		if (count == null) {
+			references.put(entry.hash, 1);
+			size += entry.size;
+		} else {
+			references.put(entry.hash, count + 1);
+		}
+	}
+
+	/**
+	 * Deletes an object if no page refers to it anymore.
+	 */
+	private void removeReference(Entry entry) {
+		Integer count = references.get(entry.hash);
+		if (count == null) {
+			return;
+		}
+		if (count > 1) {
+			references.put(entry.hash, count - 1);
+		} else {
+			references.remove(entry.hash);
+			size -= entry.size;
+			objectFile(entry.hash).delete();
+		}
+	}
+
+	private void decompress(String hash, File target) throws IOException {
+		target.getParentFile().mkdirs();
+		// Other processes may be decompressing the same page
+		File temp = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+		try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(objectFile(hash))));
+				OutputStream out = new FileOutputStream(temp)) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		}
+		Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private File objectFile(String hash) {
+		return new File(new File(objects, hash.substring(0, 2)), hash + ".gz");
+	}
+
+	private void reloadIfChanged() throws IOException {
+		if (!indexFile.isFile() || indexFile.lastModified() == indexModified) {
+			return;
+		}
+		long modified = indexFile.lastModified();
+		Map<String, Entry> saved = read();
+		pages.clear();
+		references.clear();
+		size = 0;
+		for (Map.Entry<String, Entry> e : saved.entrySet()) {
+			pages.put(e.getKey(), e.getValue());
+			addReference(e.getValue());
+		}
+		indexModified = modified;
+	}
+
+	/**
+	 * Reads the saved index, least recently used page first.
+	 */
+	private Map<String, Entry> read() throws IOException {
+		Map<String, Entry> saved = new LinkedHashMap<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			if (in.readInt() != VERSION) {
+				return saved;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String path = in.readUTF();
+				saved.put(path, new Entry(in.readUTF(), in.readLong()));
+			}
+		}
+		return saved;
+	}
+
+	/**
+	 * Saves the index under a lock, after merging it with the saved one.
+	 */
+	private void save() throws IOException {
+		dir.mkdirs();
+		Object lock = LOCKS.get(dir);
+		if (lock == null) {
+			Object created = new Object();
+			lock = LOCKS.putIfAbsent(dir, created);
+			if (lock == null) {
+				lock = created;
+			}
+		}
+		synchronized (lock) {
+			try (FileChannel channel = new FileOutputStream(new File(dir, "lock"), true).getChannel()) {
+				FileLock fileLock = channel.lock();
+				try {
+					merge();
+					write();
+				} finally {
+					fileLock.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the pages that other processes stored since the index was read.
+	 * Saving without them would leave their objects in the store, where
+	 * nothing counts them against the size limit or ever evicts them. Pages
+	 * whose object is gone, because another process evicted it, are dropped.
+	 */
+	private void merge() throws IOException {
+		// Read even if it seems unchanged, since two saves can happen within
+		// the resolution of the modification time
+		if (!indexFile.isFile()) {
+			return;
+		}
+		Map<String, Entry> saved = read();
+		Map<String, Entry> merged = new LinkedHashMap<>();
+		for (Map.Entry<String, Entry> e : saved.entrySet()) {
+			// Their order among this process's pages isn't known, so they are
+			// treated as the least recently used
+			if (!pages.containsKey(e.getKey()) && objectFile(e.getValue().hash).isFile()) {
+				merged.put(e.getKey(), e.getValue());
+			}
+		}
+		for (Map.Entry<String, Entry> e : pages.entrySet()) {
+			if (saved.containsKey(e.getKey()) || objectFile(e.getValue().hash).isFile()) {
+				merged.put(e.getKey(), e.getValue());
+			}
+		}
+		pages.clear();
+		references.clear();
+		size = 0;
+		for (Map.Entry<String, Entry> e : merged.entrySet()) {
+			pages.put(e.getKey(), e.getValue());
+			addReference(e.getValue());
+		}
+		evict(null);
+	}
+
+	/**
+	 * Writes the index, least recently used page first.
+	 */
+	private void write() throws IOException {
+		File temp = File.createTempFile(indexFile.getName(), ".tmp", dir);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(VERSION);
+			out.writeInt(pages.size());
+			for (Map.Entry<String, Entry> e : pages.entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeUTF(e.getValue().hash);
+				out.writeLong(e.getValue().size);
+			}
+		}
+		Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		indexModified = indexFile.lastModified();
+	}
+
+	/**
+	 * Gets the path of a documentation URL relative to the mirrored
+	 * documentation base.
+	 * 
+	 * @param url
+	 *            A URL under the documentation base
+	 * @return The relative path, or null if the URL isn't under the base
+	 */
+	public String pathOf(URL url) {
+		String base = docBase.toExternalForm();
+		String target = url.toExternalForm();
+		if (!target.startsWith(base)) {
+			return null;
+		}
+		String path = target.substring(base.length());
+		int anchor = path.indexOf('#');
+		return anchor < 0 ? path : path.substring(0, anchor);
+	}
+
+	/**
+	 * A mirrored page
+	 */
+	private static class Entry {
+		/**
+		 * The SHA-1 of the uncompressed page
+		 */
+		private final String hash;
+
+		/**
+		 * The size of the compressed object
+		 */
+		private final long size;
+
+		Entry(String hash, long size) {
+			this.hash = hash;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package net.dean.jsadl;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import net.dean.jsadl.index.PackageList;
+
+/*
+ * DocumentChecker.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Tests if the document a {@link Reference} produced for a class actually
+ * exists. Local files are checked on disk, entries of source archives through
+ * the archive's cached central directory and online documents through the
+ * Reference's {@link CheckCache}. Documentation pages can often be checked
+ * without asking the host at all, using the documentation's
+ * {@link PackageList} (see {@link #isKnownMissing(String)}).
+ * <p>
+ * DocumentCheckers are thread safe.
+ */
+public class DocumentChecker {
+	/**
+	 * The Reference whose documents are being checked
+	 */
+	private final Reference ref;
+
+	/**
+	 * The check cache of the Reference's documentation base. Created when
+	 * the first online document is checked.
+	 */
+	private CheckCache cache;
+
+	/**
+	 * Instantiates a new DocumentChecker
+	 * 
+	 * @param ref
+	 *            The Reference whose documents will be checked
+	 */
+	public DocumentChecker(Reference ref) {
+		this.ref = ref;
+	}
+
+	/**
+	 * Tests if the given document exists. Documents with protocols other
+	 * than file, jar, http and https are assumed to exist.
+	 * 
+	 * @param target
+	 *            The URL of the document
+	 * @return True if the document exists
+	 * @throws IOException
+	 *             If the source archive or the documentation host could not
+	 *             be read
+	 */
+	public boolean exists(URL target) throws IOException {
+		return exists(target, Timings.DISABLED);
+	}
+
+	/**
+	 * Tests if the given document exists, recording how the check went.
+	 * 
+	 * @param target
+	 *            The URL of the document
+	 * @param timings
+	 *            Where to record how the check went
+	 * @return True if the document exists
+	 * @throws IOException
+	 *             If the source archive or the documentation host could not
+	 *             be read
+	 * @see CheckCache#isAvailable(URL, Timings)
+	 */
+	public boolean exists(URL target, Timings timings) throws IOException {
+		String protocol = target.getProtocol();
+		timings.set("check.protocol", protocol);
+		if (protocol.equals("file")) {
+			return new File(target.getFile()).exists();
+		} else if (protocol.equals("jar")) {
+			return ZipSource.open(ZipSource.archiveOf(target)).contains(ZipSource.entryOf(target));
+		} else if (protocol.equals("http") || protocol.equals("https")) {
+			return getCache().isAvailable(target, timings);
+		}
+		return true;
+	}
+
+	/**
+	 * Tests if the documentation page of a class is known to be missing
+	 * without asking the documentation host: a class in a package that isn't
+	 * on the documentation's package list has no page. A class in a listed
+	 * package may still have none (package-private and internal classes are
+	 * in the source but not documented, and the source may be another
+	 * version), so only the host can say it exists.
+	 * 
+	 * @param className
+	 *            The fully qualified name of the class
+	 * @return True if the page doesn't exist, false if that can only be
+	 *         found out by asking the host
+	 */
+	public boolean isKnownMissing(String className) {
+		PackageList packages = ref.getPackageList(false);
+		return packages != null && packages.packageOf(className.replace('$', '.')) == null;
+	}
+
+	/**
+	 * Gets the check cache used for online documents.
+	 * 
+	 * @return The check cache
+	 */
+	public synchronized CheckCache getCache() {
+		if (cache == null) {
+			cache = CheckCache.forReference(ref);
+		}
+		return cache;
+	}
+
+	/**
+	 * Saves the check cache if any online documents were checked.
+	 * 
+	 * @throws IOException
+	 *             If the cache could not be written
+	 */
+	public synchronized void save() throws IOException {
+		if (cache != null) {
+			cache.save();
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package net.dean.jsadl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.dean.jsadl.index.ClassIndex;
+
+/*
+ * IndexWatcher.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Watches the sources of References for changes and brings their open
+ * indexes up to date as soon as things are quiet again, so that a daemon
+ * never answers from an index that is behind its source. Every directory of a
+ * source directory is watched; a source archive is watched through the
+ * directory it is in.
+ * <p>
+ * Changes are collected until no more have come for {@value #QUIET_TIME}
+ * milliseconds, so that a build or a checkout that changes many files only
+ * causes one update.
+ */
+public class IndexWatcher {
+	/**
+	 * How long to wait after a change for more changes, in milliseconds
+	 */
+	public static final long QUIET_TIME = 500;
+
+	/**
+	 * The Lookup whose indexes are updated
+	 */
+	private final Lookup lookup;
+
+	/**
+	 * The References being watched, keyed by their source base
+	 */
+	private final Map<String, Reference> refs = new HashMap<>();
+
+	/**
+	 * What each registered directory is watched for
+	 */
+	private final Map<WatchKey, List<Watched>> keys = new HashMap<>();
+
+	private WatchService service;
+
+	/**
+	 * Instantiates a new IndexWatcher
+	 * 
+	 * @param lookup
+	 *            The Lookup whose indexes should be kept up to date
+	 */
+	public IndexWatcher(Lookup lookup) {
+		this.lookup = lookup;
+	}
+
+	/**
+	 * Starts watching the source of a Reference. References whose source
+	 * can't be indexed and References that are already watched are ignored.
+	 * References added before the watcher is started are watched once it is.
+	 * 
+	 * @param ref
+	 *            The Reference
+	 * @throws IOException
+	 *             If the source could not be watched
+	 */
+	public synchronized void watch(Reference ref) throws IOException {
+		if (!ClassIndex.canIndex(ref)) {
+			return;
+		}
+		String key = ref.getSourceBase().toExternalForm();
+		if (refs.containsKey(key)) {
+			return;
+		}
+		refs.put(key, ref);
+		if (service != null) {
+			register(ref);
+		}
+	}
+
+	/**
+	 * Starts watching on a daemon thread.
+	 * 
+	 * @throws IOException
+	 *             If the file system can't be watched
+	 */
+	public synchronized void start() throws IOException {
+		if (service != null) {
+			return;
+		}
+		service = FileSystems.getDefault().newWatchService();
+		for (Reference ref : refs.values()) {
+			register(ref);
+		}
+
+		Thread thread = new Thread("JSaDL index watcher") {
+
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						update();
+					}
+				} catch (InterruptedException e) {
+					// Stopped
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void register(Reference ref) throws IOException {
+		if (ref.hasSourceArchive()) {
+			File archive = ZipSource.archiveOf(ref.getSourceBase()).getAbsoluteFile();
+			register(archive.getParentFile(), new Watched(ref, archive.getName()));
+		} else {
+			registerAll(new File(ref.getSourceBase().getFile()).getAbsoluteFile(), ref);
+		}
+	}
+
+	private void registerAll(File dir, Reference ref) throws IOException {
+		register(dir, new Watched(ref, null));
+		File[] children = dir.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				if (child.isDirectory()) {
+					registerAll(child, ref);
+				}
+			}
+		}
+	}
+
+	private void register(File dir, Watched watched) throws IOException {
+		WatchKey key = dir.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+		List<Watched> list = keys.get(key);
+		if (list == null) {
+			list = new ArrayList<>();
+			keys.put(key, list);
+		}
+		list.add(watched);
+	}
+
+	/**
+	 * Waits for a change, then for things to be quiet, then updates the
+	 * indexes of every Reference that changed.
+	 */
+	private void update() throws InterruptedException {
+		Set<Reference> changed = new LinkedHashSet<>();
+		WatchKey key = service.take();
+		while (key != null) {
+			collect(key, changed);
+			key = service.poll(QUIET_TIME, TimeUnit.MILLISECONDS);
+		}
+
+		for (Reference ref : changed) {
+			try {
+				lookup.refresh(ref);
+			} catch (IOException e) {
+				System.err.println("Unable to update the indexes of " + ref.getSourceBase() + ": "
+						+ e.getLocalizedMessage());
+			}
+		}
+	}
+
+	/**
+	 * Adds the References a change is relevant to, and starts watching new
+	 * directories.
+	 */
+	private synchronized void collect(WatchKey key, Set<Reference> changed) {
+		Path dir = (Path) key.watchable();
+		List<Watched> watchers = keys.get(key);
+		List<WatchEvent<?>> events = key.pollEvents();
+		if (!key.reset()) {
+			keys.remove(key);
+		}
+		if (watchers == null) {
+			return;
+		}
+
+		Set<String> names = new HashSet<>();
+		boolean overflow = false;
+		for (WatchEvent<?> event : events) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				overflow = true;
+				continue;
+			}
+			Path child = dir.resolve((Path) event.context());
+			names.add(child.getFileName().toString());
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && child.toFile().isDirectory()) {
+				for (Watched watched : watchers) {
+					if (watched.archiveName == null) {
+						try {
+							registerAll(child.toFile(), watched.ref);
+						} catch (IOException e) {
+							System.err.println("Unable to watch " + child + ": " + e.getLocalizedMessage());
+						}
+					}
+				}
+			}
+		}
+		for (Watched watched : watchers) {
+			if (overflow || watched.archiveName == null || names.contains(watched.archiveName)) {
+				changed.add(watched.ref);
+			}
+		}
+	}
+
+	/**
+	 * A Reference watched through a directory
+	 */
+	private static class Watched {
+		private final Reference ref;
+
+		/**
+		 * The name of the source archive in the directory, or null if the
+		 * directory is part of the source
+		 */
+		private final String archiveName;
+
+		Watched(Reference ref, String archiveName) {
+			this.ref = ref;
+			this.archiveName = archiveName;
+		}
+	}
+}
@@ -1,21 +1,40 @@
 package net.dean.jsadl;
 
 import java.awt.Desktop;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import net.dean.console.Argument;
 import net.dean.console.ConsoleApplication;
-import net.dean.jsadl.Configurator.Config;
+import net.dean.console.InputFilter;
+import net.dean.jsadl.index.ClassIndex;
+import net.dean.jsadl.index.CompletionIndex;
+import net.dean.jsadl.index.MemberIndex;
+import net.dean.jsadl.index.MemberSource;
+import net.dean.jsadl.index.TextIndex;
+import net.dean.jsadl.render.Pager;
+import net.dean.jsadl.render.TerminalRenderer;
 import net.dean.parsers.ini.IniSyntaxException;
-import net.dean.util.CollectionUtils;
-import net.dean.util.InternetUtils;
 import net.dean.util.file.FileUtil;
 
 /*
@@ -34,6 +53,12 @@ import net.dean.util.file.FileUtil;
  */
 public class JSaDL extends ConsoleApplication {
 	public static final String CONFIG_FILE_NAME = "config.ini";
+
+	/**
+	 * How long to wait for related documents to be prefetched after the
+	 * viewer was started, in milliseconds
+	 */
+	private static final long PREFETCH_WAIT = 10000;
 	/**
 	 * The Config object that reads and parses the {@value #CONFIG_FILE_NAME}
 	 * file and gets URLs for JSaDL.
@@ -45,6 +70,40 @@ public class JSaDL extends ConsoleApplication {
 	 */
 	private List<String> args;
 
+	/**
+	 * Turns class names into documents
+	 */
+	private Lookup lookup = new Lookup();
+
+	/**
+	 * Does lookups the same way for the command line as for programs that
+	 * embed JSaDL
+	 */
+	private LookupService service = new LookupService(lookup);
+
+	/**
+	 * Reports what the service is doing on stderr and asks the user when a
+	 * name is ambiguous
+	 */
+	private final LookupService.Interaction interaction = new LookupService.Interaction() {
+
+		@Override
+		public void status(String message) {
+			System.err.println(message);
+		}
+
+		@Override
+		public int choose(String question, List<String> options) {
+			return JSaDL.this.choose(question, options);
+		}
+	};
+
+	/**
+	 * Where the phases of this run are recorded. Disabled unless
+	 * <code>--timings</code> or <code>--metrics-log=</code> was passed.
+	 */
+	private Timings timings = Timings.DISABLED;
+
 /**
 	 * Instantiates a new JSaDL
 	 * 
@@ -68,13 +127,54 @@ public class JSaDL extends ConsoleApplication {
 			printUsage();
 			exitNormally();
 		}
+		startTimings();
+
 		// Get the config file
 		String configFileString = getProperty(args, "--config=");
 		File configFile = new File(configFileString == null || configFileString.isEmpty() ? CONFIG_FILE_NAME
 				: configFileString);
+
+		int prefetch = getPrefetch();
+		if (args.contains("--daemon")) {
+			runDaemon(configFile, prefetch);
+			return;
+		}
+		if (prefetch > 0) {
+			service.setPrefetcher(new Prefetcher(lookup, prefetch));
+		}
+
+		if (!args.contains("--nodaemon") && LookupDaemon.canForward(args)) {
+			// Let a running daemon do the work if there is one
+			long start = timings.start();
+			String response = LookupDaemon.forward(configFile, args);
+			timings.stop("daemon", start);
+			if (response != null && (response.startsWith("OK ") || response.startsWith("LINE "))) {
+				try {
+					if (response.startsWith("OK ")) {
+						view(new URL(response.substring("OK ".length())), 0);
+					} else {
+						String[] parts = response.split(" ", 3);
+						view(new URL(parts[2]), Integer.parseInt(parts[1]));
+					}
+				} catch (MalformedURLException e) {
+					exitInternalError(e, "The daemon returned a bad URL: " + response);
+				}
+				return;
+			} else if (response != null && response.startsWith("ERR ")) {
+				String[] parts = response.split(" ", 3);
+				exitAbnormally(parts.length > 2 ? parts[2] : response, Integer.parseInt(parts[1]));
+			}
+			// No daemon or it can't do this lookup, do it here
+		}
+
+		long start = timings.start();
 		try {
 			this.configurator = new Configurator(this);
 			configurator.configure(configFile);
+			if (configurator.getConfig() != null) {
+				// The lookup uses the same one instead of parsing it again
+				service.setConfig(configFile, configurator.getConfig());
+			}
 		} catch (FileNotFoundException e) {
 			exitAbnormally(e, 20);
 		} catch (IOException e) {
@@ -82,72 +182,650 @@ public class JSaDL extends ConsoleApplication {
 		} catch (IniSyntaxException e) {
 			exitAbnormally(e, 22);
 		}
+		timings.stop("config", start);
+
+		String server = getProperty(args, "--server=");
+		if (server != null) {
+			runServer(configFile, server);
+			return;
+		}
+
+		LookupRequest request = newRequest(configFile, args.get(0), args).limit(getLimit()).build();
+		timings.set("type", request.getType().name().toLowerCase());
+
+		String mirrorImport = getProperty(args, "--mirror-import=");
+		if (mirrorImport != null) {
+			importMirror(getReference(request), new File(mirrorImport));
+			exitNormally();
+		}
+
+		String query = getProperty(args, "--search=");
+		if (query != null) {
+			Reference ref = getReference(request);
+			start = timings.start();
+			doSearch(ref, newRequest(configFile, query, args).limit(getLimit()).build());
+			timings.stop("search", start);
+			exitNormally();
+		}
+
+		String grep = getProperty(args, "--grep=");
+		if (grep != null) {
+			Reference ref = getReference(request);
+			start = timings.start();
+			doGrep(ref, grep);
+			timings.stop("grep", start);
+			exitNormally();
+		}
+
+		String batchInput = getProperty(args, "--batch=");
+		if (batchInput != null) {
+			Reference ref = getReference(request);
+			start = timings.start();
+			doBatchLookup(ref, request.getType(), batchInput);
+			timings.stop("batch", start);
+			exitNormally();
+		}
+
+		LookupResult result = null;
+		try {
+			result = service.lookup(request, interaction);
+		} catch (LookupException e) {
+			saveChecks();
+			exitAbnormally(e.getMessage(), e.getExitCode());
+		}
+		saveChecks();
+
+		if (args.contains("--print")) {
+			start = timings.start();
+			printSource(result.getTarget(), result.getDeclaration());
+			timings.stop("print", start);
+			exitNormally();
+		}
+		view(result.getTarget(), result.getLine());
+		finishPrefetch();
+	}
 
-		// Get the lookup type
+	/**
+	 * Creates a request from the command line arguments, the same way for
+	 * the command line and the daemon.
+	 * 
+	 * @param configFile
+	 *            The configuration file
+	 * @param name
+	 *            The name of the class or member to look up
+	 * @param args
+	 *            The command line arguments
+	 * @return A Builder for the request
+	 */
+	static LookupRequest.Builder newRequest(File configFile, String name, List<String> args) {
 		LookupType type = LookupType.DOC;
-		if (args.contains("--source") || args.contains("-s")) {
+		if (args.contains("--source") || args.contains("-s") || args.contains("--print")) {
 			type = LookupType.SOURCE;
 		}
+		return new LookupRequest.Builder(configFile, name).type(type).reference(getProperty(args, "--lookup="))
+				.allReferences(args.contains("--all")).check(!args.contains("--nocheck"))
+				.reindex(args.contains("--reindex"));
+	}
 
-		String referenceName = getProperty(args, "--lookup=");
+	/**
+	 * Gets the Reference a request is for, which is the default Reference if
+	 * the request doesn't name one.
+	 * 
+	 * @param request
+	 *            The request
+	 * @return The Reference
+	 */
+	private Reference getReference(LookupRequest request) {
+		try {
+			return service.getReference(request.getConfigFile(), request.getReferenceName());
+		} catch (LookupException e) {
+			exitAbnormally(e.getMessage(), e.getExitCode());
+		}
+		return null;
+	}
 
-		Reference ref = null;
+	/**
+	 * Prints the source of a single class or member to stdout.
+	 * 
+	 * @param target
+	 *            The source file the declaration is in
+	 * @param declaration
+	 *            The key of the declaration
+	 * @see MemberSource
+	 */
+	private void printSource(URL target, String declaration) {
+		if (!target.getProtocol().equals("file")) {
+			exitAbnormally("--print only works with local source directories and archives", 44);
+		}
+		String source = null;
 		try {
-			ref = referenceName != null ? configurator.getConfig().getRefFor(referenceName) : getDefaultReference();
-		} catch (MalformedURLException e) {
-			exitAbnormally(e, 5);
+			source = MemberSource.read(new File(target.toURI()), declaration);
+		} catch (IOException | URISyntaxException e) {
+			exitAbnormally(e, 44);
+		}
+		if (source == null) {
+			exitAbnormally(declaration + " could not be found in " + target.getPath(), 44);
 		}
+		System.out.println(source);
+	}
 
-		URL target = ref.getFor(args.get(0), type);
+	/**
+	 * Starts recording timings if <code>--timings</code>,
+	 * <code>--timings=json</code> or <code>--metrics-log=</code> was passed.
+	 * They are reported when JSaDL exits, however that happens.
+	 */
+	private void startTimings() {
+		final String format = args.contains("--timings") ? "text" : getProperty(args, "--timings=");
+		final String log = getProperty(args, "--metrics-log=");
+		if (format == null && log == null) {
+			return;
+		}
+		if (format != null && !format.equals("text") && !format.equals("json")) {
+			exitAbnormally("--timings must be text or json", 53);
+		}
 
-		String protocol = target.getProtocol();
-		boolean exists = true;
-		if (!args.contains("--nocheck")) {
-			// Local file
+		timings = new Timings(true);
+		timings.recordJvmStartup();
+		lookup.setTimings(timings);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
 
-			if (protocol.equals("file")) {
-				// If it doesn't exist
-				if (!new File(target.getFile()).exists()) {
-					exists = false;
+			@Override
+			public void run() {
+				if (format != null) {
+					System.err.print(format.equals("json") ? timings.toJson() + "\n" : timings.toText());
 				}
-			} else if (protocol.equals("http") || protocol.equals("https")) {
-				try {
-					if (!(InternetUtils.doGetRequest(target.toExternalForm()).getResponseCode() == 200)) {
-						exists = false;
+				if (log != null) {
+					try {
+						timings.appendTo(new File(log));
+					} catch (IOException e) {
+						System.err.println("Unable to write the metrics log: " + e.getLocalizedMessage());
 					}
-				} catch (MalformedURLException e) {
-					exitInternalError(e, "Bad URL: " + target.toExternalForm());
-				} catch (IOException e) {
-					exitAbnormally(
-							"An IOException occured when testing the availablity of the document. Use --nocheck to disable this.",
-							3);
 				}
 			}
+		});
+	}
+
+	/**
+	 * Opens a document with the viewer given by <code>--viewer=</code>, or
+	 * the system default.
+	 * 
+	 * @param target
+	 *            The document to view
+	 * @param line
+	 *            The line to open a source file at, or 0 for the top
+	 */
+	private void view(URL target, int line) {
+		String viewer = getProperty(args, "--viewer=");
+		if (args.contains("--render")) {
+			long start = timings.start();
+			render(target, line);
+			timings.stop("view", start);
+		} else if (viewer == null) {
+			openWithDefault(target);
+		} else {
+			if (!openWithProgram(target, viewer, line)) {
+				exitAbnormally("The program \"" + viewer + "\" could not be found or is not in the PATH.", 30);
+			}
 		}
+	}
 
-		if (!exists) {
-			int exitCode = 10;
-			if (protocol.equals("http") || protocol.equals("https")) {
-				exitCode = 11;
-			} else if (protocol.equals("file")) {
-				exitCode = 12;
+	/**
+	 * Shows a document in the terminal, through a pager if there is one.
+	 * Documentation pages are rendered as text while they are downloaded,
+	 * starting at the anchor of the URL if it has one. Source files are shown
+	 * as they are, starting at the given line.
+	 * 
+	 * @param target
+	 *            The document to show
+	 * @param line
+	 *            The line to start a source file at, or 0 for the top
+	 */
+	private void render(URL target, int line) {
+		String path = target.getPath().toLowerCase();
+		boolean html = path.endsWith(".html") || path.endsWith(".htm");
+		Pager pager = Pager.open();
+		WebClient.Response response = null;
+		InputStream in = null;
+		try {
+			if (target.getProtocol().equals("http") || target.getProtocol().equals("https")) {
+				response = WebClient.getDefault().get(target, null);
+				if (response.getStatus() != HttpURLConnection.HTTP_OK) {
+					throw new IOException("The host answered with HTTP " + response.getStatus());
+				}
+				in = response.getBody();
+			} else {
+				in = target.openStream();
+			}
+			Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+			if (html) {
+				TerminalRenderer renderer = new TerminalRenderer(pager.getWriter(), Pager.getWidth(),
+						pager.isTerminal());
+				if (target.getRef() != null) {
+					renderer.setAnchor(URLDecoder.decode(target.getRef(), "UTF-8"));
+				}
+				if (!renderer.render(reader)) {
+					System.err.printf("%s was not found on the page\n", target.getRef());
+				}
+			} else {
+				BufferedReader lines = (BufferedReader) reader;
+				Writer out = pager.getWriter();
+				String text;
+				for (int number = 1; (text = lines.readLine()) != null; number++) {
+					if (number >= line) {
+						out.write(text);
+						out.write('\n');
+					}
+				}
+			}
+		} catch (IOException e) {
+			if (!pager.wasQuit()) {
+				exitAbnormally(e, 31);
+			}
+		} finally {
+			pager.close();
+			try {
+				if (in != null) {
+					in.close();
+				}
+			} catch (IOException e) {
+				// Already done with it
+			}
+			if (response != null) {
+				response.close();
 			}
-			exitAbnormally(args.get(0) + " could not be found.", exitCode);
 		}
+	}
 
-		// TODO: For methods/fields of online (http/https) references, use
-		// #method(). For instance, ${doc}/java/lang/Object#equals(Object)
+	/**
+	 * Imports a documentation archive into the mirror of a Reference.
+	 * 
+	 * @param ref
+	 *            The Reference whose mirror to fill
+	 * @param archive
+	 *            The documentation archive
+	 */
+	private void importMirror(Reference ref, File archive) {
+		if (ref.getMirror() == null) {
+			exitAbnormally("The reference does not have a mirror. Add a mirror key to it in " + CONFIG_FILE_NAME
+					+ " first.", 71);
+		}
+		try {
+			int pages = ref.getMirror().importArchive(archive);
+			System.out.printf("Imported %d pages from %s\n", pages, archive.getPath());
+		} catch (IOException e) {
+			exitAbnormally(e, 70);
+		}
+	}
 
-		String viewer = getProperty(args, "--viewer=");
-		if (viewer == null) {
-			openWithDefault(target);
-		} else {
-			if (!openWithProgram(target, viewer)) {
-				exitAbnormally("The program \"" + viewer + "\" could not be found or is not in the PATH.", 30);
+	/**
+	 * Starts a lookup daemon and serves lookups until the process is killed.
+	 * 
+	 * @param configFile
+	 *            The configuration file to load ahead of time
+	 * @param prefetch
+	 *            How many related documents to prefetch for each lookup
+	 */
+	private void runDaemon(File configFile, int prefetch) {
+		LookupDaemon daemon = new LookupDaemon();
+		if (prefetch > 0) {
+			LookupService daemonService = daemon.getService();
+			daemonService.setPrefetcher(new Prefetcher(daemonService.getLookup(), prefetch));
+		}
+		daemon.preload(configFile.getAbsoluteFile());
+		try {
+			daemon.serve();
+		} catch (IOException e) {
+			exitAbnormally(e, 60);
+		}
+	}
+
+	/**
+	 * Starts a lookup server and serves lookups until the process is killed.
+	 * 
+	 * @param configFile
+	 *            The configuration file whose References are looked in
+	 * @param address
+	 *            The port to listen on, optionally preceded by a host name
+	 *            and a ':'. Without a host, only this machine can connect.
+	 */
+	private void runServer(File configFile, String address) {
+		int colon = address.lastIndexOf(':');
+		String host = colon < 0 ? null : address.substring(0, colon);
+		int port;
+		try {
+			port = Integer.parseInt(address.substring(colon + 1));
+		} catch (NumberFormatException e) {
+			port = -1;
+		}
+		if (port < 0 || port > 65535 || (host != null && host.isEmpty())) {
+			exitAbnormally("--server must be a port, optionally preceded by a host and a ':'", 54);
+		}
+
+		final LookupServer lookupServer = new LookupServer(service, configFile);
+		try {
+			lookupServer.start(host == null ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+					: new InetSocketAddress(host, port), getThreads(0));
+		} catch (IOException e) {
+			exitAbnormally(e, 60);
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+
+			@Override
+			public void run() {
+				lookupServer.stop();
+			}
+		});
+		InetSocketAddress bound = lookupServer.getAddress();
+		System.err.printf("Serving lookups on http://%s:%d/\n", bound.getHostString(), bound.getPort());
+	}
+
+	/**
+	 * Gets how many related documents <code>--prefetch</code> or
+	 * <code>--prefetch=</code> asked to prefetch for each lookup.
+	 * 
+	 * @return The number of documents, 0 if nothing should be prefetched
+	 */
+	private int getPrefetch() {
+		if (args.contains("--prefetch")) {
+			return Prefetcher.DEFAULT_BUDGET;
+		}
+		String prefetchString = getProperty(args, "--prefetch=");
+		if (prefetchString == null) {
+			return 0;
+		}
+		int prefetch;
+		try {
+			prefetch = Integer.parseInt(prefetchString);
+		} catch (NumberFormatException e) {
+			prefetch = 0;
+		}
+		if (prefetch < 1) {
+			exitAbnormally("--prefetch must be a positive number", 55);
+		}
+		return prefetch;
+	}
+
+	/**
+	 * Waits a while for the documents related to the lookup to be
+	 * prefetched, and saves the checks that were made for them.
+	 */
+	private void finishPrefetch() {
+		Prefetcher prefetcher = service.getPrefetcher();
+		if (prefetcher == null) {
+			return;
+		}
+		try {
+			prefetcher.finish(PREFETCH_WAIT);
+			if (!args.contains("--nocheck")) {
+				service.saveChecks();
+			}
+		} catch (InterruptedException e) {
+			// Exiting anyway
+		} catch (IOException e) {
+			System.err.println("Unable to save the check cache: " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Gets the number of threads given by <code>--threads=</code>.
+	 * 
+	 * @param defaultThreads
+	 *            The number of threads if none was given
+	 * @return The number of threads
+	 */
+	private int getThreads(int defaultThreads) {
+		String threadsString = getProperty(args, "--threads=");
+		if (threadsString == null) {
+			return defaultThreads;
+		}
+		int threads;
+		try {
+			threads = Integer.parseInt(threadsString);
+		} catch (NumberFormatException e) {
+			threads = 0;
+		}
+		if (threads < 1) {
+			exitAbnormally("--threads must be a positive number", 51);
+		}
+		return threads;
+	}
+
+	/**
+	 * Opens the artifact index of a Maven repository, building it first if it
+	 * doesn't exist, is out of date or <code>--reindex</code> was passed.
+	 * 
+	 * @param repository
+	 *            The repository
+	 */
+	private void indexRepository(MavenRepository repository) {
+		boolean rebuild = args.contains("--reindex");
+		if (rebuild || !repository.isIndexed()) {
+			System.err.printf("Indexing the artifacts of %s...\n", repository);
+		}
+		try {
+			repository.index(rebuild);
+		} catch (IOException e) {
+			exitAbnormally(e, 47);
+		}
+	}
+
+	/**
+	 * Prints the classes (or members, if the query contains a '#') closest to
+	 * a query, best first, one per line.
+	 * 
+	 * @param ref
+	 *            The Reference to search
+	 * @param request
+	 *            What was typed, such as <code>CHM</code> or
+	 *            <code>HashMap#cIA</code>, as a request
+	 */
+	private void doSearch(Reference ref, LookupRequest request) {
+		try {
+			if (request.getMember() == null) {
+				if (ClassIndex.canIndex(ref) && !ClassIndex.fileFor(ref).isFile()) {
+					System.err.printf("Building the class index for %s...\n", ref.getSourceBase().toExternalForm());
+				}
+				for (String className : lookup.searchClasses(ref, request.getClassName(), request.getLimit())) {
+					System.out.println(className);
+				}
+				return;
+			}
+
+			String className = service.resolveClassName(ref, request, interaction);
+			ref = lookup.forClass(ref, className, request.getType());
+			for (MemberIndex.Entry member : lookup.searchMembers(ref, className, request.getMember(),
+					request.getType(), request.getLimit())) {
+				System.out.println(member);
+			}
+		} catch (LookupException e) {
+			exitAbnormally(e.getMessage(), e.getExitCode());
+		}
+	}
+
+	/**
+	 * Prints the lines of the source that have every word of a query, like
+	 * <code>grep</code> does.
+	 * 
+	 * @param ref
+	 *            The Reference to search
+	 * @param query
+	 *            The words to look for
+	 */
+	private void doGrep(Reference ref, String query) {
+		boolean rebuild = args.contains("--reindex");
+		if (rebuild || !TextIndex.fileFor(ref).isFile()) {
+			System.err.printf("Building the text index for %s...\n", ref.getSourceBase().toExternalForm());
+		}
+		try {
+			for (TextIndex.Hit hit : lookup.searchText(ref, query, getLimit(100), rebuild)) {
+				System.out.println(hit);
+			}
+		} catch (LookupException e) {
+			exitAbnormally(e.getMessage(), e.getExitCode());
+		}
+	}
+
+	/**
+	 * Prints the completions of a class name, or of a reference name after
+	 * <code>--lookup=</code>, one per line. Only the files written for
+	 * completion are read, not the configuration or any index.
+	 * 
+	 * @param prefix
+	 *            What was typed
+	 */
+	private static void complete(String prefix) {
+		try {
+			if (prefix.startsWith("--lookup=")) {
+				for (String name : CompletionIndex.completeReferences(prefix.substring("--lookup=".length()))) {
+					System.out.println("--lookup=" + name);
+				}
+			} else {
+				for (String name : CompletionIndex.completeClasses(prefix)) {
+					System.out.println(name);
+				}
+			}
+		} catch (IOException e) {
+			// Nothing to complete with
+		}
+	}
+
+	/**
+	 * Gets the number of results given by <code>--limit=</code>.
+	 * 
+	 * @return The limit, 10 if none was given
+	 */
+	private int getLimit() {
+		return getLimit(10);
+	}
+
+	/**
+	 * Gets the number of results given by <code>--limit=</code>.
+	 * 
+	 * @param defaultLimit
+	 *            The limit if none was given
+	 * @return The limit
+	 */
+	private int getLimit(int defaultLimit) {
+		String limitString = getProperty(args, "--limit=");
+		if (limitString == null) {
+			return defaultLimit;
+		}
+		int limit;
+		try {
+			limit = Integer.parseInt(limitString);
+		} catch (NumberFormatException e) {
+			limit = 0;
+		}
+		if (limit < 1) {
+			exitAbnormally("--limit must be a positive number", 52);
+		}
+		return limit;
+	}
+
+	/**
+	 * Asks the user to choose one of several options.
+	 * 
+	 * @param question
+	 *            The sentence explaining why a choice is needed
+	 * @param options
+	 *            The options to list
+	 * @return The index of the chosen option
+	 */
+	private int choose(String question, final List<String> options) {
+		System.out.printf("%s Please choose one. Press enter for [1]\n", question);
+		for (int i = 0; i < options.size(); i++) {
+			System.out.printf("  %d) %s\n", i + 1, options.get(i));
+		}
+		String choice = getInput(new InputFilter() {
+
+			@Override
+			public boolean accept(String input) {
+				try {
+					int number = Integer.parseInt(input.trim());
+					return number >= 1 && number <= options.size();
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+		}, "1");
+		return Integer.parseInt(choice.trim()) - 1;
+	}
+
+	/**
+	 * Opens the class index of the given Reference, building it first if it
+	 * doesn't exist or <code>--reindex</code> was passed.
+	 * 
+	 * @param ref
+	 *            The Reference, which must be indexable
+	 * @return The class index
+	 */
+	private ClassIndex openClassIndex(Reference ref) {
+		boolean rebuild = args.contains("--reindex");
+		if (rebuild || !ClassIndex.fileFor(ref).isFile()) {
+			System.err.printf("Building the class index for %s...\n", ref.getSourceBase().toExternalForm());
+		}
+		try {
+			return lookup.getClassIndex(ref, rebuild);
+		} catch (LookupException e) {
+			exitAbnormally(e.getMessage(), e.getExitCode());
+		}
+		return null;
+	}
+
+	/**
+	 * Saves the check caches that were used, printing their statistics if
+	 * <code>--cachestats</code> was passed. Nothing is saved with
+	 * <code>--nocheck</code>.
+	 */
+	private void saveChecks() {
+		if (args.contains("--nocheck")) {
+			return;
+		}
+		try {
+			service.saveChecks();
+		} catch (IOException e) {
+			System.err.println("Unable to save the check cache: " + e.getLocalizedMessage());
+		}
+		if (args.contains("--cachestats")) {
+			for (DocumentChecker checker : lookup.getCheckers()) {
+				System.err.println(checker.getCache().getStatistics());
 			}
 		}
 	}
 
+	/**
+	 * Resolves every class name in the given input and prints the results as
+	 * lines of JSON instead of opening a viewer.
+	 * 
+	 * @param ref
+	 *            The Reference to resolve the names against
+	 * @param type
+	 *            The type of document to look up
+	 * @param input
+	 *            The file to read the names from, or "-" for stdin
+	 */
+	private void doBatchLookup(Reference ref, LookupType type, String input) {
+		if (ref.getRepository() != null) {
+			indexRepository(ref.getRepository());
+		}
+		ClassIndex index = ClassIndex.canIndex(ref) ? openClassIndex(ref) : null;
+		DocumentChecker checker = args.contains("--nocheck") ? null : lookup.getChecker(ref);
+
+		int threads = getThreads(BatchLookup.defaultThreads(ref, type));
+
+		try (BufferedReader in = input.equals("-") ? new BufferedReader(new InputStreamReader(System.in,
+				StandardCharsets.UTF_8)) : Files.newBufferedReader(new File(input).toPath(), StandardCharsets.UTF_8)) {
+			Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+			new BatchLookup(ref, type, index, checker, threads).run(in, out);
+		} catch (IOException e) {
+			exitAbnormally(e, 50);
+		} catch (InterruptedException e) {
+			exitInternalError(e, "Interrupted while waiting for lookups to finish");
+		}
+
+		saveChecks();
+	}
 
 	/**
 	 * Opens the specified URL with the system default viewer/editor.
@@ -192,27 +870,53 @@ public class JSaDL extends ConsoleApplication {
 		}
 
 		if (program != null) {
-			if (openWithProgram(url, program)) {
-				// Everything went smoothly
-				exitNormally();
+			if (openWithProgram(url, program, 0)) {
+				// Everything went smoothly. The lookup still has to wait for
+				// the prefetch before exiting.
+				return;
 			}
 
 			// Eh, not so much. Try and use Desktop.
 		}
 
-		if (!Desktop.isDesktopSupported()) {
-			exitAbnormally("Java Desktop is not supported. Please specify a program and try again.", 2);
+		if (!DesktopViewer.isSupported()) {
+			// Headless, so there is nothing to open it with
+			render(url, 0);
+			return;
 		}
 
-		Desktop d = Desktop.getDesktop();
+		long start = timings.start();
 		try {
+			DesktopViewer.open(url);
+		} catch (URISyntaxException | IOException e) {
+			e.printStackTrace();
+		} finally {
+			timings.stop("view", start);
+		}
+	}
+
+	/**
+	 * Opens documents with {@link Desktop}. Initializing AWT takes longer
+	 * than the rest of a lookup, so it lives in its own class that is only
+	 * loaded when there is no program to open the document with.
+	 */
+	private static final class DesktopViewer {
+
+		private DesktopViewer() {
+			// Utility class
+		}
+
+		static boolean isSupported() {
+			return Desktop.isDesktopSupported();
+		}
+
+		static void open(URL url) throws URISyntaxException, IOException {
+			Desktop d = Desktop.getDesktop();
 			if (url.getProtocol().equals("file")) {
 				d.open(new File(url.toURI()));
 				return;
 			}
 			d.browse(url.toURI());
-		} catch (URISyntaxException | IOException e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -223,17 +927,36 @@ public class JSaDL extends ConsoleApplication {
 	 * {@code <viewer> <url>}
 	 * </code></blockquote>
 	 * 
+	 * If a line is given and the URL is a local file, the structure is
+	 * instead the one editors like vim, emacs and nano understand:
+	 * 
+	 * <blockquote><code>
+	 * {@code <viewer> +<line> <file>}
+	 * </code></blockquote>
+	 * 
 	 * @param url
 	 *            The URL to browse to
 	 * @param program
 	 *            The program to use
+	 * @param line
+	 *            The line to open the file at, or 0 for the top
 	 */
-	private boolean openWithProgram(URL url, String program) {
+	private boolean openWithProgram(URL url, String program, int line) {
 		ProcessBuilder pb = new ProcessBuilder().command(program, url.toExternalForm());
+		if (line > 0 && url.getProtocol().equals("file")) {
+			try {
+				pb.command(program, "+" + line, new File(url.toURI()).getPath());
+			} catch (URISyntaxException e) {
+				// Open it at the top
+			}
+		}
 		try {
+			long start = timings.start();
 			Process p = pb.start();
+			timings.stop("view", start);
 			// Make sure it starts
 			int exit = p.waitFor();
+			timings.set("view.exit", exit);
 			if (exit != 0) {
 				// Abnormal exit, warn the user
 			}
@@ -258,7 +981,7 @@ public class JSaDL extends ConsoleApplication {
 	 *            The full name and key of the property
 	 * @return The value of the given key
 	 */
-	private String getProperty(List<String> args, String propertyName) {
+	static String getProperty(List<String> args, String propertyName) {
 		// TODO: Add support for properties with quotes
 
 		for (String arg : args) {
@@ -270,74 +993,6 @@ public class JSaDL extends ConsoleApplication {
 		return null;
 	}
 
-	private Reference getDefaultReference() {
-		Config config = configurator.getConfig();
-		// Look for the java reference
-		if (config.getIniFile().hasSection("java")) {
-			try {
-				return config.getRefFor("java");
-			} catch (MalformedURLException e) {
-				exitAbnormally(e, 5);
-			}
-		}
-
-		// Look for the first reference (if there are any)
-		if (config.getIniFile().getSections().size() > 0) {
-			try {
-				return config.getRefFor(config.getIniFile().getSections().get(0).getName());
-			} catch (MalformedURLException e) {
-				exitAbnormally(e, 5);
-			}
-		}
-
-		String source = null, docs = null;
-
-		// File f;
-		// if ((f = new File("docs/")).exists()) {
-		// docs = "file://" + f.getAbsolutePath();
-		// } else if (((f = new File(System.getProperty("java.home") +
-		// "src/")).exists())) {
-		//
-		// }
-		List<File> folders = new ArrayList<>();
-		folders.add(new File(System.getProperty("user.dir")));
-		folders.add(new File(System.getProperty("java.home")));
-		folders.add(new File(System.getenv("JAVA_HOME")));
-
-		File sourceFolder = null;
-		for (File f : folders) {
-			if ((sourceFolder = new File(f, "src/")).exists()) {
-				source = sourceFolder.getAbsolutePath();
-				break;
-			}
-		}
-
-		if (sourceFolder == null) {
-			exitAbnormally(
-					"Unable to find a source folder for the default Reference. Please add at least one Reference to your "
-							+ CONFIG_FILE_NAME + ".", 4);
-		}
-
-		File docsFolder = null;
-		for (File f : folders) {
-			if ((sourceFolder = new File(f, "doc/")).exists()) {
-				source = sourceFolder.getAbsolutePath();
-				break;
-			}
-		}
-		if (docsFolder == null) {
-			// Resort to online
-			docs = "http://docs.oracle.com/javase/7/docs/api/";
-		}
-
-		try {
-			return new Reference(source, docs);
-		} catch (MalformedURLException e) {
-			exitInternalError(e, "Malformed URL while generating default Reference: " + e.getLocalizedMessage());
-		}
-		return null;
-	}
-
 	@Override
 	protected String getMaker() {
 		return "thatJavaNerd";
@@ -361,15 +1016,58 @@ public class JSaDL extends ConsoleApplication {
 	}
 
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("--complete")) {
+			// Before anything else is set up, to answer shells quickly
+			complete(args.length > 1 ? args[1] : "");
+			return;
+		}
+
+		List<String> argList = new ArrayList<>(Arrays.asList(args));
+		// The Arguments are only printed, so a lookup doesn't build them
+		List<Argument> arguments = argList.isEmpty() || argList.contains("--help") ? getArguments()
+				: new ArrayList<Argument>();
+		JSaDL saddle = new JSaDL(arguments, argList);
+		saddle.setSupportSite("https://github.com/thatJavaNerd/JSaDL/issues");
+		saddle.doLookup();
+	}
+
+	/**
+	 * Gets the Arguments that are listed by <code>--help</code>.
+	 * 
+	 * @return The Arguments
+	 */
+	private static List<Argument> getArguments() {
 		List<Argument> arguments = new ArrayList<>();
 		arguments.add(new Argument("-s", "--source", "Shows the source code instead of the Javadoc"));
 		arguments.add(new Argument("", "--config=<file>", "Uses a different configuration file"));
 		arguments.add(new Argument("", "--lookup=<reference>", "Sets the name of the reference to use"));
+		arguments.add(new Argument("", "--all", "Looks in every reference at once and uses the first one that has the class"));
 		arguments.add(new Argument("", "--viewer=<app>", "Uses a program to view the file instead of the system default"));
+		arguments.add(new Argument("", "--print", "Prints the source of just the class or member instead of opening its file"));
+		arguments.add(new Argument("", "--render", "Shows the document as text in the terminal instead of opening a viewer"));
 		arguments.add(new Argument("", "--nocheck",
 				"Disables checking for an existing file/200 HTTP response before trying to view the document"));
-		JSaDL saddle = new JSaDL(arguments, CollectionUtils.toCollection(args));
-		saddle.setSupportSite("https://github.com/thatJavaNerd/JSaDL/issues");
-		saddle.doLookup();
+		arguments.add(new Argument("", "--reindex", "Rebuilds the class index of the reference before looking up"));
+		arguments.add(new Argument("", "--cachestats", "Prints how many availability checks were answered from the cache"));
+		arguments.add(new Argument("", "--timings[=json]", "Prints how long each phase of the lookup took when JSaDL exits"));
+		arguments.add(new Argument("", "--metrics-log=<file>", "Appends the timings of the lookup to a file as a line of JSON"));
+		arguments.add(new Argument("", "--batch=<file>",
+				"Resolves every class name in a file (or - for stdin) and prints the results as JSON lines"));
+		arguments.add(new Argument("", "--threads=<n>",
+				"Sets how many documents --batch checks, or how many requests --server answers, at the same time"));
+		arguments.add(new Argument("", "--search=<query>",
+				"Lists the classes (or Class#members) closest to a name, abbreviation or misspelling"));
+		arguments.add(new Argument("", "--grep=<words>", "Lists the lines of the source that have every one of the words"));
+		arguments.add(new Argument("", "--limit=<n>", "Sets how many results --search (10) or --grep (100) lists"));
+		arguments.add(new Argument("", "--mirror-import=<zip>",
+				"Copies every page of a documentation archive into the reference's mirror"));
+		arguments.add(new Argument("", "--daemon", "Keeps JSaDL running in the background to make lookups faster"));
+		arguments.add(new Argument("", "--nodaemon", "Does the lookup without a running daemon"));
+		arguments.add(new Argument("", "--server=[<host>:]<port>", "Answers lookups over HTTP until JSaDL is stopped"));
+		arguments.add(new Argument("", "--prefetch[=<n>]",
+				"Gets the superclass, interfaces and package summary ready in the background after a lookup"));
+		arguments.add(new Argument("", "--complete <prefix>",
+				"Prints the class or --lookup= reference names that start with a prefix"));
+		return arguments;
 	}
 }
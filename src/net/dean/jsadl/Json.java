@@ -0,0 +1,79 @@
+package net.dean.jsadl;
+
+import java.util.List;
+
+/*
+ * Json.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * The little bit of JSON writing JSaDL needs for its machine readable output.
+ */
+public final class Json {
+	private Json() {
+		// Utility class
+	}
+
+	/**
+	 * Quotes and escapes a string. A null string becomes <code>null</code>.
+	 * 
+	 * @param value
+	 *            The string to quote
+	 * @return A JSON string literal
+	 */
+	public static String quote(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder(value.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	/**
+	 * Creates a JSON array of strings.
+	 * 
+	 * @param values
+	 *            The strings
+	 * @return A JSON array
+	 */
+	public static String array(List<String> values) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(quote(values.get(i)));
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -0,0 +1,788 @@
+package net.dean.jsadl;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.dean.jsadl.index.ClassIndex;
+import net.dean.jsadl.index.FuzzyIndex;
+import net.dean.jsadl.index.MemberIndex;
+import net.dean.jsadl.index.TextIndex;
+
+/*
+ * Lookup.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * The non-interactive part of looking up a class: turning a name into a
+ * document that a viewer can open. Class indexes and check caches are kept
+ * open between lookups, so a single Lookup can serve many requests cheaply.
+ * <p>
+ * Lookups are thread safe.
+ */
+public class Lookup {
+	/**
+	 * Class indexes that have been opened, keyed by their file
+	 */
+	private final ConcurrentMap<File, ClassIndex> indexes = new ConcurrentHashMap<>();
+
+	/**
+	 * Fuzzy indexes that have been opened, keyed by the file of their class
+	 * index
+	 */
+	private final ConcurrentMap<File, FuzzyIndex> fuzzyIndexes = new ConcurrentHashMap<>();
+
+	/**
+	 * Member indexes that have been opened, keyed by their file
+	 */
+	private final ConcurrentMap<File, MemberIndex> memberIndexes = new ConcurrentHashMap<>();
+
+	/**
+	 * Text indexes that have been opened, keyed by their file
+	 */
+	private final ConcurrentMap<File, TextIndex> textIndexes = new ConcurrentHashMap<>();
+
+	/**
+	 * Locks held while an index is opened or built, keyed by its file, so
+	 * that threads needing the same index wait for one of them to build it
+	 */
+	private final ConcurrentMap<File, Object> indexLocks = new ConcurrentHashMap<>();
+
+	/**
+	 * Document checkers, keyed by the documentation base they check
+	 */
+	private final ConcurrentMap<String, DocumentChecker> checkers = new ConcurrentHashMap<>();
+
+	/**
+	 * Where the phases of {@link #find(Reference, String, LookupType, boolean)}
+	 * are recorded
+	 */
+	private volatile Timings timings = Timings.DISABLED;
+
+	/**
+	 * The threads {@link #findReference(Map, String, LookupType)} asks
+	 * References on. Created the first time it is needed, and shared by every
+	 * call so that many calls don't each start their own threads.
+	 */
+	private ExecutorService pool;
+
+	/**
+	 * Sets where the phases of lookups are recorded. Only a Lookup serving a
+	 * single client should record timings, since every lookup adds to the
+	 * same phases.
+	 * 
+	 * @param timings
+	 *            Where to record timings
+	 */
+	public void setTimings(Timings timings) {
+		this.timings = timings;
+	}
+
+	/**
+	 * Gets where the phases of lookups are recorded.
+	 * 
+	 * @return The timings, which are disabled unless
+	 *         {@link #setTimings(Timings)} was called
+	 */
+	public Timings getTimings() {
+		return timings;
+	}
+
+	/**
+	 * Gets the class index of a Reference, building it if it doesn't exist.
+	 * 
+	 * @param ref
+	 *            The Reference
+	 * @param rebuild
+	 *            True to rebuild the index even if it already exists
+	 * @return The class index, or null if the Reference can't be indexed
+	 * @throws LookupException
+	 *             If the index could not be read or built
+	 */
+	public ClassIndex getClassIndex(Reference ref, boolean rebuild) throws LookupException {
+		if (!ClassIndex.canIndex(ref)) {
+			return null;
+		}
+		File file = ClassIndex.fileFor(ref);
+		ClassIndex index = rebuild ? null : indexes.get(file);
+		if (index != null) {
+			return index;
+		}
+		synchronized (lockFor(file)) {
+			index = rebuild ? null : indexes.get(file);
+			if (index == null) {
+				try {
+					index = rebuild ? ClassIndex.build(ref) : ClassIndex.forReference(ref);
+				} catch (IOException e) {
+					throw new LookupException("Unable to read the class index: " + e.getLocalizedMessage(), 40, e);
+				}
+				indexes.put(file, index);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the member index used for lookups of the given type, building it if
+	 * it doesn't exist. Documentation lookups use the index of the
+	 * documentation's search index if it has one, and the source's otherwise.
+	 * 
+	 * @param ref
+	 *            The Reference
+	 * @param type
+	 *            The type of document the members will be looked up in
+	 * @param rebuild
+	 *            True to rebuild the index even if it already exists
+	 * @return The member index
+	 * @throws LookupException
+	 *             If there is no way to index the Reference's members, or the
+	 *             index could not be read or built
+	 */
+	public MemberIndex getMemberIndex(Reference ref, LookupType type, boolean rebuild) throws LookupException {
+		try {
+			if (type == LookupType.DOC) {
+				File file = MemberIndex.fileFor(ref.getDocBase());
+				MemberIndex index = rebuild ? null : memberIndexes.get(file);
+				if (index == null) {
+					synchronized (lockFor(file)) {
+						index = rebuild ? null : memberIndexes.get(file);
+						if (index == null) {
+							index = MemberIndex.forDocumentation(ref, rebuild);
+							if (index != null) {
+								memberIndexes.put(file, index);
+							}
+						}
+					}
+				}
+				if (index != null) {
+					return index;
+				}
+			}
+
+			if (!ClassIndex.canIndex(ref)) {
+				throw new LookupException("Members can only be looked up in documentation with a search index "
+						+ "(Javadoc 9 or later) or in local sources.", 42);
+			}
+			File file = MemberIndex.fileFor(ref.getSourceBase());
+			MemberIndex index = rebuild ? null : memberIndexes.get(file);
+			if (index != null) {
+				return index;
+			}
+			synchronized (lockFor(file)) {
+				index = rebuild ? null : memberIndexes.get(file);
+				if (index == null) {
+					index = MemberIndex.forSource(ref, rebuild);
+					memberIndexes.put(file, index);
+				}
+			}
+			return index;
+		} catch (IOException e) {
+			throw new LookupException("Unable to read the member index: " + e.getLocalizedMessage(), 42, e);
+		}
+	}
+
+	/**
+	 * Finds the members of a class whose labels start with a prefix.
+	 * 
+	 * @param ref
+	 *            The Reference to look in
+	 * @param className
+	 *            The name of the class, either fully qualified or simple
+	 * @param prefix
+	 *            The start of the member's label, such as <code>comp</code>
+	 *            or <code>equals(Object)</code>
+	 * @param type
+	 *            The type of document the member will be looked up in
+	 * @param rebuildIndex
+	 *            True to rebuild the member index before searching it
+	 * @return Every matching member, never empty
+	 * @throws LookupException
+	 *             If there are no matching members, or the member index could
+	 *             not be read
+	 * @see MemberIndex#find(String, String)
+	 */
+	public List<MemberIndex.Entry> findMembers(Reference ref, String className, String prefix, LookupType type,
+			boolean rebuildIndex) throws LookupException {
+		List<MemberIndex.Entry> members = getMemberIndex(ref, type, rebuildIndex).find(className, prefix);
+		if (members.isEmpty()) {
+			throw new LookupException(className + " has no member named " + prefix + ".", 14);
+		}
+		return members;
+	}
+
+	/**
+	 * Finds the document of a member's class and points it at the member. For
+	 * documentation, that means adding the member's anchor to the URL; source
+	 * files are returned as they are, since the line is given by
+	 * {@link MemberIndex.Entry#getLine()}.
+	 * 
+	 * @param ref
+	 *            The Reference to look in
+	 * @param member
+	 *            The member
+	 * @param type
+	 *            The type of document to find
+	 * @param check
+	 *            True to make sure the document exists
+	 * @return The URL of the document
+	 * @throws LookupException
+	 *             If the document doesn't exist or could not be checked
+	 * @see #find(Reference, String, LookupType, boolean)
+	 */
+	public URL findMember(Reference ref, MemberIndex.Entry member, LookupType type, boolean check)
+			throws LookupException {
+		URL target = find(ref, member.getClassName(), type, check);
+		if (type == LookupType.DOC && !member.getAnchor().isEmpty()) {
+			try {
+				target = new URL(target, "#" + member.getAnchor());
+			} catch (MalformedURLException e) {
+				throw new LookupException(e.getLocalizedMessage(), 5, e);
+			}
+		}
+		return target;
+	}
+
+	/**
+	 * Finds the classes of a Reference whose simple names are closest to a
+	 * query, allowing for camel case abbreviations, typos and partial names.
+	 * 
+	 * @param ref
+	 *            The Reference to search
+	 * @param query
+	 *            What was typed, such as <code>CHM</code>
+	 * @param limit
+	 *            The most classes to return
+	 * @return The fully qualified names of the classes, best match first
+	 * @throws LookupException
+	 *             If the Reference can't be indexed, or the index could not be
+	 *             read or built
+	 * @see FuzzyIndex#search(String, int)
+	 */
+	public List<String> searchClasses(Reference ref, String query, int limit) throws LookupException {
+		ClassIndex classes = getClassIndex(ref, false);
+		if (classes == null) {
+			throw new LookupException("Only references with a local source directory or archive can be searched.", 43);
+		}
+		File file = ClassIndex.fileFor(ref);
+		FuzzyIndex index = fuzzyIndexes.get(file);
+		if (index == null) {
+			synchronized (lockFor(FuzzyIndex.fileFor(file))) {
+				index = fuzzyIndexes.get(file);
+				if (index == null) {
+					try {
+						index = FuzzyIndex.forClassIndex(classes, file);
+					} catch (IOException e) {
+						throw new LookupException("Unable to read the class index: " + e.getLocalizedMessage(), 40, e);
+					}
+					fuzzyIndexes.put(file, index);
+				}
+			}
+		}
+		return index.search(query, limit);
+	}
+
+	/**
+	 * Finds the members of a class whose names are closest to a query.
+	 * 
+	 * @param ref
+	 *            The Reference to look in
+	 * @param className
+	 *            The name of the class, either fully qualified or simple
+	 * @param query
+	 *            What was typed, such as <code>cIA</code>
+	 * @param type
+	 *            The type of document the member will be looked up in
+	 * @param limit
+	 *            The most members to return
+	 * @return The members, best match first
+	 * @throws LookupException
+	 *             If the member index could not be read
+	 */
+	public List<MemberIndex.Entry> searchMembers(Reference ref, String className, String query, LookupType type,
+			int limit) throws LookupException {
+		List<MemberIndex.Entry> members = getMemberIndex(ref, type, false).find(className, "");
+		List<String> names = new ArrayList<>(members.size());
+		for (MemberIndex.Entry member : members) {
+			names.add(member.getName());
+		}
+		List<MemberIndex.Entry> ranked = new ArrayList<>();
+		for (int index : FuzzyIndex.rank(query, names, limit)) {
+			ranked.add(members.get(index));
+		}
+		return ranked;
+	}
+
+	/**
+	 * Finds the lines of a Reference's source that have every word of a
+	 * query, building the text index first if it doesn't exist.
+	 * 
+	 * @param ref
+	 *            The Reference to search
+	 * @param query
+	 *            The words to look for, such as <code>MAXIMUM_CAPACITY</code>
+	 * @param limit
+	 *            The most lines to return
+	 * @param rebuild
+	 *            True to rebuild the text index even if it already exists
+	 * @return The lines, in the order of their files
+	 * @throws LookupException
+	 *             If the Reference can't be indexed, or the index or the
+	 *             source could not be read
+	 * @see TextIndex#search(String, int)
+	 */
+	public List<TextIndex.Hit> searchText(Reference ref, String query, int limit, boolean rebuild)
+			throws LookupException {
+		if (!ClassIndex.canIndex(ref)) {
+			throw new LookupException("Only references with a local source directory or archive can be searched.", 43);
+		}
+		File file = TextIndex.fileFor(ref);
+		try {
+			TextIndex index = rebuild ? null : textIndexes.get(file);
+			if (index == null) {
+				synchronized (lockFor(file)) {
+					index = rebuild ? null : textIndexes.get(file);
+					if (index == null) {
+						index = TextIndex.forSource(ref, rebuild);
+						textIndexes.put(file, index);
+					}
+				}
+			}
+			return index.search(query, limit);
+		} catch (IOException e) {
+			throw new LookupException("Unable to read the text index: " + e.getLocalizedMessage(), 45, e);
+		}
+	}
+
+	/**
+	 * Brings the indexes of a Reference's source that are open up to date
+	 * after its files changed. Indexes that haven't been opened yet are left
+	 * alone; they are brought up to date when they are opened.
+	 * 
+	 * @param ref
+	 *            The Reference
+	 * @throws IOException
+	 *             If an index could not be updated
+	 */
+	public void refresh(Reference ref) throws IOException {
+		if (!ClassIndex.canIndex(ref)) {
+			return;
+		}
+		File file = ClassIndex.fileFor(ref);
+		if (indexes.containsKey(file)) {
+			indexes.put(file, ClassIndex.forReference(ref));
+			fuzzyIndexes.remove(file);
+		}
+		file = MemberIndex.fileFor(ref.getSourceBase());
+		if (memberIndexes.containsKey(file)) {
+			memberIndexes.put(file, MemberIndex.forSource(ref, false));
+		}
+		file = TextIndex.fileFor(ref);
+		if (textIndexes.containsKey(file)) {
+			textIndexes.put(file, TextIndex.forSource(ref, false));
+		}
+	}
+
+	/**
+	 * Gets the document checker of a Reference.
+	 * 
+	 * @param ref
+	 *            The Reference
+	 * @return The document checker
+	 */
+	public DocumentChecker getChecker(Reference ref) {
+		// References without documentation only check local files
+		String key = ref.getDocBase() == null ? "" : ref.getDocBase().toExternalForm();
+		DocumentChecker checker = checkers.get(key);
+		if (checker == null) {
+			checker = new DocumentChecker(ref);
+			DocumentChecker existing = checkers.putIfAbsent(key, checker);
+			if (existing != null) {
+				checker = existing;
+			}
+		}
+		return checker;
+	}
+
+	/**
+	 * Gets every document checker that has been used so far.
+	 * 
+	 * @return The document checkers
+	 */
+	public Collection<DocumentChecker> getCheckers() {
+		return Collections.unmodifiableCollection(checkers.values());
+	}
+
+	/**
+	 * Turns a class name into a fully qualified one. Names containing a dot
+	 * are assumed to be qualified already; simple names are resolved through
+	 * the Reference's class index, or the artifact index of a Maven
+	 * repository. Simple names that aren't in the index are returned
+	 * unchanged.
+	 * 
+	 * @param ref
+	 *            The Reference to resolve the name against
+	 * @param name
+	 *            The class name
+	 * @param rebuildIndex
+	 *            True to rebuild the class index before resolving. Artifact
+	 *            indexes are rebuilt with {@link MavenRepository#index(boolean)}
+	 * @return The fully qualified class name
+	 * @throws LookupException
+	 *             If the name matches more than one class, or the index could
+	 *             not be read
+	 */
+	public String resolveClassName(Reference ref, String name, boolean rebuildIndex) throws LookupException {
+		if (name.indexOf('.') >= 0) {
+			return name;
+		}
+		List<String> matches;
+		if (ref.getRepository() != null) {
+			try {
+				matches = ref.getRepository().resolve(name);
+			} catch (IOException e) {
+				throw new LookupException("Unable to read the artifact index: " + e.getLocalizedMessage(), 47, e);
+			}
+		} else {
+			ClassIndex index = getClassIndex(ref, rebuildIndex);
+			if (index == null) {
+				return name;
+			}
+			matches = index.resolve(name);
+		}
+
+		if (matches.size() > 1) {
+			throw new LookupException(name, matches);
+		}
+		return matches.isEmpty() ? name : matches.get(0);
+	}
+
+	/**
+	 * Finds the Reference that has a class by asking all of them at the same
+	 * time. The first Reference is the one returned if it has the class, then
+	 * the second, and so on, but a Reference is chosen as soon as every one
+	 * before it has answered that it doesn't have the class. The References
+	 * that are still looking at that point are cancelled.
+	 * <p>
+	 * A Reference has a class if the name resolves through its class index
+	 * (simple names, which count even if they are ambiguous) and the class's
+	 * document exists.
+	 * 
+	 * @param refs
+	 *            The References to ask, keyed by name, in order of priority
+	 * @param className
+	 *            The simple or fully qualified name of the class
+	 * @param type
+	 *            The type of document to find
+	 * @return The name of the Reference that has the class
+	 * @throws LookupException
+	 *             If no Reference has the class
+	 */
+	public String findReference(final Map<String, Reference> refs, final String className, final LookupType type)
+			throws LookupException {
+		final List<String> names = new ArrayList<>(refs.keySet());
+		if (names.isEmpty()) {
+			throw new LookupException(className + " could not be found in any reference.", 15);
+		}
+		List<Future<Boolean>> futures = new ArrayList<>();
+		try {
+			CompletionService<Boolean> completion = new ExecutorCompletionService<>(getPool());
+			Map<Future<Boolean>, Integer> indexes = new HashMap<>();
+			for (int i = 0; i < names.size(); i++) {
+				final Reference ref = refs.get(names.get(i));
+				Future<Boolean> future = completion.submit(new Callable<Boolean>() {
+
+					@Override
+					public Boolean call() {
+						return has(ref, className, type);
+					}
+				});
+				futures.add(future);
+				indexes.put(future, i);
+			}
+
+			// 1 if the Reference has the class, -1 if it doesn't, 0 if it
+			// hasn't answered yet
+			int[] answers = new int[names.size()];
+			int first = 0;
+			for (int answered = 0; answered < names.size(); answered++) {
+				Future<Boolean> future = completion.take();
+				boolean has;
+				try {
+					has = future.get();
+				} catch (ExecutionException e) {
+					has = false;
+				}
+				answers[indexes.get(future)] = has ? 1 : -1;
+
+				while (first < answers.length && answers[first] == -1) {
+					first++;
+				}
+				if (first < answers.length && answers[first] == 1) {
+					return names.get(first);
+				}
+			}
+			throw new LookupException(className + " could not be found in any reference.", 15);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LookupException("Interrupted while looking for " + className, 15, e);
+		} finally {
+			for (Future<Boolean> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Gets the lock to hold while opening or building the index in a file.
+	 */
+	private Object lockFor(File file) {
+		Object lock = indexLocks.get(file);
+		if (lock == null) {
+			Object created = new Object();
+			lock = indexLocks.putIfAbsent(file, created);
+			if (lock == null) {
+				lock = created;
+			}
+		}
+		return lock;
+	}
+
+	private synchronized ExecutorService getPool() {
+		if (pool == null) {
+			pool = Executors.newCachedThreadPool(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					// Don't keep the JVM alive for a slow server nobody is
+					// waiting for anymore
+					Thread thread = new Thread(r, "jsadl-find-reference");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return pool;
+	}
+
+	/**
+	 * Tests if a Reference has a class, for
+	 * {@link #findReference(Map, String, LookupType)}.
+	 */
+	private boolean has(Reference ref, String className, LookupType type) {
+		try {
+			String resolved = className;
+			if (className.indexOf('.') < 0) {
+				if (!ClassIndex.canIndex(ref) && ref.getRepository() == null) {
+					return false;
+				}
+				try {
+					resolved = resolveClassName(ref, className, false);
+				} catch (LookupException e) {
+					if (e.isAmbiguous()) {
+						return true;
+					}
+					throw e;
+				}
+				if (resolved.equals(className)) {
+					return false;
+				}
+			}
+			find(forClass(ref, resolved, type), resolved, type, true);
+			return true;
+		} catch (LookupException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the Reference a class should be looked up in. That is the given
+	 * Reference itself, unless it is for a Maven repository; then it is the
+	 * Reference of the artifact that has the class.
+	 * 
+	 * @param ref
+	 *            The Reference
+	 * @param className
+	 *            The fully qualified class name
+	 * @param type
+	 *            The type of document that will be looked up
+	 * @return The Reference to look in
+	 * @throws LookupException
+	 *             If no artifact has the class, the artifact has no document
+	 *             of the given type or the artifact index could not be read
+	 * @see MavenRepository
+	 */
+	public Reference forClass(Reference ref, String className, LookupType type) throws LookupException {
+		MavenRepository repository = ref.getRepository();
+		if (repository == null) {
+			return ref;
+		}
+		Reference artifact;
+		try {
+			artifact = repository.getReference(className);
+		} catch (IOException e) {
+			throw new LookupException("Unable to read the artifact index: " + e.getLocalizedMessage(), 47, e);
+		}
+		if (artifact == null) {
+			throw new LookupException(className + " is not in any artifact of " + repository + ".", 46);
+		}
+		if (type == LookupType.SOURCE && artifact.getSourceBase() == null) {
+			throw new LookupException(className + " is in an artifact without a "
+					+ MavenRepository.SOURCES_SUFFIX + ".", 12);
+		} else if (type == LookupType.DOC && artifact.getDocBase() == null) {
+			throw new LookupException(className + " is in an artifact without a "
+					+ MavenRepository.JAVADOC_SUFFIX + ".", 12);
+		}
+		return artifact;
+	}
+
+	/**
+	 * Finds the document of a fully qualified class and makes sure a viewer
+	 * can open it. Entries of source archives are extracted. Documentation
+	 * pages are checked against the documentation's package list first, so
+	 * the host is only asked when the list can't tell.
+	 * 
+	 * @param ref
+	 *            The Reference to look in
+	 * @param className
+	 *            The fully qualified class name
+	 * @param type
+	 *            The type of document to find
+	 * @param check
+	 *            True to make sure the document exists
+	 * @return The URL of the document
+	 * @throws LookupException
+	 *             If the document doesn't exist or could not be checked
+	 */
+	public URL find(Reference ref, String className, LookupType type, boolean check) throws LookupException {
+		return find(ref, className, type, check, timings);
+	}
+
+	/**
+	 * Finds the document of a fully qualified class like
+	 * {@link #find(Reference, String, LookupType, boolean)}, recording its
+	 * phases somewhere else than the timings of this Lookup. Work done in the
+	 * background shouldn't show up in the timings of the lookup being made.
+	 * 
+	 * @param ref
+	 *            The Reference to look in
+	 * @param className
+	 *            The fully qualified class name
+	 * @param type
+	 *            The type of document to find
+	 * @param check
+	 *            True to make sure the document exists
+	 * @param timings
+	 *            Where to record the phases
+	 * @return The URL of the document
+	 * @throws LookupException
+	 *             If the document doesn't exist or could not be checked
+	 */
+	public URL find(Reference ref, String className, LookupType type, boolean check, Timings timings)
+			throws LookupException {
+		if (type == LookupType.DOC && check) {
+			// Needed for the URL of documentation split into modules. Without
+			// checks the host isn't asked, so only a saved list is used.
+			long start = timings.start();
+			ref.getPackageList(false);
+			timings.stop("packages", start);
+		}
+		URL target = ref.getFor(className, type);
+		if (target == null) {
+			throw new LookupException("Unable to create a URL for " + className, 5);
+		}
+		String protocol = target.getProtocol();
+
+		if (type == LookupType.DOC && check && getChecker(ref).isKnownMissing(className)) {
+			// Not in a listed package, so there's no need to ask the host
+			timings.set("check.cache", "packages");
+			throw new LookupException(className + " could not be found.", protocol.equals("http")
+					|| protocol.equals("https") ? 11 : 12);
+		}
+
+		if (type == LookupType.DOC && ref.getMirror() != null && !protocol.equals("file")) {
+			// First time this page is viewed, keep a copy
+			long start = timings.start();
+			try {
+				URL local = ref.getMirror().fetch(ref.getDocPath(className));
+				if (local == null) {
+					if (check) {
+						throw new LookupException(className + " could not be found.", 11);
+					}
+				} else {
+					target = local;
+					protocol = target.getProtocol();
+				}
+			} catch (IOException e) {
+				// Offline or the host is having problems, try the usual way
+			} finally {
+				timings.stop("mirror", start);
+			}
+		}
+
+		if (check) {
+			boolean exists;
+			long start = timings.start();
+			try {
+				exists = getChecker(ref).exists(target, timings);
+			} catch (IOException e) {
+				if (protocol.equals("jar")) {
+					throw new LookupException(e.getLocalizedMessage(), 41, e);
+				}
+				throw new LookupException("An IOException occured when testing the availablity of the document. "
+						+ "Use --nocheck to disable this.", 3, e);
+			} finally {
+				timings.stop("check", start);
+			}
+
+			if (!exists) {
+				int exitCode = 10;
+				if (protocol.equals("http") || protocol.equals("https")) {
+					exitCode = 11;
+				} else if (protocol.equals("file") || protocol.equals("jar")) {
+					exitCode = 12;
+				}
+				throw new LookupException(className + " could not be found.", exitCode);
+			}
+		}
+
+		if (protocol.equals("jar")) {
+			// Viewers can't read from inside archives, so hand them just the
+			// one entry
+			long start = timings.start();
+			try {
+				File extracted = ZipSource.open(ZipSource.archiveOf(target)).extract(ZipSource.entryOf(target));
+				if (extracted == null) {
+					throw new LookupException(className + " could not be found.", 12);
+				}
+				target = extracted.toURI().toURL();
+			} catch (MalformedURLException e) {
+				throw new LookupException(e.getLocalizedMessage(), 5, e);
+			} catch (IOException e) {
+				throw new LookupException(e.getLocalizedMessage(), 41, e);
+			} finally {
+				timings.stop("extract", start);
+			}
+		}
+		return target;
+	}
+}
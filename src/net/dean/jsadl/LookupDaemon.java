@@ -0,0 +1,385 @@
+package net.dean.jsadl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import net.dean.jsadl.Configurator.Config;
+import net.dean.jsadl.index.ClassIndex;
+
+/*
+ * LookupDaemon.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * A long running JSaDL process that answers lookups over a loopback socket,
+ * so that a lookup from the shell doesn't have to start a JVM, parse the
+ * configuration and open indexes every time. Viewers are still launched by
+ * the client, since they need the client's terminal.
+ * <p>
+ * When the daemon starts it writes its port and a random token to
+ * {@value #PORT_FILE} in the cache directory, readable only by the current
+ * user. Clients must send the token with every request.
+ * <p>
+ * The protocol is line based. A request is:
+ * 
+ * <pre>
+ * JSADL 1
+ * &lt;token&gt;
+ * &lt;absolute path of the config file&gt;
+ * &lt;argument&gt;
+ * ...
+ * &lt;empty line&gt;
+ * </pre>
+ * 
+ * The response is a single line, one of:
+ * 
+ * <pre>
+ * OK &lt;url&gt;
+ * LINE &lt;line&gt; &lt;url&gt;
+ * ERR &lt;exit code&gt; &lt;message&gt;
+ * FALLBACK &lt;reason&gt;
+ * </pre>
+ * 
+ * LINE is sent instead of OK for source lookups of a member, so that the
+ * viewer can be opened at the member's line. FALLBACK means the lookup needs something the daemon can't do, such as
+ * asking the user a question, and the client should do the lookup itself. A
+ * request without a token, a config file or a class, or that ends before the
+ * empty line, is answered with <code>ERR 1 Bad request</code>.
+ * <p>
+ * The check caches are saved every {@value #SAVE_INTERVAL} milliseconds and
+ * when the daemon exits.
+ */
+public class LookupDaemon {
+	/**
+	 * The name of the file the port and token are written to
+	 */
+	public static final String PORT_FILE = "daemon.port";
+
+	private static final String PROTOCOL = "JSADL 1";
+
+	/**
+	 * How long a client waits for the daemon to accept a connection
+	 */
+	private static final int CONNECT_TIMEOUT = 200;
+
+	/**
+	 * How long a client waits for an answer. Lookups that need to contact a
+	 * documentation host can take a while.
+	 */
+	private static final int READ_TIMEOUT = 30000;
+
+	/**
+	 * How long the daemon waits for a client to send its request
+	 */
+	private static final int REQUEST_TIMEOUT = 5000;
+
+	/**
+	 * How many lookups are done at the same time. The daemon only serves the
+	 * current user, so this only has to cover a few shells and scripts at
+	 * once; more clients wait for a thread.
+	 */
+	private static final int THREADS = Math.max(16, Runtime.getRuntime().availableProcessors() * 2);
+
+	/**
+	 * How often the check caches are saved, in milliseconds
+	 */
+	private static final long SAVE_INTERVAL = 60000;
+
+	/**
+	 * Does the actual lookups
+	 */
+	private final LookupService service = new LookupService();
+
+	/**
+	 * The secret clients have to send
+	 */
+	private final String token;
+
+	/**
+	 * Instantiates a new LookupDaemon
+	 */
+	public LookupDaemon() {
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+		this.token = Caches.toHex(bytes, bytes.length);
+	}
+
+	/**
+	 * Gets the LookupService the daemon does its lookups with.
+	 * 
+	 * @return The LookupService
+	 */
+	public LookupService getService() {
+		return service;
+	}
+
+	/**
+	 * Gets the file the daemon's port and token are written to.
+	 * 
+	 * @return The port file
+	 */
+	public static File getPortFile() {
+		return new File(Caches.getRoot(), PORT_FILE);
+	}
+
+	/**
+	 * Loads a configuration file and the class indexes of its References
+	 * ahead of time, so the first lookup is as fast as the rest.
+	 * 
+	 * @param configFile
+	 *            The configuration file
+	 */
+	public void preload(File configFile) {
+		if (!configFile.isFile()) {
+			return;
+		}
+		try {
+			Config config = service.getConfig(configFile);
+			for (String name : config.getRefNames()) {
+				Reference ref = config.getRefFor(name);
+				if (ref != null && ClassIndex.canIndex(ref) && ClassIndex.fileFor(ref).isFile()) {
+					service.getLookup().getClassIndex(ref, false);
+				}
+			}
+		} catch (IOException | LookupException e) {
+			System.err.println("Unable to preload " + configFile + ": " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Listens for lookups until the process is killed.
+	 * 
+	 * @throws IOException
+	 *             If the socket could not be opened or the port file could not
+	 *             be written
+	 */
+	public void serve() throws IOException {
+		final ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName(null));
+		final File portFile = getPortFile();
+		writePortFile(portFile, server.getLocalPort());
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+
+			@Override
+			public void run() {
+				portFile.delete();
+				saveChecks();
+			}
+		});
+		System.out.printf("JSaDL daemon listening on port %d\n", server.getLocalPort());
+		try {
+			service.watchSources();
+		} catch (IOException e) {
+			System.err.println("Unable to watch sources for changes: " + e.getLocalizedMessage());
+		}
+
+		ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor();
+		saver.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				saveChecks();
+			}
+		}, SAVE_INTERVAL, SAVE_INTERVAL, TimeUnit.MILLISECONDS);
+
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		while (true) {
+			final Socket client = server.accept();
+			pool.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					handle(client);
+				}
+			});
+		}
+	}
+
+	private void writePortFile(File portFile, int port) throws IOException {
+		portFile.getParentFile().mkdirs();
+		File temp = new File(portFile.getPath() + ".tmp");
+		Files.write(temp.toPath(), new byte[0]);
+		try {
+			// Other users must not be able to read the token
+			Files.setPosixFilePermissions(temp.toPath(), PosixFilePermissions.fromString("rw-------"));
+		} catch (UnsupportedOperationException e) {
+			// Not a POSIX file system
+		}
+		Files.write(temp.toPath(), (port + "\n" + token + "\n").getBytes(StandardCharsets.UTF_8));
+		if (!temp.renameTo(portFile)) {
+			portFile.delete();
+			temp.renameTo(portFile);
+		}
+	}
+
+	private void saveChecks() {
+		try {
+			service.saveChecks();
+		} catch (IOException e) {
+			System.err.println("Unable to save the check cache: " + e.getLocalizedMessage());
+		}
+	}
+
+	private void handle(Socket client) {
+		try (Socket socket = client;
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+						StandardCharsets.UTF_8));
+				Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+			// A client that never finishes its request must not keep a thread
+			socket.setSoTimeout(REQUEST_TIMEOUT);
+			if (!PROTOCOL.equals(in.readLine()) || !token.equals(in.readLine())) {
+				out.write("ERR 1 Bad request\n");
+				return;
+			}
+			String path = in.readLine();
+			List<String> args = new ArrayList<>();
+			String line;
+			while ((line = in.readLine()) != null && !line.isEmpty()) {
+				args.add(line);
+			}
+			if (path == null || !new File(path).isAbsolute() || line == null || args.isEmpty()
+					|| args.get(0).startsWith("-")) {
+				out.write("ERR 1 Bad request\n");
+				return;
+			}
+			File configFile = new File(path);
+			socket.setSoTimeout(0);
+
+			String response;
+			try {
+				response = lookup(configFile, args);
+			} catch (LookupException e) {
+				if (e.isAmbiguous()) {
+					response = "FALLBACK ambiguous";
+				} else if (!e.getCandidates().isEmpty()) {
+					// The client will suggest similar names
+					response = "FALLBACK no exact match";
+				} else {
+					response = "ERR " + e.getExitCode() + " " + e.getMessage().replace('\n', ' ');
+				}
+			} catch (FallbackException e) {
+				response = "FALLBACK " + e.getMessage();
+			}
+			out.write(response + "\n");
+		} catch (IOException e) {
+			// The client went away, nothing to do
+		}
+	}
+
+	/**
+	 * Does a lookup the same way {@link JSaDL} would, without viewing it, and
+	 * returns the response to send.
+	 */
+	private String lookup(File configFile, List<String> args) throws LookupException, FallbackException {
+		if (!configFile.isFile() || !service.getConfig(configFile).hasValidRef()) {
+			throw new FallbackException("the configuration needs to be set up");
+		}
+
+		LookupResult result = service.lookup(JSaDL.newRequest(configFile, args.get(0), args).build());
+		String url = result.getTarget().toExternalForm();
+		return result.getLine() > 0 ? "LINE " + result.getLine() + " " + url : "OK " + url;
+	}
+
+	/**
+	 * Tests if a lookup with the given arguments can be sent to a daemon.
+	 * Anything that prints help or source, indexes, searches, runs batches or
+	 * starts a daemon is always done by the client itself.
+	 * 
+	 * @param args
+	 *            The command line arguments
+	 * @return True if the lookup can be forwarded
+	 */
+	public static boolean canForward(List<String> args) {
+		if (args.isEmpty() || args.get(0).startsWith("-")) {
+			return false;
+		}
+		for (String arg : args) {
+			if (arg.equals("--help") || arg.equals("--reindex") || arg.equals("--daemon") || arg.equals("--nodaemon")
+					|| arg.equals("--cachestats") || arg.equals("--print") || arg.startsWith("--batch=")
+					|| arg.startsWith("--search=") || arg.startsWith("--grep=") || arg.startsWith("--server=")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sends a lookup to a running daemon.
+	 * 
+	 * @param configFile
+	 *            The configuration file the client would use
+	 * @param args
+	 *            The command line arguments
+	 * @return The daemon's response, or null if no daemon is running or the
+	 *         daemon could not be reached
+	 */
+	public static String forward(File configFile, List<String> args) {
+		File portFile = getPortFile();
+		if (!portFile.isFile()) {
+			return null;
+		}
+
+		int port;
+		String secret;
+		try {
+			List<String> lines = Files.readAllLines(portFile.toPath(), StandardCharsets.UTF_8);
+			port = Integer.parseInt(lines.get(0).trim());
+			secret = lines.get(1).trim();
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress(InetAddress.getByName(null), port), CONNECT_TIMEOUT);
+			socket.setSoTimeout(READ_TIMEOUT);
+
+			StringBuilder request = new StringBuilder();
+			request.append(PROTOCOL).append('\n').append(secret).append('\n');
+			request.append(configFile.getAbsolutePath()).append('\n');
+			for (String arg : args) {
+				request.append(arg).append('\n');
+			}
+			request.append('\n');
+			Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			out.write(request.toString());
+			out.flush();
+
+			return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
+					.readLine();
+		} catch (IOException e) {
+			// Most likely a daemon that died without cleaning up
+			return null;
+		}
+	}
+
+	/**
+	 * Thrown when a lookup has to be done by the client
+	 */
+	private static class FallbackException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		FallbackException(String reason) {
+			super(reason);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package net.dean.jsadl;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * LookupException.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Thrown when a lookup can't be completed. Every LookupException carries the
+ * exit code the command line application uses for the problem, and the
+ * {@link Kind} of problem that code stands for.
+ */
+public class LookupException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The kinds of problems a lookup can run into
+	 */
+	public enum Kind {
+		/**
+		 * The configuration file or one of its References is missing or
+		 * invalid
+		 */
+		CONFIGURATION,
+		/**
+		 * The class, member or document doesn't exist
+		 */
+		NOT_FOUND,
+		/**
+		 * A name matches more than one class or member
+		 */
+		AMBIGUOUS,
+		/**
+		 * The Reference can't do what was asked of it, such as searching
+		 * documentation that is only online
+		 */
+		UNSUPPORTED,
+		/**
+		 * An index could not be built or read
+		 */
+		INDEX,
+		/**
+		 * A source archive or the documentation host could not be read
+		 */
+		IO
+	}
+
+	/**
+	 * The exit code that describes the problem
+	 */
+	private final int exitCode;
+
+	/**
+	 * The classes or members a name could refer to, if the problem is that
+	 * the name is ambiguous or doesn't match anything exactly
+	 */
+	private final List<String> candidates;
+
+	/**
+	 * Instantiates a new LookupException
+	 * 
+	 * @param message
+	 *            A description of the problem
+	 * @param exitCode
+	 *            The exit code that describes the problem
+	 */
+	public LookupException(String message, int exitCode) {
+		this(message, exitCode, (Throwable) null);
+	}
+
+	/**
+	 * Instantiates a new LookupException with a cause
+	 * 
+	 * @param message
+	 *            A description of the problem
+	 * @param exitCode
+	 *            The exit code that describes the problem
+	 * @param cause
+	 *            The exception that caused the problem
+	 */
+	public LookupException(String message, int exitCode, Throwable cause) {
+		super(message, cause);
+		this.exitCode = exitCode;
+		this.candidates = Collections.emptyList();
+	}
+
+	/**
+	 * Instantiates a new LookupException for a name that matches more than
+	 * one class or member, or that matches none exactly but is close to some.
+	 * 
+	 * @param message
+	 *            A description of the problem
+	 * @param exitCode
+	 *            The exit code that describes the problem
+	 * @param candidates
+	 *            The classes or members the name could refer to
+	 */
+	public LookupException(String message, int exitCode, List<String> candidates) {
+		super(message);
+		this.exitCode = exitCode;
+		this.candidates = Collections.unmodifiableList(candidates);
+	}
+
+	/**
+	 * Instantiates a new LookupException for a simple name that matches more
+	 * than one class.
+	 * 
+	 * @param simpleName
+	 *            The simple name
+	 * @param candidates
+	 *            The fully qualified names of the classes it could refer to
+	 */
+	public LookupException(String simpleName, List<String> candidates) {
+		this("More than one class is named " + simpleName, 13, candidates);
+	}
+
+	/**
+	 * Gets the exit code that describes the problem
+	 * 
+	 * @return The exit code
+	 */
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * Gets the kind of problem this exception describes.
+	 * 
+	 * @return The kind of problem
+	 */
+	public Kind getKind() {
+		switch (exitCode) {
+		case 4:
+		case 5:
+		case 16:
+		case 20:
+		case 21:
+		case 22:
+			return Kind.CONFIGURATION;
+		case 11:
+		case 12:
+		case 14:
+		case 15:
+		case 46:
+			return Kind.NOT_FOUND;
+		case 13:
+			return Kind.AMBIGUOUS;
+		case 10:
+		case 43:
+			return Kind.UNSUPPORTED;
+		case 40:
+		case 42:
+		case 45:
+		case 47:
+			return Kind.INDEX;
+		default:
+			return Kind.IO;
+		}
+	}
+
+	/**
+	 * Tests if the lookup failed because a name matched more than one class
+	 * or member.
+	 * 
+	 * @return True if the name was ambiguous
+	 */
+	public boolean isAmbiguous() {
+		return getKind() == Kind.AMBIGUOUS;
+	}
+
+	/**
+	 * Gets the classes or members the name could refer to: every match of an
+	 * ambiguous name, or the closest matches of a name that matched nothing
+	 * exactly.
+	 * 
+	 * @return The fully qualified class names or member labels, empty if
+	 *         there are none
+	 */
+	public List<String> getCandidates() {
+		return candidates;
+	}
+}
@@ -0,0 +1,249 @@
+package net.dean.jsadl;
+
+import java.io.File;
+
+/*
+ * LookupRequest.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * What to look up with a {@link LookupService}: a class or member, the
+ * configuration whose References to look in and how to look. LookupRequests
+ * are immutable and are created with a {@link Builder}:
+ * 
+ * <pre>
+ * LookupRequest request = new LookupRequest.Builder(configFile, &quot;HashMap#put&quot;).type(LookupType.SOURCE).build();
+ * </pre>
+ */
+public class LookupRequest {
+	private final File configFile;
+	private final String className;
+	private final String member;
+	private final LookupType type;
+	private final String referenceName;
+	private final boolean allReferences;
+	private final boolean check;
+	private final boolean reindex;
+	private final int limit;
+
+	private LookupRequest(Builder builder) {
+		this.configFile = builder.configFile;
+		int hash = builder.name.indexOf('#');
+		this.className = hash < 0 ? builder.name : builder.name.substring(0, hash);
+		this.member = hash < 0 ? null : builder.name.substring(hash + 1);
+		this.type = builder.type;
+		this.referenceName = builder.referenceName;
+		this.allReferences = builder.allReferences;
+		this.check = builder.check;
+		this.reindex = builder.reindex;
+		this.limit = builder.limit;
+	}
+
+	/**
+	 * Gets the configuration file whose References are looked in.
+	 * 
+	 * @return The absolute path of the configuration file
+	 */
+	public File getConfigFile() {
+		return configFile;
+	}
+
+	/**
+	 * Gets the name of the class to look up.
+	 * 
+	 * @return The simple or fully qualified class name
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * Gets the start of the name of the member to look up.
+	 * 
+	 * @return The member, such as <code>put</code>, or null to look up the
+	 *         class itself
+	 */
+	public String getMember() {
+		return member;
+	}
+
+	/**
+	 * Gets the type of document to look up.
+	 * 
+	 * @return The type of document
+	 */
+	public LookupType getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the name of the Reference to look in.
+	 * 
+	 * @return The name of the Reference, or null to use the default one
+	 */
+	public String getReferenceName() {
+		return referenceName;
+	}
+
+	/**
+	 * Tests if every Reference should be asked for the class.
+	 * 
+	 * @return True if the first Reference that has the class is used
+	 * @see Lookup#findReference(java.util.Map, String, LookupType)
+	 */
+	public boolean isAllReferences() {
+		return allReferences;
+	}
+
+	/**
+	 * Tests if the document should be checked to exist.
+	 * 
+	 * @return True if the document is checked
+	 */
+	public boolean isCheck() {
+		return check;
+	}
+
+	/**
+	 * Tests if the indexes of the Reference should be rebuilt before looking
+	 * up.
+	 * 
+	 * @return True if the indexes are rebuilt
+	 */
+	public boolean isReindex() {
+		return reindex;
+	}
+
+	/**
+	 * Gets the most classes or members to suggest when the name doesn't match
+	 * anything exactly.
+	 * 
+	 * @return The limit
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public String toString() {
+		return (member == null ? className : className + "#" + member) + " (" + type.name().toLowerCase() + ")";
+	}
+
+	/**
+	 * Creates {@link LookupRequest LookupRequests}. Builders are not thread
+	 * safe, but the requests they build are.
+	 */
+	public static class Builder {
+		private final File configFile;
+		private final String name;
+		private LookupType type = LookupType.DOC;
+		private String referenceName;
+		private boolean allReferences;
+		private boolean check = true;
+		private boolean reindex;
+		private int limit = 10;
+
+		/**
+		 * Instantiates a new Builder for a documentation lookup in the
+		 * default Reference.
+		 * 
+		 * @param configFile
+		 *            The configuration file whose References to look in
+		 * @param name
+		 *            The simple or fully qualified name of the class,
+		 *            optionally followed by a '#' and the start of the name
+		 *            of a member, like <code>HashMap#put</code>
+		 */
+		public Builder(File configFile, String name) {
+			this.configFile = configFile.getAbsoluteFile();
+			this.name = name;
+		}
+
+		/**
+		 * Sets the type of document to look up.
+		 * 
+		 * @param type
+		 *            The type of document
+		 * @return This Builder
+		 */
+		public Builder type(LookupType type) {
+			this.type = type;
+			return this;
+		}
+
+		/**
+		 * Sets the Reference to look in.
+		 * 
+		 * @param referenceName
+		 *            The name of the Reference, or null to use the default one
+		 * @return This Builder
+		 */
+		public Builder reference(String referenceName) {
+			this.referenceName = referenceName;
+			return this;
+		}
+
+		/**
+		 * Sets whether every Reference should be asked for the class, in
+		 * which case the Reference given by {@link #reference(String)} is
+		 * ignored.
+		 * 
+		 * @param allReferences
+		 *            True to use the first Reference that has the class
+		 * @return This Builder
+		 */
+		public Builder allReferences(boolean allReferences) {
+			this.allReferences = allReferences;
+			return this;
+		}
+
+		/**
+		 * Sets whether the document should be checked to exist.
+		 * 
+		 * @param check
+		 *            False to skip the check
+		 * @return This Builder
+		 */
+		public Builder check(boolean check) {
+			this.check = check;
+			return this;
+		}
+
+		/**
+		 * Sets whether the indexes of the Reference should be rebuilt first.
+		 * 
+		 * @param reindex
+		 *            True to rebuild the indexes
+		 * @return This Builder
+		 */
+		public Builder reindex(boolean reindex) {
+			this.reindex = reindex;
+			return this;
+		}
+
+		/**
+		 * Sets the most classes or members to suggest when the name doesn't
+		 * match anything exactly.
+		 * 
+		 * @param limit
+		 *            The limit, 10 if not set
+		 * @return This Builder
+		 */
+		public Builder limit(int limit) {
+			this.limit = limit;
+			return this;
+		}
+
+		/**
+		 * Creates the request.
+		 * 
+		 * @return The request
+		 */
+		public LookupRequest build() {
+			return new LookupRequest(this);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package net.dean.jsadl;
+
+import java.net.URL;
+
+import net.dean.jsadl.index.MemberIndex;
+import net.dean.jsadl.index.MemberSource;
+
+/*
+ * LookupResult.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * The document a {@link LookupService} found for a {@link LookupRequest}.
+ * LookupResults are immutable.
+ */
+public class LookupResult {
+	private final LookupRequest request;
+	private final String referenceName;
+	private final Reference reference;
+	private final String className;
+	private final MemberIndex.Entry member;
+	private final URL target;
+
+	LookupResult(LookupRequest request, String referenceName, Reference reference, String className,
+			MemberIndex.Entry member, URL target) {
+		this.request = request;
+		this.referenceName = referenceName;
+		this.reference = reference;
+		this.className = className;
+		this.member = member;
+		this.target = target;
+	}
+
+	/**
+	 * Gets the request this is the result of.
+	 * 
+	 * @return The request
+	 */
+	public LookupRequest getRequest() {
+		return request;
+	}
+
+	/**
+	 * Gets the name of the Reference the document was found in.
+	 * 
+	 * @return The name of the Reference
+	 */
+	public String getReferenceName() {
+		return referenceName;
+	}
+
+	/**
+	 * Gets the Reference the document was found in. For a Maven repository,
+	 * this is the Reference of the artifact that has the class.
+	 * 
+	 * @return The Reference
+	 */
+	public Reference getReference() {
+		return reference;
+	}
+
+	/**
+	 * Gets the fully qualified name of the class.
+	 * 
+	 * @return The class name
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * Gets the member that was looked up.
+	 * 
+	 * @return The member, or null if the class itself was looked up
+	 */
+	public MemberIndex.Entry getMember() {
+		return member;
+	}
+
+	/**
+	 * Gets the document. Entries of archives have been extracted, so any
+	 * viewer can open it. Documentation pages of members point at the
+	 * member's anchor.
+	 * 
+	 * @return The URL of the document
+	 */
+	public URL getTarget() {
+		return target;
+	}
+
+	/**
+	 * Gets the line of the source file the member is declared on.
+	 * 
+	 * @return The line, or 0 if this is not the source of a member
+	 */
+	public int getLine() {
+		return member != null && request.getType() == LookupType.SOURCE ? member.getLine() : 0;
+	}
+
+	/**
+	 * Gets the key of the class's or member's declaration, for reading just
+	 * that declaration from the source.
+	 * 
+	 * @return The key of the declaration
+	 * @see MemberSource#read(java.io.File, String)
+	 */
+	public String getDeclaration() {
+		return member == null ? MemberSource.keyOf(className) : MemberSource.keyOf(member);
+	}
+
+	@Override
+	public String toString() {
+		return target.toExternalForm();
+	}
+}
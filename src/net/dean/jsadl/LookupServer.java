@@ -0,0 +1,495 @@
+package net.dean.jsadl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.dean.jsadl.index.MemberIndex;
+import net.dean.jsadl.index.MemberSource;
+
+/*
+ * LookupServer.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Answers lookups over HTTP, so that one JSaDL process can serve everybody
+ * on a build host: documentation portals, chat bots and scripts. Every
+ * response is JSON. The endpoints are:
+ * 
+ * <pre>
+ * GET /resolve?name=HashMap#put[&amp;type=doc|source][&amp;ref=java][&amp;all=true][&amp;check=false]
+ * GET /search?q=CHM[&amp;ref=java][&amp;type=doc|source][&amp;limit=10]
+ * GET /source?name=HashMap#put[&amp;ref=java]
+ * GET /stats
+ * </pre>
+ * 
+ * <code>/resolve</code> answers like a line of <code>--batch</code>, with the
+ * reference, member and line added. <code>/search</code> lists the closest
+ * classes, or members if the query has a '#', like <code>--search</code>.
+ * <code>/source</code> returns the source of just the class or member, like
+ * <code>--print</code>.
+ * <p>
+ * Responses are kept in memory for {@value #CACHE_TTL} milliseconds, up to
+ * {@value #CACHE_SIZE} of them. When several clients ask the same thing at the
+ * same time, the lookup is only done once and all of them get its answer.
+ */
+public class LookupServer {
+	/**
+	 * The most responses kept in memory
+	 */
+	public static final int CACHE_SIZE = 10000;
+
+	/**
+	 * How long a response is kept, in milliseconds. Indexes are updated as
+	 * soon as their sources change, so this only bounds how long an answer
+	 * can be behind them.
+	 */
+	public static final long CACHE_TTL = 60000;
+
+	/**
+	 * Turns off Nagle's algorithm in the JDK's HTTP server
+	 */
+	private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	/**
+	 * How often the check caches are saved, in milliseconds
+	 */
+	private static final long SAVE_INTERVAL = 60000;
+
+	/**
+	 * Does the lookups
+	 */
+	private final LookupService service;
+
+	/**
+	 * The configuration file whose References are looked in
+	 */
+	private final File configFile;
+
+	/**
+	 * Recent responses, keyed by their request, least recently used first
+	 */
+	private final Map<String, Response> cache = new LinkedHashMap<String, Response>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Response> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Requests that are being answered, keyed like {@link #cache}
+	 */
+	private final ConcurrentMap<String, FutureTask<Response>> inFlight = new ConcurrentHashMap<>();
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong lookups = new AtomicLong();
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private ScheduledExecutorService saver;
+
+	/**
+	 * Instantiates a new LookupServer
+	 * 
+	 * @param service
+	 *            The LookupService to do the lookups with
+	 * @param configFile
+	 *            The configuration file whose References are looked in
+	 */
+	public LookupServer(LookupService service, File configFile) {
+		this.service = service;
+		this.configFile = configFile.getAbsoluteFile();
+	}
+
+	/**
+	 * Starts answering requests. The sources of the References are watched
+	 * from then on, and the check caches are saved every minute.
+	 * 
+	 * @param address
+	 *            The address to listen on. Port 0 picks a free port.
+	 * @param threads
+	 *            How many requests are handled at the same time, or 0 to
+	 *            handle every request on its own virtual thread on Java 21
+	 *            and later (and on a pool big enough to keep a documentation
+	 *            host busy on older versions)
+	 * @throws IOException
+	 *             If the address could not be listened on
+	 */
+	public synchronized void start(InetSocketAddress address, int threads) throws IOException {
+		// The headers and body of a response are sent separately, which
+		// otherwise waits for the client's delayed ACK (40 ms on Linux). This
+		// only works if no HttpServer has been created yet.
+		if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+			System.setProperty(NO_DELAY_PROPERTY, "true");
+		}
+		server = HttpServer.create(address, 1024);
+		server.createContext("/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				LookupServer.this.handle(exchange);
+			}
+		});
+		executor = newExecutor(threads);
+		server.setExecutor(executor);
+		server.start();
+
+		try {
+			service.watchSources();
+		} catch (IOException e) {
+			System.err.println("Unable to watch sources for changes: " + e.getLocalizedMessage());
+		}
+		saver = Executors.newSingleThreadScheduledExecutor();
+		saver.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				saveChecks();
+			}
+		}, SAVE_INTERVAL, SAVE_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Gets the address the server is listening on.
+	 * 
+	 * @return The address
+	 */
+	public synchronized InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Stops answering requests, waiting up to a second for the ones being
+	 * answered, and saves the check caches.
+	 */
+	public synchronized void stop() {
+		if (server == null) {
+			return;
+		}
+		server.stop(1);
+		executor.shutdown();
+		saver.shutdown();
+		saveChecks();
+		server = null;
+	}
+
+	private static ExecutorService newExecutor(int threads) {
+		if (threads == 0) {
+			try {
+				// Java 21 and later
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				threads = Math.max(64, Runtime.getRuntime().availableProcessors() * 8);
+			}
+		}
+		return Executors.newFixedThreadPool(threads);
+	}
+
+	private void saveChecks() {
+		try {
+			service.saveChecks();
+		} catch (IOException e) {
+			System.err.println("Unable to save the check cache: " + e.getLocalizedMessage());
+		}
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			requests.incrementAndGet();
+			Response response;
+			if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+				response = error(405, null, 1, "Only GET and HEAD are supported");
+			} else {
+				String path = exchange.getRequestURI().getPath();
+				Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+				if (path.equals("/stats")) {
+					response = stats();
+				} else {
+					response = answer(path, params);
+				}
+			}
+
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+			boolean head = exchange.getRequestMethod().equals("HEAD");
+			exchange.sendResponseHeaders(response.status, head ? -1 : response.body.length);
+			if (!head) {
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(response.body);
+				}
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Answers a request from the cache, by waiting for the same request that
+	 * is already being answered, or by answering it.
+	 */
+	private Response answer(final String path, final Map<String, String> params) {
+		final String key = path + "?" + params;
+		long now = System.currentTimeMillis();
+		synchronized (cache) {
+			Response cached = cache.get(key);
+			if (cached != null && now - cached.created < CACHE_TTL) {
+				cacheHits.incrementAndGet();
+				return cached;
+			}
+		}
+
+		FutureTask<Response> task = new FutureTask<>(new Callable<Response>() {
+
+			@Override
+			public Response call() {
+				lookups.incrementAndGet();
+				return compute(path, params);
+			}
+		});
+		FutureTask<Response> running = inFlight.putIfAbsent(key, task);
+		if (running == null) {
+			running = task;
+			try {
+				task.run();
+				Response response = task.get();
+				// Server errors are most likely temporary
+				if (response.status < 500) {
+					synchronized (cache) {
+						cache.put(key, response);
+					}
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				// Reported below
+			} finally {
+				inFlight.remove(key);
+			}
+		} else {
+			coalesced.incrementAndGet();
+		}
+
+		try {
+			return running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return error(503, null, 1, "Interrupted");
+		} catch (ExecutionException e) {
+			return error(500, null, 1, String.valueOf(e.getCause()));
+		}
+	}
+
+	private Response compute(String path, Map<String, String> params) {
+		switch (path) {
+		case "/resolve":
+			return resolve(params);
+		case "/search":
+			return search(params);
+		case "/source":
+			return source(params);
+		default:
+			return error(404, null, 1, "Unknown endpoint " + path);
+		}
+	}
+
+	private Response resolve(Map<String, String> params) {
+		String name = params.get("name");
+		if (name == null || name.isEmpty()) {
+			return error(400, name, 1, "No class was specified");
+		}
+		LookupResult result;
+		try {
+			result = service.lookup(newRequest(name, params).build());
+		} catch (LookupException e) {
+			return error(name, e);
+		}
+		MemberIndex.Entry member = result.getMember();
+		return new Response(200, "{\"name\":" + Json.quote(name) + ",\"status\":\"found\",\"reference\":"
+				+ Json.quote(result.getReferenceName()) + ",\"class\":" + Json.quote(result.getClassName())
+				+ ",\"member\":" + Json.quote(member == null ? null : member.getLabel()) + ",\"url\":"
+				+ Json.quote(result.getTarget().toExternalForm()) + ",\"line\":" + result.getLine() + "}");
+	}
+
+	private Response search(Map<String, String> params) {
+		String query = params.get("q");
+		if (query == null || query.isEmpty()) {
+			return error(400, query, 1, "No query was specified");
+		}
+		int limit;
+		try {
+			limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : 10;
+		} catch (NumberFormatException e) {
+			limit = 0;
+		}
+		if (limit < 1) {
+			return error(400, query, 52, "limit must be a positive number");
+		}
+
+		LookupRequest request = newRequest(query, params).limit(limit).build();
+		List<String> results = new ArrayList<>();
+		try {
+			Reference ref = service.getReference(configFile, request.getReferenceName());
+			Lookup lookup = service.getLookup();
+			if (request.getMember() == null) {
+				results = lookup.searchClasses(ref, request.getClassName(), limit);
+			} else {
+				String className = service.resolveClassName(ref, request, null);
+				ref = lookup.forClass(ref, className, request.getType());
+				for (MemberIndex.Entry member : lookup.searchMembers(ref, className, request.getMember(),
+						request.getType(), limit)) {
+					results.add(member.toString());
+				}
+			}
+		} catch (LookupException e) {
+			return error(query, e);
+		}
+		return new Response(200, "{\"query\":" + Json.quote(query) + ",\"results\":" + Json.array(results) + "}");
+	}
+
+	private Response source(Map<String, String> params) {
+		String name = params.get("name");
+		if (name == null || name.isEmpty()) {
+			return error(400, name, 1, "No class was specified");
+		}
+		LookupResult result;
+		try {
+			result = service.lookup(newRequest(name, params).type(LookupType.SOURCE).build());
+		} catch (LookupException e) {
+			return error(name, e);
+		}
+		if (!result.getTarget().getProtocol().equals("file")) {
+			return error(400, name, 44, "Source can only be read from local source directories and archives");
+		}
+		String source;
+		File file;
+		try {
+			file = new File(result.getTarget().toURI());
+			source = MemberSource.read(file, result.getDeclaration());
+		} catch (IOException | URISyntaxException e) {
+			return error(500, name, 44, e.getLocalizedMessage());
+		}
+		if (source == null) {
+			return error(404, name, 44, result.getDeclaration() + " could not be found in " + file.getPath());
+		}
+		return new Response(200, "{\"name\":" + Json.quote(name) + ",\"status\":\"found\",\"class\":"
+				+ Json.quote(result.getClassName()) + ",\"file\":" + Json.quote(file.getPath()) + ",\"source\":"
+				+ Json.quote(source) + "}");
+	}
+
+	private Response stats() {
+		int cached;
+		synchronized (cache) {
+			cached = cache.size();
+		}
+		return new Response(200, "{\"requests\":" + requests.get() + ",\"cache_hits\":" + cacheHits.get()
+				+ ",\"coalesced\":" + coalesced.get() + ",\"lookups\":" + lookups.get() + ",\"cached\":" + cached + "}");
+	}
+
+	private LookupRequest.Builder newRequest(String name, Map<String, String> params) {
+		return new LookupRequest.Builder(configFile, name)
+				.type("source".equals(params.get("type")) ? LookupType.SOURCE : LookupType.DOC)
+				.reference(params.get("ref")).allReferences("true".equals(params.get("all")))
+				.check(!"false".equals(params.get("check")));
+	}
+
+	/**
+	 * Turns a failed lookup into a response. Missing classes are 404s,
+	 * ambiguous names 300s (with the candidates) and bad requests 400s.
+	 */
+	private static Response error(String name, LookupException e) {
+		int status;
+		switch (e.getKind()) {
+		case NOT_FOUND:
+			status = 404;
+			break;
+		case AMBIGUOUS:
+			status = 300;
+			break;
+		case UNSUPPORTED:
+			status = 400;
+			break;
+		default:
+			status = e.getExitCode() == 16 ? 400 : 500;
+		}
+		return error(status, name, e.getExitCode(), e.getMessage(), e.getCandidates());
+	}
+
+	private static Response error(int status, String name, int code, String message) {
+		return error(status, name, code, message, Collections.<String> emptyList());
+	}
+
+	private static Response error(int status, String name, int code, String message, List<String> candidates) {
+		String kind = status == 404 ? "not_found" : status == 300 ? "ambiguous" : "error";
+		return new Response(status, "{\"name\":" + Json.quote(name) + ",\"status\":\"" + kind + "\",\"code\":" + code
+				+ ",\"error\":" + Json.quote(message)
+				+ (candidates.isEmpty() ? "" : ",\"candidates\":" + Json.array(candidates)) + "}");
+	}
+
+	/**
+	 * Parses a query string into its parameters, sorted by name so that the
+	 * same request always has the same cache key.
+	 */
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> params = new TreeMap<>();
+		if (query == null) {
+			return params;
+		}
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			try {
+				if (equals < 0) {
+					params.put(URLDecoder.decode(pair, "UTF-8"), "");
+				} else {
+					params.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+							URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+				}
+			} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+				// Skip parameters that aren't encoded properly
+			}
+		}
+		return params;
+	}
+
+	/**
+	 * An answer to a request
+	 */
+	private static class Response {
+		private final int status;
+		private final byte[] body;
+		private final long created = System.currentTimeMillis();
+
+		Response(int status, String json) {
+			this.status = status;
+			this.body = (json + "\n").getBytes(StandardCharsets.UTF_8);
+		}
+	}
+}
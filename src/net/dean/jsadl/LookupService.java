@@ -0,0 +1,717 @@
+package net.dean.jsadl;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.dean.jsadl.Configurator.Config;
+import net.dean.jsadl.index.ClassIndex;
+import net.dean.jsadl.index.MemberIndex;
+import net.dean.parsers.ini.IniSyntaxException;
+
+/*
+ * LookupService.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Looks up classes and members the way the command line does, for programs
+ * that embed JSaDL. A LookupService never exits the JVM, prints or opens a
+ * viewer: every lookup either returns a {@link LookupResult} or throws a
+ * {@link LookupException} whose {@link LookupException#getKind() kind} tells
+ * what went wrong.
+ * <p>
+ * Configuration files are parsed once and parsed again only when they
+ * change, and indexes stay open between lookups, so a single LookupService
+ * should be shared by the whole program. LookupServices are thread safe.
+ * <p>
+ * When a name is ambiguous, or doesn't match anything exactly, the
+ * {@link Interaction} given to {@link #lookup(LookupRequest, Interaction)} is
+ * asked to choose. Without one, a LookupException with the
+ * {@link LookupException#getCandidates() candidates} is thrown instead.
+ */
+public class LookupService {
+	/**
+	 * Lets a lookup tell the user what it is doing and ask them to choose
+	 * between several classes or members. It is called on the thread doing
+	 * the lookup.
+	 */
+	public interface Interaction {
+		/**
+		 * Tells the user about something that will take a while, such as
+		 * building an index.
+		 * 
+		 * @param message
+		 *            What is happening
+		 */
+		void status(String message);
+
+		/**
+		 * Asks the user to choose one of several options.
+		 * 
+		 * @param question
+		 *            The sentence explaining why a choice is needed
+		 * @param options
+		 *            The options to choose from
+		 * @return The index of the chosen option
+		 */
+		int choose(String question, List<String> options);
+	}
+
+	/**
+	 * Is told when a lookup started with
+	 * {@link LookupService#submit(LookupRequest, Callback)} is done. It is
+	 * called on the thread that did the lookup.
+	 */
+	public interface Callback {
+		/**
+		 * Called when the document was found.
+		 * 
+		 * @param request
+		 *            The request
+		 * @param result
+		 *            The document
+		 */
+		void found(LookupRequest request, LookupResult result);
+
+		/**
+		 * Called when the lookup failed.
+		 * 
+		 * @param request
+		 *            The request
+		 * @param e
+		 *            What went wrong
+		 */
+		void failed(LookupRequest request, LookupException e);
+	}
+
+	/**
+	 * Does the actual lookups
+	 */
+	private final Lookup lookup;
+
+	/**
+	 * Parsed configuration files, keyed by their absolute path
+	 */
+	private final Map<File, LoadedConfig> configs = new ConcurrentHashMap<>();
+
+	/**
+	 * How many lookups {@link #submit(LookupRequest, Callback)} does at the
+	 * same time
+	 */
+	private final int threads;
+
+	/**
+	 * The threads asynchronous lookups are done on. Created the first time
+	 * one is submitted.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Keeps the indexes of the sources of every loaded configuration up to
+	 * date, or null if sources aren't watched
+	 */
+	private IndexWatcher watcher;
+
+	/**
+	 * Prefetches the documents related to every result, or null if nothing
+	 * is prefetched
+	 */
+	private volatile Prefetcher prefetcher;
+
+	/**
+	 * Instantiates a new LookupService with its own {@link Lookup}
+	 */
+	public LookupService() {
+		this(new Lookup());
+	}
+
+	/**
+	 * Instantiates a new LookupService that submitted lookups are done on
+	 * enough threads to keep a documentation host busy.
+	 * 
+	 * @param lookup
+	 *            The Lookup to use
+	 */
+	public LookupService(Lookup lookup) {
+		this(lookup, Math.max(32, Runtime.getRuntime().availableProcessors() * 4));
+	}
+
+	/**
+	 * Instantiates a new LookupService
+	 * 
+	 * @param lookup
+	 *            The Lookup to use
+	 * @param threads
+	 *            How many submitted lookups are done at the same time
+	 */
+	public LookupService(Lookup lookup, int threads) {
+		this.lookup = lookup;
+		this.threads = threads;
+	}
+
+	/**
+	 * Gets the Lookup that does the lookups, for searches and anything else a
+	 * LookupService doesn't do itself.
+	 * 
+	 * @return The Lookup
+	 */
+	public Lookup getLookup() {
+		return lookup;
+	}
+
+	/**
+	 * Sets what prefetches the documents related to the result of every
+	 * successful lookup from then on, such as the superclass of a class.
+	 * 
+	 * @param prefetcher
+	 *            The Prefetcher, or null to stop prefetching
+	 */
+	public void setPrefetcher(Prefetcher prefetcher) {
+		this.prefetcher = prefetcher;
+	}
+
+	/**
+	 * Gets what prefetches the documents related to the result of every
+	 * lookup.
+	 * 
+	 * @return The Prefetcher, or null if nothing is prefetched
+	 */
+	public Prefetcher getPrefetcher() {
+		return prefetcher;
+	}
+
+	/**
+	 * Looks up a class or member without asking anybody anything.
+	 * 
+	 * @param request
+	 *            What to look up
+	 * @return The document
+	 * @throws LookupException
+	 *             If the document could not be found, or a name is ambiguous
+	 * @see #lookup(LookupRequest, Interaction)
+	 */
+	public LookupResult lookup(LookupRequest request) throws LookupException {
+		return lookup(request, null);
+	}
+
+	/**
+	 * Looks up a class or member. Simple class names are resolved through the
+	 * class index of the Reference and members through its member index;
+	 * both are built first if they don't exist.
+	 * 
+	 * @param request
+	 *            What to look up
+	 * @param interaction
+	 *            Who to tell about slow steps and ask to choose when a name
+	 *            is ambiguous or doesn't match anything exactly, or null to
+	 *            throw a LookupException with the candidates instead
+	 * @return The document
+	 * @throws LookupException
+	 *             If the document could not be found, or a name is ambiguous
+	 *             and there is nobody to ask
+	 */
+	public LookupResult lookup(LookupRequest request, Interaction interaction) throws LookupException {
+		Timings timings = lookup.getTimings();
+		Config config = getConfig(request.getConfigFile());
+		LookupType type = request.getType();
+		String className = request.getClassName();
+		timings.set("type", type.name().toLowerCase());
+
+		String refName = request.getReferenceName();
+		long start;
+		if (request.isAllReferences()) {
+			start = timings.start();
+			refName = findReference(config, className, type, interaction);
+			timings.stop("resolve", start);
+		}
+		if (refName == null) {
+			refName = config.getDefaultRefName();
+		}
+		Reference ref = getReference(config, refName);
+
+		start = timings.start();
+		if (ref.getRepository() != null) {
+			indexRepository(ref.getRepository(), request.isReindex(), interaction);
+		} else if (type == LookupType.DOC && request.isReindex()) {
+			ref.getPackageList(true);
+		}
+		className = resolveClassName(ref, request, interaction);
+		ref = lookup.forClass(ref, className, type);
+		timings.set("class", className);
+
+		LookupResult result;
+		if (request.getMember() == null) {
+			timings.stop("resolve", start);
+			URL target = lookup.find(ref, className, type, request.isCheck());
+			result = new LookupResult(request, refName, ref, className, null, target);
+		} else {
+			MemberIndex.Entry member = chooseMember(ref, className, request, interaction);
+			timings.stop("resolve", start);
+			timings.set("member", member.getLabel());
+			URL target = lookup.findMember(ref, member, type, request.isCheck());
+			result = new LookupResult(request, refName, ref, className, member, target);
+		}
+
+		Prefetcher prefetcher = this.prefetcher;
+		if (prefetcher != null) {
+			prefetcher.prefetch(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Looks up a class or member on another thread, without asking anybody
+	 * anything.
+	 * 
+	 * @param request
+	 *            What to look up
+	 * @return The result of the lookup. If the lookup fails,
+	 *         {@link Future#get()} throws an ExecutionException caused by a
+	 *         LookupException.
+	 * @see #lookup(LookupRequest)
+	 */
+	public Future<LookupResult> submit(LookupRequest request) {
+		return submit(request, null);
+	}
+
+	/**
+	 * Looks up a class or member on another thread, without asking anybody
+	 * anything, and tells a Callback when it is done.
+	 * 
+	 * @param request
+	 *            What to look up
+	 * @param callback
+	 *            Who to tell, or null
+	 * @return The result of the lookup. If the lookup fails,
+	 *         {@link Future#get()} throws an ExecutionException caused by a
+	 *         LookupException.
+	 * @see #lookup(LookupRequest)
+	 */
+	public Future<LookupResult> submit(final LookupRequest request, final Callback callback) {
+		return getExecutor().submit(new Callable<LookupResult>() {
+
+			@Override
+			public LookupResult call() throws LookupException {
+				LookupResult result;
+				try {
+					result = lookup(request, null);
+				} catch (LookupException e) {
+					if (callback != null) {
+						callback.failed(request, e);
+					}
+					throw e;
+				}
+				if (callback != null) {
+					callback.found(request, result);
+				}
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Stops the threads of submitted lookups once the lookups already
+	 * submitted are done. Nothing can be submitted afterwards.
+	 */
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "jsadl-lookup");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Saves the check caches of every Reference whose documents were checked,
+	 * so that the next run can use them.
+	 * 
+	 * @throws IOException
+	 *             If a cache could not be written
+	 */
+	public void saveChecks() throws IOException {
+		long start = lookup.getTimings().start();
+		try {
+			for (DocumentChecker checker : lookup.getCheckers()) {
+				checker.save();
+			}
+		} finally {
+			lookup.getTimings().stop("save", start);
+		}
+	}
+
+	/**
+	 * Gets a parsed configuration file, parsing it again if it changed.
+	 * 
+	 * @param configFile
+	 *            The configuration file
+	 * @return The Config
+	 * @throws LookupException
+	 *             If the file doesn't exist or could not be parsed
+	 */
+	public Config getConfig(File configFile) throws LookupException {
+		File file = configFile.getAbsoluteFile();
+		long start = lookup.getTimings().start();
+		try {
+			LoadedConfig loaded = configs.get(file);
+			if (loaded == null || loaded.lastModified != file.lastModified() || loaded.length != file.length()) {
+				loaded = new LoadedConfig(file);
+				configs.put(file, loaded);
+				watch(loaded.config);
+			}
+			return loaded.config;
+		} catch (FileNotFoundException e) {
+			throw new LookupException(e.getLocalizedMessage(), 20, e);
+		} catch (IOException e) {
+			throw new LookupException(e.getLocalizedMessage(), 21, e);
+		} catch (IniSyntaxException e) {
+			throw new LookupException(e.getLocalizedMessage(), 22, e);
+		} finally {
+			lookup.getTimings().stop("config", start);
+		}
+	}
+
+	/**
+	 * Uses a configuration file that was already parsed, so that it isn't
+	 * parsed again for the next lookup. It is still parsed again once the
+	 * file changes.
+	 * 
+	 * @param configFile
+	 *            The configuration file
+	 * @param config
+	 *            The parsed file
+	 */
+	public void setConfig(File configFile, Config config) {
+		File file = configFile.getAbsoluteFile();
+		configs.put(file, new LoadedConfig(file, config));
+		watch(config);
+	}
+
+	/**
+	 * Gets a Reference of a configuration file.
+	 * 
+	 * @param configFile
+	 *            The configuration file
+	 * @param name
+	 *            The name of the Reference, or null for the default one
+	 * @return The Reference
+	 * @throws LookupException
+	 *             If the configuration could not be read or has no such
+	 *             Reference
+	 */
+	public Reference getReference(File configFile, String name) throws LookupException {
+		Config config = getConfig(configFile);
+		return getReference(config, name != null ? name : config.getDefaultRefName());
+	}
+
+	private Reference getReference(Config config, String name) throws LookupException {
+		if (name == null) {
+			Reference ref = getFallbackReference();
+			lookup.getTimings().set("reference", "default");
+			return ref;
+		}
+		Reference ref;
+		try {
+			ref = config.getRefFor(name);
+		} catch (MalformedURLException e) {
+			throw new LookupException(e.getLocalizedMessage(), 5, e);
+		}
+		if (ref == null) {
+			throw new LookupException("There is no reference named " + name + ".", 16);
+		}
+		lookup.getTimings().set("reference", name);
+		return ref;
+	}
+
+	/**
+	 * Makes a Reference for a configuration file without any. The sources
+	 * are looked for as <code>src.zip</code> or <code>src/</code> in the
+	 * working directory, <code>java.home</code> and <code>JAVA_HOME</code>,
+	 * the documentation as <code>doc/</code> in the same places, falling
+	 * back to the online one.
+	 * 
+	 * @return The Reference
+	 * @throws LookupException
+	 *             If no sources could be found
+	 */
+	private Reference getFallbackReference() throws LookupException {
+		List<File> folders = new ArrayList<>();
+		folders.add(new File(System.getProperty("user.dir")));
+		folders.add(new File(System.getProperty("java.home")));
+		if (System.getenv("JAVA_HOME") != null) {
+			folders.add(new File(System.getenv("JAVA_HOME")));
+		}
+
+		String source = null;
+		for (File f : folders) {
+			if (new File(f, "lib/src.zip").isFile()) {
+				source = new File(f, "lib/src.zip").getAbsolutePath();
+			} else if (new File(f, "src.zip").isFile()) {
+				source = new File(f, "src.zip").getAbsolutePath();
+			} else if (new File(f, "src").isDirectory()) {
+				source = new File(f, "src").getAbsolutePath();
+			}
+			if (source != null) {
+				break;
+			}
+		}
+		if (source == null) {
+			throw new LookupException("Unable to find a source folder for the default Reference. Please add at least "
+					+ "one Reference to your " + JSaDL.CONFIG_FILE_NAME + ".", 4);
+		}
+
+		String docs = Configurator.DEFAULT_DOC;
+		for (File f : folders) {
+			if (new File(f, "doc").isDirectory()) {
+				docs = new File(f, "doc").getAbsolutePath() + "/";
+				break;
+			}
+		}
+
+		try {
+			return new Reference(source, docs);
+		} catch (MalformedURLException e) {
+			throw new LookupException(e.getLocalizedMessage(), 5, e);
+		}
+	}
+
+	/**
+	 * Watches the sources of the References of every configuration file,
+	 * loaded so far or from now on, and brings their open indexes up to date
+	 * when they change.
+	 * 
+	 * @throws IOException
+	 *             If the file system can't be watched
+	 * @see IndexWatcher
+	 */
+	public synchronized void watchSources() throws IOException {
+		if (watcher != null) {
+			return;
+		}
+		watcher = new IndexWatcher(lookup);
+		for (LoadedConfig loaded : configs.values()) {
+			watch(loaded.config);
+		}
+		watcher.start();
+	}
+
+	private synchronized void watch(Config config) {
+		if (watcher == null) {
+			return;
+		}
+		for (String name : config.getRefNames()) {
+			try {
+				Reference ref = config.getRefFor(name);
+				if (ref != null) {
+					watcher.watch(ref);
+				}
+			} catch (IOException e) {
+				System.err.println("Unable to watch the source of " + name + ": " + e.getLocalizedMessage());
+			}
+		}
+	}
+
+	/**
+	 * Finds the first Reference, in order of priority, that has a class.
+	 * 
+	 * @return The name of the Reference
+	 * @see Lookup#findReference(Map, String, LookupType)
+	 */
+	private String findReference(Config config, String className, LookupType type, Interaction interaction)
+			throws LookupException {
+		Map<String, Reference> refs;
+		try {
+			refs = config.getRefsByPriority();
+		} catch (MalformedURLException e) {
+			throw new LookupException(e.getLocalizedMessage(), 5, e);
+		}
+		if (className.indexOf('.') < 0) {
+			for (Reference ref : refs.values()) {
+				if (ClassIndex.canIndex(ref) && !ClassIndex.fileFor(ref).isFile()) {
+					status(interaction, "Building the class index for " + ref.getSourceBase().toExternalForm() + "...");
+				}
+			}
+		}
+
+		String name = lookup.findReference(refs, className, type);
+		status(interaction, "Found " + className + " in " + name);
+		return name;
+	}
+
+	/**
+	 * Opens the artifact index of a Maven repository, building it first if it
+	 * doesn't exist, is out of date or should be rebuilt.
+	 */
+	private void indexRepository(MavenRepository repository, boolean rebuild, Interaction interaction)
+			throws LookupException {
+		if (rebuild || !repository.isIndexed()) {
+			status(interaction, "Indexing the artifacts of " + repository + "...");
+		}
+		try {
+			repository.index(rebuild);
+		} catch (IOException e) {
+			throw new LookupException("Unable to build the artifact index: " + e.getLocalizedMessage(), 47, e);
+		}
+	}
+
+	/**
+	 * Resolves the class name of a request to a fully qualified one. Simple
+	 * names (like <code>HashMap</code>) are resolved through the class index
+	 * of the Reference, building it first if it doesn't exist. If more than
+	 * one package contains a class with that name, or none does but some
+	 * names are close, the interaction chooses.
+	 * 
+	 * @param ref
+	 *            The Reference to resolve the name against
+	 * @param request
+	 *            The request whose class name to resolve
+	 * @param interaction
+	 *            Who to tell about slow steps and ask to choose, or null to
+	 *            throw a LookupException with the candidates instead
+	 * @return The fully qualified class name, or the simple name if it could
+	 *         not be resolved
+	 * @throws LookupException
+	 *             If the name is ambiguous or close to other names and there
+	 *             is nobody to ask, or the class index could not be read
+	 */
+	public String resolveClassName(Reference ref, LookupRequest request, Interaction interaction)
+			throws LookupException {
+		String simpleName = request.getClassName();
+		if (simpleName.indexOf('.') >= 0) {
+			return simpleName;
+		}
+		boolean rebuild = request.isReindex();
+		if (ClassIndex.canIndex(ref) && (rebuild || !ClassIndex.fileFor(ref).isFile())) {
+			status(interaction, "Building the class index for " + ref.getSourceBase().toExternalForm() + "...");
+		}
+
+		String className;
+		try {
+			className = lookup.resolveClassName(ref, simpleName, rebuild);
+		} catch (LookupException e) {
+			if (!e.isAmbiguous() || interaction == null) {
+				throw e;
+			}
+			List<String> matches = e.getCandidates();
+			return matches.get(interaction.choose("More than one class is named " + simpleName + ".", matches));
+		}
+
+		if (className.equals(simpleName) && ClassIndex.canIndex(ref)) {
+			// Not in the index, so it won't be found. Offer the closest names
+			List<String> suggestions = lookup.searchClasses(ref, simpleName, request.getLimit());
+			if (!suggestions.isEmpty()) {
+				String question = "No class is named " + simpleName + ". Did you mean one of these?";
+				if (interaction == null) {
+					URL base = request.getType() == LookupType.SOURCE ? ref.getSourceBase() : ref.getDocBase();
+					boolean online = base != null
+							&& (base.getProtocol().equals("http") || base.getProtocol().equals("https"));
+					throw new LookupException(question, online ? 11 : 12, suggestions);
+				}
+				return suggestions.get(interaction.choose(question, suggestions));
+			}
+		}
+		return className;
+	}
+
+	/**
+	 * Finds the member of a class that was meant. If more than one member
+	 * starts with the given prefix, or none does but some names are close,
+	 * the interaction chooses.
+	 */
+	private MemberIndex.Entry chooseMember(Reference ref, String className, LookupRequest request,
+			Interaction interaction) throws LookupException {
+		LookupType type = request.getType();
+		String prefix = request.getMember();
+		boolean rebuild = request.isReindex();
+		URL base = type == LookupType.DOC ? ref.getDocBase() : ref.getSourceBase();
+		if (base != null && (rebuild || !MemberIndex.fileFor(base).isFile())) {
+			status(interaction, "Building the member index for " + base.toExternalForm() + "...");
+		}
+
+		List<MemberIndex.Entry> members;
+		String question;
+		int exitCode;
+		try {
+			members = lookup.findMembers(ref, className, prefix, type, rebuild);
+			question = "More than one member of " + className + " starts with " + prefix + ".";
+			exitCode = 13;
+		} catch (LookupException e) {
+			if (e.getExitCode() != 14) {
+				throw e;
+			}
+			members = lookup.searchMembers(ref, className, prefix, type, request.getLimit());
+			if (members.isEmpty()) {
+				throw e;
+			}
+			question = className + " has no member named " + prefix + ". Did you mean one of these?";
+			exitCode = 14;
+		}
+		if (members.size() == 1 && exitCode == 13) {
+			return members.get(0);
+		}
+		List<String> labels = new ArrayList<>();
+		for (MemberIndex.Entry member : members) {
+			labels.add(member.toString());
+		}
+		if (interaction == null) {
+			throw new LookupException(question, exitCode, labels);
+		}
+		return members.get(interaction.choose(question, labels));
+	}
+
+	private static void status(Interaction interaction, String message) {
+		if (interaction != null) {
+			interaction.status(message);
+		}
+	}
+
+	/**
+	 * A Config along with what is needed to tell if it is out of date
+	 */
+	private static class LoadedConfig {
+		private final Config config;
+		private final long lastModified;
+		private final long length;
+
+		LoadedConfig(File file) throws IOException, IniSyntaxException {
+			if (!file.isFile()) {
+				throw new FileNotFoundException("The configuration file " + file.getPath() + " does not exist.");
+			}
+			this.lastModified = file.lastModified();
+			this.length = file.length();
+			this.config = new Config(file);
+		}
+
+		LoadedConfig(File file, Config config) {
+			this.lastModified = file.lastModified();
+			this.length = file.length();
+			this.config = config;
+		}
+	}
+}
@@ -0,0 +1,389 @@
+package net.dean.jsadl;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.dean.jsadl.index.ClassIndex;
+import net.dean.jsadl.index.MappedTable;
+
+/*
+ * MavenRepository.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * The artifacts of a local Maven repository (such as
+ * <code>~/.m2/repository</code>) or of a project's classpath, looked up by
+ * the classes in them. Each artifact is a <code>-sources.jar</code> and a
+ * <code>-javadoc.jar</code> next to each other, either of which may be
+ * missing, and becomes a {@link Reference} of its own when a class in it is
+ * looked up.
+ * <p>
+ * Finding the artifact of a class would mean opening every jar, so the
+ * classes of every artifact are indexed once and saved as a
+ * {@link MappedTable} in <code>~/.jsadl/index/</code>, mapping the simple
+ * name of every class to its fully qualified name and its artifact. After
+ * that, finding a class is a binary search in the table, and reading it is a
+ * single entry read through the jar's cached central directory (see
+ * {@link ZipSource}).
+ * <p>
+ * If a repository has more than one version of an artifact, the newest
+ * version is used. On a classpath, the first artifact that has a class wins,
+ * like it does for the JVM.
+ */
+public class MavenRepository {
+	/**
+	 * The end of the name of a sources jar
+	 */
+	public static final String SOURCES_SUFFIX = "-sources.jar";
+
+	/**
+	 * The end of the name of a Javadoc jar
+	 */
+	public static final String JAVADOC_SUFFIX = "-javadoc.jar";
+
+	/**
+	 * The extension of artifact index files
+	 */
+	public static final String EXTENSION = ".artifacts";
+
+	/**
+	 * The repository directory, or the file listing the classpath
+	 */
+	private final File location;
+
+	/**
+	 * True if {@link #location} lists a classpath
+	 */
+	private final boolean classpath;
+
+	/**
+	 * The index, once it has been opened
+	 */
+	private volatile MappedTable index;
+
+	/**
+	 * References of the artifacts that have been looked in, keyed by the path
+	 * of the artifact without its suffix
+	 */
+	private final ConcurrentMap<String, Reference> artifacts = new ConcurrentHashMap<>();
+
+	private MavenRepository(File location, boolean classpath) {
+		this.location = location.getAbsoluteFile();
+		this.classpath = classpath;
+	}
+
+	/**
+	 * Gets the artifacts of a local repository.
+	 * 
+	 * @param root
+	 *            The repository, like <code>~/.m2/repository</code>. A
+	 *            leading <code>~</code> is replaced with the home directory.
+	 * @return The repository
+	 */
+	public static MavenRepository forDirectory(String root) {
+		return new MavenRepository(expand(root), false);
+	}
+
+	/**
+	 * Gets the artifacts of a project's classpath. The file lists the jars of
+	 * the classpath, separated by newlines or the path separator, like the
+	 * output of <code>mvn dependency:build-classpath -Dmdep.outputFile=...</code>
+	 * does. The <code>-sources.jar</code> and <code>-javadoc.jar</code> of
+	 * each jar are looked for next to it.
+	 * 
+	 * @param list
+	 *            The file listing the classpath. A leading <code>~</code> is
+	 *            replaced with the home directory.
+	 * @return The repository
+	 */
+	public static MavenRepository forClasspath(String list) {
+		return new MavenRepository(expand(list), true);
+	}
+
+	private static File expand(String path) {
+		if (path.equals("~") || path.startsWith("~/")) {
+			return new File(System.getProperty("user.home") + path.substring(1));
+		}
+		return new File(path);
+	}
+
+	/**
+	 * Gets the repository directory or the file listing the classpath.
+	 * 
+	 * @return The location
+	 */
+	public File getLocation() {
+		return location;
+	}
+
+	/**
+	 * Gets the file the index of this repository is stored in.
+	 * 
+	 * @return The index file, which may not exist yet
+	 */
+	public File getIndexFile() {
+		return new File(Caches.getDirectory("index"), Caches.keyFor(location.getPath()) + EXTENSION);
+	}
+
+	/**
+	 * Tests if the index of this repository has been built and is up to
+	 * date. The index of a classpath is out of date when the file listing it
+	 * changes; the index of a repository directory is only rebuilt when asked
+	 * to.
+	 * 
+	 * @return True if the index can be used as it is
+	 */
+	public boolean isIndexed() {
+		File file = getIndexFile();
+		if (!file.isFile()) {
+			return false;
+		}
+		if (!classpath) {
+			return true;
+		}
+		try {
+			return MappedTable.open(file).getMetadata().equals(stamp());
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Opens the index of this repository, building it if it isn't up to
+	 * date.
+	 * 
+	 * @param rebuild
+	 *            True to build the index even if it is up to date
+	 * @throws IOException
+	 *             If the index could not be built or read
+	 */
+	public synchronized void index(boolean rebuild) throws IOException {
+		if (index != null && !rebuild) {
+			return;
+		}
+		File file = getIndexFile();
+		if (rebuild || !isIndexed()) {
+			build(file);
+			artifacts.clear();
+		}
+		index = MappedTable.open(file);
+	}
+
+	/**
+	 * Finds the fully qualified names of the classes with a simple name.
+	 * 
+	 * @param simpleName
+	 *            The simple name, like <code>ImmutableList</code>
+	 * @return The fully qualified names, in the order of their artifacts
+	 * @throws IOException
+	 *             If the index could not be built or read
+	 */
+	public List<String> resolve(String simpleName) throws IOException {
+		index(false);
+		List<String> classNames = new ArrayList<>();
+		for (String value : index.get(simpleName)) {
+			String className = value.substring(0, value.indexOf('\t'));
+			if (!classNames.contains(className)) {
+				classNames.add(className);
+			}
+		}
+		return classNames;
+	}
+
+	/**
+	 * Gets the Reference of the artifact that has a class.
+	 * 
+	 * @param className
+	 *            The fully qualified name of the class. Nested classes must
+	 *            be separated from their enclosing class with a '$'.
+	 * @return The Reference, or null if no artifact has the class
+	 * @throws IOException
+	 *             If the index could not be built or read
+	 */
+	public Reference getReference(String className) throws IOException {
+		index(false);
+		int nested = className.indexOf('$');
+		String topLevel = nested < 0 ? className : className.substring(0, nested);
+		for (String value : index.get(topLevel.substring(topLevel.lastIndexOf('.') + 1))) {
+			int tab = value.indexOf('\t');
+			if (value.substring(0, tab).equals(topLevel)) {
+				return referenceFor(value.substring(tab + 1));
+			}
+		}
+		return null;
+	}
+
+	private Reference referenceFor(String artifact) throws MalformedURLException {
+		Reference ref = artifacts.get(artifact);
+		if (ref == null) {
+			File sources = new File(artifact + SOURCES_SUFFIX);
+			File javadoc = new File(artifact + JAVADOC_SUFFIX);
+			ref = new Reference(sources.isFile() ? sources.getPath() : null, javadoc.isFile() ? javadoc.getPath()
+					: null);
+			artifacts.put(artifact, ref);
+		}
+		return ref;
+	}
+
+	/**
+	 * Identifies the version of the classpath file an index was built from
+	 */
+	private String stamp() {
+		return classpath ? location.length() + "\t" + location.lastModified() : "";
+	}
+
+	private void build(File file) throws IOException {
+		// The class names of each artifact, best artifact first
+		Map<String, String> classes = new LinkedHashMap<>();
+		for (String artifact : findArtifacts()) {
+			File sources = new File(artifact + SOURCES_SUFFIX);
+			File javadoc = new File(artifact + JAVADOC_SUFFIX);
+			try {
+				if (sources.isFile()) {
+					MappedTable directory = ZipSource.open(sources).getDirectory();
+					for (int i = 0; i < directory.size(); i++) {
+						addClass(classes, ClassIndex.toClassName(directory.keyAt(i)), artifact);
+					}
+				} else if (javadoc.isFile()) {
+					MappedTable directory = ZipSource.open(javadoc).getDirectory();
+					for (int i = 0; i < directory.size(); i++) {
+						addClass(classes, toDocClassName(directory.keyAt(i)), artifact);
+					}
+				}
+			} catch (IOException e) {
+				// A broken jar shouldn't stop the rest from being indexed
+				System.err.println("Skipping " + artifact + ": " + e.getLocalizedMessage());
+			}
+		}
+
+		MappedTable.Builder builder = new MappedTable.Builder().metadata(stamp());
+		for (Map.Entry<String, String> entry : classes.entrySet()) {
+			String className = entry.getKey();
+			builder.add(className.substring(className.lastIndexOf('.') + 1), className + "\t" + entry.getValue());
+		}
+		builder.write(file);
+	}
+
+	private static void addClass(Map<String, String> classes, String className, String artifact) {
+		if (className != null && !classes.containsKey(className)) {
+			classes.put(className, artifact);
+		}
+	}
+
+	/**
+	 * Gets the name of the class whose documentation page has the given path,
+	 * or null if it isn't the page of a top level class.
+	 */
+	private static String toDocClassName(String path) {
+		if (!path.endsWith(".html") || path.contains("class-use/") || path.startsWith("src-html/")) {
+			return null;
+		}
+		String name = path.substring(path.lastIndexOf('/') + 1, path.length() - ".html".length());
+		if (name.isEmpty() || !Character.isUpperCase(name.charAt(0)) || name.indexOf('.') >= 0
+				|| name.indexOf('-') >= 0) {
+			return null;
+		}
+		return path.substring(0, path.length() - ".html".length()).replace('/', '.');
+	}
+
+	/**
+	 * Finds every artifact that has a sources or Javadoc jar, as the path of
+	 * its jars without their suffix, best first.
+	 */
+	private List<String> findArtifacts() throws IOException {
+		List<String> artifacts = new ArrayList<>();
+		if (classpath) {
+			String list = new String(Files.readAllBytes(location.toPath()), StandardCharsets.UTF_8);
+			for (String entry : list.split("[\\r\\n" + File.pathSeparator + "]+")) {
+				entry = entry.trim();
+				if (entry.endsWith(".jar")) {
+					String artifact = new File(entry).getAbsolutePath();
+					artifact = artifact.substring(0, artifact.length() - ".jar".length());
+					if (new File(artifact + SOURCES_SUFFIX).isFile() || new File(artifact + JAVADOC_SUFFIX).isFile()) {
+						artifacts.add(artifact);
+					}
+				}
+			}
+		} else {
+			findArtifacts(location, artifacts);
+		}
+		return artifacts;
+	}
+
+	/**
+	 * Walks a repository directory. The version directories of an artifact
+	 * are walked newest first, so the newest version of a class is kept.
+	 */
+	private static void findArtifacts(File dir, List<String> artifacts) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		List<File> dirs = new ArrayList<>();
+		Set<String> found = new HashSet<>();
+		for (File child : children) {
+			String name = child.getName();
+			if (child.isDirectory()) {
+				dirs.add(child);
+			} else if (name.endsWith(SOURCES_SUFFIX) || name.endsWith(JAVADOC_SUFFIX)) {
+				String suffix = name.endsWith(SOURCES_SUFFIX) ? SOURCES_SUFFIX : JAVADOC_SUFFIX;
+				String artifact = new File(dir, name.substring(0, name.length() - suffix.length())).getPath();
+				if (found.add(artifact)) {
+					artifacts.add(artifact);
+				}
+			}
+		}
+		Collections.sort(dirs, new Comparator<File>() {
+
+			@Override
+			public int compare(File a, File b) {
+				return compareVersions(b.getName(), a.getName());
+			}
+		});
+		for (File child : dirs) {
+			findArtifacts(child, artifacts);
+		}
+	}
+
+	/**
+	 * Compares two version strings part by part, numerically where both parts
+	 * are numbers, so that <code>1.10</code> is newer than <code>1.9</code>.
+	 */
+	private static int compareVersions(String a, String b) {
+		String[] partsA = a.split("[.-]");
+		String[] partsB = b.split("[.-]");
+		for (int i = 0; i < Math.min(partsA.length, partsB.length); i++) {
+			int result;
+			if (partsA[i].matches("\\d{1,9}") && partsB[i].matches("\\d{1,9}")) {
+				result = Integer.compare(Integer.parseInt(partsA[i]), Integer.parseInt(partsB[i]));
+			} else {
+				result = partsA[i].compareTo(partsB[i]);
+			}
+			if (result != 0) {
+				return result;
+			}
+		}
+		return Integer.compare(partsA.length, partsB.length);
+	}
+
+	@Override
+	public String toString() {
+		return location.getPath();
+	}
+}
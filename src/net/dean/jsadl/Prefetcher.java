@@ -0,0 +1,436 @@
+package net.dean.jsadl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.dean.jsadl.index.ClassIndex;
+import net.dean.jsadl.index.JavaScanner;
+
+/*
+ * Prefetcher.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Gets the documents people usually go to next ready in the background: after
+ * a class has been looked up, its superclass and interfaces are looked up too,
+ * and for mirrored documentation the package summary is mirrored. Their
+ * checks end up in the check cache, their pages in the mirror and their
+ * sources extracted, so looking them up (or following a link to them in a
+ * mirrored page) doesn't need the network.
+ * <p>
+ * The related types are read from the declaration of the class, in its source
+ * if the Reference has local source and otherwise in its page if the page is
+ * local. Only a few documents are prefetched for each lookup, on a single
+ * thread, and if lookups come faster than that the oldest are dropped.
+ * <p>
+ * Prefetchers are thread safe.
+ */
+public class Prefetcher {
+	/**
+	 * How many documents are prefetched for each lookup if not told
+	 * otherwise
+	 */
+	public static final int DEFAULT_BUDGET = 4;
+
+	/**
+	 * The most lookups waiting for their documents to be prefetched
+	 */
+	private static final int MAX_QUEUED = 16;
+
+	/**
+	 * The most documents remembered as prefetched, so they aren't prefetched
+	 * again
+	 */
+	private static final int MAX_REMEMBERED = 10000;
+
+	/**
+	 * Links to types in the declaration of a Javadoc page, such as
+	 * <code>&lt;a href="AbstractMap.html" title="class in java.util"&gt;AbstractMap&lt;/a&gt;</code>
+	 */
+	private static final Pattern TYPE_LINK = Pattern
+			.compile("<a [^>]*title=\"[a-z ]+ in ([\\w.]+)\"[^>]*>(?:<[^>]+>)*(\\w+)");
+
+	private final Lookup lookup;
+
+	/**
+	 * The most documents to prefetch for each lookup
+	 */
+	private final int budget;
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * The documents that have been prefetched already
+	 */
+	private final Set<String> prefetched = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * Instantiates a new Prefetcher
+	 * 
+	 * @param lookup
+	 *            The Lookup to look up related documents with. Its document
+	 *            checkers are the ones whose check caches are warmed.
+	 * @param budget
+	 *            The most documents to prefetch for each lookup
+	 */
+	public Prefetcher(Lookup lookup, int budget) {
+		this.lookup = lookup;
+		this.budget = budget;
+		this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+				MAX_QUEUED), new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "jsadl-prefetch");
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, new ThreadPoolExecutor.DiscardOldestPolicy());
+	}
+
+	/**
+	 * Starts prefetching the documents related to the result of a lookup.
+	 * Returns right away.
+	 * 
+	 * @param result
+	 *            The result of the lookup
+	 */
+	public void prefetch(final LookupResult result) {
+		if (executor.isShutdown()) {
+			return;
+		}
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				prefetchRelated(result);
+			}
+		});
+	}
+
+	/**
+	 * Stops taking new lookups and waits for the documents of the ones
+	 * already given to be prefetched.
+	 * 
+	 * @param millis
+	 *            The longest to wait, in milliseconds
+	 * @return True if everything was prefetched in time
+	 * @throws InterruptedException
+	 *             If the thread was interrupted while waiting
+	 */
+	public boolean finish(long millis) throws InterruptedException {
+		executor.shutdown();
+		return executor.awaitTermination(millis, TimeUnit.MILLISECONDS);
+	}
+
+	private void prefetchRelated(LookupResult result) {
+		Reference ref = result.getReference();
+		LookupType type = result.getRequest().getType();
+		int left = budget;
+
+		if (type == LookupType.DOC && ref.getMirror() != null) {
+			String path = ref.getDocPath(result.getClassName());
+			path = path.substring(0, path.lastIndexOf('/') + 1) + "package-summary.html";
+			if (remember(type, ref, path) && !ref.getMirror().contains(path)) {
+				left--;
+				try {
+					ref.getMirror().fetch(path);
+				} catch (IOException e) {
+					// Not worth bothering anybody
+				}
+			}
+		}
+
+		for (String related : findRelated(ref, result.getClassName(), type, result.getTarget())) {
+			if (left <= 0) {
+				break;
+			}
+			if (!remember(type, ref, related)) {
+				continue;
+			}
+			left--;
+			try {
+				lookup.find(ref, related, type, result.getRequest().isCheck(), Timings.DISABLED);
+			} catch (LookupException e) {
+				// It's in another Reference, or was guessed wrong
+			}
+		}
+	}
+
+	/**
+	 * Remembers that a document is being prefetched.
+	 * 
+	 * @return False if it has been prefetched already
+	 */
+	private boolean remember(LookupType type, Reference ref, String name) {
+		if (prefetched.size() > MAX_REMEMBERED) {
+			prefetched.clear();
+		}
+		URL base = type == LookupType.SOURCE ? ref.getSourceBase() : ref.getDocBase();
+		return prefetched.add(type + " " + base + " " + name);
+	}
+
+	/**
+	 * Finds the superclass and interfaces of a class, from its source if the
+	 * Reference has local source and from its page if that is local.
+	 */
+	private List<String> findRelated(Reference ref, String className, LookupType type, URL target) {
+		try {
+			ClassIndex index = lookup.getClassIndex(ref, false);
+			if (index != null) {
+				URL source = type == LookupType.SOURCE ? target : ref.getFor(className, LookupType.SOURCE);
+				byte[] bytes = read(source);
+				if (bytes != null) {
+					return relatedInSource(bytes, className, index);
+				}
+			}
+			if (type == LookupType.DOC && target.getProtocol().equals("file")) {
+				byte[] page = read(target);
+				if (page != null) {
+					return relatedInPage(new String(page, StandardCharsets.UTF_8), className);
+				}
+			}
+		} catch (LookupException | IOException e) {
+			// Nothing to prefetch then
+		}
+		return Collections.emptyList();
+	}
+
+	private static byte[] read(URL url) throws IOException {
+		if (url == null) {
+			return null;
+		} else if (url.getProtocol().equals("jar")) {
+			try (InputStream in = ZipSource.open(ZipSource.archiveOf(url)).openStream(ZipSource.entryOf(url))) {
+				if (in == null) {
+					return null;
+				}
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					bytes.write(buffer, 0, read);
+				}
+				return bytes.toByteArray();
+			}
+		} else if (url.getProtocol().equals("file")) {
+			try {
+				// Without the anchor of a member
+				File file = new File(new URL(url.getProtocol(), url.getHost(), url.getPort(), url.getPath()).toURI());
+				return file.isFile() ? Files.readAllBytes(file.toPath()) : null;
+			} catch (URISyntaxException e) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the types a class extends and implements from its source, up to
+	 * the brace that opens its body. Simple names are resolved with the
+	 * imports of the file, its package, and java.lang, and only names the
+	 * class index has are returned.
+	 * 
+	 * @param source
+	 *            The contents of the source file
+	 * @param className
+	 *            The fully qualified name of the class
+	 * @param index
+	 *            The class index of the Reference
+	 * @return The fully qualified names of the supertypes that are top level
+	 *         classes, superclass first
+	 */
+	static List<String> relatedInSource(byte[] source, String className, ClassIndex index) {
+		int dot = className.lastIndexOf('.');
+		String packageName = dot < 0 ? "" : className.substring(0, dot);
+		String simpleName = className.substring(dot + 1);
+		Map<String, String> imports = new HashMap<>();
+		List<String> onDemand = new ArrayList<>();
+		List<String> supertypes = new ArrayList<>();
+
+		JavaScanner scanner = new JavaScanner(source);
+		JavaScanner.Token token;
+		while ((token = scanner.next()) != JavaScanner.Token.EOF) {
+			if (token != JavaScanner.Token.IDENTIFIER) {
+				continue;
+			}
+			if (scanner.isIdentifier("import")) {
+				StringBuilder name = new StringBuilder();
+				boolean isStatic = false;
+				while ((token = scanner.next()) != JavaScanner.Token.EOF && !scanner.isSymbol(';')) {
+					if (scanner.isIdentifier("static")) {
+						isStatic = true;
+					} else if (token == JavaScanner.Token.IDENTIFIER || scanner.isSymbol('.') || scanner.isSymbol('*')) {
+						name.append(scanner.getText());
+					}
+				}
+				String imported = name.toString();
+				if (isStatic) {
+					continue;
+				} else if (imported.endsWith(".*")) {
+					onDemand.add(imported.substring(0, imported.length() - 2));
+				} else {
+					imports.put(imported.substring(imported.lastIndexOf('.') + 1), imported);
+				}
+			} else if (scanner.isIdentifier("class") || scanner.isIdentifier("interface")
+					|| scanner.isIdentifier("enum") || scanner.isIdentifier("record")) {
+				if (scanner.next() == JavaScanner.Token.IDENTIFIER && scanner.isIdentifier(simpleName)) {
+					readSupertypes(scanner, supertypes);
+					break;
+				}
+			}
+		}
+
+		Set<String> related = new LinkedHashSet<>();
+		for (String supertype : supertypes) {
+			String resolved = resolve(supertype, packageName, imports, onDemand, index);
+			if (resolved != null && !resolved.equals(className)) {
+				related.add(resolved);
+			}
+		}
+		return new ArrayList<>(related);
+	}
+
+	/**
+	 * Reads the names after <code>extends</code> and <code>implements</code>
+	 * of a declaration whose name was just read.
+	 */
+	private static void readSupertypes(JavaScanner scanner, List<String> supertypes) {
+		boolean listing = false;
+		StringBuilder name = new StringBuilder();
+		JavaScanner.Token token;
+		while ((token = scanner.next()) != JavaScanner.Token.EOF && !scanner.isSymbol('{')) {
+			if (token == JavaScanner.Token.COMMENT || token == JavaScanner.Token.JAVADOC) {
+				continue;
+			} else if (scanner.isSymbol('<') || scanner.isSymbol('(')) {
+				// Type parameters, type arguments and record components
+				skipBalanced(scanner);
+			} else if (scanner.isSymbol('@')) {
+				// The name of an annotation
+				scanner.next();
+			} else if (scanner.isIdentifier("extends") || scanner.isIdentifier("implements")
+					|| scanner.isIdentifier("permits") || scanner.isSymbol(',')) {
+				if (listing && name.length() > 0) {
+					supertypes.add(name.toString());
+				}
+				name.setLength(0);
+				listing = scanner.isSymbol(',') ? listing : !scanner.isIdentifier("permits");
+			} else if (listing && (token == JavaScanner.Token.IDENTIFIER || scanner.isSymbol('.'))) {
+				name.append(scanner.getText());
+			}
+		}
+		if (listing && name.length() > 0) {
+			supertypes.add(name.toString());
+		}
+	}
+
+	/**
+	 * Skips to the symbol that closes the one just read.
+	 */
+	private static void skipBalanced(JavaScanner scanner) {
+		char open = scanner.isSymbol('<') ? '<' : '(';
+		char close = open == '<' ? '>' : ')';
+		int depth = 1;
+		while (depth > 0 && scanner.next() != JavaScanner.Token.EOF) {
+			if (scanner.isSymbol(open)) {
+				depth++;
+			} else if (scanner.isSymbol(close)) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Resolves a type name as written in a source file to the fully qualified
+	 * name of its top level class.
+	 */
+	private static String resolve(String name, String packageName, Map<String, String> imports,
+			List<String> onDemand, ClassIndex index) {
+		String[] parts = name.split("\\.");
+		if (parts.length > 1 && Character.isLowerCase(parts[0].charAt(0))) {
+			// Qualified, up to the first part that is a class
+			StringBuilder qualified = new StringBuilder(parts[0]);
+			for (int i = 1; i < parts.length; i++) {
+				qualified.append('.').append(parts[i]);
+				if (Character.isUpperCase(parts[i].charAt(0))) {
+					break;
+				}
+			}
+			return qualified.toString();
+		}
+
+		String simpleName = parts[0];
+		if (imports.containsKey(simpleName)) {
+			return imports.get(simpleName);
+		}
+		List<String> candidates = index.resolve(simpleName);
+		String samePackage = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		if (candidates.contains(samePackage)) {
+			return samePackage;
+		}
+		for (String imported : onDemand) {
+			if (candidates.contains(imported + "." + simpleName)) {
+				return imported + "." + simpleName;
+			}
+		}
+		return candidates.contains("java.lang." + simpleName) ? "java.lang." + simpleName : null;
+	}
+
+	/**
+	 * Reads the types a class extends and implements from the declaration on
+	 * its Javadoc page, which links to them with titles like
+	 * <code>class in java.util</code>.
+	 * 
+	 * @param page
+	 *            The HTML of the page
+	 * @param className
+	 *            The fully qualified name of the class
+	 * @return The fully qualified names of the linked types, in the order
+	 *         they appear
+	 */
+	static List<String> relatedInPage(String page, String className) {
+		// Javadoc 17 and later put the declaration in a div, older versions
+		// in the first pre
+		int start = page.indexOf("class=\"type-signature\"");
+		int end = page.indexOf("</div>", start);
+		if (start < 0) {
+			start = page.indexOf("<pre");
+			end = page.indexOf("</pre>", start);
+		}
+		if (start < 0 || end < 0) {
+			return Collections.emptyList();
+		}
+
+		Set<String> related = new LinkedHashSet<>();
+		Matcher matcher = TYPE_LINK.matcher(page).region(start, end);
+		while (matcher.find()) {
+			String name = matcher.group(1) + "." + matcher.group(2);
+			if (!name.equals(className)) {
+				related.add(name);
+			}
+		}
+		return new ArrayList<>(related);
+	}
+}
@@ -1,9 +1,12 @@
 package net.dean.jsadl;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 
+import net.dean.jsadl.index.PackageList;
+
 /*
  * Reference.java
  *
@@ -13,6 +16,8 @@ import java.net.URL;
  */
 /**
  * This class represents a reference to a JDK documentation and source.
+ * References are immutable apart from the package list, which is read the
+ * first time it is needed, so they can be shared between threads.
  * 
  * @author matthew
  * 
@@ -20,36 +25,134 @@ import java.net.URL;
 public class Reference {
 
 	/**
-	 * The base directory of the source files
+	 * The base directory of the source files. If the sources are in a zip
+	 * archive, this is a <code>jar:</code> URL that points to the root of
+	 * the archive.
 	 */
-	private URL sourceBase;
+	private final URL sourceBase;
 
 	/**
 	 * The base URL of the documentation
 	 */
-	private URL docBase;
+	private final URL docBase;
+
+	/**
+	 * The artifacts this Reference stands for, or null if it has its own
+	 * source and documentation
+	 */
+	private final MavenRepository repository;
+
+	/**
+	 * The local copy of online documentation, or null if it isn't mirrored
+	 */
+	private final DocMirror mirror;
+
+	/**
+	 * The packages of the documentation, or null if it has no package list
+	 */
+	private PackageList packages;
+
+	/**
+	 * True once the package list has been read, or found to be missing
+	 */
+	private boolean packagesLoaded;
+
+	/**
+	 * True once the cache has been looked in for a saved package list
+	 */
+	private boolean savedLooked;
 
 	/**
 	 * Instantiates a new Reference.
 	 * 
 	 * @param sourceBase
-	 *            The base directory of the source files
+	 *            The base directory of the source files, or a zip archive
+	 *            containing them (such as <code>lib/src.zip</code>)
 	 * @param docBase
 	 *            The base URL of the documentation
 	 * @throws MalformedURLException
 	 *             If the given source or doc base are invalid URLs
 	 */
 	public Reference(String sourceBase, String docBase) throws MalformedURLException {
-		if (!sourceBase.startsWith("http://") && !sourceBase.startsWith("https://")) {
-			this.sourceBase = new URL("file://" + sourceBase);
+		this(sourceBase, docBase, 0);
+	}
+
+	/**
+	 * Instantiates a new Reference whose online documentation is mirrored
+	 * locally.
+	 * 
+	 * @param sourceBase
+	 *            The base directory of the source files, or a zip archive
+	 *            containing them (such as <code>lib/src.zip</code>), or null
+	 *            if there is no source
+	 * @param docBase
+	 *            The base URL of the documentation, or a Javadoc jar, or null
+	 *            if there is no documentation
+	 * @param mirrorSize
+	 *            The maximum size of the documentation mirror in bytes, or 0
+	 *            to not mirror the documentation
+	 * @throws MalformedURLException
+	 *             If the given source or doc base are invalid URLs
+	 * @see DocMirror
+	 */
+	public Reference(String sourceBase, String docBase, long mirrorSize) throws MalformedURLException {
+		URL source = null;
+		if (sourceBase != null && !sourceBase.startsWith("http://") && !sourceBase.startsWith("https://")) {
+			if (ZipSource.isArchive(sourceBase)) {
+				source = new URL("jar:file:" + new File(sourceBase).getAbsolutePath() + "!/");
+			} else {
+				source = new URL("file://" + sourceBase);
+			}
 		}
 
 		// TODO: Look for URL protocol instead
-		if (!docBase.startsWith("http://") && !docBase.startsWith("https://")) {
-			this.docBase = new URL("file://" + docBase);
+		URL doc = null;
+		DocMirror docMirror = null;
+		if (docBase == null) {
+			// Only the source can be looked up
+		} else if (!docBase.startsWith("http://") && !docBase.startsWith("https://")) {
+			if (ZipSource.isArchive(docBase)) {
+				// A -javadoc.jar
+				doc = new URL("jar:file:" + new File(docBase).getAbsolutePath() + "!/");
+			} else {
+				doc = new URL("file://" + docBase);
+			}
 		} else {
-			this.docBase = new URL(docBase);
+			doc = new URL(docBase);
+			if (mirrorSize > 0) {
+				docMirror = new DocMirror(doc, mirrorSize);
+			}
 		}
+		this.sourceBase = source;
+		this.docBase = doc;
+		this.mirror = docMirror;
+		this.repository = null;
+	}
+
+	/**
+	 * Instantiates a new Reference to the artifacts of a Maven repository or
+	 * classpath. Such a Reference has no source or documentation base of its
+	 * own; each class is looked up in the Reference of its artifact.
+	 * 
+	 * @param repository
+	 *            The repository
+	 * @see MavenRepository#getReference(String)
+	 */
+	public Reference(MavenRepository repository) {
+		this.sourceBase = null;
+		this.docBase = null;
+		this.mirror = null;
+		this.repository = repository;
+	}
+
+	/**
+	 * Gets the Maven repository this Reference is for.
+	 * 
+	 * @return The repository, or null if this Reference has its own source
+	 *         and documentation
+	 */
+	public MavenRepository getRepository() {
+		return repository;
 	}
 
 	/**
@@ -61,6 +164,15 @@ public class Reference {
 		return sourceBase;
 	}
 
+	/**
+	 * Tests if the source files of this Reference are read from a zip archive.
+	 * 
+	 * @return True if the source base is a zip or jar file
+	 */
+	public boolean hasSourceArchive() {
+		return sourceBase != null && sourceBase.getProtocol().equals("jar");
+	}
+
 	/**
 	 * Gets the base documentation URL
 	 * 
@@ -71,22 +183,120 @@ public class Reference {
 	}
 
 	/**
-	 * Gets a URL based on the given class name and lookup type.
+	 * Gets the local mirror of the documentation.
+	 * 
+	 * @return The mirror, or null if the documentation isn't mirrored
+	 */
+	public DocMirror getMirror() {
+		return mirror;
+	}
+
+	/**
+	 * Gets the package list of the documentation, downloading it the first
+	 * time. If it can't be downloaded (when offline, say), null is returned
+	 * and it isn't tried again for {@link PackageList#FAILURE_TTL}.
+	 * 
+	 * @param rebuild
+	 *            True to download the list again even if it is saved
+	 * @return The package list, or null if there is none
+	 * @see PackageList
+	 */
+	public synchronized PackageList getPackageList(boolean rebuild) {
+		if (docBase == null) {
+			return null;
+		}
+		if (!packagesLoaded || rebuild) {
+			try {
+				packages = PackageList.forDocumentation(docBase, rebuild);
+			} catch (IOException e) {
+				packages = null;
+			}
+			packagesLoaded = true;
+		}
+		return packages;
+	}
+
+	/**
+	 * Gets the package list of the documentation if it has been downloaded
+	 * already. Unlike {@link #getPackageList(boolean)}, this never asks the
+	 * documentation host, so it can be used when documents aren't checked.
+	 * 
+	 * @return The package list, or null if it hasn't been downloaded or there
+	 *         is none
+	 */
+	public synchronized PackageList getSavedPackageList() {
+		if (packagesLoaded || savedLooked || docBase == null) {
+			return packages;
+		}
+		// Looked for once, so building URLs doesn't touch the disk each time
+		savedLooked = true;
+		try {
+			PackageList saved = PackageList.ifSaved(docBase);
+			if (saved != null) {
+				packages = saved;
+				packagesLoaded = true;
+			}
+			return saved;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the path of a class's documentation page relative to the
+	 * documentation base. If the documentation is split into modules, the
+	 * path starts with the module's directory. That is only known once the
+	 * package list has been downloaded with {@link #getPackageList(boolean)}.
+	 * 
+	 * @param clazz
+	 *            The fully qualified name of the class. Nested classes may be
+	 *            separated from their enclosing class with a '$'.
+	 * @return The relative path, such as <code>java/lang/Object.html</code>,
+	 *         <code>java/util/Map.Entry.html</code> or
+	 *         <code>java.base/java/lang/Object.html</code>
+	 */
+	public String getDocPath(String clazz) {
+		PackageList list = getSavedPackageList();
+		String path = list == null ? null : list.getDocPath(clazz);
+		return path != null ? path : clazz.replace(".", "/").replace("$", ".") + ".html";
+	}
+
+	/**
+	 * Gets a URL based on the given class name and lookup type. If the
+	 * documentation is mirrored and the page has been mirrored already, the
+	 * URL of the local copy is returned.
 	 * 
 	 * @param clazz
 	 *            The name of the class to get a URL for
 	 * @param type
 	 *            The LookupType to use to decide the base directory of of the
 	 *            URL
-	 * @return A URL that represents the given class name and LookupType
+	 * @return A URL that represents the given class name and LookupType, or
+	 *         null if this Reference has no source or documentation for it
 	 */
 	public URL getFor(String clazz, LookupType type) {
+		if (type == LookupType.DOC && mirror != null) {
+			URL local = mirror.getLocal(getDocPath(clazz));
+			if (local != null) {
+				return local;
+			}
+		}
+
+		URL baseUrl = type == LookupType.SOURCE ? sourceBase : docBase;
+		if (baseUrl == null) {
+			return null;
+		}
 		try {
-			String base = type == LookupType.SOURCE ? sourceBase.toExternalForm() : docBase.toExternalForm();
+			String base = baseUrl.toExternalForm();
 			if (!base.endsWith(File.separator)) {
 				base += File.separator;
 			}
-			return new URL(base + clazz.replace(".", "/") + ((type == LookupType.SOURCE) ? ".java" : ".html"));
+			if (type == LookupType.DOC) {
+				return new URL(base + getDocPath(clazz));
+			}
+			// Nested classes are in the source file of their top level class
+			int nested = clazz.indexOf('$');
+			return new URL(base + (nested < 0 ? clazz : clazz.substring(0, nested)).replace(".", "/") + ".java");
 		} catch (MalformedURLException e) {
 			e.printStackTrace();
 		}
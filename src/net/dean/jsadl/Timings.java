@@ -0,0 +1,225 @@
+package net.dean.jsadl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Timings.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Records how long each phase of a lookup took, along with values describing
+ * what happened in it (such as the HTTP status of an availability check).
+ * Phases are timed with {@link #start()} and {@link #stop(String, long)}; a
+ * phase that runs more than once adds up.
+ * <p>
+ * A disabled Timings ignores everything, so code can record unconditionally.
+ * Timings are thread safe.
+ */
+public class Timings {
+	/**
+	 * A Timings that records nothing
+	 */
+	public static final Timings DISABLED = new Timings(false);
+
+	private final boolean enabled;
+
+	/**
+	 * When this Timings was created, in nanoseconds
+	 */
+	private final long created;
+
+	/**
+	 * The total time of each phase in nanoseconds, in the order the phases
+	 * first finished
+	 */
+	private final Map<String, Long> phases = new LinkedHashMap<>();
+
+	/**
+	 * Counters and other values, in the order they were first recorded
+	 */
+	private final Map<String, Object> values = new LinkedHashMap<>();
+
+	/**
+	 * Instantiates a new Timings
+	 * 
+	 * @param enabled
+	 *            False to ignore everything that is recorded
+	 */
+	public Timings(boolean enabled) {
+		this.enabled = enabled;
+		this.created = System.nanoTime();
+	}
+
+	/**
+	 * Tests if this Timings records anything.
+	 * 
+	 * @return True if enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Records the time from the start of the JVM to now as the "jvm" phase.
+	 * This is only accurate to the millisecond.
+	 */
+	public void recordJvmStartup() {
+		if (!enabled) {
+			return;
+		}
+		long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+		add("jvm", millis * 1000000);
+	}
+
+	/**
+	 * Starts timing a phase.
+	 * 
+	 * @return The value to pass to {@link #stop(String, long)}
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Stops timing a phase, adding the time since it started to its total.
+	 * 
+	 * @param phase
+	 *            The name of the phase, such as "config"
+	 * @param start
+	 *            What {@link #start()} returned when the phase started
+	 */
+	public void stop(String phase, long start) {
+		if (enabled) {
+			add(phase, System.nanoTime() - start);
+		}
+	}
+
+	private synchronized void add(String phase, long nanos) {
+		Long total = phases.get(phase);
+		phases.put(phase, total == null ? nanos : total + nanos);
+	}
+
+	/**
+	 * Adds to a counter.
+	 * 
+	 * @param name
+	 *            The name of the counter, such as "check.bytes"
+	 * @param amount
+	 *            The amount to add
+	 */
+	public synchronized void count(String name, long amount) {
+		if (!enabled) {
+			return;
+		}
+		Object total = values.get(name);
+		values.put(name, total instanceof Long ? (Long) total + amount : amount);
+	}
+
+	/**
+	 * Sets a value, replacing the old one.
+	 * 
+	 * @param name
+	 *            The name of the value, such as "check.cache"
+	 * @param value
+	 *            A String or a Number
+	 */
+	public synchronized void set(String name, Object value) {
+		if (enabled) {
+			values.put(name, value);
+		}
+	}
+
+	/**
+	 * Formats the timings as a table for people to read.
+	 * 
+	 * @return The table, ending in a line break
+	 */
+	public synchronized String toText() {
+		StringBuilder sb = new StringBuilder("Timings:\n");
+		for (Map.Entry<String, Long> phase : phases.entrySet()) {
+			sb.append(String.format("  %-10s %10.3f ms\n", phase.getKey(), phase.getValue() / 1e6));
+		}
+		sb.append(String.format("  %-10s %10.3f ms\n", "total", getTotal() / 1e6));
+		for (Map.Entry<String, Object> value : values.entrySet()) {
+			sb.append(String.format("  %s = %s\n", value.getKey(), value.getValue()));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Formats the timings as a single line of JSON, like this:
+	 * 
+	 * <pre>
+	 * {"time":1381000000000,"totalNanos":1200,"phases":{"config":400,"check":800},"values":{"check.status":200}}
+	 * </pre>
+	 * 
+	 * @return The JSON object
+	 */
+	public synchronized String toJson() {
+		StringBuilder sb = new StringBuilder("{\"time\":").append(System.currentTimeMillis());
+		sb.append(",\"totalNanos\":").append(getTotal());
+		sb.append(",\"phases\":{");
+		String separator = "";
+		for (Map.Entry<String, Long> phase : phases.entrySet()) {
+			sb.append(separator).append(Json.quote(phase.getKey())).append(':').append(phase.getValue());
+			separator = ",";
+		}
+		sb.append("},\"values\":{");
+		separator = "";
+		for (Map.Entry<String, Object> value : values.entrySet()) {
+			sb.append(separator).append(Json.quote(value.getKey())).append(':');
+			sb.append(value.getValue() instanceof Number ? value.getValue().toString() : Json.quote(String
+					.valueOf(value.getValue())));
+			separator = ",";
+		}
+		return sb.append("}}").toString();
+	}
+
+	/**
+	 * Gets the time from the JVM's start (if it was recorded) or the creation
+	 * of this Timings until now.
+	 */
+	private long getTotal() {
+		Long jvm = phases.get("jvm");
+		return System.nanoTime() - created + (jvm == null ? 0 : jvm);
+	}
+
+	/**
+	 * Appends the timings as a line of JSON to a log. The log is locked while
+	 * writing, so several JSaDL processes can share one.
+	 * 
+	 * @param log
+	 *            The file to append to
+	 * @throws IOException
+	 *             If the log could not be written
+	 */
+	public void appendTo(File log) throws IOException {
+		File parent = log.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.isDirectory()) {
+			parent.mkdirs();
+		}
+		ByteBuffer line = ByteBuffer.wrap((toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+		try (FileChannel channel = new FileOutputStream(log, true).getChannel()) {
+			FileLock lock = channel.lock();
+			try {
+				while (line.hasRemaining()) {
+					channel.write(line);
+				}
+			} finally {
+				lock.release();
+			}
+		}
+	}
+}
@@ -0,0 +1,276 @@
+package net.dean.jsadl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+
+/*
+ * WebClient.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * The one place JSaDL talks to documentation hosts. Availability checks are
+ * HEAD requests, so page bodies are never downloaded just to learn a status
+ * code; hosts that reject HEAD are asked with a GET for a single byte instead,
+ * and remembered so they aren't sent HEAD again. Downloads ask for gzip.
+ * <p>
+ * Connections are kept alive and reused by the JVM as long as every response
+ * is closed, which {@link Response#close()} does without reading more than
+ * what's left of a small body. Every request has a connect and read timeout.
+ * HTTP/2 is not available to <code>HttpURLConnection</code>, so requests use
+ * HTTP/1.1.
+ * <p>
+ * WebClients are thread safe.
+ */
+public class WebClient {
+	/**
+	 * How long to wait for a connection, in milliseconds
+	 */
+	public static final int CONNECT_TIMEOUT = 10000;
+
+	/**
+	 * How long to wait for a response once connected, in milliseconds
+	 */
+	public static final int READ_TIMEOUT = 30000;
+
+	/**
+	 * How many idle connections to keep per host, unless
+	 * <code>http.maxConnections</code> is set. This matches the most
+	 * <code>--batch</code> threads that check online documents by default.
+	 */
+	private static final int MAX_IDLE_CONNECTIONS = 32;
+
+	/**
+	 * The most of an unread body that is skipped to keep its connection
+	 */
+	private static final int MAX_SKIPPED = 64 * 1024;
+
+	static {
+		// Must be set before the JVM's keep-alive cache is first used
+		if (System.getProperty("http.maxConnections") == null) {
+			System.setProperty("http.maxConnections", Integer.toString(MAX_IDLE_CONNECTIONS));
+		}
+	}
+
+	private static final WebClient DEFAULT = new WebClient();
+
+	/**
+	 * Hosts (as "host:port") that answered a HEAD request with "method not
+	 * allowed" or "not implemented"
+	 */
+	private final ConcurrentMap<String, Boolean> rejectsHead = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the WebClient shared by all of JSaDL.
+	 * 
+	 * @return The shared WebClient
+	 */
+	public static WebClient getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Asks for the status of a document without downloading it. A host that
+	 * doesn't allow HEAD is asked for the first byte of the document instead,
+	 * and a partial response is reported as 200.
+	 * 
+	 * @param url
+	 *            The http or https URL of the document
+	 * @param headers
+	 *            Extra request headers, such as <code>If-None-Match</code>, or
+	 *            null
+	 * @return The response, which has no body
+	 * @throws IOException
+	 *             If the host could not be reached
+	 */
+	public Response head(URL url, Map<String, String> headers) throws IOException {
+		String host = url.getHost() + ":" + (url.getPort() < 0 ? url.getDefaultPort() : url.getPort());
+		if (!rejectsHead.containsKey(host)) {
+			Response response = send(url, "HEAD", headers);
+			int status = response.getStatus();
+			if (status != HttpURLConnection.HTTP_BAD_METHOD && status != HttpURLConnection.HTTP_NOT_IMPLEMENTED) {
+				response.close();
+				return response;
+			}
+			response.close();
+			rejectsHead.put(host, true);
+		}
+
+		HttpURLConnection conn = open(url, "GET", headers);
+		conn.setRequestProperty("Range", "bytes=0-0");
+		Response response = new Response(conn, false);
+		response.close();
+		return response;
+	}
+
+	/**
+	 * Downloads a document, asking for it to be compressed.
+	 * 
+	 * @param url
+	 *            The http or https URL of the document
+	 * @param headers
+	 *            Extra request headers, or null
+	 * @return The response. It must be closed.
+	 * @throws IOException
+	 *             If the host could not be reached
+	 */
+	public Response get(URL url, Map<String, String> headers) throws IOException {
+		return send(url, "GET", headers);
+	}
+
+	private Response send(URL url, String method, Map<String, String> headers) throws IOException {
+		HttpURLConnection conn = open(url, method, headers);
+		if (method.equals("GET")) {
+			conn.setRequestProperty("Accept-Encoding", "gzip");
+		}
+		return new Response(conn, method.equals("GET"));
+	}
+
+	private static HttpURLConnection open(URL url, String method, Map<String, String> headers) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		conn.setConnectTimeout(CONNECT_TIMEOUT);
+		conn.setReadTimeout(READ_TIMEOUT);
+		conn.setRequestMethod(method);
+		conn.setRequestProperty("User-Agent", "JSaDL");
+		if (headers != null) {
+			for (Map.Entry<String, String> header : headers.entrySet()) {
+				conn.setRequestProperty(header.getKey(), header.getValue());
+			}
+		}
+		return conn;
+	}
+
+	/**
+	 * The response to a request. Closing it gives the connection back to be
+	 * reused.
+	 */
+	public static class Response implements Closeable {
+		private final HttpURLConnection conn;
+		private final int code;
+		private final int status;
+		private final boolean hasBody;
+		private InputStream body;
+
+		Response(HttpURLConnection conn, boolean hasBody) throws IOException {
+			this.conn = conn;
+			this.code = conn.getResponseCode();
+			int status = code;
+			if (status == HttpURLConnection.HTTP_PARTIAL || status == 416) {
+				// Asked for one byte with a ranged GET, and the document
+				// exists (416 means it is empty)
+				status = HttpURLConnection.HTTP_OK;
+			}
+			this.status = status;
+			this.hasBody = hasBody;
+		}
+
+		/**
+		 * Gets the HTTP status code. Partial responses to ranged requests are
+		 * reported as 200.
+		 * 
+		 * @return The status code
+		 */
+		public int getStatus() {
+			return status;
+		}
+
+		/**
+		 * Gets a response header.
+		 * 
+		 * @param name
+		 *            The name of the header
+		 * @return Its value, or null if the response doesn't have it
+		 */
+		public String getHeader(String name) {
+			return conn.getHeaderField(name);
+		}
+
+		/**
+		 * Gets the length of the whole document, as reported by the host.
+		 * 
+		 * @return The length in bytes, or -1 if unknown
+		 */
+		public long getLength() {
+			String range = conn.getHeaderField("Content-Range");
+			if (range != null && range.lastIndexOf('/') >= 0) {
+				try {
+					return Long.parseLong(range.substring(range.lastIndexOf('/') + 1).trim());
+				} catch (NumberFormatException e) {
+					return -1;
+				}
+			}
+			String length = conn.getHeaderField("Content-Length");
+			try {
+				return length == null ? -1 : Long.parseLong(length.trim());
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+
+		/**
+		 * Gets the decompressed body of a successful response to
+		 * {@link WebClient#get(URL, Map)}.
+		 * 
+		 * @return The body
+		 * @throws IOException
+		 *             If the request has no body, or the body could not be
+		 *             read
+		 */
+		public synchronized InputStream getBody() throws IOException {
+			if (!hasBody) {
+				throw new IOException("A " + conn.getRequestMethod() + " request has no body");
+			}
+			if (body == null) {
+				body = conn.getInputStream();
+				if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+					body = new GZIPInputStream(body);
+				}
+			}
+			return body;
+		}
+
+		/**
+		 * Finishes with the response. A connection can only be reused once its
+		 * response has been read to the end, so what's left of the body is
+		 * skipped if it is small, and the connection is dropped otherwise.
+		 */
+		@Override
+		public synchronized void close() {
+			try {
+				InputStream in = body;
+				if (in == null) {
+					in = code < 400 ? conn.getInputStream() : conn.getErrorStream();
+				}
+				if (in == null) {
+					return;
+				}
+				try {
+					long skipped = 0;
+					byte[] buffer = new byte[4096];
+					int read;
+					while ((read = in.read(buffer)) != -1) {
+						skipped += read;
+						if (skipped > MAX_SKIPPED) {
+							conn.disconnect();
+							return;
+						}
+					}
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				// Nothing to give back
+				conn.disconnect();
+			}
+		}
+	}
+}
@@ -0,0 +1,366 @@
+package net.dean.jsadl;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import net.dean.jsadl.index.ClassIndex;
+import net.dean.jsadl.index.MappedTable;
+
+/*
+ * ZipSource.java
+ *
+ * Part of project JSaDL (net.dean.jsadl)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Reads source files straight out of a zip archive such as a JDK's
+ * <code>lib/src.zip</code> or a library's <code>-sources.jar</code>, without
+ * extracting it.
+ * <p>
+ * The first time an archive is opened its central directory is parsed and
+ * saved as a {@link MappedTable} in the "zip" cache directory. After that,
+ * finding an entry is a binary search over the mapped index and reading it is
+ * a single seek into the archive. Entries are keyed by their path within the
+ * package hierarchy, so <code>java.base/java/util/HashMap.java</code> in a
+ * JDK 9+ archive can be found as <code>java/util/HashMap.java</code>.
+ */
+public class ZipSource {
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+	private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+	private static final int LOCAL_HEADER = 0x04034b50;
+	private static final int LOCAL_HEADER_LENGTH = 30;
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	/**
+	 * Archives that have already been opened by this process
+	 */
+	private static final Map<File, ZipSource> OPEN = new ConcurrentHashMap<>();
+
+	/**
+	 * The archive itself
+	 */
+	private final File archive;
+
+	/**
+	 * Maps the path of every entry to
+	 * "local header offset:compressed size:method"
+	 */
+	private final MappedTable directory;
+
+	/**
+	 * The size and modification time of the archive when it was opened
+	 */
+	private final long length;
+	private final long lastModified;
+
+	private ZipSource(File archive, MappedTable directory) {
+		this.archive = archive;
+		this.directory = directory;
+		this.length = archive.length();
+		this.lastModified = archive.lastModified();
+	}
+
+	/**
+	 * Opens an archive, reading its central directory from the cache if it has
+	 * been opened before. An archive that was replaced since this process
+	 * opened it is opened again.
+	 * 
+	 * @param archive
+	 *            The zip or jar file
+	 * @return A ZipSource for the archive
+	 * @throws IOException
+	 *             If the archive or its cached index could not be read
+	 */
+	public static ZipSource open(File archive) throws IOException {
+		archive = archive.getAbsoluteFile();
+		ZipSource source = OPEN.get(archive);
+		if (source == null || source.length != archive.length() || source.lastModified != archive.lastModified()) {
+			File indexFile = indexFileFor(archive);
+			if (!indexFile.isFile()) {
+				buildIndex(archive, indexFile);
+			}
+			source = new ZipSource(archive, MappedTable.open(indexFile));
+			OPEN.put(archive, source);
+		}
+		return source;
+	}
+
+	/**
+	 * Tests if the given path names a zip archive rather than a directory.
+	 * 
+	 * @param path
+	 *            The path to test
+	 * @return True if the path ends with .zip or .jar
+	 */
+	public static boolean isArchive(String path) {
+		String lower = path.toLowerCase();
+		return lower.endsWith(".zip") || lower.endsWith(".jar");
+	}
+
+	/**
+	 * Gets the archive that a <code>jar:</code> URL points into.
+	 * 
+	 * @param url
+	 *            A URL such as <code>jar:file:/opt/jdk/lib/src.zip!/java/lang/Object.java</code>
+	 * @return The archive, such as <code>/opt/jdk/lib/src.zip</code>
+	 */
+	public static File archiveOf(URL url) {
+		String file = url.getFile();
+		int separator = file.indexOf("!/");
+		if (separator >= 0) {
+			file = file.substring(0, separator);
+		}
+		if (file.startsWith("file:")) {
+			file = file.substring("file:".length());
+		}
+		return new File(file);
+	}
+
+	/**
+	 * Gets the path of the entry that a <code>jar:</code> URL points to.
+	 * 
+	 * @param url
+	 *            A URL such as <code>jar:file:/opt/jdk/lib/src.zip!/java/lang/Object.java</code>
+	 * @return The entry path, such as <code>java/lang/Object.java</code>
+	 */
+	public static String entryOf(URL url) {
+		String file = url.getFile();
+		int separator = file.indexOf("!/");
+		return separator < 0 ? "" : file.substring(separator + 2);
+	}
+
+	/**
+	 * Gets the file that the cached central directory of an archive is stored
+	 * in. The name depends on the archive's size and modification time, so a
+	 * changed archive is indexed again.
+	 * 
+	 * @param archive
+	 *            The archive
+	 * @return The index file, which may not exist yet
+	 */
+	public static File indexFileFor(File archive) {
+		String key = Caches.keyFor(archive.getAbsolutePath() + ':' + archive.length() + ':' + archive.lastModified());
+		return new File(Caches.getDirectory("zip"), key + ".cd");
+	}
+
+	/**
+	 * Parses the central directory of an archive and writes it to an index
+	 * file.
+	 */
+	private static void buildIndex(File archive, File indexFile) throws IOException {
+		MappedTable.Builder builder = new MappedTable.Builder().metadata(archive.getAbsolutePath());
+		try (RandomAccessFile raf = new RandomAccessFile(archive, "r")) {
+			// The end of central directory record is at least 22 bytes long
+			// and may be followed by a comment of up to 65535 bytes
+			int tailLength = (int) Math.min(raf.length(), 22 + 0xFFFF);
+			ByteBuffer tail = read(raf, raf.length() - tailLength, tailLength);
+			int end = -1;
+			for (int i = tailLength - 22; i >= 0; i--) {
+				if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+					end = i;
+					break;
+				}
+			}
+			if (end < 0) {
+				throw new IOException(archive.getAbsolutePath() + " is not a zip archive");
+			}
+
+			int entries = tail.getShort(end + 10) & 0xFFFF;
+			long size = tail.getInt(end + 12) & 0xFFFFFFFFL;
+			long offset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+			if (entries == 0xFFFF || size == 0xFFFFFFFFL || offset == 0xFFFFFFFFL) {
+				throw new IOException("ZIP64 archives are not supported: " + archive.getAbsolutePath());
+			}
+
+			ByteBuffer cd = read(raf, offset, (int) size);
+			int position = 0;
+			for (int i = 0; i < entries; i++) {
+				if (cd.getInt(position) != CENTRAL_DIRECTORY_ENTRY) {
+					throw new IOException("Corrupt central directory in " + archive.getAbsolutePath());
+				}
+				int method = cd.getShort(position + 10) & 0xFFFF;
+				long compressedSize = cd.getInt(position + 20) & 0xFFFFFFFFL;
+				int nameLength = cd.getShort(position + 28) & 0xFFFF;
+				int extraLength = cd.getShort(position + 30) & 0xFFFF;
+				int commentLength = cd.getShort(position + 32) & 0xFFFF;
+				long localOffset = cd.getInt(position + 42) & 0xFFFFFFFFL;
+
+				byte[] nameBytes = new byte[nameLength];
+				cd.position(position + 46);
+				cd.get(nameBytes);
+				String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+				if (!name.endsWith("/")) {
+					builder.add(toPackagePath(name), localOffset + ":" + compressedSize + ":" + method);
+				}
+				position += 46 + nameLength + extraLength + commentLength;
+			}
+		}
+		builder.write(indexFile);
+	}
+
+	/**
+	 * Removes a leading module directory from an entry name.
+	 */
+	private static String toPackagePath(String name) {
+		int slash = name.indexOf('/');
+		if (slash > 0 && name.lastIndexOf('.', slash) > 0) {
+			return name.substring(slash + 1);
+		}
+		return name;
+	}
+
+	private static ByteBuffer read(RandomAccessFile raf, long offset, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		raf.seek(offset);
+		raf.readFully(bytes);
+		return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Gets the archive this ZipSource reads from.
+	 * 
+	 * @return The archive
+	 */
+	public File getArchive() {
+		return archive;
+	}
+
+	/**
+	 * Gets the cached central directory of the archive. Keys are entry paths
+	 * relative to the package hierarchy.
+	 * 
+	 * @return The central directory
+	 */
+	public MappedTable getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Tests if the archive contains an entry with the given path.
+	 * 
+	 * @param path
+	 *            The path of the entry, such as
+	 *            <code>java/lang/Object.java</code>
+	 * @return True if the entry exists
+	 */
+	public boolean contains(String path) {
+		return !directory.get(path).isEmpty();
+	}
+
+	/**
+	 * Opens a stream that decompresses the given entry.
+	 * 
+	 * @param path
+	 *            The path of the entry, such as
+	 *            <code>java/lang/Object.java</code>
+	 * @return A stream of the entry's contents, or null if there is no such
+	 *         entry
+	 * @throws IOException
+	 *             If the archive could not be read
+	 */
+	public InputStream openStream(String path) throws IOException {
+		List<String> matches = directory.get(path);
+		if (matches.isEmpty()) {
+			return null;
+		}
+
+		String[] parts = matches.get(0).split(":");
+		long localOffset = Long.parseLong(parts[0]);
+		int compressedSize = Integer.parseInt(parts[1]);
+		int method = Integer.parseInt(parts[2]);
+
+		byte[] data = new byte[compressedSize];
+		try (RandomAccessFile raf = new RandomAccessFile(archive, "r")) {
+			ByteBuffer header = read(raf, localOffset, LOCAL_HEADER_LENGTH);
+			if (header.getInt(0) != LOCAL_HEADER) {
+				throw new IOException("Corrupt entry " + path + " in " + archive.getAbsolutePath()
+						+ ". Delete " + indexFileFor(archive).getAbsolutePath() + " and try again.");
+			}
+			// The local extra field may differ from the central directory's
+			int skip = (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+			raf.seek(localOffset + LOCAL_HEADER_LENGTH + skip);
+			raf.readFully(data);
+		}
+
+		switch (method) {
+		case STORED:
+			return new ByteArrayInputStream(data);
+		case DEFLATED:
+			return new InflaterInputStream(new ByteArrayInputStream(data), new Inflater(true));
+		default:
+			throw new IOException("Unsupported compression method " + method + " for " + path);
+		}
+	}
+
+	/**
+	 * Writes a single entry to the "extracted" cache directory so that it can
+	 * be handed to a viewer. If the entry was already extracted from the
+	 * current version of the archive, the existing copy is reused.
+	 * 
+	 * @param path
+	 *            The path of the entry
+	 * @return The extracted file, or null if there is no such entry
+	 * @throws IOException
+	 *             If the entry could not be read or written
+	 */
+	public File extract(String path) throws IOException {
+		File dir = new File(Caches.getDirectory("extracted"), indexFileFor(archive).getName().replace(".cd", ""));
+		File target = new File(dir, path);
+		if (target.isFile()) {
+			return target;
+		}
+
+		InputStream in = openStream(path);
+		if (in == null) {
+			return null;
+		}
+		target.getParentFile().mkdirs();
+		// Other threads and processes may be extracting the same entry
+		File temp = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+		try (InputStream source = in; OutputStream out = new FileOutputStream(temp)) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = source.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		}
+		Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return target;
+	}
+
+	/**
+	 * Lists the fully qualified names of every class in the archive.
+	 * 
+	 * @return The class names, unsorted
+	 */
+	public List<String> getClassNames() {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < directory.size(); i++) {
+			String name = ClassIndex.toClassName(directory.keyAt(i));
+			if (name != null) {
+				names.add(name);
+			}
+		}
+		return names;
+	}
+}
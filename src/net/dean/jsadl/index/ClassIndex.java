@@ -0,0 +1,270 @@
+package net.dean.jsadl.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import net.dean.jsadl.Caches;
+import net.dean.jsadl.Reference;
+import net.dean.jsadl.ZipSource;
+
+/*
+ * ClassIndex.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Maps simple class names (<code>HashMap</code>) to fully qualified names (
+ * <code>java.util.HashMap</code>) for a single {@link Reference}. The index is
+ * built from the Reference's source directory or archive and is saved as a
+ * {@link MappedTable} in the "index" cache directory, so later runs only have
+ * to map the file and do a binary search.
+ */
+public class ClassIndex {
+	/**
+	 * The extension of class index files
+	 */
+	public static final String EXTENSION = ".classes";
+
+	/**
+	 * The table that maps simple names to fully qualified names
+	 */
+	private final MappedTable table;
+
+	private ClassIndex(MappedTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * Gets the file that the class index of the given Reference is stored in.
+	 * 
+	 * @param ref
+	 *            The Reference
+	 * @return The index file, which may not exist yet
+	 */
+	public static File fileFor(Reference ref) {
+		return new File(Caches.getDirectory("index"), Caches.keyFor(ref.getSourceBase()) + EXTENSION);
+	}
+
+	/**
+	 * Opens the class index of the given Reference, building it first if it
+	 * does not exist yet.
+	 * 
+	 * @param ref
+	 *            The Reference to get the index of
+	 * @return The class index
+	 * @throws IOException
+	 *             If the index could not be read or built
+	 */
+	public static ClassIndex forReference(Reference ref) throws IOException {
+		File file = fileFor(ref);
+		if (!file.isFile() || !isCurrent(ref, file)) {
+			return build(ref);
+		}
+		MappedTable table = MappedTable.open(file);
+		if (!CompletionIndex.fileFor(file).isFile()) {
+			// Built before completions were kept
+			List<String> classes = new ArrayList<>(table.size());
+			for (int i = 0; i < table.size(); i++) {
+				classes.add(table.valueAt(i));
+			}
+			CompletionIndex.write(classes, file);
+		}
+		return new ClassIndex(table);
+	}
+
+	/**
+	 * Tests if no source file was added or removed since the index was built,
+	 * which is the case if no directory has changed (or, for archives, the
+	 * archive hasn't changed).
+	 */
+	private static boolean isCurrent(Reference ref, File file) throws IOException {
+		SourceManifest manifest = SourceManifest.read(file);
+		if (manifest == null) {
+			// Built before manifests were kept
+			return false;
+		}
+		if (!canIndex(ref)) {
+			// The source is gone, so keep what there is
+			return true;
+		}
+		if (ref.hasSourceArchive()) {
+			return manifest.isCurrent("", ZipSource.archiveOf(ref.getSourceBase()));
+		}
+		return manifest.isCurrent(new File(ref.getSourceBase().getFile()));
+	}
+
+	/**
+	 * Tests if the source base of a Reference can be indexed, which is the
+	 * case if it is a local directory or zip archive.
+	 * 
+	 * @param ref
+	 *            The Reference to test
+	 * @return True if a class index can be built for the Reference
+	 */
+	public static boolean canIndex(Reference ref) {
+		URL base = ref.getSourceBase();
+		if (base == null) {
+			return false;
+		}
+		if (ref.hasSourceArchive()) {
+			return ZipSource.archiveOf(base).isFile();
+		}
+		return base.getProtocol().equals("file") && new File(base.getFile()).isDirectory();
+	}
+
+	/**
+	 * Builds (or rebuilds) the class index of the given Reference. Source
+	 * directories are walked with package directories listed in parallel;
+	 * source archives are indexed from their central directory.
+	 * 
+	 * @param ref
+	 *            The Reference to index
+	 * @return The new class index
+	 * @throws IOException
+	 *             If the source base can't be indexed or the index could not
+	 *             be written
+	 */
+	public static ClassIndex build(Reference ref) throws IOException {
+		if (!canIndex(ref)) {
+			throw new IOException("Only local source directories and archives can be indexed");
+		}
+
+		Collection<String> classes;
+		String root;
+		SourceManifest manifest = new SourceManifest();
+		if (ref.hasSourceArchive()) {
+			ZipSource zip = ZipSource.open(ZipSource.archiveOf(ref.getSourceBase()));
+			classes = zip.getClassNames();
+			root = zip.getArchive().getAbsolutePath();
+			manifest.record("", zip.getArchive(), null);
+		} else {
+			File dir = new File(ref.getSourceBase().getFile());
+			Queue<String> found = new ConcurrentLinkedQueue<>();
+			invoke(new DirectoryScan(dir, "", found, manifest));
+			classes = found;
+			root = dir.getAbsolutePath();
+		}
+
+		MappedTable.Builder builder = new MappedTable.Builder().metadata(root);
+		for (String name : classes) {
+			builder.add(name.substring(name.lastIndexOf('.') + 1), name);
+		}
+		File file = fileFor(ref);
+		builder.write(file);
+		manifest.write(file);
+		CompletionIndex.write(classes, file);
+		return new ClassIndex(MappedTable.open(file));
+	}
+
+	/**
+	 * Runs a task that builds an index on a pool of its own. The pool is shut
+	 * down afterwards, so that a daemon or server that rebuilds indexes
+	 * doesn't keep the threads of every pool it used.
+	 */
+	static <T> T invoke(ForkJoinTask<T> task) {
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return pool.invoke(task);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Converts the path of a source file relative to the source base into a
+	 * fully qualified class name. Module directories (like
+	 * <code>java.base/</code> in JDK 9+ sources) are skipped, since package
+	 * directories never contain a dot.
+	 * 
+	 * @param path
+	 *            The relative path, using '/' as the separator
+	 * @return The fully qualified class name, or null if the path does not
+	 *         name a class (such as <code>package-info.java</code>)
+	 */
+	public static String toClassName(String path) {
+		if (!path.endsWith(".java") || path.endsWith("package-info.java") || path.endsWith("module-info.java")) {
+			return null;
+		}
+		int slash = path.indexOf('/');
+		if (slash > 0 && path.lastIndexOf('.', slash) > 0) {
+			path = path.substring(slash + 1);
+		}
+		return path.substring(0, path.length() - ".java".length()).replace('/', '.');
+	}
+
+	/**
+	 * Finds every fully qualified class name with the given simple name.
+	 * 
+	 * @param simpleName
+	 *            The simple name of the class, such as <code>HashMap</code>
+	 * @return A list of fully qualified names, empty if there were none
+	 */
+	public List<String> resolve(String simpleName) {
+		return table.get(simpleName);
+	}
+
+	/**
+	 * Gets the table backing this index.
+	 * 
+	 * @return The table
+	 */
+	public MappedTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Lists one directory, recording its classes and forking a new task for
+	 * every subdirectory. Directories are added to the manifest, since a
+	 * class being added or removed changes its directory.
+	 */
+	private static class DirectoryScan extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final File dir;
+		private final String path;
+		private final Queue<String> classes;
+		private final SourceManifest manifest;
+
+		DirectoryScan(File dir, String path, Queue<String> classes, SourceManifest manifest) {
+			this.dir = dir;
+			this.path = path;
+			this.classes = classes;
+			this.manifest = manifest;
+		}
+
+		@Override
+		protected void compute() {
+			// Before listing, so a change while listing is seen next time
+			manifest.record(path, dir, null);
+			File[] children = dir.listFiles();
+			if (children == null) {
+				return;
+			}
+
+			List<DirectoryScan> subdirectories = new ArrayList<>();
+			for (File child : children) {
+				String childPath = path + child.getName();
+				if (child.isDirectory()) {
+					subdirectories.add(new DirectoryScan(child, childPath + "/", classes, manifest));
+				} else {
+					String name = toClassName(childPath);
+					if (name != null) {
+						classes.add(name);
+					}
+				}
+			}
+			invokeAll(subdirectories);
+		}
+	}
+}
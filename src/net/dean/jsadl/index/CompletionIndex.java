@@ -0,0 +1,284 @@
+package net.dean.jsadl.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.dean.jsadl.Caches;
+
+/*
+ * CompletionIndex.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Completes class and reference names for shells. Completing has to feel
+ * instant, so it can't parse configuration files or open indexes: instead,
+ * every time a {@link ClassIndex} is built its simple and fully qualified
+ * class names are written to a sorted text file in the "completions" cache
+ * directory, one per line, and every time a configuration is loaded its
+ * reference names are added to another one.
+ * <p>
+ * The files are sorted by their UTF-8 bytes, which is the order of the C
+ * locale, so shell scripts can search them directly with <code>look</code>
+ * and a completion doesn't have to start a JVM at all.
+ */
+public final class CompletionIndex {
+	/**
+	 * The extension of the files with class names
+	 */
+	public static final String EXTENSION = ".words";
+
+	/**
+	 * The name of the file with reference names
+	 */
+	public static final String REFERENCES = "references";
+
+	/**
+	 * Orders strings by their UTF-8 bytes, like <code>LC_ALL=C sort</code>
+	 */
+	private static final Comparator<String> BY_BYTES = new Comparator<String>() {
+
+		@Override
+		public int compare(String a, String b) {
+			return compareBytes(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+		}
+	};
+
+	private CompletionIndex() {
+		// Utility class
+	}
+
+	/**
+	 * Gets the file that the class names of a class index are written to.
+	 * 
+	 * @param classIndexFile
+	 *            The file of the class index
+	 * @return The file, which may not exist yet
+	 */
+	public static File fileFor(File classIndexFile) {
+		String name = classIndexFile.getName();
+		return new File(Caches.getDirectory("completions"), name.substring(0, name.lastIndexOf('.')) + EXTENSION);
+	}
+
+	/**
+	 * Writes the class names of a class index. Failing to write them is not
+	 * an error, the classes just can't be completed.
+	 * 
+	 * @param classNames
+	 *            The fully qualified names of the classes
+	 * @param classIndexFile
+	 *            The file of the class index
+	 */
+	public static void write(Collection<String> classNames, File classIndexFile) {
+		Set<String> words = new TreeSet<>(BY_BYTES);
+		for (String className : classNames) {
+			words.add(className);
+			words.add(className.substring(className.lastIndexOf('.') + 1));
+		}
+		write(fileFor(classIndexFile), words);
+	}
+
+	/**
+	 * Adds the names of the References of a configuration, if they haven't
+	 * been added yet. Names are never removed, since other configurations
+	 * may still have them.
+	 * 
+	 * @param names
+	 *            The names of the References
+	 */
+	public static void addReferences(Collection<String> names) {
+		File file = new File(Caches.getDirectory("completions"), REFERENCES);
+		Set<String> words = new TreeSet<>(BY_BYTES);
+		try {
+			if (file.isFile()) {
+				words.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+			}
+		} catch (IOException e) {
+			// Write it again
+		}
+		if (!words.addAll(names) && file.isFile()) {
+			// Mark them as added, for configurations read from a snapshot
+			file.setLastModified(System.currentTimeMillis());
+			return;
+		}
+		write(file, words);
+	}
+
+	/**
+	 * Gets when reference names were last added.
+	 * 
+	 * @return The modification time of the file with reference names, or 0
+	 *         if there is none
+	 */
+	public static long referencesModified() {
+		return new File(Caches.getDirectory("completions"), REFERENCES).lastModified();
+	}
+
+	/**
+	 * Completes a class name from every class index that has been built.
+	 * Fully qualified names are only completed up to the next '.', so that
+	 * <code>java.ut</code> completes to <code>java.util.</code> rather than
+	 * every class in it.
+	 * 
+	 * @param prefix
+	 *            What was typed
+	 * @return The completions, sorted
+	 * @throws IOException
+	 *             If a file could not be read
+	 */
+	public static List<String> completeClasses(String prefix) throws IOException {
+		Set<String> completions = new TreeSet<>(BY_BYTES);
+		File[] files = Caches.getDirectory("completions").listFiles();
+		if (files == null) {
+			return new ArrayList<>();
+		}
+		for (File file : files) {
+			if (!file.getName().endsWith(EXTENSION)) {
+				continue;
+			}
+			for (String word : find(file, prefix)) {
+				int dot = word.indexOf('.', prefix.length());
+				completions.add(dot < 0 ? word : word.substring(0, dot + 1));
+			}
+		}
+		return new ArrayList<>(completions);
+	}
+
+	/**
+	 * Completes a reference name from every configuration that has been
+	 * loaded.
+	 * 
+	 * @param prefix
+	 *            What was typed
+	 * @return The completions, sorted
+	 * @throws IOException
+	 *             If the file could not be read
+	 */
+	public static List<String> completeReferences(String prefix) throws IOException {
+		File file = new File(Caches.getDirectory("completions"), REFERENCES);
+		if (!file.isFile()) {
+			return new ArrayList<>();
+		}
+		return find(file, prefix);
+	}
+
+	/**
+	 * Finds the lines of a sorted file that start with a prefix, with a
+	 * binary search for the first of them.
+	 */
+	private static List<String> find(File file, String prefix) throws IOException {
+		List<String> found = new ArrayList<>();
+		ByteBuffer buffer;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			if (channel.size() == 0) {
+				return found;
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+
+		// Find the first line that isn't smaller than the prefix
+		int low = 0;
+		int high = buffer.limit();
+		while (low < high) {
+			int middle = lineStart(buffer, (low + high) >>> 1);
+			int end = lineEnd(buffer, middle);
+			if (compareBytes(line(buffer, middle, end), key) < 0) {
+				low = end + 1;
+			} else if (middle == low) {
+				break;
+			} else {
+				high = middle;
+			}
+		}
+
+		for (int position = low; position < buffer.limit();) {
+			int end = lineEnd(buffer, position);
+			byte[] line = line(buffer, position, end);
+			if (!startsWith(line, key)) {
+				break;
+			}
+			found.add(new String(line, StandardCharsets.UTF_8));
+			position = end + 1;
+		}
+		return found;
+	}
+
+	private static int lineStart(ByteBuffer buffer, int position) {
+		while (position > 0 && buffer.get(position - 1) != '\n') {
+			position--;
+		}
+		return position;
+	}
+
+	private static int lineEnd(ByteBuffer buffer, int position) {
+		while (position < buffer.limit() && buffer.get(position) != '\n') {
+			position++;
+		}
+		return position;
+	}
+
+	private static byte[] line(ByteBuffer buffer, int start, int end) {
+		byte[] line = new byte[end - start];
+		for (int i = 0; i < line.length; i++) {
+			line[i] = buffer.get(start + i);
+		}
+		return line;
+	}
+
+	private static boolean startsWith(byte[] line, byte[] prefix) {
+		if (line.length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (line[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int compareBytes(byte[] a, byte[] b) {
+		int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; i++) {
+			int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	private static void write(File file, Collection<String> words) {
+		try {
+			StringBuilder text = new StringBuilder();
+			for (String word : words) {
+				text.append(word).append('\n');
+			}
+			File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			try {
+				Files.write(temp.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				// Only left over if the write failed
+				temp.delete();
+			}
+		} catch (IOException e) {
+			// Read-only directory or similar, not worth bothering the user
+		}
+	}
+}
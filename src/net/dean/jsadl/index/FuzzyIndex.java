@@ -0,0 +1,641 @@
+package net.dean.jsadl.index;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/*
+ * FuzzyIndex.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Finds class names that are close to what was typed: camel case
+ * abbreviations (<code>CHM</code> for <code>ConcurrentHashMap</code>), typos (
+ * <code>HashMpa</code>) and parts of names (<code>Concurrent</code>).
+ * <p>
+ * The index maps every trigram of every name in a {@link ClassIndex}, and of
+ * the name's camel case initials, to the entries of the class index that
+ * contain it. A search only scores the names that share enough trigrams with
+ * the query, so it stays fast with hundreds of thousands of names. The index
+ * is saved next to the class index and is rebuilt whenever the class index
+ * changes.
+ * <p>
+ * The file layout is:
+ * 
+ * <pre>
+ * int    magic
+ * int    version
+ * long   length of the class index file
+ * long   last modified time of the class index file
+ * int    gram count
+ * long[] grams, sorted
+ * int[]  offset of every gram's postings, plus the end of the last
+ * byte[] postings: ascending class index entries, delta encoded as varints
+ * </pre>
+ */
+public class FuzzyIndex {
+	/**
+	 * The extension of fuzzy index files
+	 */
+	public static final String EXTENSION = ".fuzzy";
+
+	private static final int MAGIC = 0x4A534647; // "JSFG"
+	private static final int VERSION = 1;
+	private static final int HEADER_LENGTH = 28;
+
+	/**
+	 * Grams of initials are kept apart from grams of names by this bit
+	 */
+	private static final long INITIALS = 1L << 48;
+
+	/**
+	 * The most names that will be scored for one search. If more names share
+	 * the minimum number of grams, only the ones sharing the most are scored.
+	 */
+	private static final int MAX_CANDIDATES = 5000;
+
+	/**
+	 * The longest hump a query can have and still be treated as initials
+	 */
+	private static final int MAX_ABBREVIATION_HUMP = 4;
+
+	private final ClassIndex classes;
+	private final ByteBuffer buffer;
+	private final int gramCount;
+	private final int offsetsStart;
+	private final int postingsStart;
+
+	private FuzzyIndex(ClassIndex classes, ByteBuffer buffer) {
+		this.classes = classes;
+		this.buffer = buffer;
+		this.gramCount = buffer.getInt(24);
+		this.offsetsStart = HEADER_LENGTH + gramCount * 8;
+		this.postingsStart = offsetsStart + (gramCount + 1) * 4;
+	}
+
+	/**
+	 * Gets the file that the fuzzy index of a class index is stored in.
+	 * 
+	 * @param classIndexFile
+	 *            The file of the class index
+	 * @return The fuzzy index file, which may not exist yet
+	 */
+	public static File fileFor(File classIndexFile) {
+		String name = classIndexFile.getName();
+		return new File(classIndexFile.getParentFile(), name.substring(0, name.lastIndexOf('.')) + EXTENSION);
+	}
+
+	/**
+	 * Opens the fuzzy index of a class index, building it if it doesn't exist
+	 * or the class index changed since it was built.
+	 * 
+	 * @param classes
+	 *            The class index
+	 * @param classIndexFile
+	 *            The file the class index was read from
+	 * @return The fuzzy index
+	 * @throws IOException
+	 *             If the index could not be read or built
+	 */
+	public static FuzzyIndex forClassIndex(ClassIndex classes, File classIndexFile) throws IOException {
+		File file = fileFor(classIndexFile);
+		if (file.isFile()) {
+			ByteBuffer buffer = map(file);
+			if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+					&& buffer.getLong(8) == classIndexFile.length()
+					&& buffer.getLong(16) == classIndexFile.lastModified()) {
+				return new FuzzyIndex(classes, buffer);
+			}
+		}
+		build(classes.getTable(), classIndexFile, file);
+		return new FuzzyIndex(classes, map(file));
+	}
+
+	private static ByteBuffer map(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private static void build(MappedTable table, File classIndexFile, File file) throws IOException {
+		// Grams are added in entry order, so every posting list is already
+		// sorted
+		Map<Long, Postings> grams = new TreeMap<>();
+		String previous = null;
+		long[] entryGrams = new long[0];
+		for (int i = 0; i < table.size(); i++) {
+			String name = table.keyAt(i);
+			if (!name.equals(previous)) {
+				entryGrams = gramsOf(name);
+				previous = name;
+			}
+			for (long gram : entryGrams) {
+				Postings postings = grams.get(gram);
+				if (postings == null) {
+					postings = new Postings();
+					grams.put(gram, postings);
+				}
+				postings.add(i);
+			}
+		}
+
+		File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(classIndexFile.length());
+				out.writeLong(classIndexFile.lastModified());
+				out.writeInt(grams.size());
+				for (long gram : grams.keySet()) {
+					out.writeLong(gram);
+				}
+				int offset = 0;
+				for (Postings postings : grams.values()) {
+					out.writeInt(offset);
+					offset += postings.bytes.size();
+				}
+				out.writeInt(offset);
+				for (Postings postings : grams.values()) {
+					postings.bytes.writeTo(out);
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			// Only left over if the write failed
+			temp.delete();
+		}
+	}
+
+	/**
+	 * A delta encoded list of entries being built
+	 */
+	private static class Postings {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+		private int last;
+
+		void add(int entry) {
+			int delta = entry - last;
+			last = entry;
+			while ((delta & ~0x7F) != 0) {
+				bytes.write((delta & 0x7F) | 0x80);
+				delta >>>= 7;
+			}
+			bytes.write(delta);
+		}
+	}
+
+	/**
+	 * Gets the distinct grams of a name: the trigrams of the lower case name
+	 * with '^' and '$' marking its start and end, and the same for its
+	 * initials.
+	 */
+	private static long[] gramsOf(String name) {
+		long[] nameGrams = trigrams(name.toLowerCase(Locale.ROOT), 0);
+		long[] initialGrams = trigrams(initialsOf(name), INITIALS);
+		long[] all = Arrays.copyOf(nameGrams, nameGrams.length + initialGrams.length);
+		System.arraycopy(initialGrams, 0, all, nameGrams.length, initialGrams.length);
+		return distinct(all);
+	}
+
+	private static long[] trigrams(String text, long namespace) {
+		String padded = "^" + text + "$";
+		long[] grams = new long[padded.length() - 2];
+		for (int i = 0; i < grams.length; i++) {
+			grams[i] = namespace | ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16)
+					| padded.charAt(i + 2);
+		}
+		return grams;
+	}
+
+	private static long[] distinct(long[] grams) {
+		Arrays.sort(grams);
+		int count = 0;
+		for (int i = 0; i < grams.length; i++) {
+			if (i == 0 || grams[i] != grams[i - 1]) {
+				grams[count++] = grams[i];
+			}
+		}
+		return Arrays.copyOf(grams, count);
+	}
+
+	/**
+	 * Gets the lower case initials of the humps of a camel case name, so
+	 * <code>ConcurrentHashMap</code> becomes <code>chm</code>.
+	 */
+	static String initialsOf(String name) {
+		return initialsOf(name, humpsOf(name));
+	}
+
+	private static String initialsOf(String name, int[] humps) {
+		StringBuilder initials = new StringBuilder(humps.length);
+		for (int start : humps) {
+			initials.append(Character.toLowerCase(name.charAt(start)));
+		}
+		return initials.toString();
+	}
+
+	/**
+	 * Finds where each hump of a camel case name starts: at the beginning, at
+	 * every upper case letter and at every letter or digit following
+	 * something that is neither.
+	 */
+	private static int[] humpsOf(String name) {
+		int[] humps = new int[name.length()];
+		int count = 0;
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (!Character.isLetterOrDigit(c)) {
+				continue;
+			}
+			if (i == 0 || Character.isUpperCase(c) || !Character.isLetterOrDigit(name.charAt(i - 1))) {
+				humps[count++] = i;
+			}
+		}
+		return Arrays.copyOf(humps, count);
+	}
+
+	/**
+	 * Tests if a query looks like an abbreviation: every hump is short enough
+	 * to be an initial or the start of a word.
+	 */
+	private static boolean isAbbreviation(String query) {
+		int[] humps = humpsOf(query);
+		for (int h = 0; h < humps.length; h++) {
+			int end = h + 1 < humps.length ? humps[h + 1] : query.length();
+			if (end - humps[h] > MAX_ABBREVIATION_HUMP) {
+				return false;
+			}
+		}
+		return humps.length > 0;
+	}
+
+	/**
+	 * Finds the classes whose names are closest to a query.
+	 * 
+	 * @param query
+	 *            What was typed, such as <code>CHM</code>
+	 * @param limit
+	 *            The most classes to return
+	 * @return The fully qualified names of the classes, best match first
+	 */
+	public List<String> search(String query, int limit) {
+		MappedTable table = classes.getTable();
+		if (query.isEmpty() || table.size() == 0) {
+			return Collections.emptyList();
+		}
+
+		// Count how many of the query's grams each entry shares. Names and
+		// initials are counted separately, since a query is either one or the
+		// other. Only short humps can be initials, otherwise a long query
+		// like GeneratedType would reduce to initials shared by everything.
+		long[] nameGrams = distinct(trigrams(query.toLowerCase(Locale.ROOT), 0));
+		boolean hasHumps = hasHumps(query, query.toLowerCase(Locale.ROOT));
+		long[] initialGrams = distinct(trigrams(hasHumps ? initialsOf(query) : query.toLowerCase(Locale.ROOT),
+				INITIALS));
+		int[] nameCounts = new int[table.size()];
+		int[] initialCounts = new int[table.size()];
+		List<Integer> touched = new ArrayList<>();
+		boolean abbreviation = isAbbreviation(query);
+		count(nameGrams, nameCounts, initialCounts, touched);
+		if (abbreviation) {
+			count(initialGrams, initialCounts, nameCounts, touched);
+		}
+
+		// One typo changes at most four grams (swapping two letters does),
+		// and abbreviations have to match every initial
+		int nameMinimum = Math.max(1, nameGrams.length - 4);
+		int[] histogram = new int[nameGrams.length + 1];
+		List<Integer> candidates = new ArrayList<>();
+		for (int entry : touched) {
+			if (nameCounts[entry] >= nameMinimum || abbreviation && initialCounts[entry] >= initialGrams.length) {
+				candidates.add(entry);
+				histogram[nameCounts[entry]]++;
+			}
+		}
+		if (candidates.size() > MAX_CANDIDATES) {
+			int kept = candidates.size();
+			for (int i = nameMinimum; i < histogram.length - 1 && kept > MAX_CANDIDATES; i++) {
+				kept -= histogram[i];
+				nameMinimum = i + 1;
+			}
+			List<Integer> fewer = new ArrayList<>();
+			for (int entry : candidates) {
+				if (nameCounts[entry] >= nameMinimum || abbreviation && initialCounts[entry] >= initialGrams.length) {
+					fewer.add(entry);
+				}
+			}
+			candidates = fewer;
+		}
+
+		List<String> names = new ArrayList<>(candidates.size());
+		int[] bonuses = new int[candidates.size()];
+		for (int i = 0; i < candidates.size(); i++) {
+			names.add(table.keyAt(candidates.get(i)));
+			bonuses[i] = bonusOf(table.valueAt(candidates.get(i)));
+		}
+		List<String> classNames = new ArrayList<>();
+		for (int index : rank(query, names, bonuses, limit)) {
+			classNames.add(table.valueAt(candidates.get(index)));
+		}
+		return classNames;
+	}
+
+	/**
+	 * Prefers public APIs over implementation classes when names match
+	 * equally well.
+	 */
+	private static int bonusOf(String className) {
+		if (className.startsWith("java.")) {
+			return 6;
+		} else if (className.startsWith("javax.")) {
+			return 4;
+		} else if (className.startsWith("sun.") || className.startsWith("com.sun.") || className.startsWith("jdk.")) {
+			return -6;
+		}
+		return 0;
+	}
+
+	/**
+	 * Adds one to the count of every entry in the postings of each gram.
+	 */
+	private void count(long[] grams, int[] counts, int[] otherCounts, List<Integer> touched) {
+		for (long gram : grams) {
+			int index = findGram(gram);
+			if (index < 0) {
+				continue;
+			}
+			int position = postingsStart + buffer.getInt(offsetsStart + index * 4);
+			int end = postingsStart + buffer.getInt(offsetsStart + index * 4 + 4);
+			int entry = 0;
+			while (position < end) {
+				int delta = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = buffer.get(position++);
+					delta |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				entry += delta;
+				if (counts[entry]++ == 0 && otherCounts[entry] == 0) {
+					touched.add(entry);
+				}
+			}
+		}
+	}
+
+	private int findGram(long gram) {
+		int low = 0;
+		int high = gramCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long value = buffer.getLong(HEADER_LENGTH + middle * 8);
+			if (value < gram) {
+				low = middle + 1;
+			} else if (value > gram) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Ranks names by how well they match a query. Names that don't match at
+	 * all are left out.
+	 * 
+	 * @param query
+	 *            What was typed
+	 * @param names
+	 *            The names to rank
+	 * @param limit
+	 *            The most names to return
+	 * @return The indexes of the best names in the list, best first
+	 */
+	public static List<Integer> rank(String query, List<String> names, int limit) {
+		return rank(query, names, new int[names.size()], limit);
+	}
+
+	/**
+	 * Ranks names by how well they match a query, adding a bonus to the score
+	 * of each name that matches. Names that don't match at all are left out.
+	 * 
+	 * @param query
+	 *            What was typed
+	 * @param names
+	 *            The names to rank
+	 * @param bonuses
+	 *            The bonus of each name
+	 * @param limit
+	 *            The most names to return
+	 * @return The indexes of the best names in the list, best first
+	 */
+	public static List<Integer> rank(String query, final List<String> names, int[] bonuses, int limit) {
+		final int[] scores = new int[names.size()];
+		Comparator<Integer> worstFirst = new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer a, Integer b) {
+				if (scores[a] != scores[b]) {
+					return scores[a] < scores[b] ? -1 : 1;
+				}
+				// Shorter names are better
+				int lengths = names.get(b).length() - names.get(a).length();
+				return lengths != 0 ? lengths : names.get(b).compareTo(names.get(a));
+			}
+		};
+
+		PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(1, limit + 1), worstFirst);
+		Scorer scorer = new Scorer(query);
+		for (int i = 0; i < names.size(); i++) {
+			scores[i] = scorer.score(names.get(i));
+			if (scores[i] <= 0) {
+				continue;
+			}
+			scores[i] += bonuses[i];
+			best.add(i);
+			if (best.size() > limit) {
+				best.poll();
+			}
+		}
+
+		List<Integer> ranked = new ArrayList<>(best);
+		Collections.sort(ranked, Collections.reverseOrder(worstFirst));
+		return ranked;
+	}
+
+	/**
+	 * Scores how well a name matches a query. Exact matches score highest,
+	 * then prefixes, camel case abbreviations, substrings and finally names
+	 * within a small number of typos.
+	 * 
+	 * @param query
+	 *            What was typed
+	 * @param name
+	 *            The name to score
+	 * @return The score, or 0 if the name doesn't match. Matches are
+	 *         always scored above 100.
+	 */
+	public static int score(String query, String name) {
+		return new Scorer(query).score(name);
+	}
+
+	/**
+	 * Scores names against one query, working out everything that depends only
+	 * on the query once.
+	 */
+	private static final class Scorer {
+		private final String query;
+		private final String lowerQuery;
+		private final boolean hasHumps;
+		private final int allowed;
+
+		Scorer(String query) {
+			this.query = query;
+			this.lowerQuery = query.toLowerCase(Locale.ROOT);
+			// A query with humps of its own (HM) is more likely to be initials
+			// than a prefix typed in the wrong case
+			this.hasHumps = hasHumps(query, lowerQuery);
+			this.allowed = Math.max(1, query.length() / 4);
+		}
+
+		int score(String name) {
+			if (name.equals(query)) {
+				return 1000;
+			}
+			String lowerName = name.toLowerCase(Locale.ROOT);
+			int extra = Math.min(99, Math.max(0, name.length() - query.length()));
+			if (lowerName.equals(lowerQuery)) {
+				return 950;
+			}
+			if (name.startsWith(query)) {
+				return 800 - extra;
+			}
+			if (!hasHumps && lowerName.startsWith(lowerQuery)) {
+				return 800 - extra;
+			}
+			int[] humps = humpsOf(name);
+			String initials = initialsOf(name, humps);
+			if (initials.equals(lowerQuery)) {
+				return 760 - extra;
+			}
+			if (initials.startsWith(lowerQuery)) {
+				return 740 - extra;
+			}
+			if (hasHumps && lowerName.startsWith(lowerQuery)) {
+				return 720 - extra;
+			}
+			if (matchesHumps(lowerQuery, 0, lowerName, humps, 0)) {
+				return 700 - extra;
+			}
+			int substring = lowerName.indexOf(lowerQuery);
+			if (substring > 0) {
+				return 500 - Math.min(50, substring) - extra;
+			}
+
+			int distance = distance(lowerQuery, lowerName, allowed);
+			if (distance > allowed && lowerName.length() > lowerQuery.length()) {
+				// A typo in a prefix, like HashMpa for HashMapper
+				distance = distance(lowerQuery, lowerName.substring(0, lowerQuery.length()), allowed) + 1;
+			}
+			if (distance <= allowed) {
+				return 400 - 50 * distance - extra;
+			}
+			return 0;
+		}
+	}
+
+	private static boolean hasHumps(String query, String lowerQuery) {
+		return !query.equals(lowerQuery) && humpsOf(query).length > 1;
+	}
+
+	/**
+	 * Tests if every part of a query starts a hump of a camel case name, in
+	 * order, so <code>CHM</code>, <code>chm</code>, <code>CoHaMap</code> and
+	 * <code>ConHM</code> all match <code>ConcurrentHashMap</code>.
+	 */
+	static boolean matchesHumps(String query, String name) {
+		int[] humps = humpsOf(name);
+		return matchesHumps(query.toLowerCase(Locale.ROOT), 0, name.toLowerCase(Locale.ROOT), humps, 0);
+	}
+
+	private static boolean matchesHumps(String query, int q, String name, int[] humps, int hump) {
+		if (q == query.length()) {
+			return true;
+		}
+		// Humps may be skipped, and each part may take any amount of the start
+		// of its hump
+		for (int h = hump; h < humps.length; h++) {
+			int start = humps[h];
+			int end = h + 1 < humps.length ? humps[h + 1] : name.length();
+			int matched = 0;
+			while (q + matched < query.length() && start + matched < end
+					&& query.charAt(q + matched) == name.charAt(start + matched)) {
+				matched++;
+				if (matchesHumps(query, q + matched, name, humps, h + 1)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Computes the optimal string alignment distance between two strings,
+	 * giving up as soon as it is larger than a bound.
+	 */
+	static int distance(String a, String b, int bound) {
+		if (Math.abs(a.length() - b.length()) > bound) {
+			return bound + 1;
+		}
+		int[] previous2 = new int[b.length() + 1];
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMinimum = i;
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					value = Math.min(value, previous2[j - 2] + 1);
+				}
+				current[j] = value;
+				rowMinimum = Math.min(rowMinimum, value);
+			}
+			if (rowMinimum > bound) {
+				return bound + 1;
+			}
+			int[] recycled = previous2;
+			previous2 = previous;
+			previous = current;
+			current = recycled;
+		}
+		return previous[b.length()];
+	}
+}
@@ -0,0 +1,278 @@
+package net.dean.jsadl.index;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * JavaScanner.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * A small, fast lexer for Java source files. It works directly on the bytes
+ * of a file, so the offsets it reports are byte offsets that can be used to
+ * seek in the file. Everything Java treats specially is ASCII, so UTF-8
+ * encoded files scan correctly; non-ASCII bytes are treated as identifier
+ * characters.
+ * <p>
+ * The scanner only distinguishes the tokens JSaDL cares about: it correctly
+ * skips over comments, string and character literals (including text blocks)
+ * so that braces and keywords inside them are never mistaken for code.
+ */
+public class JavaScanner {
+	/**
+	 * The kinds of tokens
+	 */
+	public enum Token {
+		/**
+		 * An identifier or keyword
+		 */
+		IDENTIFIER,
+		/**
+		 * A number literal
+		 */
+		NUMBER,
+		/**
+		 * A string, character or text block literal, including the quotes
+		 */
+		STRING,
+		/**
+		 * A Javadoc comment (<code>/** ... *&#47;</code>)
+		 */
+		JAVADOC,
+		/**
+		 * Any other comment
+		 */
+		COMMENT,
+		/**
+		 * A single character of punctuation or an operator
+		 */
+		SYMBOL,
+		/**
+		 * The end of the input
+		 */
+		EOF
+	}
+
+	private final byte[] source;
+	private final int end;
+
+	private int position;
+	private int line = 1;
+
+	private Token token;
+	private int tokenStart;
+	private int tokenEnd;
+	private int tokenLine;
+
+	/**
+	 * Instantiates a new JavaScanner over the whole array
+	 * 
+	 * @param source
+	 *            The contents of a source file
+	 */
+	public JavaScanner(byte[] source) {
+		this(source, 0, source.length);
+	}
+
+	/**
+	 * Instantiates a new JavaScanner over part of an array
+	 * 
+	 * @param source
+	 *            The contents of a source file
+	 * @param start
+	 *            The offset to start scanning at
+	 * @param end
+	 *            The offset to stop scanning at
+	 */
+	public JavaScanner(byte[] source, int start, int end) {
+		this.source = source;
+		this.position = start;
+		this.end = end;
+	}
+
+	/**
+	 * Scans the next token.
+	 * 
+	 * @return The kind of token, {@link Token#EOF} at the end of the input
+	 */
+	public Token next() {
+		skipWhitespace();
+		tokenStart = position;
+		tokenLine = line;
+		if (position >= end) {
+			token = Token.EOF;
+			tokenEnd = position;
+			return token;
+		}
+
+		int c = source[position] & 0xFF;
+		if (c == '/' && position + 1 < end && source[position + 1] == '/') {
+			while (position < end && source[position] != '\n') {
+				position++;
+			}
+			token = Token.COMMENT;
+		} else if (c == '/' && position + 1 < end && source[position + 1] == '*') {
+			boolean javadoc = position + 2 < end && source[position + 2] == '*'
+					&& !(position + 3 < end && source[position + 3] == '/');
+			position += 2;
+			while (position < end && !(source[position] == '*' && position + 1 < end && source[position + 1] == '/')) {
+				if (source[position] == '\n') {
+					line++;
+				}
+				position++;
+			}
+			position = Math.min(end, position + 2);
+			token = javadoc ? Token.JAVADOC : Token.COMMENT;
+		} else if (c == '"' && position + 2 < end && source[position + 1] == '"' && source[position + 2] == '"') {
+			// Text block
+			position += 3;
+			while (position < end
+					&& !(source[position] == '"' && position + 2 < end && source[position + 1] == '"' && source[position + 2] == '"')) {
+				if (source[position] == '\\') {
+					position++;
+				} else if (source[position] == '\n') {
+					line++;
+				}
+				position++;
+			}
+			position = Math.min(end, position + 3);
+			token = Token.STRING;
+		} else if (c == '"' || c == '\'') {
+			position++;
+			while (position < end && source[position] != c && source[position] != '\n') {
+				if (source[position] == '\\') {
+					position++;
+				}
+				position++;
+			}
+			position = Math.min(end, position + 1);
+			token = Token.STRING;
+		} else if (isIdentifierStart(c)) {
+			while (position < end && isIdentifierPart(source[position] & 0xFF)) {
+				position++;
+			}
+			token = Token.IDENTIFIER;
+		} else if (c >= '0' && c <= '9' || (c == '.' && position + 1 < end && isDigit(source[position + 1]))) {
+			while (position < end && (isIdentifierPart(source[position] & 0xFF) || source[position] == '.')) {
+				position++;
+			}
+			token = Token.NUMBER;
+		} else {
+			position++;
+			token = Token.SYMBOL;
+		}
+		tokenEnd = position;
+		return token;
+	}
+
+	private void skipWhitespace() {
+		while (position < end) {
+			byte b = source[position];
+			if (b == '\n') {
+				line++;
+			} else if (b != ' ' && b != '\t' && b != '\r' && b != '\f') {
+				return;
+			}
+			position++;
+		}
+	}
+
+	private static boolean isIdentifierStart(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || c >= 0x80;
+	}
+
+	static boolean isIdentifierPart(int c) {
+		return isIdentifierStart(c) || (c >= '0' && c <= '9');
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	/**
+	 * Gets the kind of the current token.
+	 * 
+	 * @return The kind of token
+	 */
+	public Token getToken() {
+		return token;
+	}
+
+	/**
+	 * Gets the text of the current token.
+	 * 
+	 * @return The text, decoded as UTF-8
+	 */
+	public String getText() {
+		return new String(source, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Tests if the current token is the given symbol.
+	 * 
+	 * @param symbol
+	 *            The symbol
+	 * @return True if the current token is that symbol
+	 */
+	public boolean isSymbol(char symbol) {
+		return token == Token.SYMBOL && source[tokenStart] == symbol;
+	}
+
+	/**
+	 * Tests if the current token is the given identifier or keyword, without
+	 * decoding it.
+	 * 
+	 * @param word
+	 *            The identifier, which must be ASCII
+	 * @return True if the current token is that identifier
+	 */
+	public boolean isIdentifier(String word) {
+		if (token != Token.IDENTIFIER || tokenEnd - tokenStart != word.length()) {
+			return false;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			if (source[tokenStart + i] != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the offset of the first byte of the current token.
+	 * 
+	 * @return The start offset
+	 */
+	public int getStart() {
+		return tokenStart;
+	}
+
+	/**
+	 * Gets the offset just past the last byte of the current token.
+	 * 
+	 * @return The end offset
+	 */
+	public int getEnd() {
+		return tokenEnd;
+	}
+
+	/**
+	 * Gets the line the current token starts on, counting from 1.
+	 * 
+	 * @return The line number
+	 */
+	public int getLine() {
+		return tokenLine;
+	}
+
+	/**
+	 * Gets the source being scanned.
+	 * 
+	 * @return The source
+	 */
+	public byte[] getSource() {
+		return source;
+	}
+}
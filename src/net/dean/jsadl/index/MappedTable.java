@@ -0,0 +1,353 @@
+package net.dean.jsadl.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * MappedTable.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * An immutable, sorted table of key/value string pairs that is stored on disk
+ * and memory-mapped when read. Keys may repeat, in which case every value is
+ * returned by {@link #get(String)}. Lookups are a binary search directly over
+ * the mapped bytes, so opening a table and finding a key is a matter of
+ * microseconds no matter how large the table is.
+ * <p>
+ * The file layout is:
+ * 
+ * <pre>
+ * int    magic
+ * int    version
+ * u16    metadata length, metadata (UTF-8)
+ * int    entry count
+ * int[]  absolute offset of every entry, in key order
+ * entry: u16 key length, key (UTF-8), u16 value length, value (UTF-8)
+ * </pre>
+ */
+public class MappedTable {
+	private static final int MAGIC = 0x4A53444C; // "JSDL"
+	private static final int VERSION = 1;
+
+	/**
+	 * Orders UTF-8 encoded keys as unsigned bytes, the same way
+	 * {@link #compare(int, byte[])} does when searching
+	 */
+	private static final Comparator<byte[][]> BY_KEY = new Comparator<byte[][]>() {
+
+		@Override
+		public int compare(byte[][] a, byte[][] b) {
+			return compareBytes(a[0], b[0]);
+		}
+	};
+
+	/**
+	 * The mapped file
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The metadata string that was saved with the table
+	 */
+	private final String metadata;
+
+	/**
+	 * The number of entries in this table
+	 */
+	private final int size;
+
+	/**
+	 * The position of the offset table in {@link #buffer}
+	 */
+	private final int offsetsStart;
+
+	private MappedTable(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a JSaDL index or an unsupported version");
+		}
+		int metaLength = buffer.getShort(8) & 0xFFFF;
+		this.metadata = readString(10, metaLength);
+		this.size = buffer.getInt(10 + metaLength);
+		this.offsetsStart = 14 + metaLength;
+	}
+
+	/**
+	 * Opens and memory-maps an existing table.
+	 * 
+	 * @param file
+	 *            The file to open
+	 * @return A new MappedTable
+	 * @throws IOException
+	 *             If the file could not be read or is not a valid table
+	 */
+	public static MappedTable open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new MappedTable(mapped);
+		}
+	}
+
+	/**
+	 * Gets the metadata string that was written with this table.
+	 * 
+	 * @return The metadata, never null
+	 */
+	public String getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * Gets the number of entries in this table.
+	 * 
+	 * @return The number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the key of the entry at the given index.
+	 * 
+	 * @param index
+	 *            The index of the entry
+	 * @return The key
+	 */
+	public String keyAt(int index) {
+		int offset = offsetOf(index);
+		return readString(offset + 2, buffer.getShort(offset) & 0xFFFF);
+	}
+
+	/**
+	 * Gets the value of the entry at the given index.
+	 * 
+	 * @param index
+	 *            The index of the entry
+	 * @return The value
+	 */
+	public String valueAt(int index) {
+		int offset = offsetOf(index);
+		offset += 2 + (buffer.getShort(offset) & 0xFFFF);
+		return readString(offset + 2, buffer.getShort(offset) & 0xFFFF);
+	}
+
+	/**
+	 * Gets every value whose key exactly matches the given key.
+	 * 
+	 * @param key
+	 *            The key to look for
+	 * @return A list of values, empty if there were none
+	 */
+	public List<String> get(String key) {
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		List<String> values = new ArrayList<>(1);
+		for (int i = lowerBound(bytes); i < size && compare(i, bytes) == 0; i++) {
+			values.add(valueAt(i));
+		}
+		return values;
+	}
+
+	/**
+	 * Finds the index of the first entry whose key starts with the given
+	 * prefix.
+	 * 
+	 * @param prefix
+	 *            The prefix to look for
+	 * @return The index of the first matching entry, or {@link #size()} if no
+	 *         key starts with the prefix
+	 */
+	public int firstWithPrefix(String prefix) {
+		byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+		int index = lowerBound(bytes);
+		return index < size && startsWith(index, bytes) ? index : size;
+	}
+
+	/**
+	 * Tests if the key at the given index starts with the given prefix.
+	 * 
+	 * @param index
+	 *            The index of the entry
+	 * @param prefix
+	 *            The prefix
+	 * @return True if the key starts with the prefix
+	 */
+	public boolean keyStartsWith(int index, String prefix) {
+		return startsWith(index, prefix.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Binary search for the first entry whose key is greater than or equal to
+	 * the given key.
+	 */
+	private int lowerBound(byte[] key) {
+		int low = 0, high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compare(mid, key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private boolean startsWith(int index, byte[] prefix) {
+		int offset = offsetOf(index);
+		int length = buffer.getShort(offset) & 0xFFFF;
+		if (length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (buffer.get(offset + 2 + i) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compares the key at the given index to a UTF-8 encoded key without
+	 * decoding it.
+	 */
+	private int compare(int index, byte[] key) {
+		int offset = offsetOf(index);
+		int length = buffer.getShort(offset) & 0xFFFF;
+		int common = Math.min(length, key.length);
+		for (int i = 0; i < common; i++) {
+			int diff = (buffer.get(offset + 2 + i) & 0xFF) - (key[i] & 0xFF);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return length - key.length;
+	}
+
+	private int offsetOf(int index) {
+		return buffer.getInt(offsetsStart + index * 4);
+	}
+
+	private String readString(int offset, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(offset + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int compareBytes(byte[] a, byte[] b) {
+		int common = Math.min(a.length, b.length);
+		for (int i = 0; i < common; i++) {
+			int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	/**
+	 * Collects key/value pairs and writes them to disk as a
+	 * {@link MappedTable}. Builders are not thread safe.
+	 */
+	public static class Builder {
+		private final List<byte[][]> entries = new ArrayList<>();
+		private String metadata = "";
+
+		/**
+		 * Adds a key/value pair.
+		 * 
+		 * @param key
+		 *            The key
+		 * @param value
+		 *            The value
+		 * @return This Builder
+		 */
+		public Builder add(String key, String value) {
+			entries.add(new byte[][] { key.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8) });
+			return this;
+		}
+
+		/**
+		 * Sets the metadata string that will be stored with the table.
+		 * 
+		 * @param metadata
+		 *            The metadata
+		 * @return This Builder
+		 */
+		public Builder metadata(String metadata) {
+			this.metadata = metadata;
+			return this;
+		}
+
+		/**
+		 * Gets the number of pairs added so far.
+		 * 
+		 * @return The number of pairs
+		 */
+		public int size() {
+			return entries.size();
+		}
+
+		/**
+		 * Sorts the pairs and writes them to the given file. The table is
+		 * first written to a temporary file which then replaces the target,
+		 * so readers never see a partially written table.
+		 * 
+		 * @param file
+		 *            The file to write to
+		 * @throws IOException
+		 *             If the file could not be written
+		 */
+		public void write(File file) throws IOException {
+			Collections.sort(entries, BY_KEY);
+			byte[] meta = metadata.getBytes(StandardCharsets.UTF_8);
+
+			File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			try {
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeShort(meta.length);
+					out.write(meta);
+					out.writeInt(entries.size());
+
+					int offset = 14 + meta.length + entries.size() * 4;
+					for (byte[][] entry : entries) {
+						out.writeInt(offset);
+						offset += 4 + entry[0].length + entry[1].length;
+					}
+					for (byte[][] entry : entries) {
+						out.writeShort(entry[0].length);
+						out.write(entry[0]);
+						out.writeShort(entry[1].length);
+						out.write(entry[1]);
+					}
+				}
+
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				// Only left over if the write failed
+				temp.delete();
+			}
+		}
+	}
+}
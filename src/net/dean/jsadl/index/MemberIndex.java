@@ -0,0 +1,633 @@
+package net.dean.jsadl.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import net.dean.jsadl.Caches;
+import net.dean.jsadl.Reference;
+import net.dean.jsadl.WebClient;
+import net.dean.jsadl.ZipSource;
+
+/*
+ * MemberIndex.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Maps class members (<code>HashMap#computeIfAbsent(K, Function&lt;? super K, ? extends V&gt;)</code>)
+ * to the class that declares them and where to find them: the anchor in the
+ * class's documentation page and the line in its source file.
+ * <p>
+ * Documentation indexes are built from the search index that Javadoc 9 and
+ * later generates (<code>member-search-index.js</code>, or
+ * <code>member-search-index.zip</code> in Javadoc 9 and 10). Source indexes
+ * are built by outlining every source file with {@link SourceOutline}. Both
+ * are saved as a {@link MappedTable} keyed by
+ * <code>&lt;class&gt;#&lt;label&gt;</code>, so every member starting with a
+ * prefix is found with one binary search.
+ */
+public class MemberIndex {
+	/**
+	 * The extension of member index files
+	 */
+	public static final String EXTENSION = ".members";
+
+	/**
+	 * The metadata of a documentation index whose documentation has no search
+	 * index, which is saved so that it isn't looked for on every run
+	 */
+	private static final String UNAVAILABLE = "unavailable";
+
+	/**
+	 * The most redirects followed to download a file
+	 */
+	private static final int MAX_REDIRECTS = 5;
+
+	/**
+	 * The files Javadoc may store its member search index in, newest first
+	 */
+	private static final String[] SEARCH_INDEX_FILES = { "member-search-index.js", "member-search-index.zip" };
+
+	/**
+	 * A member found in the index
+	 */
+	public static class Entry {
+		private final String className;
+		private final String label;
+		private final String anchor;
+		private final int line;
+
+		Entry(String className, String label, String anchor, int line) {
+			this.className = className;
+			this.label = label;
+			this.anchor = anchor;
+			this.line = line;
+		}
+
+		/**
+		 * Gets the fully qualified name of the class the member is declared
+		 * in. Nested classes are separated from their enclosing class with a
+		 * '$', like <code>java.util.Map$Entry</code>.
+		 * 
+		 * @return The class name
+		 */
+		public String getClassName() {
+			return className;
+		}
+
+		/**
+		 * Gets the label of the member, such as <code>put(K, V)</code>.
+		 * 
+		 * @return The label
+		 */
+		public String getLabel() {
+			return label;
+		}
+
+		/**
+		 * Gets the name of the member, which is its label without the
+		 * parameters.
+		 * 
+		 * @return The name
+		 */
+		public String getName() {
+			int paren = label.indexOf('(');
+			return paren < 0 ? label : label.substring(0, paren);
+		}
+
+		/**
+		 * Gets the anchor of the member in its class's documentation page.
+		 * 
+		 * @return The anchor, or an empty string if it isn't known
+		 */
+		public String getAnchor() {
+			return anchor;
+		}
+
+		/**
+		 * Gets the line the member is declared on in its class's source file.
+		 * 
+		 * @return The line, or 0 if it isn't known
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		@Override
+		public String toString() {
+			return className.replace('$', '.') + "#" + label;
+		}
+	}
+
+	private final MappedTable table;
+
+	private MemberIndex(MappedTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * Gets the file that the member index of a source or documentation base
+	 * is stored in.
+	 * 
+	 * @param base
+	 *            The source or documentation base
+	 * @return The index file, which may not exist yet
+	 */
+	public static File fileFor(URL base) {
+		return new File(Caches.getDirectory("index"), Caches.keyFor(base) + EXTENSION);
+	}
+
+	/**
+	 * Opens the member index of a Reference's documentation, building it
+	 * first if it does not exist yet.
+	 * 
+	 * @param ref
+	 *            The Reference
+	 * @param rebuild
+	 *            True to build the index even if it already exists
+	 * @return The member index, or null if the documentation has no search
+	 *         index
+	 * @throws IOException
+	 *             If the index could not be read or built
+	 */
+	public static MemberIndex forDocumentation(Reference ref, boolean rebuild) throws IOException {
+		File file = fileFor(ref.getDocBase());
+		MappedTable table = !rebuild && file.isFile() ? MappedTable.open(file) : buildDocumentation(ref, file);
+		return table.getMetadata().equals(UNAVAILABLE) ? null : new MemberIndex(table);
+	}
+
+	/**
+	 * Opens the member index of a Reference's source, building it first if it
+	 * does not exist yet.
+	 * 
+	 * @param ref
+	 *            The Reference, which must be indexable
+	 * @param rebuild
+	 *            True to build the index even if it already exists
+	 * @return The member index
+	 * @throws IOException
+	 *             If the index could not be read or built
+	 * @see ClassIndex#canIndex(Reference)
+	 */
+	public static MemberIndex forSource(Reference ref, boolean rebuild) throws IOException {
+		File file = fileFor(ref.getSourceBase());
+		return new MemberIndex(!rebuild && file.isFile() ? refreshSource(ref, file) : buildSource(ref, file));
+	}
+
+	private static MappedTable buildDocumentation(Reference ref, File file) throws IOException {
+		List<URL> candidates = new ArrayList<>();
+		URL base = ref.getDocBase();
+		for (String name : SEARCH_INDEX_FILES) {
+			candidates.add(new URL(base, name));
+		}
+		// JDK 11+ documentation bases may point at a module directory, while
+		// the search index is one level up
+		String path = base.getPath();
+		String lastSegment = path.substring(path.lastIndexOf('/', path.length() - 2) + 1);
+		if (lastSegment.indexOf('.') > 0) {
+			for (String name : SEARCH_INDEX_FILES) {
+				candidates.add(new URL(base, "../" + name));
+			}
+		}
+
+		MappedTable.Builder builder = new MappedTable.Builder();
+		String found = null;
+		for (URL url : candidates) {
+			byte[] data = download(url);
+			if (data == null) {
+				continue;
+			}
+			String text;
+			if (url.getPath().endsWith(".zip")) {
+				text = unzipFirst(data);
+			} else {
+				text = new String(data, StandardCharsets.UTF_8);
+			}
+			for (Map<String, String> member : parseSearchIndex(text)) {
+				String type = member.get("c");
+				String label = member.get("l");
+				if (type == null || label == null) {
+					continue;
+				}
+				String pkg = member.get("p");
+				String anchor = member.containsKey("u") ? member.get("u") : member.get("url");
+				if (anchor == null) {
+					anchor = label.replace(" ", "");
+				}
+				String className = (pkg == null || pkg.isEmpty() ? "" : pkg + ".") + type.replace('.', '$');
+				builder.add(type + "#" + label, toValue(className, anchor, 0));
+			}
+			found = url.toExternalForm();
+			break;
+		}
+
+		builder.metadata(found == null ? UNAVAILABLE : found).write(file);
+		return MappedTable.open(file);
+	}
+
+	private static MappedTable buildSource(Reference ref, final File file) throws IOException {
+		if (!ClassIndex.canIndex(ref)) {
+			throw new IOException("Only local source directories and archives can be indexed");
+		}
+
+		final Queue<String[]> entries = new ConcurrentLinkedQueue<>();
+		SourceManifest manifest = new SourceManifest();
+		String root;
+		OutlineTask task;
+		if (ref.hasSourceArchive()) {
+			ZipSource zip = ZipSource.open(ZipSource.archiveOf(ref.getSourceBase()));
+			List<String> paths = new ArrayList<>();
+			for (int i = 0; i < zip.getDirectory().size(); i++) {
+				String path = zip.getDirectory().keyAt(i);
+				if (ClassIndex.toClassName(path) != null) {
+					paths.add(path);
+				}
+			}
+			task = new OutlineTask(zip, null, paths, 0, paths.size(), entries, null);
+			root = zip.getArchive().getAbsolutePath();
+			manifest.record("", zip.getArchive(), null);
+		} else {
+			File dir = new File(ref.getSourceBase().getFile());
+			List<String> paths = new ArrayList<>();
+			listSources(dir, "", paths);
+			task = new OutlineTask(null, dir, paths, 0, paths.size(), entries, manifest);
+			root = dir.getAbsolutePath();
+		}
+		ClassIndex.invoke(task);
+
+		MappedTable.Builder builder = new MappedTable.Builder().metadata(root);
+		for (String[] entry : entries) {
+			builder.add(entry[0], entry[1]);
+		}
+		builder.write(file);
+		manifest.write(file);
+		return MappedTable.open(file);
+	}
+
+	/**
+	 * Opens a source index, first bringing it up to date with the source. Only
+	 * the files that changed since the index was built are outlined again; an
+	 * archive that changed is indexed again from scratch.
+	 */
+	private static MappedTable refreshSource(Reference ref, File file) throws IOException {
+		SourceManifest manifest = SourceManifest.read(file);
+		if (manifest == null) {
+			// Built before manifests were kept
+			return buildSource(ref, file);
+		}
+		if (!ClassIndex.canIndex(ref)) {
+			// The source is gone, so keep what there is
+			return MappedTable.open(file);
+		}
+		if (ref.hasSourceArchive()) {
+			return manifest.isCurrent("", ZipSource.archiveOf(ref.getSourceBase())) ? MappedTable.open(file)
+					: buildSource(ref, file);
+		}
+
+		File dir = new File(ref.getSourceBase().getFile());
+		List<String> paths = new ArrayList<>();
+		listSources(dir, "", paths);
+		SourceManifest.Changes changes = manifest.compare(dir, paths);
+		if (changes.isEmpty()) {
+			if (changes.isTouched()) {
+				manifest.write(file);
+			}
+			return MappedTable.open(file);
+		}
+
+		List<String> fresh = changes.getFresh();
+		Queue<String[]> entries = new ConcurrentLinkedQueue<>();
+		ClassIndex.invoke(new OutlineTask(null, dir, fresh, 0, fresh.size(), entries, manifest));
+
+		// Drop the members of every class declared in a file that changed
+		Set<String> stale = new HashSet<>();
+		for (String path : changes.getStale()) {
+			stale.add(ClassIndex.toClassName(path));
+		}
+		for (String[] entry : entries) {
+			stale.add(topLevelClassOf(entry[1]));
+		}
+		MappedTable old = MappedTable.open(file);
+		MappedTable.Builder builder = new MappedTable.Builder().metadata(old.getMetadata());
+		for (int i = 0; i < old.size(); i++) {
+			String value = old.valueAt(i);
+			if (!stale.contains(topLevelClassOf(value))) {
+				builder.add(old.keyAt(i), value);
+			}
+		}
+		for (String[] entry : entries) {
+			builder.add(entry[0], entry[1]);
+		}
+		builder.write(file);
+		manifest.write(file);
+		return MappedTable.open(file);
+	}
+
+	/**
+	 * Gets the top level class of the class of an index value.
+	 */
+	private static String topLevelClassOf(String value) {
+		int end = value.indexOf('\t');
+		int dollar = value.indexOf('$');
+		return value.substring(0, dollar >= 0 && dollar < end ? dollar : end);
+	}
+
+	private static void listSources(File dir, String path, List<String> paths) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			String childPath = path + child.getName();
+			if (child.isDirectory()) {
+				listSources(child, childPath + "/", paths);
+			} else if (ClassIndex.toClassName(childPath) != null) {
+				paths.add(childPath);
+			}
+		}
+	}
+
+	/**
+	 * Outlines a range of source files, splitting the range in half until it
+	 * is small enough to do directly.
+	 */
+	private static class OutlineTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 64;
+
+		private final ZipSource zip;
+		private final File dir;
+		private final List<String> paths;
+		private final int from;
+		private final int to;
+		private final Queue<String[]> entries;
+		private final SourceManifest manifest;
+
+		OutlineTask(ZipSource zip, File dir, List<String> paths, int from, int to, Queue<String[]> entries,
+				SourceManifest manifest) {
+			this.zip = zip;
+			this.dir = dir;
+			this.paths = paths;
+			this.from = from;
+			this.to = to;
+			this.entries = entries;
+			this.manifest = manifest;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new OutlineTask(zip, dir, paths, from, middle, entries, manifest), new OutlineTask(zip, dir,
+						paths, middle, to, entries, manifest));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				String path = paths.get(i);
+				try {
+					byte[] source;
+					if (zip != null) {
+						source = readFully(zip.openStream(path));
+					} else {
+						File file = new File(dir, path);
+						source = Files.readAllBytes(file.toPath());
+						manifest.record(path, file, source);
+					}
+					addMembers(ClassIndex.toClassName(path), source, entries);
+				} catch (IOException e) {
+					// Leave the file out rather than failing the whole index
+				}
+			}
+		}
+	}
+
+	private static void addMembers(String topLevelClass, byte[] source, Queue<String[]> entries) {
+		String pkg = topLevelClass.substring(0, topLevelClass.lastIndexOf('.') + 1);
+		for (SourceOutline.Member member : SourceOutline.parse(source)) {
+			if (member.getKind() == SourceOutline.Kind.TYPE) {
+				continue;
+			}
+			String type = member.getType();
+			// Fields can be linked to since their anchor is just their name
+			String anchor = member.getKind() == SourceOutline.Kind.FIELD
+					|| member.getKind() == SourceOutline.Kind.ENUM_CONSTANT ? member.getName() : "";
+			entries.add(new String[] { type + "#" + member.getLabel(),
+					toValue(pkg + type.replace('.', '$'), anchor, member.getLine()) });
+		}
+	}
+
+	private static String toValue(String className, String anchor, int line) {
+		return className + "\t" + anchor + "\t" + line;
+	}
+
+	/**
+	 * Finds the members of a class that start with a prefix. If the prefix is
+	 * the full name of some members (like <code>get</code>), only those
+	 * members are returned, so that overloads aren't hidden by every other
+	 * member that starts with the same letters.
+	 * 
+	 * @param className
+	 *            The name of the class. If it is fully qualified, only
+	 *            members of that class are found; otherwise members of every
+	 *            class with that simple name are
+	 * @param prefix
+	 *            The start of the member's label
+	 * @return The members, sorted by label
+	 */
+	public List<Entry> find(String className, String prefix) {
+		// Split "java.util.Map.Entry" into the package and "Map.Entry"
+		String[] segments = className.split("\\.");
+		int typeStart = 0;
+		while (typeStart < segments.length - 1 && !Character.isUpperCase(segments[typeStart].charAt(0))) {
+			typeStart++;
+		}
+		StringBuilder pkg = new StringBuilder();
+		StringBuilder type = new StringBuilder();
+		for (int i = 0; i < segments.length; i++) {
+			StringBuilder part = i < typeStart ? pkg : type;
+			if (part.length() > 0) {
+				part.append('.');
+			}
+			part.append(segments[i]);
+		}
+		String qualified = pkg.length() == 0 ? null : pkg + "." + type.toString().replace('.', '$');
+
+		List<Entry> matches = new ArrayList<>();
+		List<Entry> exact = new ArrayList<>();
+		String keyPrefix = type + "#" + prefix;
+		for (int i = table.firstWithPrefix(keyPrefix); i < table.size() && table.keyStartsWith(i, keyPrefix); i++) {
+			String[] value = table.valueAt(i).split("\t", 3);
+			if (qualified != null && !value[0].equals(qualified)) {
+				continue;
+			}
+			String key = table.keyAt(i);
+			Entry entry = new Entry(value[0], key.substring(type.length() + 1), value[1], Integer.parseInt(value[2]));
+			matches.add(entry);
+			if (entry.getName().equals(prefix)) {
+				exact.add(entry);
+			}
+		}
+		return exact.isEmpty() ? matches : exact;
+	}
+
+	/**
+	 * Gets the table backing this index.
+	 * 
+	 * @return The table
+	 */
+	public MappedTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Reads a file of the documentation, or returns null if it doesn't exist.
+	 * Redirects are followed, also from http to https, which
+	 * {@link HttpURLConnection} doesn't do by itself. Any other answer than
+	 * 200 from a host is an error, since an error page isn't the file.
+	 */
+	static byte[] download(URL url) throws IOException {
+		URL location = url;
+		int redirects = 0;
+		while (location.getProtocol().equals("http") || location.getProtocol().equals("https")) {
+			try (WebClient.Response response = WebClient.getDefault().get(location, null)) {
+				int status = response.getStatus();
+				if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE) {
+					return null;
+				}
+				String next = response.getHeader("Location");
+				if (status >= 300 && status < 400 && next != null && redirects++ < MAX_REDIRECTS) {
+					location = new URL(location, next);
+					continue;
+				}
+				if (status != HttpURLConnection.HTTP_OK) {
+					throw new IOException("Unable to download " + url + ": HTTP " + status);
+				}
+				return readFully(response.getBody());
+			}
+		}
+
+		URLConnection connection = location.openConnection();
+		try {
+			return readFully(connection.getInputStream());
+		} catch (FileNotFoundException e) {
+			return null;
+		}
+	}
+
+	static byte[] readFully(InputStream in) throws IOException {
+		if (in == null) {
+			throw new FileNotFoundException();
+		}
+		try (InputStream source = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = source.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	private static String unzipFirst(byte[] data) throws IOException {
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+			ZipEntry entry = zip.getNextEntry();
+			if (entry == null) {
+				throw new IOException("The member search index archive is empty");
+			}
+			return new String(readFully(zip), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Parses the objects of a Javadoc search index. The index is a JSON array
+	 * of flat objects with string values, optionally wrapped in a bit of
+	 * JavaScript, so this only understands that much JSON.
+	 * 
+	 * @param text
+	 *            The contents of the search index
+	 * @return The objects of the array
+	 */
+	static List<Map<String, String>> parseSearchIndex(String text) {
+		List<Map<String, String>> objects = new ArrayList<>();
+		int i = text.indexOf('[');
+		if (i < 0) {
+			return objects;
+		}
+		Map<String, String> current = null;
+		String key = null;
+		StringBuilder string = new StringBuilder();
+		for (i++; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '{') {
+				current = new HashMap<>();
+				key = null;
+			} else if (c == '}') {
+				if (current != null) {
+					objects.add(current);
+				}
+				current = null;
+			} else if (c == ']' && current == null) {
+				break;
+			} else if (c == '"') {
+				string.setLength(0);
+				for (i++; i < text.length() && text.charAt(i) != '"'; i++) {
+					char s = text.charAt(i);
+					if (s == '\\' && i + 1 < text.length()) {
+						char escaped = text.charAt(++i);
+						switch (escaped) {
+						case 'u':
+							s = (char) Integer.parseInt(text.substring(i + 1, i + 5), 16);
+							i += 4;
+							break;
+						case 'n':
+							s = '\n';
+							break;
+						case 't':
+							s = '\t';
+							break;
+						default:
+							s = escaped;
+						}
+					}
+					string.append(s);
+				}
+				if (current == null) {
+					continue;
+				}
+				if (key == null) {
+					key = string.toString();
+				} else {
+					current.put(key, string.toString());
+					key = null;
+				}
+			} else if (c == ',' && current != null) {
+				key = null;
+			}
+		}
+		return objects;
+	}
+}
@@ -0,0 +1,161 @@
+package net.dean.jsadl.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import net.dean.jsadl.Caches;
+
+/*
+ * MemberSource.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Cuts the source of a single declaration out of a source file. The first
+ * time a file is asked for, it is outlined with {@link SourceOutline} and the
+ * byte range of every declaration in it is saved as a {@link MappedTable} in
+ * <code>~/.jsadl/outlines/</code>. After that, finding a declaration of the
+ * same file is a binary search in the table and a seek in the file, and only
+ * the bytes of the declaration are read.
+ * <p>
+ * Declarations are found by their key, which is the name of the declaring
+ * type followed by a '#' and the label of the member, like
+ * <code>Map.Entry#getKey()</code> (the same keys a {@link MemberIndex} uses).
+ * The key of a type is just its name, like <code>Map.Entry</code>.
+ */
+public class MemberSource {
+	/**
+	 * The extension of outline table files
+	 */
+	public static final String EXTENSION = ".outline";
+
+	private MemberSource() {
+		// Utility class
+	}
+
+	/**
+	 * Gets the file that the outline table of a source file is stored in.
+	 * 
+	 * @param source
+	 *            The source file
+	 * @return The table file, which may not exist yet
+	 */
+	public static File fileFor(File source) {
+		return new File(Caches.getDirectory("outlines"), Caches.keyFor(source.getAbsolutePath()) + EXTENSION);
+	}
+
+	/**
+	 * Gets the key of a class, like <code>Map.Entry</code> for
+	 * <code>java.util.Map$Entry</code>.
+	 * 
+	 * @param className
+	 *            The fully qualified class name. Nested classes may be
+	 *            separated with a '$' or a '.'
+	 * @return The name of the class without its package
+	 */
+	public static String keyOf(String className) {
+		String[] segments = className.replace('$', '.').split("\\.");
+		int typeStart = 0;
+		while (typeStart < segments.length - 1 && !Character.isUpperCase(segments[typeStart].charAt(0))) {
+			typeStart++;
+		}
+		StringBuilder key = new StringBuilder(segments[typeStart]);
+		for (int i = typeStart + 1; i < segments.length; i++) {
+			key.append('.').append(segments[i]);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Gets the key of a member, like <code>Map.Entry#getKey()</code>.
+	 * 
+	 * @param member
+	 *            A member from a member index
+	 * @return The key
+	 */
+	public static String keyOf(MemberIndex.Entry member) {
+		return keyOf(member.getClassName()) + "#" + member.getLabel();
+	}
+
+	/**
+	 * Reads the source of a declaration, starting with its Javadoc comment
+	 * and annotations. The outline table of the file is built first if it
+	 * doesn't exist yet or the file has changed since it was built.
+	 * 
+	 * @param source
+	 *            The source file
+	 * @param key
+	 *            The key of the declaration
+	 * @return The source, or null if the file has no declaration with that
+	 *         key
+	 * @throws IOException
+	 *             If the file or its outline table could not be read
+	 */
+	public static String read(File source, String key) throws IOException {
+		File tableFile = fileFor(source);
+		byte[] contents = null;
+		MappedTable table = tableFile.isFile() ? MappedTable.open(tableFile) : null;
+		if (table == null || !table.getMetadata().equals(stamp(source))) {
+			contents = Files.readAllBytes(source.toPath());
+			table = build(source, contents, tableFile);
+		}
+
+		List<String> ranges = table.get(key);
+		if (ranges.isEmpty()) {
+			return null;
+		}
+		String[] range = ranges.get(0).split("\t");
+		int start = Integer.parseInt(range[0]);
+		int end = Integer.parseInt(range[1]);
+		if (contents != null) {
+			return new String(contents, start, end - start, StandardCharsets.UTF_8);
+		}
+
+		byte[] bytes = new byte[end - start];
+		try (RandomAccessFile raf = new RandomAccessFile(source, "r")) {
+			raf.seek(start);
+			raf.readFully(bytes);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static MappedTable build(File source, byte[] contents, File tableFile) throws IOException {
+		MappedTable.Builder builder = new MappedTable.Builder().metadata(stamp(source));
+		for (SourceOutline.Member member : SourceOutline.parse(contents)) {
+			String key;
+			if (member.getKind() == SourceOutline.Kind.TYPE) {
+				key = member.getType() == null ? member.getName() : member.getType() + "." + member.getName();
+			} else {
+				key = member.getType() + "#" + member.getLabel();
+			}
+			builder.add(key, lineStart(contents, member.getStart()) + "\t" + member.getEnd());
+		}
+		builder.write(tableFile);
+		return MappedTable.open(tableFile);
+	}
+
+	/**
+	 * Moves an offset back to the start of its line if only indentation is
+	 * before it, so the first line is indented like the rest.
+	 */
+	private static int lineStart(byte[] contents, int offset) {
+		int i = offset;
+		while (i > 0 && (contents[i - 1] == ' ' || contents[i - 1] == '\t')) {
+			i--;
+		}
+		return i == 0 || contents[i - 1] == '\n' ? i : offset;
+	}
+
+	/**
+	 * Identifies the version of a file that a table was built from
+	 */
+	private static String stamp(File source) {
+		return source.length() + "\t" + source.lastModified();
+	}
+}
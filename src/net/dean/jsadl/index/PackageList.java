@@ -0,0 +1,284 @@
+package net.dean.jsadl.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.dean.jsadl.Caches;
+
+/*
+ * PackageList.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * The packages of a set of documentation and the modules they are in, read
+ * from the documentation's <code>element-list</code> (Javadoc 10 and later)
+ * or <code>package-list</code> (older versions). Javadoc writes these files
+ * for linking between documentation sets, so nearly every documentation set
+ * has one.
+ * <p>
+ * With the list, the page of a class can be found without asking the
+ * documentation host: a class in a package that isn't listed has no page,
+ * and the page of a class in a module is in the module's directory, like
+ * <code>java.base/java/lang/Object.html</code>. The list is downloaded once
+ * and saved as a {@link MappedTable} in <code>~/.jsadl/packages/</code>,
+ * mapping each package to its module (or an empty string). If it could not
+ * be downloaded, such as when offline, that is remembered for
+ * {@link #FAILURE_TTL} so that lookups don't wait for the host every time.
+ */
+public class PackageList {
+	/**
+	 * The extension of package list files
+	 */
+	public static final String EXTENSION = ".packages";
+
+	/**
+	 * How long a list that could not be downloaded isn't asked for again
+	 */
+	public static final long FAILURE_TTL = TimeUnit.HOURS.toMillis(12);
+
+	/**
+	 * The extension of the files recording that a list could not be
+	 * downloaded
+	 */
+	private static final String FAILED_EXTENSION = ".failed";
+
+	/**
+	 * The names of the files listing the packages, in the order they are
+	 * looked for
+	 */
+	private static final String[] LIST_FILES = { "element-list", "package-list" };
+
+	/**
+	 * The prefix of a line of an element list that starts a module
+	 */
+	private static final String MODULE_PREFIX = "module:";
+
+	/**
+	 * The metadata of a table whose documentation has no package list, which
+	 * is saved so that it isn't looked for on every run
+	 */
+	private static final String UNAVAILABLE = "unavailable";
+
+	private final MappedTable table;
+
+	/**
+	 * The path from the documentation base to the directory of the list
+	 */
+	private final String prefix;
+
+	private PackageList(MappedTable table) {
+		this.table = table;
+		this.prefix = table.getMetadata();
+	}
+
+	/**
+	 * Gets the file that the package list of a documentation base is stored
+	 * in.
+	 * 
+	 * @param docBase
+	 *            The documentation base
+	 * @return The list file, which may not exist yet
+	 */
+	public static File fileFor(URL docBase) {
+		return new File(Caches.getDirectory("packages"), Caches.keyFor(docBase) + EXTENSION);
+	}
+
+	/**
+	 * Gets the package list of a documentation base, downloading it if it
+	 * hasn't been yet.
+	 * 
+	 * @param docBase
+	 *            The documentation base
+	 * @param rebuild
+	 *            True to download the list again even if it is saved
+	 * @return The package list, or null if the documentation doesn't have one
+	 *         or it could not be downloaded less than {@link #FAILURE_TTL}
+	 *         ago
+	 * @throws IOException
+	 *             If the list could not be downloaded or read
+	 */
+	public static PackageList forDocumentation(URL docBase, boolean rebuild) throws IOException {
+		File file = fileFor(docBase);
+		if (!rebuild && file.isFile()) {
+			return open(file);
+		}
+		File failed = new File(file.getPath() + FAILED_EXTENSION);
+		if (!rebuild && System.currentTimeMillis() - failed.lastModified() < FAILURE_TTL) {
+			return null;
+		}
+
+		MappedTable table;
+		try {
+			table = build(docBase, file);
+		} catch (IOException e) {
+			try {
+				Files.write(failed.toPath(), new byte[0]);
+			} catch (IOException e1) {
+				// It will be asked for again next time
+			}
+			throw e;
+		}
+		failed.delete();
+		return table.getMetadata().equals(UNAVAILABLE) ? null : new PackageList(table);
+	}
+
+	/**
+	 * Gets the package list of a documentation base if it has been downloaded
+	 * already, without asking the host.
+	 * 
+	 * @param docBase
+	 *            The documentation base
+	 * @return The package list, or null if it hasn't been downloaded or the
+	 *         documentation doesn't have one
+	 * @throws IOException
+	 *             If the saved list could not be read
+	 */
+	public static PackageList ifSaved(URL docBase) throws IOException {
+		File file = fileFor(docBase);
+		return file.isFile() ? open(file) : null;
+	}
+
+	private static PackageList open(File file) throws IOException {
+		MappedTable table = MappedTable.open(file);
+		return table.getMetadata().equals(UNAVAILABLE) ? null : new PackageList(table);
+	}
+
+	private static MappedTable build(URL base, File file) throws IOException {
+		MappedTable.Builder builder = new MappedTable.Builder().metadata(UNAVAILABLE);
+		if (!read(base, "", builder)) {
+			// JDK 11+ documentation bases may point at a module directory,
+			// while the list is one level up
+			String path = base.getPath();
+			String lastSegment = path.substring(path.lastIndexOf('/', path.length() - 2) + 1);
+			if (lastSegment.indexOf('.') > 0) {
+				read(base, "../", builder);
+			}
+		}
+		builder.write(file);
+		return MappedTable.open(file);
+	}
+
+	/**
+	 * Reads the first list found in a directory of the documentation into a
+	 * builder.
+	 * 
+	 * @return False if the directory has no list
+	 * @throws IOException
+	 *             If a list could not be downloaded or isn't a list of
+	 *             packages, such as an error page
+	 */
+	private static boolean read(URL base, String prefix, MappedTable.Builder builder) throws IOException {
+		for (String name : LIST_FILES) {
+			byte[] data = MemberIndex.download(new URL(base, prefix + name));
+			if (data == null) {
+				continue;
+			}
+			String module = "";
+			int packages = 0;
+			for (String line : new String(data, StandardCharsets.UTF_8).split("\\r?\\n")) {
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+				String element = line.startsWith(MODULE_PREFIX) ? line.substring(MODULE_PREFIX.length()) : line;
+				if (!isQualifiedName(element)) {
+					throw new IOException(new URL(base, prefix + name) + " is not a list of packages");
+				}
+				if (line.startsWith(MODULE_PREFIX)) {
+					module = element;
+				} else {
+					builder.add(line, module);
+					packages++;
+				}
+			}
+			if (packages == 0) {
+				throw new IOException(new URL(base, prefix + name) + " does not list any packages");
+			}
+			if (!prefix.isEmpty() && module.isEmpty()) {
+				// Only a list of modules explains a list in the parent
+				return false;
+			}
+			builder.metadata(prefix);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Tests if a line of a list is a package or module name, which is made of
+	 * Java identifiers separated by dots.
+	 */
+	private static boolean isQualifiedName(String name) {
+		boolean start = true;
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (start ? !Character.isJavaIdentifierStart(c) : c != '.' && !Character.isJavaIdentifierPart(c)) {
+				return false;
+			}
+			start = c == '.';
+		}
+		return !start;
+	}
+
+	/**
+	 * Finds the package of a class.
+	 * 
+	 * @param className
+	 *            The fully qualified name of the class. Nested classes may be
+	 *            separated with a '$' or a '.'
+	 * @return The package, or null if the class isn't in a listed package
+	 */
+	public String packageOf(String className) {
+		String name = className;
+		int dot;
+		while ((dot = name.lastIndexOf('.')) > 0) {
+			name = name.substring(0, dot);
+			if (!table.get(name).isEmpty()) {
+				return name;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the module a package is in.
+	 * 
+	 * @param pkg
+	 *            The package
+	 * @return The module, an empty string if the documentation isn't split
+	 *         into modules, or null if the package isn't listed
+	 */
+	public String getModule(String pkg) {
+		List<String> modules = table.get(pkg);
+		return modules.isEmpty() ? null : modules.get(0);
+	}
+
+	/**
+	 * Gets the path of a class's documentation page relative to the
+	 * documentation base, including the module's directory.
+	 * 
+	 * @param className
+	 *            The fully qualified name of the class. Nested classes may be
+	 *            separated from their enclosing class with a '$'.
+	 * @return The relative path, such as
+	 *         <code>java.base/java/util/Map.Entry.html</code>, or null if
+	 *         the class isn't in a listed package
+	 */
+	public String getDocPath(String className) {
+		String pkg = packageOf(className.replace('$', '.'));
+		if (pkg == null) {
+			return null;
+		}
+		String module = getModule(pkg);
+		return prefix + (module.isEmpty() ? "" : module + "/") + pkg.replace('.', '/') + "/"
+				+ className.substring(pkg.length() + 1).replace('$', '.') + ".html";
+	}
+}
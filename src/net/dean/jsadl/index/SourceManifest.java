@@ -0,0 +1,253 @@
+package net.dean.jsadl.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/*
+ * SourceManifest.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Records the files an index was built from, so that an index can tell which
+ * files have changed since and update just their part of it. Each file is
+ * recorded with its size, modification time and a CRC-32 of its contents.
+ * The contents of a file are only read again when its size or modification
+ * time differs, and a file whose contents are the same (because it was only
+ * touched, or checked out again) doesn't count as changed.
+ * <p>
+ * A manifest is saved as a {@link MappedTable} next to its index, with the
+ * extension {@value #EXTENSION}. Recording is thread safe, so files can be
+ * recorded by parallel build tasks.
+ */
+public class SourceManifest {
+	/**
+	 * The extension added to the name of an index file to get its manifest
+	 */
+	public static final String EXTENSION = ".manifest";
+
+	/**
+	 * The size, modification time and CRC-32 (or -1 if unknown) of each file,
+	 * keyed by its path
+	 */
+	private final ConcurrentMap<String, long[]> stamps = new ConcurrentHashMap<>();
+
+	/**
+	 * What changed between a manifest and the files as they are now
+	 */
+	public static class Changes {
+		private final List<String> added = new ArrayList<>();
+		private final List<String> changed = new ArrayList<>();
+		private final List<String> removed = new ArrayList<>();
+		private boolean touched;
+
+		/**
+		 * Tests if nothing was added, changed or removed.
+		 * 
+		 * @return True if the index is up to date
+		 */
+		public boolean isEmpty() {
+			return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+		}
+
+		/**
+		 * Tests if some files were touched without changing their contents,
+		 * which means the manifest should be saved again.
+		 * 
+		 * @return True if the manifest changed
+		 */
+		public boolean isTouched() {
+			return touched;
+		}
+
+		/**
+		 * Gets the files whose part of the index has to be removed: the ones
+		 * that changed or were removed.
+		 * 
+		 * @return The paths of the files
+		 */
+		public List<String> getStale() {
+			List<String> stale = new ArrayList<>(changed);
+			stale.addAll(removed);
+			return stale;
+		}
+
+		/**
+		 * Gets the files that have to be indexed: the ones that changed or
+		 * were added.
+		 * 
+		 * @return The paths of the files
+		 */
+		public List<String> getFresh() {
+			List<String> fresh = new ArrayList<>(changed);
+			fresh.addAll(added);
+			return fresh;
+		}
+
+		@Override
+		public String toString() {
+			return added.size() + " added, " + changed.size() + " changed, " + removed.size() + " removed";
+		}
+	}
+
+	/**
+	 * Gets the file that the manifest of an index is stored in.
+	 * 
+	 * @param index
+	 *            The index file
+	 * @return The manifest file, which may not exist
+	 */
+	public static File fileFor(File index) {
+		return new File(index.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Reads the manifest of an index.
+	 * 
+	 * @param index
+	 *            The index file
+	 * @return The manifest, or null if the index doesn't have one
+	 * @throws IOException
+	 *             If the manifest could not be read
+	 */
+	public static SourceManifest read(File index) throws IOException {
+		File file = fileFor(index);
+		if (!file.isFile()) {
+			return null;
+		}
+		MappedTable table = MappedTable.open(file);
+		SourceManifest manifest = new SourceManifest();
+		for (int i = 0; i < table.size(); i++) {
+			String[] values = table.valueAt(i).split("\t");
+			manifest.stamps.put(table.keyAt(i), new long[] { Long.parseLong(values[0]), Long.parseLong(values[1]),
+					Long.parseLong(values[2]) });
+		}
+		return manifest;
+	}
+
+	/**
+	 * Saves this manifest next to its index.
+	 * 
+	 * @param index
+	 *            The index file
+	 * @throws IOException
+	 *             If the manifest could not be written
+	 */
+	public void write(File index) throws IOException {
+		MappedTable.Builder builder = new MappedTable.Builder();
+		for (Map.Entry<String, long[]> stamp : stamps.entrySet()) {
+			long[] values = stamp.getValue();
+			builder.add(stamp.getKey(), values[0] + "\t" + values[1] + "\t" + values[2]);
+		}
+		builder.write(fileFor(index));
+	}
+
+	/**
+	 * Records a file as it is now.
+	 * 
+	 * @param path
+	 *            The path the file is known by in the index
+	 * @param file
+	 *            The file
+	 * @param contents
+	 *            The contents of the file, or null to only record its size
+	 *            and modification time
+	 */
+	public void record(String path, File file, byte[] contents) {
+		stamps.put(path, new long[] { file.length(), file.lastModified(), contents == null ? -1 : crcOf(contents) });
+	}
+
+	/**
+	 * Tests if a file has the same size and modification time as when it was
+	 * recorded.
+	 * 
+	 * @param path
+	 *            The path the file is known by in the index
+	 * @param file
+	 *            The file
+	 * @return False if it changed, or was never recorded
+	 */
+	public boolean isCurrent(String path, File file) {
+		long[] stamp = stamps.get(path);
+		return stamp != null && stamp[0] == file.length() && stamp[1] == file.lastModified();
+	}
+
+	/**
+	 * Tests if every recorded file still has the same size and modification
+	 * time. This is meant for manifests of directories: a file being added to
+	 * or removed from a directory changes the directory's modification time.
+	 * 
+	 * @param root
+	 *            The directory the recorded paths are relative to
+	 * @return True if nothing changed
+	 */
+	public boolean isCurrent(File root) {
+		for (String path : stamps.keySet()) {
+			if (!isCurrent(path, path.isEmpty() ? root : new File(root, path))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compares this manifest with the files of a directory as they are now.
+	 * Files that were touched without being changed and files that were
+	 * removed are updated in this manifest; files that were added or changed
+	 * have to be recorded when they are indexed.
+	 * 
+	 * @param root
+	 *            The directory the paths are relative to
+	 * @param paths
+	 *            The paths of the files that are in the directory now
+	 * @return What changed
+	 * @throws IOException
+	 *             If a file that might have changed could not be read
+	 */
+	public Changes compare(File root, List<String> paths) throws IOException {
+		Changes changes = new Changes();
+		Set<String> seen = new HashSet<>(paths.size());
+		for (String path : paths) {
+			seen.add(path);
+			File file = new File(root, path);
+			long[] stamp = stamps.get(path);
+			if (stamp == null) {
+				changes.added.add(path);
+			} else if (!isCurrent(path, file)) {
+				byte[] contents = Files.readAllBytes(file.toPath());
+				if (stamp[2] != -1 && stamp[2] == crcOf(contents)) {
+					record(path, file, contents);
+					changes.touched = true;
+				} else {
+					changes.changed.add(path);
+				}
+			}
+		}
+		for (String path : new ArrayList<>(stamps.keySet())) {
+			if (!seen.contains(path)) {
+				changes.removed.add(path);
+				stamps.remove(path);
+			}
+		}
+		Collections.sort(changes.added);
+		return changes;
+	}
+
+	private static long crcOf(byte[] contents) {
+		CRC32 crc = new CRC32();
+		crc.update(contents, 0, contents.length);
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,508 @@
+package net.dean.jsadl.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.dean.jsadl.index.JavaScanner.Token;
+
+/*
+ * SourceOutline.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Finds the declarations in a Java source file: types, fields, enum constants,
+ * methods and constructors, along with the line they are declared on and the
+ * range of bytes they occupy. Method bodies and initializers are skipped over
+ * without being parsed, which is what makes outlining a whole JDK fast enough
+ * to do on demand.
+ */
+public class SourceOutline {
+	/**
+	 * The kinds of declarations
+	 */
+	public enum Kind {
+		TYPE, FIELD, ENUM_CONSTANT, CONSTRUCTOR, METHOD
+	}
+
+	/**
+	 * A single declaration
+	 */
+	public static class Member {
+		private final Kind kind;
+		private final String type;
+		private final String name;
+		private final String label;
+		private final int line;
+		private final int start;
+		private final int end;
+
+		Member(Kind kind, String type, String name, String label, int line, int start, int end) {
+			this.kind = kind;
+			this.type = type;
+			this.name = name;
+			this.label = label;
+			this.line = line;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Gets the kind of declaration.
+		 * 
+		 * @return The kind
+		 */
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * Gets the name of the type this is declared in. Nested types are
+		 * separated by dots, like <code>Map.Entry</code>. For a
+		 * {@link Kind#TYPE}, this is the name of the enclosing type, or null
+		 * if it is a top level type.
+		 * 
+		 * @return The name of the declaring type
+		 */
+		public String getType() {
+			return type;
+		}
+
+		/**
+		 * Gets the simple name of the declaration.
+		 * 
+		 * @return The name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the label of the declaration, which is the name followed by
+		 * the parameter types for methods and constructors, such as
+		 * <code>put(K, V)</code>. This is the same format the Javadoc search
+		 * index uses.
+		 * 
+		 * @return The label
+		 */
+		public String getLabel() {
+			return label;
+		}
+
+		/**
+		 * Gets the line the name of the declaration is on, counting from 1.
+		 * 
+		 * @return The line
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * Gets the offset of the first byte of the declaration, including its
+		 * Javadoc comment if it has one.
+		 * 
+		 * @return The start offset
+		 */
+		public int getStart() {
+			return start;
+		}
+
+		/**
+		 * Gets the offset just past the last byte of the declaration.
+		 * 
+		 * @return The end offset
+		 */
+		public int getEnd() {
+			return end;
+		}
+	}
+
+	private final JavaScanner scanner;
+	private final List<Member> members = new ArrayList<>();
+	private boolean pushedBack;
+
+	private SourceOutline(byte[] source) {
+		this.scanner = new JavaScanner(source);
+	}
+
+	/**
+	 * Finds the declarations in a source file.
+	 * 
+	 * @param source
+	 *            The contents of the file
+	 * @return Every declaration, in the order they appear in the file
+	 */
+	public static List<Member> parse(byte[] source) {
+		SourceOutline outline = new SourceOutline(source);
+		outline.parseBody(null, false);
+		return outline.members;
+	}
+
+	/**
+	 * Gets the next token that isn't a comment. Javadoc comments are
+	 * returned, since they are part of the declaration that follows them.
+	 */
+	private Token next() {
+		if (pushedBack) {
+			pushedBack = false;
+			return scanner.getToken();
+		}
+		Token token;
+		do {
+			token = scanner.next();
+		} while (token == Token.COMMENT);
+		return token;
+	}
+
+	private Token nextCode() {
+		Token token;
+		do {
+			token = next();
+		} while (token == Token.JAVADOC);
+		return token;
+	}
+
+	private void pushBack() {
+		pushedBack = true;
+	}
+
+	/**
+	 * Parses the members of a type, or the top level of the file if type is
+	 * null. The opening brace has already been read; the closing one is
+	 * consumed.
+	 */
+	private void parseBody(String type, boolean isEnum) {
+		boolean constants = isEnum;
+		int start = -1;
+		String name = null;
+		int nameLine = 0;
+
+		while (true) {
+			Token token = next();
+			if (token == Token.EOF) {
+				return;
+			}
+			if (token == Token.JAVADOC) {
+				if (start < 0) {
+					start = scanner.getStart();
+				}
+				continue;
+			}
+			if (start < 0) {
+				start = scanner.getStart();
+			}
+
+			if (token == Token.IDENTIFIER) {
+				if (constants) {
+					String constant = scanner.getText();
+					int line = scanner.getLine();
+					Token after = nextCode();
+					if (after == Token.SYMBOL && scanner.isSymbol('(')) {
+						skipBalanced('(', ')');
+						after = nextCode();
+					}
+					if (after == Token.SYMBOL && scanner.isSymbol('{')) {
+						skipBalanced('{', '}');
+						after = nextCode();
+					}
+					add(Kind.ENUM_CONSTANT, type, constant, constant, line, start, scanner.getStart());
+					start = -1;
+					if (scanner.isSymbol(';')) {
+						constants = false;
+					} else if (scanner.isSymbol('}') || after == Token.EOF) {
+						return;
+					}
+					continue;
+				}
+
+				boolean isEnumType = scanner.isIdentifier("enum");
+				if (scanner.isIdentifier("class") || scanner.isIdentifier("interface") || isEnumType
+						|| (scanner.isIdentifier("record") && peekIsTypeName())) {
+					if (nextCode() != Token.IDENTIFIER) {
+						pushBack();
+						continue;
+					}
+					parseType(type, scanner.getText(), scanner.getLine(), start, isEnumType);
+					start = -1;
+					name = null;
+					continue;
+				}
+				name = scanner.getText();
+				nameLine = scanner.getLine();
+				continue;
+			}
+			if (token != Token.SYMBOL) {
+				continue;
+			}
+
+			if (scanner.isSymbol('@')) {
+				// Annotations, or an annotation type
+				if (nextCode() == Token.IDENTIFIER && scanner.isIdentifier("interface")) {
+					if (nextCode() == Token.IDENTIFIER) {
+						parseType(type, scanner.getText(), scanner.getLine(), start, false);
+					}
+					start = -1;
+					name = null;
+					continue;
+				}
+				skipAnnotation();
+			} else if (constants && (scanner.isSymbol(';') || scanner.isSymbol(','))) {
+				// An empty list of constants
+				constants = scanner.isSymbol(',');
+				start = -1;
+			} else if (scanner.isSymbol('<')) {
+				skipBalanced('<', '>');
+			} else if (scanner.isSymbol('(')) {
+				if (name == null) {
+					skipBalanced('(', ')');
+					continue;
+				}
+				String label = name + "(" + parseParameters() + ")";
+				// Skip the throws clause and find the body, if there is one
+				Token after;
+				do {
+					after = nextCode();
+				} while (after != Token.EOF && !scanner.isSymbol('{') && !scanner.isSymbol(';'));
+				if (scanner.isSymbol('{')) {
+					skipBalanced('{', '}');
+				}
+				if (type != null) {
+					Kind kind = type.equals(name) || type.endsWith("." + name) ? Kind.CONSTRUCTOR : Kind.METHOD;
+					add(kind, type, name, label, nameLine, start, scanner.getEnd());
+				}
+				start = -1;
+				name = null;
+			} else if (scanner.isSymbol('=')) {
+				int fieldStart = start;
+				int fieldLine = nameLine;
+				String field = name;
+				// Skip the initializer, which may contain anonymous classes
+				// and lambdas
+				Token after = skipExpression();
+				while (after != Token.EOF) {
+					if (type != null && field != null) {
+						add(Kind.FIELD, type, field, field, fieldLine, fieldStart, scanner.getEnd());
+					}
+					if (scanner.isSymbol(';')) {
+						break;
+					}
+					// Another declarator
+					field = nextCode() == Token.IDENTIFIER ? scanner.getText() : null;
+					fieldLine = scanner.getLine();
+					after = nextCode();
+					if (scanner.isSymbol('=')) {
+						after = skipExpression();
+					}
+				}
+				start = -1;
+				name = null;
+			} else if (scanner.isSymbol(';') || scanner.isSymbol(',')) {
+				if (type != null && name != null) {
+					add(Kind.FIELD, type, name, name, nameLine, start, scanner.getEnd());
+				}
+				if (scanner.isSymbol(';')) {
+					start = -1;
+				}
+				name = null;
+			} else if (scanner.isSymbol('{')) {
+				// An initializer
+				skipBalanced('{', '}');
+				start = -1;
+				name = null;
+			} else if (scanner.isSymbol('}')) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Parses the rest of a type declaration after its name.
+	 */
+	private void parseType(String outer, String name, int line, int start, boolean isEnum) {
+		int index = members.size();
+		add(Kind.TYPE, outer, name, name, line, start, start);
+		// Skip type parameters, record components, extends and implements
+		Token token;
+		do {
+			token = nextCode();
+			if (scanner.isSymbol('(')) {
+				skipBalanced('(', ')');
+			} else if (scanner.isSymbol('<')) {
+				skipBalanced('<', '>');
+			}
+		} while (token != Token.EOF && !scanner.isSymbol('{'));
+		if (token == Token.EOF) {
+			return;
+		}
+		parseBody(outer == null ? name : outer + "." + name, isEnum);
+		// Now that the end is known
+		members.set(index, new Member(Kind.TYPE, outer, name, name, line, start, scanner.getEnd()));
+	}
+
+	/**
+	 * Tests if the token after a contextual keyword like "record" is a name,
+	 * which is what makes the keyword start a declaration. The scanner is left
+	 * where it was.
+	 */
+	private boolean peekIsTypeName() {
+		JavaScanner ahead = new JavaScanner(scanner.getSource(), scanner.getEnd(), scanner.getSource().length);
+		Token token;
+		do {
+			token = ahead.next();
+		} while (token == Token.COMMENT || token == Token.JAVADOC);
+		if (token != Token.IDENTIFIER) {
+			return false;
+		}
+		do {
+			token = ahead.next();
+		} while (token == Token.COMMENT || token == Token.JAVADOC);
+		return ahead.isSymbol('(') || ahead.isSymbol('<');
+	}
+
+	/**
+	 * Skips the rest of an annotation after the '@'.
+	 */
+	private void skipAnnotation() {
+		// The name has been read, skip any more of a qualified name
+		while (true) {
+			Token token = nextCode();
+			if (token == Token.SYMBOL && scanner.isSymbol('.')) {
+				nextCode();
+			} else if (token == Token.SYMBOL && scanner.isSymbol('(')) {
+				skipBalanced('(', ')');
+				return;
+			} else {
+				pushBack();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Skips to the matching close symbol, given that the open symbol has
+	 * just been read. Angle brackets only nest with each other, so they stop
+	 * at anything that can't be part of a type.
+	 */
+	private void skipBalanced(char open, char close) {
+		int depth = 1;
+		while (depth > 0) {
+			Token token = nextCode();
+			if (token == Token.EOF) {
+				return;
+			}
+			if (token != Token.SYMBOL) {
+				continue;
+			}
+			if (scanner.isSymbol(open)) {
+				depth++;
+			} else if (scanner.isSymbol(close)) {
+				depth--;
+			} else if (open == '<' && (scanner.isSymbol(';') || scanner.isSymbol('{') || scanner.isSymbol('='))) {
+				pushBack();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Skips an expression, stopping at the ',' or ';' that ends it.
+	 */
+	private Token skipExpression() {
+		int depth = 0;
+		while (true) {
+			Token token = nextCode();
+			if (token == Token.EOF) {
+				return token;
+			}
+			if (token != Token.SYMBOL) {
+				continue;
+			}
+			if (scanner.isSymbol('(') || scanner.isSymbol('{') || scanner.isSymbol('[')) {
+				depth++;
+			} else if (scanner.isSymbol(')') || scanner.isSymbol('}') || scanner.isSymbol(']')) {
+				depth--;
+			} else if (depth <= 0 && (scanner.isSymbol(',') || scanner.isSymbol(';'))) {
+				return token;
+			}
+		}
+	}
+
+	/**
+	 * Reads the parameter list of a method, the opening parenthesis having
+	 * been read, and returns the types of the parameters separated by ", ".
+	 */
+	private String parseParameters() {
+		StringBuilder types = new StringBuilder();
+		StringBuilder parameter = new StringBuilder();
+		// The length of the parameter before its last identifier, which is
+		// the parameter's name
+		int beforeName = 0;
+		String previous = null;
+		int depth = 0;
+
+		while (true) {
+			Token token = nextCode();
+			if (token == Token.EOF) {
+				break;
+			}
+			if (token == Token.SYMBOL && scanner.isSymbol('@')) {
+				nextCode();
+				skipAnnotation();
+				continue;
+			}
+			if (token == Token.IDENTIFIER && scanner.isIdentifier("final")) {
+				continue;
+			}
+
+			boolean end = depth == 0 && token == Token.SYMBOL && (scanner.isSymbol(',') || scanner.isSymbol(')'));
+			if (end) {
+				if (parameter.length() > 0) {
+					if (types.length() > 0) {
+						types.append(", ");
+					}
+					types.append(parameter, 0, beforeName > 0 ? beforeName : parameter.length());
+				}
+				if (scanner.isSymbol(')')) {
+					break;
+				}
+				parameter.setLength(0);
+				beforeName = 0;
+				previous = null;
+				continue;
+			}
+
+			String text = scanner.getText();
+			if (token == Token.SYMBOL) {
+				if (text.equals("<") || text.equals("(")) {
+					depth++;
+				} else if (text.equals(">") || text.equals(")")) {
+					depth--;
+				}
+			}
+			if (token == Token.IDENTIFIER && depth == 0) {
+				beforeName = parameter.length();
+			}
+			if (previous != null && needsSpace(previous, text)) {
+				parameter.append(' ');
+			}
+			parameter.append(text);
+			if (text.equals(",") && depth > 0) {
+				parameter.append(' ');
+			}
+			previous = text;
+		}
+		return types.toString();
+	}
+
+	private static boolean needsSpace(String previous, String text) {
+		boolean word = Character.isJavaIdentifierPart(text.charAt(0));
+		return word && (previous.equals("?") || Character.isJavaIdentifierPart(previous.charAt(previous.length() - 1)));
+	}
+
+	private void add(Kind kind, String type, String name, String label, int line, int start, int end) {
+		members.add(new Member(kind, type, name, label, line, start, end));
+	}
+}
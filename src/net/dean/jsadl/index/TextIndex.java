@@ -0,0 +1,753 @@
+package net.dean.jsadl.index;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RecursiveAction;
+
+import net.dean.jsadl.Caches;
+import net.dean.jsadl.Reference;
+import net.dean.jsadl.ZipSource;
+import net.dean.jsadl.index.JavaScanner.Token;
+
+/*
+ * TextIndex.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.index)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * A full-text index of a Reference's source, mapping every word to the lines
+ * it appears on. Words are identifiers and the words of string literals and
+ * comments (Javadoc included), split with {@link JavaScanner} and compared
+ * without regard to case. Numbers and punctuation aren't indexed.
+ * <p>
+ * The index is two files in the "index" cache directory: a
+ * {@link MappedTable} of words (<code>.text</code>), whose values point into
+ * a file of posting lists (<code>.postings</code>). Both are memory-mapped,
+ * so a search only touches the posting lists of the words it asks for. A
+ * posting list is a sequence of (file, line) pairs in order, each stored as
+ * variable length deltas, which makes most postings one or two bytes.
+ * <p>
+ * The postings file is laid out like this:
+ * 
+ * <pre>
+ * int    magic
+ * int    version
+ * int    file count
+ * int[]  absolute offset of every file's path
+ * file:  u16 path length, path (UTF-8)
+ * posting lists, each a sequence of:
+ *   varint file delta (the first file counts from -1)
+ *   varint line, or the line delta if the file delta is 0
+ * </pre>
+ */
+public class TextIndex {
+	/**
+	 * The extension of word table files
+	 */
+	public static final String EXTENSION = ".text";
+
+	/**
+	 * The extension of posting list files
+	 */
+	public static final String POSTINGS_EXTENSION = ".postings";
+
+	private static final int MAGIC = 0x4A535458; // "JSTX"
+	private static final int VERSION = 1;
+
+	/**
+	 * The longest line of a hit that is kept
+	 */
+	private static final int MAX_LINE_LENGTH = 200;
+
+	/**
+	 * A line that has every word of a query
+	 */
+	public static class Hit {
+		private final String path;
+		private final int line;
+		private final String text;
+
+		Hit(String path, int line, String text) {
+			this.path = path;
+			this.line = line;
+			this.text = text;
+		}
+
+		/**
+		 * Gets the path of the file. Files in a directory have an absolute
+		 * path; files in an archive have the path of their entry.
+		 * 
+		 * @return The path
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * Gets the line, counting from 1.
+		 * 
+		 * @return The line
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * Gets the text of the line without its indentation.
+		 * 
+		 * @return The text, shortened if it is very long
+		 */
+		public String getText() {
+			return text;
+		}
+
+		@Override
+		public String toString() {
+			return path + ":" + line + ": " + text;
+		}
+	}
+
+	private final MappedTable words;
+	private final ByteBuffer postings;
+
+	/**
+	 * The source directory or archive that was indexed
+	 */
+	private final File root;
+
+	private TextIndex(MappedTable words, ByteBuffer postings, File root) throws IOException {
+		this.words = words;
+		this.postings = postings;
+		this.root = root;
+		if (postings.getInt(0) != MAGIC || postings.getInt(4) != VERSION) {
+			throw new IOException("Not a JSaDL text index or an unsupported version");
+		}
+	}
+
+	/**
+	 * Gets the path of a file by its number.
+	 */
+	private String pathOf(int file) {
+		int position = postings.getInt(12 + file * 4);
+		byte[] bytes = new byte[postings.getShort(position) & 0xFFFF];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = postings.get(position + 2 + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the file that the word table of a source base is stored in. The
+	 * posting lists are next to it, with the extension
+	 * {@value #POSTINGS_EXTENSION}.
+	 * 
+	 * @param ref
+	 *            The Reference
+	 * @return The index file, which may not exist yet
+	 */
+	public static File fileFor(Reference ref) {
+		return new File(Caches.getDirectory("index"), Caches.keyFor(ref.getSourceBase()) + EXTENSION);
+	}
+
+	private static File postingsFileFor(File file) {
+		String name = file.getName();
+		return new File(file.getParentFile(), name.substring(0, name.length() - EXTENSION.length())
+				+ POSTINGS_EXTENSION);
+	}
+
+	/**
+	 * Opens the text index of a Reference's source, building it first if it
+	 * does not exist yet.
+	 * 
+	 * @param ref
+	 *            The Reference, which must be indexable
+	 * @param rebuild
+	 *            True to build the index even if it already exists
+	 * @return The text index
+	 * @throws IOException
+	 *             If the index could not be read or built
+	 * @see ClassIndex#canIndex(Reference)
+	 */
+	public static TextIndex forSource(Reference ref, boolean rebuild) throws IOException {
+		File file = fileFor(ref);
+		if (rebuild || !file.isFile() || !postingsFileFor(file).isFile()) {
+			return build(ref);
+		}
+		return refresh(ref, file);
+	}
+
+	/**
+	 * Opens a text index, first bringing it up to date with the source. The
+	 * files that changed are indexed again and the postings of the rest are
+	 * copied over; an archive that changed is indexed again from scratch.
+	 */
+	private static TextIndex refresh(Reference ref, File file) throws IOException {
+		SourceManifest manifest = SourceManifest.read(file);
+		if (manifest == null) {
+			// Built before manifests were kept
+			return build(ref);
+		}
+		if (!ClassIndex.canIndex(ref)) {
+			// The source is gone, so keep what there is
+			return open(file);
+		}
+		if (ref.hasSourceArchive()) {
+			return manifest.isCurrent("", ZipSource.archiveOf(ref.getSourceBase())) ? open(file) : build(ref);
+		}
+
+		File dir = new File(ref.getSourceBase().getFile()).getAbsoluteFile();
+		List<String> sources = new ArrayList<>();
+		listSources(dir, "", sources);
+		SourceManifest.Changes changes = manifest.compare(dir, sources);
+		TextIndex old = open(file);
+		if (changes.isEmpty()) {
+			if (changes.isTouched()) {
+				manifest.write(file);
+			}
+			return old;
+		}
+
+		// Files keep their order, so copied posting lists stay in order
+		Builder builder = new Builder();
+		Set<String> stale = new HashSet<>(changes.getStale());
+		int[] files = new int[old.postings.getInt(8)];
+		for (int i = 0; i < files.length; i++) {
+			String path = old.pathOf(i);
+			files[i] = stale.contains(path) ? -1 : builder.addPath(path);
+		}
+		for (int i = 0; i < old.words.size(); i++) {
+			String[] value = old.words.valueAt(i).split("\t");
+			builder.copy(old.words.keyAt(i), old.decode(Integer.parseInt(value[0]), Integer.parseInt(value[1])),
+					files);
+		}
+		List<String> fresh = changes.getFresh();
+		ClassIndex.invoke(new IndexTask(null, dir, fresh, 0, fresh.size(), builder, manifest));
+		builder.write(file, dir);
+		manifest.write(file);
+		return open(file);
+	}
+
+	private static TextIndex open(File file) throws IOException {
+		MappedTable words = MappedTable.open(file);
+		try (RandomAccessFile raf = new RandomAccessFile(postingsFileFor(file), "r");
+				FileChannel channel = raf.getChannel()) {
+			ByteBuffer postings = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new TextIndex(words, postings, new File(words.getMetadata()));
+		}
+	}
+
+	/**
+	 * Builds (or rebuilds) the text index of a Reference. Files are read and
+	 * split into words in parallel.
+	 * 
+	 * @param ref
+	 *            The Reference, which must be indexable
+	 * @return The new text index
+	 * @throws IOException
+	 *             If the source base can't be indexed or the index could not
+	 *             be written
+	 */
+	public static TextIndex build(Reference ref) throws IOException {
+		if (!ClassIndex.canIndex(ref)) {
+			throw new IOException("Only local source directories and archives can be indexed");
+		}
+
+		ZipSource zip = null;
+		File dir = null;
+		List<String> sources = new ArrayList<>();
+		SourceManifest manifest = new SourceManifest();
+		File root;
+		if (ref.hasSourceArchive()) {
+			zip = ZipSource.open(ZipSource.archiveOf(ref.getSourceBase()));
+			for (int i = 0; i < zip.getDirectory().size(); i++) {
+				String path = zip.getDirectory().keyAt(i);
+				if (path.endsWith(".java")) {
+					sources.add(path);
+				}
+			}
+			root = zip.getArchive().getAbsoluteFile();
+			manifest.record("", root, null);
+		} else {
+			dir = new File(ref.getSourceBase().getFile()).getAbsoluteFile();
+			listSources(dir, "", sources);
+			root = dir;
+		}
+
+		Builder builder = new Builder();
+		ClassIndex.invoke(new IndexTask(zip, dir, sources, 0, sources.size(), builder, manifest));
+		File file = fileFor(ref);
+		builder.write(file, root);
+		manifest.write(file);
+		return open(file);
+	}
+
+	private static void listSources(File dir, String path, List<String> sources) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			String childPath = path + child.getName();
+			if (child.isDirectory()) {
+				listSources(child, childPath + "/", sources);
+			} else if (childPath.endsWith(".java")) {
+				sources.add(childPath);
+			}
+		}
+	}
+
+	/**
+	 * Finds the lines that have every word of a query, in the order of their
+	 * files and lines.
+	 * 
+	 * @param query
+	 *            The words to look for, such as
+	 *            <code>MAXIMUM_CAPACITY</code> or
+	 *            <code>Illegal initial capacity</code>
+	 * @param limit
+	 *            The most lines to return
+	 * @return The lines, empty if the query has no words or some word is
+	 *         never used
+	 * @throws IOException
+	 *             If the source files could not be read to get the text of
+	 *             the lines
+	 */
+	public List<Hit> search(String query, int limit) throws IOException {
+		List<String> terms = new ArrayList<>(wordsOf(query));
+		if (terms.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		// Start with the rarest word so the other lists only filter
+		long[][] lists = new long[terms.size()][];
+		for (int i = 0; i < terms.size(); i++) {
+			List<String> values = words.get(terms.get(i));
+			if (values.isEmpty()) {
+				return Collections.emptyList();
+			}
+			String[] value = values.get(0).split("\t");
+			int count = Integer.parseInt(value[1]);
+			// A single word needs no more postings than it has hits
+			lists[i] = decode(Integer.parseInt(value[0]), terms.size() == 1 ? Math.min(count, limit) : count);
+		}
+		Arrays.sort(lists, new Comparator<long[]>() {
+
+			@Override
+			public int compare(long[] a, long[] b) {
+				return Integer.compare(a.length, b.length);
+			}
+		});
+		long[] matches = lists[0];
+		for (int i = 1; i < lists.length && matches.length > 0; i++) {
+			matches = intersect(matches, lists[i]);
+		}
+
+		List<Hit> hits = new ArrayList<>();
+		int i = 0;
+		while (i < matches.length && hits.size() < limit) {
+			// Read each file once for all of its lines
+			int file = (int) (matches[i] >>> 32);
+			int last = i;
+			while (last < matches.length && (int) (matches[last] >>> 32) == file && last - i < limit - hits.size()) {
+				last++;
+			}
+			int[] lines = new int[last - i];
+			for (int j = 0; j < lines.length; j++) {
+				lines[j] = (int) matches[i + j];
+			}
+			String path = pathOf(file);
+			String[] texts = readLines(path, lines);
+			if (root.isDirectory()) {
+				path = new File(root, path).getPath();
+			}
+			for (int j = 0; j < lines.length; j++) {
+				hits.add(new Hit(path, lines[j], texts[j]));
+			}
+			i = last;
+			while (i < matches.length && (int) (matches[i] >>> 32) == file) {
+				i++;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Decodes a posting list into (file &lt;&lt; 32 | line) values, which are
+	 * in ascending order.
+	 */
+	private long[] decode(int offset, int count) {
+		long[] values = new long[count];
+		int position = offset;
+		int file = -1;
+		int line = 0;
+		for (int i = 0; i < count; i++) {
+			int delta = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = postings.get(position++);
+				delta |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			int lineValue = 0;
+			shift = 0;
+			do {
+				b = postings.get(position++);
+				lineValue |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			if (delta == 0) {
+				line += lineValue;
+			} else {
+				file += delta;
+				line = lineValue;
+			}
+			values[i] = (long) file << 32 | line;
+		}
+		return values;
+	}
+
+	private static long[] intersect(long[] a, long[] b) {
+		long[] result = new long[Math.min(a.length, b.length)];
+		int size = 0;
+		int j = 0;
+		for (int i = 0; i < a.length && j < b.length; i++) {
+			while (j < b.length && b[j] < a[i]) {
+				j++;
+			}
+			if (j < b.length && b[j] == a[i]) {
+				result[size++] = a[i];
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Reads the text of some lines of a source file.
+	 */
+	private String[] readLines(String path, int[] lines) throws IOException {
+		String[] texts = new String[lines.length];
+		InputStream in;
+		if (root.isDirectory()) {
+			in = Files.newInputStream(new File(root, path).toPath());
+		} else {
+			in = ZipSource.open(root).openStream(path);
+			if (in == null) {
+				Arrays.fill(texts, "");
+				return texts;
+			}
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			int current = 0;
+			String text;
+			for (int i = 0; i < lines.length && (text = reader.readLine()) != null;) {
+				if (++current == lines[i]) {
+					text = text.trim();
+					texts[i++] = text.length() > MAX_LINE_LENGTH ? text.substring(0, MAX_LINE_LENGTH) + "..." : text;
+				}
+			}
+		}
+		for (int i = 0; i < texts.length; i++) {
+			if (texts[i] == null) {
+				texts[i] = "";
+			}
+		}
+		return texts;
+	}
+
+	/**
+	 * Splits text into the words that are indexed: runs of identifier
+	 * characters that are at least two characters long, in lower case.
+	 * 
+	 * @param text
+	 *            The text, such as a query
+	 * @return The words, without duplicates, in the order they appear
+	 */
+	public static Set<String> wordsOf(String text) {
+		Set<String> words = new LinkedHashSet<>();
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		int start = -1;
+		for (int i = 0; i <= bytes.length; i++) {
+			if (i < bytes.length && JavaScanner.isIdentifierPart(bytes[i] & 0xFF)) {
+				if (start < 0) {
+					start = i;
+				}
+			} else if (start >= 0) {
+				if (i - start > 1) {
+					words.add(new String(bytes, start, i - start, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT));
+				}
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Finds the words of a source file and the lines they are on.
+	 * 
+	 * @param source
+	 *            The contents of the file
+	 * @return The lines of each word, in ascending order
+	 */
+	static Map<String, Lines> index(byte[] source) {
+		Map<String, Lines> found = new HashMap<>();
+		JavaScanner scanner = new JavaScanner(source);
+		Token token;
+		while ((token = scanner.next()) != Token.EOF) {
+			if (token == Token.NUMBER || token == Token.SYMBOL) {
+				continue;
+			}
+			int line = scanner.getLine();
+			int start = -1;
+			boolean string = token == Token.STRING;
+			for (int i = scanner.getStart(); i <= scanner.getEnd(); i++) {
+				int c = i < scanner.getEnd() ? source[i] & 0xFF : -1;
+				if (c >= 0 && JavaScanner.isIdentifierPart(c)) {
+					if (start < 0) {
+						start = i;
+					}
+					continue;
+				}
+				if (start >= 0 && i - start > 1) {
+					String word = new String(source, start, i - start, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT);
+					Lines lines = found.get(word);
+					if (lines == null) {
+						lines = new Lines();
+						found.put(word, lines);
+					}
+					lines.add(line);
+				}
+				start = -1;
+				if (c == '\n') {
+					line++;
+				} else if (c == '\\' && string && i + 1 < scanner.getEnd() && source[i + 1] != '\n') {
+					// The letter of an escape, like the n of \n
+					i++;
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * The lines of one file that a word is on
+	 */
+	static class Lines {
+		private int[] lines = new int[4];
+		private int size;
+
+		void add(int line) {
+			if (size > 0 && lines[size - 1] == line) {
+				return;
+			}
+			if (size == lines.length) {
+				lines = Arrays.copyOf(lines, size * 2);
+			}
+			lines[size++] = line;
+		}
+	}
+
+	/**
+	 * The posting list of one word while it is being built
+	 */
+	private static class Postings {
+		private byte[] bytes = new byte[8];
+		private int length;
+		private int count;
+		private int lastFile = -1;
+		private int lastLine;
+
+		void add(int file, int line) {
+			if (file == lastFile) {
+				writeVarint(0);
+				writeVarint(line - lastLine);
+			} else {
+				writeVarint(file - lastFile);
+				writeVarint(line);
+			}
+			count++;
+			lastFile = file;
+			lastLine = line;
+		}
+
+		private void writeVarint(int value) {
+			if (length + 5 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			}
+			while ((value & ~0x7F) != 0) {
+				bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte) value;
+		}
+	}
+
+	/**
+	 * Collects the words of every file. Files are numbered in the order they
+	 * are added, so every posting list stays in order.
+	 */
+	private static class Builder {
+		private final List<String> paths = new ArrayList<>();
+		private final Map<String, Postings> postings = new HashMap<>();
+
+		synchronized int addPath(String path) {
+			paths.add(path);
+			return paths.size() - 1;
+		}
+
+		synchronized void add(String path, Map<String, Lines> words) {
+			int file = addPath(path);
+			for (Map.Entry<String, Lines> word : words.entrySet()) {
+				Postings list = postingsOf(word.getKey());
+				Lines lines = word.getValue();
+				for (int i = 0; i < lines.size; i++) {
+					list.add(file, lines.lines[i]);
+				}
+			}
+		}
+
+		/**
+		 * Copies the postings of a word from an older index, leaving out the
+		 * files that are numbered -1 in <code>files</code>.
+		 */
+		synchronized void copy(String word, long[] values, int[] files) {
+			Postings list = null;
+			for (long value : values) {
+				int file = files[(int) (value >>> 32)];
+				if (file >= 0) {
+					if (list == null) {
+						list = postingsOf(word);
+					}
+					list.add(file, (int) value);
+				}
+			}
+		}
+
+		private Postings postingsOf(String word) {
+			Postings list = postings.get(word);
+			if (list == null) {
+				list = new Postings();
+				postings.put(word, list);
+			}
+			return list;
+		}
+
+		void write(File file, File root) throws IOException {
+			File postingsFile = postingsFileFor(file);
+			File temp = File.createTempFile(postingsFile.getName(), ".tmp", postingsFile.getParentFile());
+			MappedTable.Builder table = new MappedTable.Builder().metadata(root.getPath());
+			try {
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp),
+						65536))) {
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeInt(paths.size());
+					List<byte[]> encoded = new ArrayList<>(paths.size());
+					int offset = 12 + paths.size() * 4;
+					for (String path : paths) {
+						byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+						encoded.add(bytes);
+						out.writeInt(offset);
+						offset += 2 + bytes.length;
+					}
+					for (byte[] bytes : encoded) {
+						out.writeShort(bytes.length);
+						out.write(bytes);
+					}
+					for (Map.Entry<String, Postings> word : postings.entrySet()) {
+						Postings list = word.getValue();
+						table.add(word.getKey(), out.size() + "\t" + list.count);
+						out.write(list.bytes, 0, list.length);
+					}
+				}
+				Files.move(temp.toPath(), postingsFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				// Only left over if the write failed
+				temp.delete();
+			}
+			table.write(file);
+		}
+	}
+
+	/**
+	 * Indexes a range of source files, splitting the range in half until it
+	 * is small enough to do directly.
+	 */
+	private static class IndexTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 64;
+
+		private final ZipSource zip;
+		private final File dir;
+		private final List<String> paths;
+		private final int from;
+		private final int to;
+		private final Builder builder;
+		private final SourceManifest manifest;
+
+		IndexTask(ZipSource zip, File dir, List<String> paths, int from, int to, Builder builder,
+				SourceManifest manifest) {
+			this.zip = zip;
+			this.dir = dir;
+			this.paths = paths;
+			this.from = from;
+			this.to = to;
+			this.builder = builder;
+			this.manifest = manifest;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new IndexTask(zip, dir, paths, from, middle, builder, manifest), new IndexTask(zip, dir,
+						paths, middle, to, builder, manifest));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				String path = paths.get(i);
+				try {
+					byte[] source;
+					if (zip != null) {
+						source = MemberIndex.readFully(zip.openStream(path));
+					} else {
+						File file = new File(dir, path);
+						source = Files.readAllBytes(file.toPath());
+						manifest.record(path, file, source);
+					}
+					builder.add(path, index(source));
+				} catch (IOException e) {
+					// Leave the file out rather than failing the whole index
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,429 @@
+package net.dean.jsadl.render;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * HtmlTokenizer.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.render)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * A forgiving, incremental HTML tokenizer. It reads from a Reader one token
+ * at a time and never looks further ahead than the end of the current token,
+ * so a page can be processed while it is still arriving. No tree is built;
+ * unclosed and stray tags are simply reported as they appear.
+ * <p>
+ * Character references are decoded in text and attribute values. The
+ * contents of <code>script</code> and <code>style</code> elements are
+ * reported as a single text token.
+ */
+public class HtmlTokenizer {
+	/**
+	 * The kinds of tokens
+	 */
+	public enum Token {
+		/**
+		 * Text between tags, with character references decoded
+		 */
+		TEXT,
+		/**
+		 * A start tag, such as <code>&lt;a href="..."&gt;</code>
+		 */
+		START_TAG,
+		/**
+		 * An end tag, such as <code>&lt;/a&gt;</code>
+		 */
+		END_TAG,
+		/**
+		 * A comment, doctype or processing instruction. Its text is not kept.
+		 */
+		COMMENT,
+		/**
+		 * The end of the input
+		 */
+		EOF
+	}
+
+	private static final Map<String, Character> ENTITIES = new HashMap<>();
+
+	static {
+		ENTITIES.put("lt", '<');
+		ENTITIES.put("gt", '>');
+		ENTITIES.put("amp", '&');
+		ENTITIES.put("quot", '"');
+		ENTITIES.put("apos", '\'');
+		ENTITIES.put("nbsp", '\u00a0');
+		ENTITIES.put("ndash", '\u2013');
+		ENTITIES.put("mdash", '\u2014');
+		ENTITIES.put("hellip", '\u2026');
+		ENTITIES.put("copy", '\u00a9');
+		ENTITIES.put("reg", '\u00ae');
+		ENTITIES.put("trade", '\u2122');
+		ENTITIES.put("lsquo", '\u2018');
+		ENTITIES.put("rsquo", '\u2019');
+		ENTITIES.put("ldquo", '\u201c');
+		ENTITIES.put("rdquo", '\u201d');
+		ENTITIES.put("middot", '\u00b7');
+		ENTITIES.put("times", '\u00d7');
+		ENTITIES.put("rarr", '\u2192');
+		ENTITIES.put("larr", '\u2190');
+	}
+
+	private final Reader in;
+
+	/**
+	 * A character that was read but belongs to the next token, or -2
+	 */
+	private int pushedBack = -2;
+
+	/**
+	 * The element whose contents are raw text, such as "script", or null
+	 */
+	private String rawTextElement;
+
+	/**
+	 * The end tag of a raw text element that still has to be reported, or
+	 * null
+	 */
+	private String pendingEnd;
+
+	private Token token;
+	private final StringBuilder text = new StringBuilder();
+	private String name;
+	private final Map<String, String> attributes = new HashMap<>();
+	private boolean selfClosing;
+
+	/**
+	 * Instantiates a new HtmlTokenizer
+	 * 
+	 * @param in
+	 *            The HTML to tokenize. It is read in small pieces as tokens
+	 *            are requested, so it should be buffered.
+	 */
+	public HtmlTokenizer(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Reads the next token.
+	 * 
+	 * @return The kind of token that was read
+	 * @throws IOException
+	 *             If the input could not be read
+	 */
+	public Token next() throws IOException {
+		text.setLength(0);
+		name = null;
+		attributes.clear();
+		selfClosing = false;
+
+		if (pendingEnd != null) {
+			name = pendingEnd;
+			pendingEnd = null;
+			return token = Token.END_TAG;
+		}
+		if (rawTextElement != null) {
+			return token = readRawText();
+		}
+
+		int c = read();
+		if (c == -1) {
+			return token = Token.EOF;
+		}
+		if (c != '<') {
+			unread(c);
+			return token = readText();
+		}
+
+		c = read();
+		if (c == '/') {
+			int first = read();
+			if (isNameStart(first)) {
+				name = readName(first);
+				skipTo('>');
+				return token = Token.END_TAG;
+			}
+			// Not really a tag, like "</ "
+			unread(first);
+			skipTo('>');
+			return token = Token.COMMENT;
+		} else if (c == '!' || c == '?') {
+			readComment(c);
+			return token = Token.COMMENT;
+		} else if (isNameStart(c)) {
+			name = readName(c);
+			readAttributes();
+			if (!selfClosing && (name.equals("script") || name.equals("style"))) {
+				rawTextElement = name;
+			}
+			return token = Token.START_TAG;
+		}
+
+		// A lone '<' is just text
+		text.append('<');
+		unread(c);
+		readTextInto();
+		return token = Token.TEXT;
+	}
+
+	/**
+	 * Gets the kind of the current token.
+	 * 
+	 * @return The kind of token
+	 */
+	public Token getToken() {
+		return token;
+	}
+
+	/**
+	 * Gets the text of the current {@link Token#TEXT} token.
+	 * 
+	 * @return The decoded text
+	 */
+	public String getText() {
+		return text.toString();
+	}
+
+	/**
+	 * Gets the lower case name of the current tag.
+	 * 
+	 * @return The name, or null if the current token isn't a tag
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets an attribute of the current start tag.
+	 * 
+	 * @param attribute
+	 *            The lower case name of the attribute
+	 * @return The decoded value, an empty string if the attribute has no
+	 *         value or null if the tag doesn't have it
+	 */
+	public String getAttribute(String attribute) {
+		return attributes.get(attribute);
+	}
+
+	/**
+	 * Tests if the current start tag ends with "/&gt;".
+	 * 
+	 * @return True if the tag closes itself
+	 */
+	public boolean isSelfClosing() {
+		return selfClosing;
+	}
+
+	private Token readText() throws IOException {
+		readTextInto();
+		return Token.TEXT;
+	}
+
+	private void readTextInto() throws IOException {
+		int c;
+		while ((c = read()) != -1 && c != '<') {
+			if (c == '&') {
+				readReference(text);
+			} else {
+				text.append((char) c);
+			}
+		}
+		if (c == '<') {
+			unread(c);
+		}
+	}
+
+	private Token readRawText() throws IOException {
+		String end = "</" + rawTextElement;
+		int c;
+		while ((c = read()) != -1) {
+			text.append((char) c);
+			if (c == '>' || text.length() < end.length()) {
+				continue;
+			}
+			// Check for the end tag as soon as its name has been read
+			int start = text.length() - end.length();
+			if (text.substring(start).equalsIgnoreCase(end)) {
+				text.setLength(start);
+				name = rawTextElement;
+				rawTextElement = null;
+				skipTo('>');
+				if (text.length() == 0) {
+					return Token.END_TAG;
+				}
+				// Report the text now and the end tag next time
+				pendingEnd = name;
+				name = null;
+				return Token.TEXT;
+			}
+		}
+		rawTextElement = null;
+		return Token.TEXT;
+	}
+
+	private String readName(int first) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int c = first;
+		while (c != -1 && !Character.isWhitespace(c) && c != '>' && c != '/' && c != '=') {
+			sb.append((char) c);
+			c = read();
+		}
+		unread(c);
+		return sb.toString().toLowerCase(Locale.ROOT);
+	}
+
+	private void readAttributes() throws IOException {
+		while (true) {
+			int c = skipWhitespace();
+			if (c == -1 || c == '>') {
+				return;
+			}
+			if (c == '/') {
+				int next = read();
+				if (next == '>') {
+					selfClosing = true;
+					return;
+				}
+				unread(next);
+				continue;
+			}
+
+			String attribute = readName(c);
+			c = skipWhitespace();
+			if (c != '=') {
+				unread(c);
+				attributes.put(attribute, "");
+				continue;
+			}
+
+			StringBuilder value = new StringBuilder();
+			c = skipWhitespace();
+			if (c == '"' || c == '\'') {
+				int quote = c;
+				while ((c = read()) != -1 && c != quote) {
+					if (c == '&') {
+						readReference(value);
+					} else {
+						value.append((char) c);
+					}
+				}
+			} else {
+				while (c != -1 && !Character.isWhitespace(c) && c != '>') {
+					if (c == '&') {
+						readReference(value);
+					} else {
+						value.append((char) c);
+					}
+					c = read();
+				}
+				unread(c);
+			}
+			attributes.put(attribute, value.toString());
+		}
+	}
+
+	private void readComment(int first) throws IOException {
+		int a = read();
+		int b = a == -1 ? -1 : read();
+		if (first == '!' && a == '-' && b == '-') {
+			// Ends at "-->"
+			int dashes = 0;
+			int c;
+			while ((c = read()) != -1) {
+				if (c == '>' && dashes >= 2) {
+					return;
+				}
+				dashes = c == '-' ? dashes + 1 : 0;
+			}
+			return;
+		}
+		if (a == '>') {
+			// "<!>"
+			unread(b);
+		} else if (a != -1 && b != '>') {
+			skipTo('>');
+		}
+	}
+
+	/**
+	 * Decodes a character reference after its '&amp;'. Anything that isn't a
+	 * known reference is kept as it was.
+	 */
+	private void readReference(StringBuilder out) throws IOException {
+		StringBuilder ref = new StringBuilder();
+		int c;
+		while ((c = read()) != -1 && ref.length() < 10 && (Character.isLetterOrDigit(c) || c == '#')) {
+			ref.append((char) c);
+		}
+		boolean terminated = c == ';';
+		if (!terminated) {
+			unread(c);
+		}
+
+		String reference = ref.toString();
+		int decoded = -1;
+		if (reference.startsWith("#x") || reference.startsWith("#X")) {
+			decoded = parseCodePoint(reference.substring(2), 16);
+		} else if (reference.startsWith("#")) {
+			decoded = parseCodePoint(reference.substring(1), 10);
+		} else if (ENTITIES.containsKey(reference)) {
+			decoded = ENTITIES.get(reference);
+		}
+
+		if (decoded >= 0) {
+			out.appendCodePoint(decoded);
+		} else {
+			out.append('&').append(reference);
+			if (terminated) {
+				out.append(';');
+			}
+		}
+	}
+
+	private static int parseCodePoint(String digits, int radix) {
+		try {
+			int codePoint = Integer.parseInt(digits, radix);
+			return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private int skipWhitespace() throws IOException {
+		int c;
+		while ((c = read()) != -1 && Character.isWhitespace(c)) {
+			// Skip
+		}
+		return c;
+	}
+
+	private void skipTo(char end) throws IOException {
+		int c;
+		while ((c = read()) != -1 && c != end) {
+			// Skip
+		}
+	}
+
+	private static boolean isNameStart(int c) {
+		return c != -1 && Character.isLetter(c);
+	}
+
+	private int read() throws IOException {
+		if (pushedBack != -2) {
+			int c = pushedBack;
+			pushedBack = -2;
+			return c;
+		}
+		return in.read();
+	}
+
+	private void unread(int c) {
+		pushedBack = c;
+	}
+}
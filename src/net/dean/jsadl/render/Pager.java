@@ -0,0 +1,153 @@
+package net.dean.jsadl.render;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import net.dean.util.file.FileUtil;
+
+/*
+ * Pager.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.render)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Where rendered text goes: a pager such as <code>less</code> when JSaDL runs
+ * in a terminal, or standard output when its output is redirected. The pager
+ * is the one named by the <code>PAGER</code> environment variable, or
+ * <code>less</code> if it is installed.
+ */
+public class Pager implements Closeable {
+	private final Process process;
+	private final Writer writer;
+	private final boolean terminal;
+
+	private Pager(Process process, Writer writer, boolean terminal) {
+		this.process = process;
+		this.writer = writer;
+		this.terminal = terminal;
+	}
+
+	/**
+	 * Starts a pager if JSaDL is running in a terminal.
+	 * 
+	 * @return The pager, which writes to standard output if there is no
+	 *         terminal or no pager could be started
+	 */
+	public static Pager open() {
+		boolean terminal = System.console() != null;
+		Charset charset = Charset.defaultCharset();
+		if (terminal) {
+			String command = System.getenv("PAGER");
+			if (command == null || command.trim().isEmpty()) {
+				command = FileUtil.isInPath("less") ? "less" : null;
+			}
+			if (command != null && !command.trim().equals("cat")) {
+				List<String> parts = Arrays.asList(command.trim().split("\\s+"));
+				ProcessBuilder pb = new ProcessBuilder(parts).redirectOutput(ProcessBuilder.Redirect.INHERIT)
+						.redirectError(ProcessBuilder.Redirect.INHERIT);
+				Map<String, String> env = pb.environment();
+				if (!env.containsKey("LESS")) {
+					// Quit if it fits on one screen, show colors, keep the text
+					// on screen after quitting
+					env.put("LESS", "FRX");
+				}
+				try {
+					Process process = pb.start();
+					return new Pager(process, new BufferedWriter(new OutputStreamWriter(process.getOutputStream(),
+							charset)), true);
+				} catch (IOException e) {
+					// Write to the terminal directly
+				}
+			}
+		}
+		return new Pager(null, new BufferedWriter(new OutputStreamWriter(System.out, charset)), terminal);
+	}
+
+	/**
+	 * Gets the width of the terminal, from the <code>COLUMNS</code>
+	 * environment variable if it is set.
+	 * 
+	 * @return The number of columns, 80 if unknown
+	 */
+	public static int getWidth() {
+		String columns = System.getenv("COLUMNS");
+		if (columns != null) {
+			try {
+				return Integer.parseInt(columns.trim());
+			} catch (NumberFormatException e) {
+				// Use the default
+			}
+		}
+		return 80;
+	}
+
+	/**
+	 * Gets the Writer that text should be written to.
+	 * 
+	 * @return The Writer
+	 */
+	public Writer getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Tests if the text will be shown in a terminal, and so can use ANSI
+	 * escape codes.
+	 * 
+	 * @return True for a terminal
+	 */
+	public boolean isTerminal() {
+		String term = System.getenv("TERM");
+		return terminal && term != null && !term.equals("dumb");
+	}
+
+	/**
+	 * Tests if the user quit the pager. Writing fails after that, which isn't
+	 * an error.
+	 * 
+	 * @return True if the pager has exited
+	 */
+	public boolean wasQuit() {
+		if (process == null) {
+			return false;
+		}
+		try {
+			process.exitValue();
+			return true;
+		} catch (IllegalThreadStateException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Finishes the text and waits for the user to quit the pager.
+	 */
+	@Override
+	public void close() {
+		try {
+			if (process == null) {
+				writer.flush();
+			} else {
+				writer.close();
+			}
+		} catch (IOException e) {
+			// The pager was quit before the end
+		}
+		if (process != null) {
+			try {
+				process.waitFor();
+			} catch (InterruptedException e) {
+				process.destroy();
+			}
+		}
+	}
+}
@@ -0,0 +1,519 @@
+package net.dean.jsadl.render;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import net.dean.jsadl.render.HtmlTokenizer.Token;
+
+/*
+ * TerminalRenderer.java
+ *
+ * Part of project JSaDL (net.dean.jsadl.render)
+ *
+ * Originally created on Oct 17, 2026
+ */
+/**
+ * Turns a Javadoc page into wrapped plain text, optionally with ANSI bold and
+ * underline, as the page is read. Each token is formatted and written as soon
+ * as it arrives and nothing but the current word is buffered, so the top of a
+ * page is shown long before the rest of it has been downloaded.
+ * <p>
+ * Navigation bars, scripts and styles are left out. Headings are bold,
+ * lists are indented and table rows are kept on one line where they fit.
+ */
+public class TerminalRenderer {
+	private static final String BOLD = "\u001b[1m";
+	private static final String UNDERLINE = "\u001b[4m";
+	private static final String RESET = "\u001b[0m";
+
+	/**
+	 * Elements that are never shown, along with everything in them
+	 */
+	private static final Set<String> SKIPPED = new HashSet<>(Arrays.asList("head", "script", "style", "noscript",
+			"nav", "header", "template"));
+
+	/**
+	 * Classes of navigation bars and table tabs
+	 */
+	private static final Set<String> SKIPPED_CLASSES = new HashSet<>(Arrays.asList("topNav", "subNav",
+			"bottomNav", "fixedNav", "skipNav", "table-tabs"));
+
+	/**
+	 * Elements that start and end on their own line
+	 */
+	private static final Set<String> BLOCKS = new HashSet<>(Arrays.asList("div", "section", "article", "main",
+			"footer", "aside", "ul", "ol", "dl", "dt", "dd", "li", "tr", "caption", "details", "summary", "form",
+			"table", "blockquote"));
+
+	/**
+	 * Elements that are separated from what's around them by an empty line
+	 */
+	private static final Set<String> PARAGRAPHS = new HashSet<>(Arrays.asList("p", "pre", "h1", "h2", "h3", "h4",
+			"h5", "h6", "table", "hr"));
+
+	/**
+	 * Elements that never have an end tag
+	 */
+	private static final Set<String> VOID = new HashSet<>(Arrays.asList("br", "hr", "img", "meta", "link",
+			"input", "wbr", "area", "base", "col", "embed", "source", "track"));
+
+	/**
+	 * How many lines are flushed one at a time, so the first screen appears
+	 * as soon as it is ready. Later lines are flushed when the buffer fills.
+	 */
+	private static final int EAGER_LINES = 100;
+
+	private final Writer out;
+	private final int width;
+	private final boolean ansi;
+
+	/**
+	 * The id or name of the element to start at, or null to show the whole
+	 * page
+	 */
+	private String anchor;
+
+	private String skipping;
+	private int skipDepth;
+
+	/**
+	 * For each open div, whether it is a table cell
+	 */
+	private final Deque<Boolean> cells = new ArrayDeque<>();
+
+	/**
+	 * For each open list, whether it is only used for layout. Javadoc nests
+	 * whole sections in lists with classes, which aren't shown as lists.
+	 */
+	private final Deque<Boolean> layoutLists = new ArrayDeque<>();
+
+	private int pre;
+
+	/**
+	 * True until the first character of a pre element, whose first line
+	 * break isn't shown
+	 */
+	private boolean preStart;
+
+	/**
+	 * Spaces in a pre element that are only written once something follows
+	 * them on the same line
+	 */
+	private int preSpaces;
+
+	private int bold;
+	private int underline;
+
+	private int indent;
+	private int column;
+	private int lines;
+	private boolean blankLine = true;
+	private boolean pendingSpace;
+
+	/**
+	 * True if the next word starts a new table cell on the current line
+	 */
+	private boolean nextCell;
+
+	/**
+	 * The word being built, including any escape codes, and its width on
+	 * screen
+	 */
+	private final StringBuilder word = new StringBuilder();
+	private int wordWidth;
+
+	/**
+	 * Instantiates a new TerminalRenderer
+	 * 
+	 * @param out
+	 *            Where to write the text
+	 * @param width
+	 *            The number of columns to wrap at
+	 * @param ansi
+	 *            True to use ANSI escape codes for bold and underlined text
+	 */
+	public TerminalRenderer(Writer out, int width, boolean ansi) {
+		this.out = out;
+		this.width = Math.max(20, width);
+		this.ansi = ansi;
+	}
+
+	/**
+	 * Makes rendering start at the element with the given id (or name, for
+	 * older pages) instead of the top of the page.
+	 * 
+	 * @param anchor
+	 *            The id, such as <code>put(K,V)</code>, or null for the top
+	 */
+	public void setAnchor(String anchor) {
+		this.anchor = anchor;
+	}
+
+	/**
+	 * Renders a page, writing it as it is read.
+	 * 
+	 * @param html
+	 *            The page
+	 * @return False if an anchor was set but never found
+	 * @throws IOException
+	 *             If the page could not be read or the text written
+	 */
+	public boolean render(Reader html) throws IOException {
+		HtmlTokenizer tokenizer = new HtmlTokenizer(html);
+		Token token;
+		while ((token = tokenizer.next()) != Token.EOF) {
+			if (token == Token.COMMENT) {
+				continue;
+			}
+			if (anchor != null) {
+				// Nothing is shown until the anchor
+				if (token == Token.START_TAG
+						&& (anchor.equals(tokenizer.getAttribute("id")) || anchor.equals(tokenizer
+								.getAttribute("name")))) {
+					anchor = null;
+				} else {
+					continue;
+				}
+			}
+
+			if (skipping != null) {
+				if (tokenizer.getName() != null && tokenizer.getName().equals(skipping)) {
+					if (token == Token.START_TAG && !tokenizer.isSelfClosing()) {
+						skipDepth++;
+					} else if (token == Token.END_TAG && --skipDepth == 0) {
+						skipping = null;
+					}
+				}
+				continue;
+			}
+
+			switch (token) {
+			case TEXT:
+				text(tokenizer.getText());
+				break;
+			case START_TAG:
+				start(tokenizer);
+				break;
+			case END_TAG:
+				end(tokenizer.getName());
+				break;
+			default:
+				break;
+			}
+		}
+		flushWord();
+		if (column > 0) {
+			newLine();
+		}
+		out.flush();
+		return anchor == null;
+	}
+
+	private void start(HtmlTokenizer tokenizer) throws IOException {
+		String name = tokenizer.getName();
+		String cssClass = tokenizer.getAttribute("class");
+		if (SKIPPED.contains(name) || cssClass != null && SKIPPED_CLASSES.contains(cssClass)) {
+			if (!tokenizer.isSelfClosing() && !VOID.contains(name)) {
+				skipping = name;
+				skipDepth = 1;
+			}
+			return;
+		}
+
+		boolean cell = name.equals("div") && cssClass != null && cssClass.contains("col-");
+		if (name.equals("div")) {
+			cells.push(cell);
+		}
+		if (cell) {
+			// A cell of a Javadoc 16+ summary table
+			flushWord();
+			if (cssClass.contains("col-first") || cssClass.contains("col-constructor-name")
+					|| cssClass.contains("col-summary-item-name")) {
+				breakLine();
+			} else {
+				nextCell = true;
+			}
+			return;
+		}
+
+		if (PARAGRAPHS.contains(name)) {
+			emptyLine();
+		} else if (BLOCKS.contains(name)) {
+			breakLine();
+		}
+
+		switch (name) {
+		case "br":
+			flushWord();
+			newLine();
+			break;
+		case "hr":
+			write(repeat('-', Math.min(width, 40)));
+			newLine();
+			break;
+		case "pre":
+			pre++;
+			preStart = true;
+			break;
+		case "h1":
+		case "h2":
+		case "h3":
+		case "h4":
+		case "h5":
+		case "h6":
+		case "b":
+		case "strong":
+		case "dt":
+			style(++bold, underline);
+			break;
+		case "i":
+		case "em":
+		case "var":
+		case "cite":
+			style(bold, ++underline);
+			break;
+		case "ul":
+		case "ol":
+			boolean layout = cssClass != null && cssClass.toLowerCase().contains("list");
+			layoutLists.push(layout);
+			if (!layout) {
+				indent += 2;
+			}
+			break;
+		case "dl":
+		case "blockquote":
+		case "dd":
+			indent += 2;
+			break;
+		case "li":
+			if (layoutLists.isEmpty() || !layoutLists.peek()) {
+				writeIndent();
+				write("* ");
+				indent += 2;
+			}
+			break;
+		case "td":
+		case "th":
+			flushWord();
+			nextCell = true;
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void end(String name) throws IOException {
+		if (name.equals("div") && !cells.isEmpty() && cells.pop()) {
+			// Cells stay on their row
+			return;
+		}
+
+		switch (name) {
+		case "pre":
+			pre = Math.max(0, pre - 1);
+			preSpaces = 0;
+			break;
+		case "h1":
+		case "h2":
+		case "h3":
+		case "h4":
+		case "h5":
+		case "h6":
+		case "b":
+		case "strong":
+		case "dt":
+			style(bold = Math.max(0, bold - 1), underline);
+			break;
+		case "i":
+		case "em":
+		case "var":
+		case "cite":
+			style(bold, underline = Math.max(0, underline - 1));
+			break;
+		case "ul":
+		case "ol":
+			breakLine();
+			if (layoutLists.isEmpty() || !layoutLists.pop()) {
+				indent = Math.max(0, indent - 2);
+			}
+			break;
+		case "li":
+			breakLine();
+			if (layoutLists.isEmpty() || !layoutLists.peek()) {
+				indent = Math.max(0, indent - 2);
+			}
+			break;
+		case "dl":
+		case "blockquote":
+		case "dd":
+			breakLine();
+			indent = Math.max(0, indent - 2);
+			break;
+		default:
+			break;
+		}
+
+		if (PARAGRAPHS.contains(name)) {
+			emptyLine();
+		} else if (BLOCKS.contains(name)) {
+			breakLine();
+		}
+	}
+
+	private void text(String text) throws IOException {
+		if (pre > 0) {
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				if (c == '\r') {
+					continue;
+				}
+				boolean first = preStart;
+				preStart = false;
+				if (c == '\n') {
+					preSpaces = 0;
+					if (!first) {
+						flushWord();
+						newLine();
+					}
+				} else if (c == ' ' || c == '\t' || c == '\u00a0') {
+					preSpaces++;
+				} else {
+					if (column == 0 && wordWidth == 0) {
+						writeIndent();
+					}
+					for (; preSpaces > 0; preSpaces--) {
+						appendChar(' ');
+					}
+					appendChar(c);
+				}
+			}
+			return;
+		}
+
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (Character.isWhitespace(c)) {
+				flushWord();
+				if (column > indent) {
+					pendingSpace = true;
+				}
+			} else {
+				appendChar(c == '\u00a0' ? ' ' : c);
+			}
+		}
+	}
+
+	private void appendChar(char c) {
+		word.append(c);
+		if (!Character.isLowSurrogate(c)) {
+			wordWidth++;
+		}
+	}
+
+	/**
+	 * Writes the current word, first starting a new line if it doesn't fit
+	 */
+	private void flushWord() throws IOException {
+		if (word.length() == 0) {
+			return;
+		}
+		if (wordWidth == 0) {
+			// Only escape codes
+			out.write(word.toString());
+			word.setLength(0);
+			return;
+		}
+		int space = nextCell ? 2 : pendingSpace ? 1 : 0;
+		if (pre == 0 && column > indent && column + space + wordWidth > width) {
+			newLine();
+		}
+		if (column == 0) {
+			writeIndent();
+		} else if (column > indent && space > 0) {
+			out.write(space == 2 ? "  " : " ");
+			column += space;
+		}
+		pendingSpace = false;
+		nextCell = false;
+		out.write(word.toString());
+		column += wordWidth;
+		blankLine = false;
+		word.setLength(0);
+		wordWidth = 0;
+	}
+
+	private void style(int bold, int underline) {
+		if (ansi) {
+			word.append(RESET).append(codesFor(bold, underline));
+		}
+	}
+
+	private static String codesFor(int bold, int underline) {
+		return (bold > 0 ? BOLD : "") + (underline > 0 ? UNDERLINE : "");
+	}
+
+	private void write(String s) throws IOException {
+		flushWord();
+		if (column == 0) {
+			writeIndent();
+		}
+		out.write(s);
+		column += s.length();
+		blankLine = false;
+	}
+
+	private void writeIndent() throws IOException {
+		if (column == 0 && indent > 0) {
+			out.write(repeat(' ', indent));
+			column = indent;
+		}
+	}
+
+	/**
+	 * Ends the current line if anything is on it
+	 */
+	private void breakLine() throws IOException {
+		flushWord();
+		if (column > 0) {
+			newLine();
+		}
+	}
+
+	/**
+	 * Makes sure the next text follows an empty line
+	 */
+	private void emptyLine() throws IOException {
+		breakLine();
+		if (!blankLine) {
+			newLine();
+		}
+	}
+
+	private void newLine() throws IOException {
+		blankLine = column == 0;
+		if (ansi && (bold > 0 || underline > 0)) {
+			// Pagers don't carry styles across lines
+			out.write(RESET + "\n" + codesFor(bold, underline));
+		} else {
+			out.write('\n');
+		}
+		column = 0;
+		pendingSpace = false;
+		nextCell = false;
+		if (++lines <= EAGER_LINES) {
+			out.flush();
+		}
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+}